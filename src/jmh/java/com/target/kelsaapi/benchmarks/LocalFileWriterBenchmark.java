@@ -0,0 +1,77 @@
+package com.target.kelsaapi.benchmarks;
+
+import com.target.kelsaapi.common.service.file.LocalFileWriterServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the local list writers (plain and gzip) and the tar.gz builder of {@link LocalFileWriterServiceImpl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocalFileWriterBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private final LocalFileWriterServiceImpl localFileWriterService = new LocalFileWriterServiceImpl();
+
+    private List<String> contents;
+
+    private Path workDirectory;
+
+    private Path listFile;
+
+    private List<Path> tarInputs;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        contents = SyntheticData.csvRows(rows);
+        workDirectory = Files.createTempDirectory("jmh-local-writer");
+        listFile = workDirectory.resolve("list.csv");
+    }
+
+    /**
+     * The tar builder deletes its inputs, so they are recreated before every call.
+     */
+    @Setup(Level.Invocation)
+    public void writeTarInputs() {
+        tarInputs = new ArrayList<>();
+        for (int part = 0; part < 4; part++) {
+            Path input = workDirectory.resolve("part_" + part + ".csv");
+            localFileWriterService.writeLocalFile(contents.subList(part * rows / 4, (part + 1) * rows / 4), input.toString(), false);
+            tarInputs.add(input);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(workDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Boolean writeListFile() {
+        return localFileWriterService.writeLocalFile(contents, listFile.toString(), false, false);
+    }
+
+    @Benchmark
+    public Boolean writeCompressedListFile() {
+        return localFileWriterService.writeLocalFile(contents, listFile + ".gz", true, false);
+    }
+
+    @Benchmark
+    public Boolean writeTarGz() {
+        return localFileWriterService.writeLocalFile(workDirectory.resolve("bundle.tar.gz").toString(), tarInputs);
+    }
+}
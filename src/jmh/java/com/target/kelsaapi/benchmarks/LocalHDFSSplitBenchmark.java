@@ -0,0 +1,115 @@
+package com.target.kelsaapi.benchmarks;
+
+import com.target.kelsaapi.common.service.file.HDFSFileWriterService;
+import com.target.kelsaapi.common.service.file.LocalFileWriterServiceImpl;
+import com.target.kelsaapi.common.service.file.LocalHDFSFileWriterServiceImpl;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the streaming split in {@link LocalHDFSFileWriterServiceImpl#writeLocalFileToHdfs}, reading a local csv
+ * through a file URL. The HDFS move is replaced by a delete, so only the read, buffer, split and gzip work is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocalHDFSSplitBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean compress;
+
+    private LocalHDFSFileWriterServiceImpl splitter;
+
+    private Path workDirectory;
+
+    private URL sourceUrl;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workDirectory = Files.createTempDirectory("jmh-split");
+        Path source = workDirectory.resolve("source.csv");
+        Files.write(source, SyntheticData.csvRows(rows));
+        sourceUrl = source.toUri().toURL();
+
+        PipelineConfig pipelineConfig = new PipelineConfig();
+        pipelineConfig.apiconfig = new PipelineConfig.Apiconfig();
+        pipelineConfig.apiconfig.source = new PipelineConfig.Source();
+        pipelineConfig.apiconfig.source.cleanupTempFile = true;
+
+        //Registered as singletons so none of the production init callbacks run
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("pipelineConfig", pipelineConfig);
+        context.getBeanFactory().registerSingleton("hdfsFileWriterService", new DeletingHDFSFileWriterService());
+        context.getBeanFactory().registerSingleton("localFileWriterService", new LocalFileWriterServiceImpl());
+        context.refresh();
+        splitter = new LocalHDFSFileWriterServiceImpl(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(workDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void splitToFiles() throws IOException {
+        splitter.writeLocalFileToHdfs(sourceUrl, "split", ".csv", workDirectory.toString(),
+                "/benchmark/target/", compress, 100_000, 256L * 1024 * 1024);
+    }
+
+    /**
+     * Stands in for the Xenon move by deleting the local file the splitter hands over.
+     */
+    private static class DeletingHDFSFileWriterService implements HDFSFileWriterService {
+
+        @Override
+        public void writeToHDFS(String filePath, String tempFile, Integer writeAttempts, Boolean cleanupTempFile) throws IOException {
+            Files.deleteIfExists(Path.of(tempFile));
+        }
+
+        @Override
+        public Boolean writeToHDFS(String contents, String filePath) {
+            return true;
+        }
+
+        @Override
+        public Boolean writeToHDFS(String contents, String filePath, Integer writeAttempts, String tempFile, Boolean cleanupTempFile) {
+            return true;
+        }
+
+        @Override
+        public Boolean writeToHDFS(List<String> contents, String filePath, Integer writeAttempts, String tempFile, Boolean cleanupTempFile) {
+            return true;
+        }
+
+        @Override
+        public Boolean writeToHDFS(String filePath, String outputGZTarFile, List<Path> inputFilePaths, Integer writeAttempts, Boolean cleanupTempFile) {
+            return true;
+        }
+
+        @Override
+        public Boolean writeToHDFS(String filePath, Integer writeAttempts, String tempFile, Boolean cleanupTempFile) {
+            return true;
+        }
+
+        @Override
+        public Boolean writeToHDFS(InputStream contents, String filePath, Integer writeAttempts, String tempFile, Boolean cleanupTempFile) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.target.kelsaapi.benchmarks;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.util.S3EtagIndex;
+import com.target.kelsaapi.common.util.S3Utils;
+import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of diffing the objects under an S3 prefix against those already recorded as loaded, as done before every
+ * switchboard download: building the {@link S3EtagIndex} of the loaded objects and looking every current object up in it,
+ * or only the lookups against an index built beforehand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class S3EtagDiffBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int objects;
+
+    @Param({"0.9"})
+    public double overlap;
+
+    private List<S3ObjectSummary> currentObjects;
+
+    private List<S3ObjectSummaryState> previouslyLoaded;
+
+    private S3EtagIndex previouslyLoadedIndex;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        currentObjects = SyntheticData.currentObjects(objects);
+        previouslyLoaded = SyntheticData.previouslyLoaded(objects, overlap);
+        previouslyLoadedIndex = S3EtagIndex.of(previouslyLoaded);
+    }
+
+    @Benchmark
+    public List<S3ObjectSummary> etagDiff() {
+        return S3Utils.curPrevLoadedFileObjectsEtagCheck(previouslyLoaded, currentObjects, "benchmark");
+    }
+
+    @Benchmark
+    public List<S3ObjectSummary> etagDiffPrebuiltIndex() {
+        return previouslyLoadedIndex.newOrChanged(currentObjects);
+    }
+}
@@ -0,0 +1,96 @@
+package com.target.kelsaapi.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.ads.admanager.axis.v202311.LineItem;
+import com.google.gson.Gson;
+import com.target.kelsaapi.common.util.JsonCursorExtractor;
+import com.target.kelsaapi.common.util.SerializerRegistry;
+import com.target.kelsaapi.common.vo.google.response.admanager.delivery.GamJsonWriter;
+import com.target.kelsaapi.common.vo.google.response.admanager.delivery.GamLineItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the json hot paths: finding the next link of a paged API response, either by reading its whole tree or by
+ * streaming it through a {@link JsonCursorExtractor}, and serializing Ad Manager line items for the delivery report,
+ * either reflectively through Gson or through the {@link GamJsonWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int records;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String NEXT_LINK = "/paging/next_link";
+
+    private String pagedResponseJson;
+
+    private JsonCursorExtractor nextLinkExtractor;
+
+    private List<GamLineItem> lineItems;
+
+    private Gson lineItemGson;
+
+    private GamJsonWriter<GamLineItem> lineItemWriter;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        pagedResponseJson = SyntheticData.pagedResponse(records).toString();
+        nextLinkExtractor = new JsonCursorExtractor(MAPPER.getFactory(), List.of(NEXT_LINK));
+        Instant reportTimestamp = Instant.parse("2024-01-02T06:00:00Z");
+        lineItems = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            LineItem lineItem = SyntheticData.lineItem(6_000_000_000L + i);
+            lineItems.add(new GamLineItem(lineItem, "2024-01-01", reportTimestamp));
+        }
+        lineItemGson = SerializerRegistry.shared().gamGson(LineItem.class);
+        lineItemWriter = new GamJsonWriter<>(GamLineItem.class, lineItemGson);
+    }
+
+    @Benchmark
+    public JsonNode readTreeNextLink() throws JsonProcessingException {
+        return MAPPER.readTree(pagedResponseJson).at(NEXT_LINK);
+    }
+
+    @Benchmark
+    public String extractNextLink() throws JsonProcessingException {
+        return nextLinkExtractor.extract(pagedResponseJson).get(NEXT_LINK);
+    }
+
+    @Benchmark
+    public void gamLineItemToJson(Blackhole blackhole) {
+        for (GamLineItem lineItem : lineItems) {
+            blackhole.consume(lineItem.toJson());
+        }
+    }
+
+    @Benchmark
+    public void gamLineItemReflectiveGson(Blackhole blackhole) {
+        for (GamLineItem lineItem : lineItems) {
+            blackhole.consume(lineItemGson.toJson(lineItem));
+        }
+    }
+
+    @Benchmark
+    public int gamLineItemsToSharedBuffer() throws IOException {
+        StringWriter out = new StringWriter(records * 2048);
+        for (GamLineItem lineItem : lineItems) {
+            lineItemWriter.write(lineItem, out);
+            out.write('\n');
+        }
+        return out.getBuffer().length();
+    }
+}
@@ -0,0 +1,152 @@
+package com.target.kelsaapi.benchmarks;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.api.ads.admanager.axis.v202311.*;
+import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generators for the shapes of data the pipelines move, so every benchmark run sees the same input.
+ */
+final class SyntheticData {
+
+    private static final long SEED = 20240101L;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Report style csv rows of roughly 180 bytes each, the size of a typical Pinterest or TradeDesk report row.
+     */
+    static List<String> csvRows(int rows) {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>(rows + 1);
+        lines.add("date,account_id,campaign_id,ad_group_id,impressions,clicks,spend_micros,conversions,currency,campaign_name");
+        for (int i = 0; i < rows; i++) {
+            lines.add(String.join(",",
+                    "2024-01-" + (1 + random.nextInt(28)),
+                    Long.toString(549_000_000_000L + random.nextInt(1_000_000)),
+                    Long.toString(626_000_000_000L + random.nextInt(1_000_000)),
+                    Long.toString(2_680_000_000_000L + random.nextInt(1_000_000)),
+                    Integer.toString(random.nextInt(5_000_000)),
+                    Integer.toString(random.nextInt(50_000)),
+                    Long.toString(random.nextLong() & 0xFFFFFFFFFL),
+                    Integer.toString(random.nextInt(2_000)),
+                    "USD",
+                    "\"Synthetic campaign " + random.nextInt(10_000) + " - always on - national\""));
+        }
+        return lines;
+    }
+
+    /**
+     * A paged API response of the shape SnapChat and Salesforce return: a paging block plus an array of nested records.
+     */
+    static JsonNode pagedResponse(int records) {
+        Random random = new Random(SEED);
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("request_status", "SUCCESS");
+        root.putObject("paging").put("next_link", "https://adsapi.example.com/v1/adaccounts/abc/stats?cursor=" + random.nextLong());
+        ArrayNode items = root.putArray("timeseries_stats");
+        for (int i = 0; i < records; i++) {
+            ObjectNode stat = items.addObject().putObject("timeseries_stat");
+            stat.put("id", Long.toHexString(random.nextLong()));
+            stat.put("type", "CAMPAIGN");
+            stat.put("granularity", "DAY");
+            ArrayNode timeseries = stat.putArray("timeseries");
+            for (int day = 0; day < 7; day++) {
+                ObjectNode point = timeseries.addObject();
+                point.put("start_time", "2024-01-0" + (day + 1) + "T00:00:00.000-06:00");
+                ObjectNode stats = point.putObject("stats");
+                stats.put("impressions", random.nextInt(1_000_000));
+                stats.put("swipes", random.nextInt(10_000));
+                stats.put("spend", random.nextInt(100_000_000));
+                stats.put("video_views", random.nextInt(500_000));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * A Line Item populated the way Ad Manager returns a typical standard line item.
+     */
+    static LineItem lineItem(long id) {
+        Random random = new Random(SEED + id);
+        LineItem lineItem = new LineItem();
+        lineItem.setId(id);
+        lineItem.setOrderId(3_000_000_000L + random.nextInt(1_000_000));
+        lineItem.setName("Synthetic line item " + id);
+        lineItem.setOrderName("Synthetic order " + lineItem.getOrderId());
+        lineItem.setExternalId("EXT-" + id);
+        lineItem.setPriority(8);
+        lineItem.setLineItemType(LineItemType.STANDARD);
+        lineItem.setCostType(CostType.CPM);
+        lineItem.setStatus(ComputedStatus.DELIVERING);
+        lineItem.setDeliveryRateType(DeliveryRateType.EVENLY);
+        lineItem.setCreativeRotationType(CreativeRotationType.OPTIMIZED);
+        lineItem.setBudget(new Money("USD", (long) random.nextInt(1_000_000) * 1_000_000L));
+        lineItem.setCostPerUnit(new Money("USD", (long) random.nextInt(20) * 1_000_000L));
+        Stats stats = new Stats();
+        stats.setImpressionsDelivered((long) random.nextInt(10_000_000));
+        stats.setClicksDelivered((long) random.nextInt(100_000));
+        lineItem.setStats(stats);
+        lineItem.setAppliedLabels(new AppliedLabel[]{new AppliedLabel(random.nextLong() & Long.MAX_VALUE, false)});
+        lineItem.setFrequencyCaps(new FrequencyCap[]{new FrequencyCap(3, 1, TimeUnit.DAY)});
+        lineItem.setCreativePlaceholders(new CreativePlaceholder[]{creativePlaceholder(300, 250), creativePlaceholder(728, 90)});
+        lineItem.setAllowedFormats(new AllowedFormats[]{AllowedFormats.AUDIO});
+        return lineItem;
+    }
+
+    private static CreativePlaceholder creativePlaceholder(int width, int height) {
+        CreativePlaceholder placeholder = new CreativePlaceholder();
+        placeholder.setSize(new Size(width, height, false));
+        placeholder.setExpectedCreativeCount(1);
+        return placeholder;
+    }
+
+    /**
+     * The objects currently under an S3 prefix.
+     */
+    static List<S3ObjectSummary> currentObjects(int objects) {
+        List<S3ObjectSummary> summaries = new ArrayList<>(objects);
+        for (int i = 0; i < objects; i++) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName("synthetic-bucket");
+            summary.setKey("switchboard/criteo/2024/01/part-" + i + ".csv.gz");
+            summary.setETag(etag(i));
+            summary.setSize(64L * 1024 * 1024);
+            summary.setLastModified(new Date(1_704_067_200_000L + i * 1000L));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * The objects previously recorded in mdf_s3_objectsummary, overlapping the given fraction of the current objects.
+     */
+    static List<S3ObjectSummaryState> previouslyLoaded(int objects, double overlap) {
+        List<S3ObjectSummaryState> states = new ArrayList<>(objects);
+        int overlapping = (int) (objects * overlap);
+        for (int i = 0; i < objects; i++) {
+            S3ObjectSummaryState state = new S3ObjectSummaryState();
+            int objectIndex = i < overlapping ? i : objects + i;
+            state.setKey("switchboard/criteo/2024/01/part-" + objectIndex + ".csv.gz");
+            state.setEtag(etag(objectIndex));
+            state.setBucketName("synthetic-bucket");
+            states.add(state);
+        }
+        return states;
+    }
+
+    private static String etag(int i) {
+        return String.format("%032x", (long) i * 2_654_435_761L);
+    }
+}
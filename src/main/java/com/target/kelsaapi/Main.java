@@ -5,7 +5,6 @@ import com.target.platform.connector.config.FileSource;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.File;
@@ -16,7 +15,6 @@ import java.util.List;
  * Application Entry point
  */
 @SpringBootApplication(exclude = {KafkaAutoConfiguration.class})
-@EnableRetry
 @EnableScheduling
 public class Main {
     private static final List<String> fileNames = List.of(
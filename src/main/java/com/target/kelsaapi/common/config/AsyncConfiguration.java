@@ -9,14 +9,21 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 @Slf4j
 @Lazy
 public class AsyncConfiguration implements AsyncConfigurer {
 
+    //One thread for each @Scheduled task: the run queue poll and heartbeat, the backfill reconcile, the temp storage
+    //refresh and the GAM credential refresh, so that none of them waits behind another
+    private static final int SCHEDULER_POOL_SIZE = 5;
+
     private final int gamForecastCorePoolSize;
 
     private final int gamForecastMaxPoolSize;
@@ -62,6 +69,15 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return executor;
     }
 
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(SCHEDULER_POOL_SIZE);
+        scheduler.setThreadNamePrefix("Scheduler-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
     @Bean(name = "gamCredentialRefreshMonitor")
     public ThreadPoolTaskExecutor gamCredentialExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
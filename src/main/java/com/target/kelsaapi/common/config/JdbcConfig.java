@@ -11,6 +11,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import javax.sql.DataSource;
 
@@ -24,6 +25,20 @@ public class JdbcConfig implements InitializingBean {
     private String username;
     private String password;
 
+    /**
+     * Upper bound on open connections from this service. Every JDBC and JPA caller shares this pool.
+     */
+    private Integer maximumPoolSize;
+
+    /**
+     * How many prepared statements the Postgres driver keeps parsed on the server per connection.
+     */
+    private Integer preparedStatementCacheQueries;
+
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+
+    private static final int DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES = 256;
+
     /**
      * Invoked by the containing {@code BeanFactory} after it has set all bean properties
      * and satisfied {@link BeanFactoryAware}, {@code ApplicationContextAware} etc.
@@ -55,7 +70,20 @@ public class JdbcConfig implements InitializingBean {
         dataSource.setUsername(getUsername());
         dataSource.setPassword(getPassword());
         dataSource.setJdbcUrl(getUrl());
+        dataSource.setPoolName("kelsa-jdbc");
+        dataSource.setMaximumPoolSize(maximumPoolSize != null && maximumPoolSize > 0 ? maximumPoolSize : DEFAULT_MAXIMUM_POOL_SIZE);
+        //Let the driver switch repeated statements to server-side prepared statements sooner and keep more of them
+        dataSource.addDataSourceProperty("prepareThreshold", 1);
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries",
+                preparedStatementCacheQueries != null && preparedStatementCacheQueries > 0 ? preparedStatementCacheQueries : DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES);
+        //Collapse JDBC batches into multi-row inserts
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", true);
 
         return dataSource;
     }
+
+    @Bean
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
 }
@@ -1,6 +1,9 @@
 package com.target.kelsaapi.common.config;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.observation.ObservationRegistry;
 import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.StandardCookieSpec;
@@ -31,23 +34,30 @@ import java.security.NoSuchAlgorithmException;
 public class KelsaApiConfig {
 
     /**
-     * rest template bean for disabling ssl handshakes
+     * rest template bean for disabling ssl handshakes. Requests are observed, so every call is timed as
+     * http.client.requests and traced, and the connection pool reports its leased, pending and available connections.
      *
+     * @param observationRegistry The {@link ObservationRegistry} from Spring Framework
+     * @param meterRegistry The {@link MeterRegistry} from Spring Framework
      * @return
      * @throws KeyStoreException
      * @throws NoSuchAlgorithmException
      * @throws KeyManagementException
      */
     @Bean(name = "restTemplate")
-    public RestTemplate restTemplate() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+    public RestTemplate restTemplate(ObservationRegistry observationRegistry, MeterRegistry meterRegistry)
+            throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
 
         PoolingHttpClientConnectionManager connectionManager = getPoolingHttpClientConnectionManager();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "restTemplate").bindTo(meterRegistry);
 
         CloseableHttpClient httpClient = getHttpClient(connectionManager);
 
         HttpComponentsClientHttpRequestFactory requestFactory = getRequestFactory(httpClient);
 
-        return new RestTemplate(requestFactory);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setObservationRegistry(observationRegistry);
+        return restTemplate;
     }
 
     HttpComponentsClientHttpRequestFactory getRequestFactory(CloseableHttpClient httpClient) {
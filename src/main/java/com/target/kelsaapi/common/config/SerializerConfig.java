@@ -0,0 +1,35 @@
+package com.target.kelsaapi.common.config;
+
+import com.google.api.ads.admanager.axis.v202311.LineItem;
+import com.google.api.ads.admanager.axis.v202311.Order;
+import com.target.kelsaapi.common.util.SerializerRegistry;
+import com.target.kelsaapi.common.vo.google.response.admanager.delivery.GamLineItem;
+import com.target.kelsaapi.common.vo.google.response.admanager.delivery.GamOrder;
+import com.target.kelsaapi.common.vo.pinterest.PinterestAdAccountsResponse;
+import com.target.kelsaapi.common.vo.snapchat.SnapChatCampaignResponse;
+import com.target.kelsaapi.common.vo.snapchat.SnapChatStatsResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SerializerConfig {
+
+    /**
+     * The shared {@link SerializerRegistry}, with the serializers of the highest volume records resolved at startup
+     * rather than on the first record of the first run.
+     *
+     * @return The registry.
+     */
+    @Bean
+    public SerializerRegistry serializerRegistry() {
+        SerializerRegistry registry = SerializerRegistry.shared();
+        registry.gamGson(LineItem.class).getAdapter(GamLineItem.class);
+        registry.gamGson(Order.class).getAdapter(GamOrder.class);
+        registry.warm(SnapChatStatsResponse.StatsRequest.class,
+                SnapChatStatsResponse.DecoratedStats.class,
+                SnapChatCampaignResponse.CampaignRequest.class,
+                SnapChatCampaignResponse.DecoratedCampaign.class,
+                PinterestAdAccountsResponse.class);
+        return registry;
+    }
+}
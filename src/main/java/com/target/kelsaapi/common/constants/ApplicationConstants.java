@@ -21,6 +21,7 @@ public interface ApplicationConstants {
     String JSONDATA = "application/json";
     String BEARER = "Bearer ";
     String ACCESSTOKEN = "access_token";
+    String EXPIRESIN = "expires_in";
     String USERNAME = "username";
     String QUESTIONMARK = "?";
     String EQUAL = "=";
@@ -60,12 +61,35 @@ public interface ApplicationConstants {
 
     enum PipelineStates {
         INITIALIZED,
+        QUEUED,
         RUNNING,
         FAILED,
         COMPLETED
     }
 
 
+    /**
+     * Priority classes of queued pipeline runs, highest first. A queued run of a higher class is always claimed before
+     * any run of a lower class; the ordinal is what gets stored in mdf_ingest_batch_request.priority.
+     */
+    enum RunPriority {
+        HIGH,
+        NORMAL,
+        BACKFILL
+    }
+
+    enum ColumnarFormats {
+        PARQUET (FileExtensions.PARQUET.getName()),
+        ORC (FileExtensions.ORC.getName());
+
+        @Getter
+        private final String fileExtension;
+
+        ColumnarFormats(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+    }
+
     enum CampaignManager360ReportTypes {
         CAMPAIGN (FileExtensions.CSV_GZ.getName());
 
@@ -229,7 +253,9 @@ public interface ApplicationConstants {
         TAR_GZ(".tar.gz"),
         TAR(".tar"),
         TSV (".tsv"),
-        TSV_GZ (".tsv.gz");
+        TSV_GZ (".tsv.gz"),
+        PARQUET (".parquet"),
+        ORC (".orc");
 
         @Getter
         private final String name;
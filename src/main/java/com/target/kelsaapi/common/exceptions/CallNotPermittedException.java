@@ -0,0 +1,15 @@
+package com.target.kelsaapi.common.exceptions;
+
+/**
+ * Exception used when a call to an outbound endpoint is refused without being made, because its circuit breaker is
+ * open or its bulkhead is full.
+ *
+ * @since 1.0
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+
+}
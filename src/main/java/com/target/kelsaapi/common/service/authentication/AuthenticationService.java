@@ -1,6 +1,7 @@
 package com.target.kelsaapi.common.service.authentication;
 
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.vo.OauthToken;
 import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
 import org.springframework.http.HttpEntity;
 
@@ -14,4 +15,5 @@ public interface AuthenticationService {
     String getOauth2Token(String oauthUrl, HttpEntity<?> requestEntity);
     HttpEntity<?> getOauth2RequestObject(Oauth2 oauth2) throws ConfigurationException;
     String getOauth2Token(String oauthUrl, HttpEntity<?> requestEntity, String accessTokenName, Boolean prependBearerName);
+    OauthToken getOauth2AccessToken(String oauthUrl, HttpEntity<?> requestEntity, String accessTokenName, Boolean prependBearerName);
 }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.google.gson.Gson;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.vo.OauthToken;
 import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +38,21 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     }
     @Override
     public String getOauth2Token(String oauthUrl, HttpEntity<?> requestEntity, String accessTokenName, Boolean prependBearerName) {
+        return getOauth2AccessToken(oauthUrl, requestEntity, accessTokenName, prependBearerName).getAccessToken();
+    }
+
+    /**
+     * Performs the Oauth2 token exchange and returns the token along with its expires_in value, if the identity
+     * provider sent one.
+     *
+     * @param oauthUrl The token endpoint.
+     * @param requestEntity The request built by {@link #getOauth2RequestObject(Oauth2)}.
+     * @param accessTokenName The key (or JSON pointer when it contains a "/") of the token in the response.
+     * @param prependBearerName True to prefix the token with "Bearer ".
+     * @return The access token and its lifetime in seconds.
+     */
+    @Override
+    public OauthToken getOauth2AccessToken(String oauthUrl, HttpEntity<?> requestEntity, String accessTokenName, Boolean prependBearerName) {
         log.info("Performing authentication with oauth2");
         String oauthToken;
         ResponseEntity<JsonNode> responseEntity = restTemplate.exchange(oauthUrl,
@@ -44,6 +60,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
                 requestEntity,
                 JsonNode.class);
         String bearer;
+        Long expiresIn = null;
         try {
             log.debug("Response from Oauth request::{}", responseEntity.getBody().toPrettyString());
             log.debug("Attempting to retrieve access token with key name::{}", accessTokenName);
@@ -55,6 +72,10 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             } else {
                 bearer = responseEntity.getBody().get(accessTokenName).asText();
             }
+            JsonNode expiresInNode = responseEntity.getBody().get(ApplicationConstants.EXPIRESIN);
+            if (expiresInNode != null && expiresInNode.asLong() > 0) {
+                expiresIn = expiresInNode.asLong();
+            }
         } catch (NullPointerException e) {
             log.error("No valid response while getting oAuth token");
             throw new RuntimeException(e.getMessage(), e.getCause());
@@ -66,7 +87,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         }
 
         log.debug("Bearer token is {}", oauthToken);
-        return oauthToken;
+        return new OauthToken(oauthToken, expiresIn);
     }
 
     @Override
@@ -0,0 +1,239 @@
+package com.target.kelsaapi.common.service.authentication;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.vo.OauthToken;
+import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Shares Oauth2 access tokens across every pipeline run using the same {@link Oauth2} configuration.
+ * <p>
+ * Tokens are keyed by the token URL, request headers and body (which carries the client and scopes) and the response
+ * token key name, and are reused until they are within {@link #REFRESH_BEFORE_EXPIRY_SECONDS} of the expires_in the
+ * identity provider reported. Inside that window the current token is still handed out while a single background
+ * refresh replaces it. A failed background refresh is not tried again until {@link #REFRESH_RETRY_SECONDS} later,
+ * doubling with each further failure. Concurrent callers for the same key never trigger more than one token exchange at
+ * a time, so a burst of split runs starting together costs one round trip rather than one each.
+ */
+@Slf4j
+@Service
+public class TokenCache {
+
+    /**
+     * How long before expiry a token is refreshed in the background.
+     */
+    static final long REFRESH_BEFORE_EXPIRY_SECONDS = 300;
+
+    /**
+     * The lifetime assumed for tokens whose response has no expires_in.
+     */
+    static final long DEFAULT_TOKEN_LIFETIME_SECONDS = 1800;
+
+    /**
+     * How long after a failed background refresh the next one is attempted, doubling with each further failure.
+     */
+    static final long REFRESH_RETRY_SECONDS = 30;
+
+    private final AuthenticationService auth;
+
+    private final Map<CacheKey, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    private final Map<CacheKey, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService refreshExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+        thread.setName("TokenRefresh-" + thread.getName());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public TokenCache(AuthenticationService auth) {
+        this.auth = auth;
+    }
+
+    /**
+     * Returns a usable access token for the given configuration, fetching one only when there is no unexpired token
+     * cached. A static access token in the configuration is returned as-is.
+     *
+     * @param config The Oauth2 configuration of the source.
+     * @return The access token, formatted as the identity provider response is configured to be read.
+     * @throws ConfigurationException If the configuration cannot be turned into a token request.
+     */
+    public String getToken(Oauth2 config) throws ConfigurationException {
+        if (config.getAccessToken() != null) {
+            log.debug("Using static access token for auth");
+            return config.getAccessToken();
+        }
+        CacheKey key = new CacheKey(config);
+        CachedToken cached = tokens.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now < cached.expiresAt) {
+            if (now >= cached.refreshAt) {
+                log.debug("Cached token for {} expires in {} ms, refreshing in the background",
+                        config.getOauthUrl(), cached.expiresAt - now);
+                refresh(key, config, true);
+            }
+            return cached.token;
+        }
+        return await(refresh(key, config, false)).token;
+    }
+
+    /**
+     * Fetches a new token after the given one was rejected by a source API. If another caller has already replaced the
+     * rejected token, that newer token is returned without another exchange.
+     *
+     * @param config The Oauth2 configuration of the source.
+     * @param rejectedToken The token the source API answered with a 401.
+     * @return A freshly fetched access token.
+     * @throws ConfigurationException If the configuration cannot be turned into a token request.
+     */
+    public String refreshToken(Oauth2 config, String rejectedToken) throws ConfigurationException {
+        if (config.getAccessToken() != null) {
+            return config.getAccessToken();
+        }
+        CacheKey key = new CacheKey(config);
+        tokens.computeIfPresent(key, (k, cached) -> cached.token.equals(rejectedToken) ? null : cached);
+        return getToken(config);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts a token exchange for the key unless one is already running, in which case the running one is joined.
+     */
+    private CompletableFuture<CachedToken> refresh(CacheKey key, Oauth2 config, boolean background) {
+        CompletableFuture<CachedToken> created = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        Runnable exchange = () -> {
+            try {
+                CachedToken fetched = fetch(config);
+                tokens.put(key, fetched);
+                created.complete(fetched);
+            } catch (Exception e) {
+                if (background) {
+                    CachedToken current = tokens.computeIfPresent(key, (k, cached) -> cached.afterFailedRefresh());
+                    log.warn("Background token refresh from {} failed, keeping the current token until it expires{}: {}",
+                            config.getOauthUrl(), current == null ? "" : " and retrying in "
+                                    + (current.refreshAt - System.currentTimeMillis()) + " ms", e.getMessage());
+                }
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        };
+        if (background) {
+            refreshExecutor.execute(() -> {
+                if (mdcContext != null) MDC.setContextMap(mdcContext);
+                try {
+                    exchange.run();
+                } finally {
+                    MDC.clear();
+                }
+            });
+        } else {
+            exchange.run();
+        }
+        return created;
+    }
+
+    private CachedToken fetch(Oauth2 config) throws ConfigurationException {
+        log.debug("Fetching short term token from Oauth URL: " + config.getOauthUrl());
+        HttpEntity<?> requestAuth = auth.getOauth2RequestObject(config);
+        OauthToken token;
+        if (config.responseTokenKeyName == null) {
+            token = auth.getOauth2AccessToken(config.getOauthUrl(), requestAuth, ApplicationConstants.ACCESSTOKEN, true);
+        } else {
+            token = auth.getOauth2AccessToken(config.getOauthUrl(), requestAuth, config.getResponseTokenKeyName(), false);
+        }
+        long lifetimeSeconds = token.getExpiresInSeconds() != null ? token.getExpiresInSeconds() : DEFAULT_TOKEN_LIFETIME_SECONDS;
+        long refreshAfterSeconds = lifetimeSeconds > 2 * REFRESH_BEFORE_EXPIRY_SECONDS
+                ? lifetimeSeconds - REFRESH_BEFORE_EXPIRY_SECONDS
+                : lifetimeSeconds / 2;
+        long now = System.currentTimeMillis();
+        log.info("Fetched new token from {} valid for {} seconds", config.getOauthUrl(), lifetimeSeconds);
+        return new CachedToken(token.getAccessToken(),
+                now + TimeUnit.SECONDS.toMillis(refreshAfterSeconds),
+                now + TimeUnit.SECONDS.toMillis(lifetimeSeconds));
+    }
+
+    private static CachedToken await(CompletableFuture<CachedToken> future) throws ConfigurationException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConfigurationException configurationException) throw configurationException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    private static class CachedToken {
+        private final String token;
+        private final long refreshAt;
+        private final long expiresAt;
+        private final int failedRefreshes;
+
+        private CachedToken(String token, long refreshAt, long expiresAt) {
+            this(token, refreshAt, expiresAt, 0);
+        }
+
+        private CachedToken(String token, long refreshAt, long expiresAt, int failedRefreshes) {
+            this.token = token;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.failedRefreshes = failedRefreshes;
+        }
+
+        /**
+         * The same token, with its next refresh pushed back. The retry is still made before the token expires.
+         */
+        private CachedToken afterFailedRefresh() {
+            long retryMillis = TimeUnit.SECONDS.toMillis(REFRESH_RETRY_SECONDS) << Math.min(failedRefreshes, 5);
+            long now = System.currentTimeMillis();
+            long nextRefreshAt = now + Math.max(0, Math.min(retryMillis, (expiresAt - now) / 2));
+            return new CachedToken(token, nextRefreshAt, expiresAt, failedRefreshes + 1);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the parts of an {@link Oauth2} configuration that identify which token it exchanges for.
+     */
+    @EqualsAndHashCode
+    private static class CacheKey {
+        private final String oauthUrl;
+        private final Map<String, String> headersMap;
+        private final Map<String, String> bodyMap;
+        private final String responseTokenKeyName;
+
+        private CacheKey(Oauth2 config) {
+            this.oauthUrl = config.getOauthUrl();
+            this.headersMap = copyOf(config.getHeadersMap());
+            this.bodyMap = copyOf(config.getBodyMap());
+            this.responseTokenKeyName = config.getResponseTokenKeyName();
+        }
+
+        private static Map<String, String> copyOf(Map<String, String> map) {
+            return map == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.target.kelsaapi.common.service.criteo;
 
-import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.SftpException;
 import com.target.kelsaapi.common.vo.criteo.CriteoRequest;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 
 public interface CriteoService {
-    String getCriteoData(CriteoRequest request, String hostName, String userName, String password, String privateKeyFile, String pipelineRunId, String reportType, String remoteDirectory, String remoteFileName) throws IOException, JSchException, SftpException;
+    Path getCriteoData(CriteoRequest request, String localDirectory) throws IOException;
+
+    List<Path> getCriteoData(List<CriteoRequest> requests, String localDirectory) throws IOException;
+
+    String fingerprint(Path localFile) throws IOException;
+
+    void recordIngested(CriteoRequest request, String fingerprint, String pipelineRunId);
 }
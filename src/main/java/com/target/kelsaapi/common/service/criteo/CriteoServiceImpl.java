@@ -1,53 +1,291 @@
 package com.target.kelsaapi.common.service.criteo;
 
-import com.jcraft.jsch.*;
+import com.google.api.client.util.Lists;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.service.postgres.watermark.IngestWatermarkService;
+import com.target.kelsaapi.common.service.resilience.DecorrelatedJitterBackOff;
 import com.target.kelsaapi.common.vo.criteo.CriteoRequest;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
 
 import java.io.IOException;
-import java.text.ParseException;
-import java.util.Arrays;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
 
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Downloads Criteo report files over SFTP.
+ * <p>
+ * Connections come from a shared {@link SftpConnectionPool}, so concurrent pipeline runs and multi-file requests reuse
+ * sessions instead of paying a full SSH handshake per file. Each file is first fetched into a ".part" file next to its
+ * final path. If a transfer is interrupted, the next attempt resumes from the bytes already on disk. Failed attempts
+ * are retried after a jittered back off, so a struggling host is not hammered with reconnects.
+ * <p>
+ * Once a file is landed in HDFS, its remote size and modification time are recorded in mdf_ingest_watermark through
+ * {@link #recordIngested}. A remote file which still has the recorded size and modification time is not downloaded again.
+ */
 @Slf4j
 @Service
 public class CriteoServiceImpl implements CriteoService {
 
-    public String getCriteoData(CriteoRequest request, String hostName, String userName, String password, String privateKeyFile, String pipelineRunId, String reportType, String remoteDirectory, String remoteFileName) throws JSchException, SftpException {
-        log.info("connecting to the host: " + hostName);
+    private static final int DEFAULT_PORT = 22;
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+
+    private static final String PART_FILE_SUFFIX = ".part";
+
+    private static final String SOURCE_SYSTEM = ApplicationConstants.Sources.CRITEO.name();
+
+    private static final long INITIAL_RETRY_INTERVAL_MILLIS = 1000;
+
+    private static final long MAX_RETRY_INTERVAL_MILLIS = 30000;
+
+    private final BackOff retryBackOff = new DecorrelatedJitterBackOff(INITIAL_RETRY_INTERVAL_MILLIS, MAX_RETRY_INTERVAL_MILLIS, Long.MAX_VALUE);
+
+    private final PipelineConfig.Criteo criteoConfig;
+
+    private final IngestWatermarkService watermarkService;
+
+    private volatile SftpConnectionPool connectionPool;
+
+    @Autowired
+    public CriteoServiceImpl(PipelineConfig config, IngestWatermarkService watermarkService) {
+        this(config.getApiconfig().getSource().getCriteo(), watermarkService);
+    }
+
+    public CriteoServiceImpl(PipelineConfig.Criteo criteoConfig, IngestWatermarkService watermarkService) {
+        this.criteoConfig = criteoConfig;
+        this.watermarkService = watermarkService;
+    }
+
+    /**
+     * Downloads the remote file for a single request.
+     *
+     * @param request The request naming the remote directory and file.
+     * @param localDirectory The local directory to land the file in. The file keeps its remote name.
+     * @return The local path of the downloaded file, or null if the remote file was already ingested unchanged.
+     * @throws IOException If the file could not be downloaded after all attempts.
+     */
+    @Override
+    @Nullable
+    public Path getCriteoData(CriteoRequest request, String localDirectory) throws IOException {
+        List<Path> localFiles = getCriteoData(List.of(request), localDirectory);
+        return localFiles.isEmpty() ? null : localFiles.get(0);
+    }
+
+    /**
+     * Downloads the remote files for several requests in parallel, up to the configured maximum number of
+     * connections at once.
+     *
+     * @param requests The requests naming the remote directories and files.
+     * @param localDirectory The local directory to land the files in. Each file keeps its remote name.
+     * @return The local paths of the downloaded files, in the same order as the requests. Remote files which were
+     * already ingested unchanged are left out.
+     * @throws IOException If any file could not be downloaded after all attempts.
+     */
+    @Override
+    public List<Path> getCriteoData(List<CriteoRequest> requests, String localDirectory) throws IOException {
+        Files.createDirectories(Paths.get(localDirectory));
+        SftpConnectionPool pool = getConnectionPool();
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(requests.size(), maxConnections()));
         try {
-            ChannelSftp channelSftp = setupJsch(userName, password, privateKeyFile, hostName, 22);
-            channelSftp.connect();
+            List<Future<Path>> transfers = Lists.newArrayList();
+            for (CriteoRequest request : requests) {
+                String remoteFile = remotePath(request);
+                Path localFile = Paths.get(localDirectory, request.getFileName());
+                transfers.add(executor.submit(() -> {
+                    if (mdcContext != null) MDC.setContextMap(mdcContext);
+                    try {
+                        return transferWithRetry(pool, request.getReport_type(), remoteFile, localFile);
+                    } finally {
+                        MDC.clear();
+                    }
+                }));
+            }
+            List<Path> localFiles = Lists.newArrayList();
+            for (Future<Path> transfer : transfers) {
+                localFiles.add(transfer.get());
+            }
+            localFiles.removeIf(Objects::isNull);
+            return localFiles;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading Criteo files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The size and modification time of a landed file, which are those of its remote file, to pass to
+     * {@link #recordIngested} once the file is written to HDFS.
+     *
+     * @param localFile A file returned by {@link #getCriteoData}.
+     * @return The fingerprint of the remote file.
+     * @throws IOException If the file cannot be read.
+     */
+    @Override
+    public String fingerprint(Path localFile) throws IOException {
+        return fingerprint(Files.size(localFile), Files.getLastModifiedTime(localFile));
+    }
 
-            log.info("Started pulling the file from the host: " + hostName);
-            // download file from remote server to local
-            channelSftp.get(remoteFileName, remoteFileName);
-            log.info("Finished pulling the file from the host: " + hostName);
-            return remoteFileName;
-        } catch (JSchException e) {
-            log.error(e.getMessage(),e.getCause());
-            log.error(Arrays.toString(e.getStackTrace()));
-            throw new JSchException(e.getMessage(),e.getCause());
+    /**
+     * Records that a remote file is landed in HDFS, so that it is skipped until its size or modification time change.
+     * A failure to record it only costs downloading the file again, so it is logged rather than thrown.
+     *
+     * @param request The request naming the remote directory and file.
+     * @param fingerprint The {@link #fingerprint} of the file, taken before the HDFS write cleaned it up.
+     * @param pipelineRunId The ID of the pipeline run which landed the file.
+     */
+    @Override
+    public void recordIngested(CriteoRequest request, String fingerprint, String pipelineRunId) {
+        watermarkService.saveCursor(SOURCE_SYSTEM, request.getReport_type(), remotePath(request), fingerprint, pipelineRunId);
+    }
+
+    private Path transferWithRetry(SftpConnectionPool pool, String reportType, String remoteFile, Path localFile) throws IOException, InterruptedException {
+        BackOffExecution backOff = retryBackOff.start();
+        int attempt = 1;
+        while (true) {
+            ChannelSftp channel;
+            try {
+                channel = pool.borrow();
+            } catch (JSchException e) {
+                if (attempt >= ApplicationConstants.DEFAULT_MAX_WRITE_ATTEMPTS) {
+                    throw new IOException("Unable to connect to " + criteoConfig.hostName + ": " + e.getMessage(), e);
+                }
+                log.warn("Attempt {} to connect to {} failed, retrying: {}", attempt++, criteoConfig.hostName, e.getMessage());
+                Thread.sleep(backOff.nextBackOff());
+                continue;
+            }
+            boolean reusable = false;
+            try {
+                Path result = transfer(channel, reportType, remoteFile, localFile);
+                reusable = true;
+                return result;
+            } catch (SftpException e) {
+                //The channel is still usable after a protocol level error such as a missing file
+                reusable = true;
+                if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE || attempt >= ApplicationConstants.DEFAULT_MAX_WRITE_ATTEMPTS) {
+                    throw new IOException("Failed pulling " + remoteFile + " from " + criteoConfig.hostName + ": " + e.getMessage(), e);
+                }
+                log.warn("Attempt {} to pull {} failed, resuming: {}", attempt++, remoteFile, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= ApplicationConstants.DEFAULT_MAX_WRITE_ATTEMPTS) {
+                    throw new IOException("Failed pulling " + remoteFile + " from " + criteoConfig.hostName + ": " + e.getMessage(), e);
+                }
+                log.warn("Attempt {} to pull {} failed, resuming: {}", attempt++, remoteFile, e.getMessage());
+            } finally {
+                pool.release(channel, reusable);
+            }
+            Thread.sleep(backOff.nextBackOff());
         }
-        catch (SftpException e) {
-            log.error(e.getMessage(),e.getCause());
-            log.error(Arrays.toString(e.getStackTrace()));
-            throw new SftpException(e.id,e.getMessage());
+    }
+
+    @Nullable
+    private Path transfer(ChannelSftp channel, String reportType, String remoteFile, Path localFile) throws SftpException, IOException {
+        SftpATTRS remoteAttrs = channel.stat(remoteFile);
+        long remoteSize = remoteAttrs.getSize();
+        FileTime remoteModified = FileTime.from(remoteAttrs.getMTime(), TimeUnit.SECONDS);
+
+        if (fingerprint(remoteSize, remoteModified).equals(ingestedFingerprint(reportType, remoteFile))) {
+            log.info("Skipping {} as it was already ingested with the same size and modification time", remoteFile);
+            return null;
         }
+
+        Path partFile = Paths.get(localFile + PART_FILE_SUFFIX);
+        int mode = ChannelSftp.OVERWRITE;
+        if (Files.exists(partFile)) {
+            long partSize = Files.size(partFile);
+            if (partSize > 0 && partSize < remoteSize) {
+                log.info("Resuming {} from byte {} of {}", remoteFile, partSize, remoteSize);
+                mode = ChannelSftp.RESUME;
+            }
+        }
+
+        log.info("Started pulling {} from the host: {}", remoteFile, criteoConfig.hostName);
+        channel.get(remoteFile, partFile.toString(), null, mode);
+
+        long localSize = Files.size(partFile);
+        if (localSize != remoteSize) {
+            throw new IOException("Size mismatch after pulling " + remoteFile + ": expected " + remoteSize + " bytes but got " + localSize);
+        }
+        Files.setLastModifiedTime(partFile, remoteModified);
+        Files.move(partFile, localFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Finished pulling {} ({} bytes) from the host: {}", remoteFile, remoteSize, criteoConfig.hostName);
+        return localFile;
     }
 
-    private ChannelSftp setupJsch(String username, String password, String pvKeyPath, String hostname, int port) throws JSchException {
-        JSch jsch = new JSch();
-        if (!pvKeyPath.equals("") && pvKeyPath != null)
-            jsch.addIdentity(pvKeyPath);
+    @Nullable
+    private String ingestedFingerprint(String reportType, String remoteFile) {
+        try {
+            return watermarkService.getCursor(SOURCE_SYSTEM, reportType, remoteFile).orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Unable to read the ingested size and modification time of {}, downloading it: {}", remoteFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String fingerprint(long size, FileTime modified) {
+        return size + ":" + modified.to(TimeUnit.SECONDS);
+    }
+
+    private SftpConnectionPool getConnectionPool() throws IOException {
+        if (connectionPool == null) {
+            synchronized (this) {
+                if (connectionPool == null) {
+                    try {
+                        connectionPool = new SftpConnectionPool(criteoConfig.hostName,
+                                valueOrDefault(criteoConfig.port, DEFAULT_PORT),
+                                criteoConfig.userName, criteoConfig.password, criteoConfig.privateKeyFile,
+                                maxConnections(),
+                                (int) TimeUnit.SECONDS.toMillis(valueOrDefault(criteoConfig.connectTimeoutSeconds, DEFAULT_CONNECT_TIMEOUT_SECONDS)));
+                    } catch (JSchException e) {
+                        throw new IOException("Unable to load the Criteo private key: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return connectionPool;
+    }
 
-        Session jschSession = jsch.getSession(username, hostname, port);
-        if (!password.equals("") && password != null)
-            jschSession.setPassword(password);
+    @PreDestroy
+    public void closeConnections() {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
 
-        jschSession.setConfig("StrictHostKeyChecking", "no");
-        jschSession.connect();
-        return (ChannelSftp) jschSession.openChannel("sftp");
+    private int maxConnections() {
+        return valueOrDefault(criteoConfig.maxConnections, DEFAULT_MAX_CONNECTIONS);
     }
 
+    private static String remotePath(CriteoRequest request) {
+        String directory = request.getDirectory();
+        return directory == null || directory.isEmpty() ? request.getFileName() : directory + "/" + request.getFileName();
+    }
 }
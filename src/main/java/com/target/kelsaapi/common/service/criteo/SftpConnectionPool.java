@@ -0,0 +1,134 @@
+package com.target.kelsaapi.common.service.criteo;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A bounded pool of connected SFTP channels to one host, each on its own SSH session.
+ * <p>
+ * Channels are handed out with {@link #borrow()} and must be given back with {@link #release(ChannelSftp, boolean)}.
+ * An idle channel is checked before it is reused, and a broken one is replaced with a new connection. At most
+ * maxConnections channels are open or leased at any time; callers block in {@link #borrow()} until one is free.
+ */
+@Slf4j
+public class SftpConnectionPool implements AutoCloseable {
+
+    private final JSch jsch = new JSch();
+
+    private final String hostName;
+
+    private final int port;
+
+    private final String userName;
+
+    private final String password;
+
+    private final int connectTimeoutMillis;
+
+    private final Semaphore permits;
+
+    private final LinkedBlockingQueue<ChannelSftp> idleChannels = new LinkedBlockingQueue<>();
+
+    public SftpConnectionPool(String hostName, int port, String userName, String password, String privateKeyFile,
+                              int maxConnections, int connectTimeoutMillis) throws JSchException {
+        this.hostName = hostName;
+        this.port = port;
+        this.userName = userName;
+        this.password = password;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.permits = new Semaphore(maxConnections, true);
+        if (privateKeyFile != null && !privateKeyFile.isEmpty()) {
+            jsch.addIdentity(privateKeyFile);
+        }
+    }
+
+    /**
+     * Leases a connected channel, reusing an idle one when it is still healthy.
+     *
+     * @return A connected {@link ChannelSftp}.
+     * @throws JSchException If a new session or channel cannot be opened.
+     * @throws InterruptedException If interrupted while waiting for a free connection.
+     */
+    public ChannelSftp borrow() throws JSchException, InterruptedException {
+        permits.acquire();
+        try {
+            ChannelSftp channel;
+            while ((channel = idleChannels.poll()) != null) {
+                if (isHealthy(channel)) {
+                    return channel;
+                }
+                log.info("Discarding stale SFTP connection to {}", hostName);
+                disconnect(channel);
+            }
+            return open();
+        } catch (JSchException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a leased channel to the pool.
+     *
+     * @param channel The channel from {@link #borrow()}.
+     * @param reusable False if the channel hit an error and should be closed rather than reused.
+     */
+    public void release(ChannelSftp channel, boolean reusable) {
+        if (reusable && isHealthy(channel)) {
+            idleChannels.offer(channel);
+        } else {
+            disconnect(channel);
+        }
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        ChannelSftp channel;
+        while ((channel = idleChannels.poll()) != null) {
+            disconnect(channel);
+        }
+    }
+
+    private ChannelSftp open() throws JSchException {
+        log.info("Opening new SFTP connection to {}:{}", hostName, port);
+        Session session = jsch.getSession(userName, hostName, port);
+        if (password != null && !password.isEmpty()) {
+            session.setPassword(password);
+        }
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect(connectTimeoutMillis);
+        try {
+            ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect(connectTimeoutMillis);
+            return channel;
+        } catch (JSchException e) {
+            session.disconnect();
+            throw e;
+        }
+    }
+
+    private static boolean isHealthy(ChannelSftp channel) {
+        try {
+            return channel.isConnected() && !channel.isClosed() && channel.getSession().isConnected();
+        } catch (JSchException e) {
+            return false;
+        }
+    }
+
+    private static void disconnect(ChannelSftp channel) {
+        try {
+            Session session = channel.getSession();
+            channel.disconnect();
+            session.disconnect();
+        } catch (JSchException e) {
+            channel.disconnect();
+        }
+    }
+}
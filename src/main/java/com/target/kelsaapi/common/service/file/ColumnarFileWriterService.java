@@ -0,0 +1,18 @@
+package com.target.kelsaapi.common.service.file;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Interface for writing staged landing files as Parquet or ORC
+ */
+public interface ColumnarFileWriterService {
+
+    List<Path> writeColumnarFiles(Path stagedFile, String localFilePathNoExtension, @Nullable String reportType) throws IOException;
+
+    List<Path> writeColumnarFilesToHdfs(Path stagedFile, String localFilePathNoExtension, String targetDirectory,
+                                        @Nullable String reportType, Integer writeAttempts, Boolean cleanupTempFile) throws IOException;
+}
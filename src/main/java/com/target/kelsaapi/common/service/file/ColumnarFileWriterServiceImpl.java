@@ -0,0 +1,452 @@
+package com.target.kelsaapi.common.service.file;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.vo.columnar.ColumnarSchema;
+import com.target.kelsaapi.common.vo.columnar.ColumnarSchema.ColumnType;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts a staged row oriented file (csv, tsv or JSON lines, optionally gzipped) into Parquet or ORC files. The
+ * schema is the one declared for the report type in apiconfig.source.columnar.schemas, or else inferred in a first
+ * pass over the whole staged file, so that no later row can break an inferred type. Output rolls over to a new file
+ * every maxRowsPerFile rows, and {@link #writeColumnarFilesToHdfs} moves every file to HDFS the same way the split
+ * text files are moved.
+ */
+@Slf4j
+@Service
+public class ColumnarFileWriterServiceImpl implements ColumnarFileWriterService {
+
+    private static final String DEFAULT_COMPRESSION = "zstd";
+
+    private static final long DEFAULT_ROW_GROUP_SIZE_BYTES = 128L * 1024 * 1024;
+
+    private static final long DEFAULT_MAX_ROWS_PER_FILE = 5_000_000L;
+
+    //Column used for JSON lines whose records are not objects
+    private static final String VALUE_COLUMN = "value";
+
+    private final HDFSFileWriterService writerService;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ApplicationConstants.ColumnarFormats format;
+
+    private final String compression;
+
+    private final long rowGroupSizeBytes;
+
+    private final boolean dictionaryEncoding;
+
+    private final long maxRowsPerFile;
+
+    private final Map<String, ColumnarSchema> declaredSchemas = new HashMap<>();
+
+    @Autowired
+    public ColumnarFileWriterServiceImpl(PipelineConfig pipelineConfig, HDFSFileWriterService writerService) {
+        this.writerService = writerService;
+        PipelineConfig.Columnar columnar = pipelineConfig.apiconfig.source.columnar == null
+                ? new PipelineConfig.Columnar() : pipelineConfig.apiconfig.source.columnar;
+        this.format = columnar.format == null
+                ? ApplicationConstants.ColumnarFormats.PARQUET : ApplicationConstants.ColumnarFormats.valueOf(columnar.format.toUpperCase());
+        this.compression = columnar.compression == null ? DEFAULT_COMPRESSION : columnar.compression.toLowerCase();
+        this.rowGroupSizeBytes = columnar.rowGroupSizeBytes == null ? DEFAULT_ROW_GROUP_SIZE_BYTES : columnar.rowGroupSizeBytes;
+        this.dictionaryEncoding = !Boolean.FALSE.equals(columnar.dictionaryEncoding);
+        this.maxRowsPerFile = columnar.maxRowsPerFile == null ? DEFAULT_MAX_ROWS_PER_FILE : columnar.maxRowsPerFile;
+        if (columnar.schemas != null) {
+            for (PipelineConfig.ColumnarReportSchema reportSchema : columnar.schemas) {
+                declaredSchemas.put(reportSchema.reportType.toLowerCase(), ColumnarSchema.fromConfig(reportSchema));
+            }
+        }
+    }
+
+    /**
+     * Writes the rows of a staged file into one or more columnar files named localFilePathNoExtension_1,
+     * localFilePathNoExtension_2 and so on, with the extension of the configured format.
+     *
+     * @param stagedFile The local csv, tsv or JSON lines file. A .gz suffix means it is gzipped.
+     * @param localFilePathNoExtension The root of the output file paths.
+     * @param reportType The report type whose declared schema to use, if any.
+     * @return The written files.
+     * @throws IOException If the staged file cannot be read, or a value does not fit its declared column type.
+     */
+    @Override
+    public List<Path> writeColumnarFiles(Path stagedFile, String localFilePathNoExtension, @Nullable String reportType) throws IOException {
+        boolean json = isJson(stagedFile);
+        ColumnarSchema schema = reportType == null ? null : declaredSchemas.get(reportType.toLowerCase());
+        if (schema == null) {
+            schema = inferSchema(stagedFile, json);
+            log.info("Inferred columnar schema of {}: {}", stagedFile, schema.getColumns());
+        }
+
+        ColumnarSchema writeSchema = schema;
+        List<String> schemaColumns = writeSchema.getColumns().stream().map(ColumnarSchema.Column::getName).toList();
+        List<Path> files = new ArrayList<>();
+        ColumnarSink[] sink = new ColumnarSink[1];
+        int[] sourceIndexes = new int[schemaColumns.size()];
+        long[] rowsInFile = new long[1];
+        try {
+            readRows(stagedFile, json, json ? schemaColumns : null, new RowVisitor() {
+                @Override
+                public void columns(List<String> names) {
+                    for (int i = 0; i < sourceIndexes.length; i++) {
+                        sourceIndexes[i] = names.indexOf(schemaColumns.get(i));
+                    }
+                }
+
+                @Override
+                public void visit(Object[] values) throws IOException {
+                    if (sink[0] == null || rowsInFile[0] == maxRowsPerFile) {
+                        if (sink[0] != null) {
+                            sink[0].close();
+                        }
+                        Path file = Path.of(localFilePathNoExtension + "_" + (files.size() + 1) + format.getFileExtension());
+                        sink[0] = openSink(file, writeSchema);
+                        files.add(file);
+                        rowsInFile[0] = 0;
+                    }
+                    Object[] row = new Object[sourceIndexes.length];
+                    for (int i = 0; i < row.length; i++) {
+                        int source = sourceIndexes[i];
+                        row[i] = writeSchema.convert(i, source >= 0 && source < values.length ? values[source] : null);
+                    }
+                    sink[0].write(row);
+                    rowsInFile[0]++;
+                }
+            });
+        } finally {
+            if (sink[0] != null) {
+                sink[0].close();
+            }
+        }
+        log.info("Wrote {} into {} {} files", stagedFile, files.size(), format);
+        return files;
+    }
+
+    /**
+     * Like {@link #writeColumnarFiles(Path, String, String)}, then moves every file into the target HDFS directory.
+     *
+     * @param stagedFile The local csv, tsv or JSON lines file. A .gz suffix means it is gzipped.
+     * @param localFilePathNoExtension The root of the output file paths.
+     * @param targetDirectory The HDFS directory to move the files to.
+     * @param reportType The report type whose declared schema to use, if any.
+     * @param writeAttempts The number of attempts for each move.
+     * @param cleanupTempFile True to delete the staged file and the local columnar files once moved.
+     * @return The local paths of the moved files.
+     * @throws IOException If the conversion fails, or all attempts to move a file failed.
+     */
+    @Override
+    public List<Path> writeColumnarFilesToHdfs(Path stagedFile, String localFilePathNoExtension, String targetDirectory,
+                                               @Nullable String reportType, Integer writeAttempts, Boolean cleanupTempFile) throws IOException {
+        List<Path> files = writeColumnarFiles(stagedFile, localFilePathNoExtension, reportType);
+        String directory = targetDirectory.endsWith("/") ? targetDirectory : targetDirectory + "/";
+        for (Path file : files) {
+            String targetFile = directory + file.getFileName();
+            Boolean writeSuccessful = writerService.writeToHDFS(targetFile, writeAttempts, file.toString(), cleanupTempFile);
+            if (Boolean.FALSE.equals(writeSuccessful)) {
+                throw new IOException("All write attempts to HDFS failed for " + targetFile);
+            }
+        }
+        if (Boolean.TRUE.equals(cleanupTempFile)) {
+            Files.deleteIfExists(stagedFile);
+        }
+        return files;
+    }
+
+    private ColumnarSchema inferSchema(Path stagedFile, boolean json) throws IOException {
+        List<ColumnType> types = new ArrayList<>();
+        List<String> names = readRows(stagedFile, json, null, values -> {
+            for (int i = 0; i < values.length; i++) {
+                while (types.size() <= i) {
+                    types.add(null);
+                }
+                if (values[i] != null) {
+                    types.set(i, ColumnarSchema.widen(types.get(i), values[i], !json));
+                }
+            }
+        });
+        List<ColumnarSchema.Column> columns = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            ColumnType type = i < types.size() && types.get(i) != null ? types.get(i) : ColumnType.STRING;
+            columns.add(new ColumnarSchema.Column(names.get(i), type));
+        }
+        return new ColumnarSchema(columns);
+    }
+
+    private interface RowVisitor {
+        default void columns(List<String> names) {
+        }
+
+        void visit(Object[] values) throws IOException;
+    }
+
+    /**
+     * Reads every row of a staged file, handing the visitor one value per column: Strings for delimited text,
+     * Booleans, Longs, Doubles or Strings for JSON, and null for missing values.
+     *
+     * @return The column names, in the order of the visited values.
+     */
+    private List<String> readRows(Path stagedFile, boolean json, @Nullable List<String> knownColumns, RowVisitor visitor) throws IOException {
+        String name = stagedFile.getFileName().toString().toLowerCase();
+        InputStream in = new BufferedInputStream(Files.newInputStream(stagedFile));
+        if (name.endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            if (json) {
+                return readJsonLines(new BufferedReader(reader), knownColumns, visitor);
+            }
+            return readDelimited(reader, name.contains(".tsv") ? '\t' : ',', visitor);
+        }
+    }
+
+    private List<String> readDelimited(Reader reader, char delimiter, RowVisitor visitor) throws IOException {
+        CSVFormat csvFormat = CSVFormat.DEFAULT.builder().setDelimiter(delimiter).setHeader().setSkipHeaderRecord(true).build();
+        try (CSVParser parser = CSVParser.parse(reader, csvFormat)) {
+            List<String> columns = parser.getHeaderNames();
+            visitor.columns(columns);
+            for (CSVRecord record : parser) {
+                Object[] values = new Object[columns.size()];
+                for (int i = 0; i < values.length && i < record.size(); i++) {
+                    String value = record.get(i);
+                    values[i] = value.isEmpty() ? null : value;
+                }
+                visitor.visit(values);
+            }
+            return columns;
+        }
+    }
+
+    private List<String> readJsonLines(BufferedReader reader, @Nullable List<String> knownColumns, RowVisitor visitor) throws IOException {
+        Map<String, Integer> index = new LinkedHashMap<>();
+        if (knownColumns != null) {
+            knownColumns.forEach(column -> index.putIfAbsent(column, index.size()));
+            visitor.columns(knownColumns);
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node = mapper.readTree(line);
+            //Some sources write a whole page of records as one array per line
+            if (node.isArray()) {
+                for (JsonNode element : node) {
+                    visitJsonRecord(element, index, knownColumns == null, visitor);
+                }
+            } else {
+                visitJsonRecord(node, index, knownColumns == null, visitor);
+            }
+        }
+        return new ArrayList<>(index.keySet());
+    }
+
+    private void visitJsonRecord(JsonNode node, Map<String, Integer> index, boolean addColumns, RowVisitor visitor) throws IOException {
+        if (!node.isObject()) {
+            node = mapper.createObjectNode().set(VALUE_COLUMN, node);
+        }
+        if (addColumns) {
+            for (Iterator<String> names = node.fieldNames(); names.hasNext(); ) {
+                index.putIfAbsent(names.next(), index.size());
+            }
+        }
+        Object[] values = new Object[index.size()];
+        for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            Integer position = index.get(field.getKey());
+            if (position != null) {
+                values[position] = jsonValue(field.getValue());
+            }
+        }
+        visitor.visit(values);
+    }
+
+    private static Object jsonValue(JsonNode value) {
+        if (value == null || value.isNull() || value.isMissingNode()) {
+            return null;
+        } else if (value.isBoolean()) {
+            return value.booleanValue();
+        } else if (value.isIntegralNumber()) {
+            return value.canConvertToLong() ? (Object) value.longValue() : value.asText();
+        } else if (value.isNumber()) {
+            return value.doubleValue();
+        } else if (value.isTextual()) {
+            return value.textValue();
+        }
+        //Nested objects and arrays are kept as their JSON text
+        return value.toString();
+    }
+
+    private static boolean isJson(Path stagedFile) {
+        return stagedFile.getFileName().toString().toLowerCase().contains(".json");
+    }
+
+    private ColumnarSink openSink(Path file, ColumnarSchema schema) throws IOException {
+        Files.deleteIfExists(file);
+        return format == ApplicationConstants.ColumnarFormats.ORC
+                ? new OrcSink(file, schema, compression, rowGroupSizeBytes, dictionaryEncoding)
+                : new ParquetSink(file, schema, compression, rowGroupSizeBytes, dictionaryEncoding);
+    }
+
+    private interface ColumnarSink extends Closeable {
+        void write(Object[] row) throws IOException;
+    }
+
+    private static class ParquetSink implements ColumnarSink {
+
+        private final ParquetWriter<Group> writer;
+
+        private final SimpleGroupFactory groupFactory;
+
+        ParquetSink(Path file, ColumnarSchema schema, String compression, long rowGroupSizeBytes, boolean dictionaryEncoding) throws IOException {
+            Types.MessageTypeBuilder builder = Types.buildMessage();
+            for (ColumnarSchema.Column column : schema.getColumns()) {
+                switch (column.getType()) {
+                    case STRING -> builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(column.getName());
+                    case LONG -> builder.optional(PrimitiveTypeName.INT64).named(column.getName());
+                    case DOUBLE -> builder.optional(PrimitiveTypeName.DOUBLE).named(column.getName());
+                    case BOOLEAN -> builder.optional(PrimitiveTypeName.BOOLEAN).named(column.getName());
+                }
+            }
+            MessageType messageType = builder.named("record");
+            this.groupFactory = new SimpleGroupFactory(messageType);
+            this.writer = ExampleParquetWriter.builder(new LocalOutputFile(file))
+                    .withConf(new Configuration())
+                    .withType(messageType)
+                    .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                    .withCompressionCodec(compression.equals("none")
+                            ? CompressionCodecName.UNCOMPRESSED : CompressionCodecName.valueOf(compression.toUpperCase()))
+                    .withRowGroupSize(rowGroupSizeBytes)
+                    .withDictionaryEncoding(dictionaryEncoding)
+                    .build();
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            Group group = groupFactory.newGroup();
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                if (value instanceof String text) {
+                    group.add(i, text);
+                } else if (value instanceof Long number) {
+                    group.add(i, number.longValue());
+                } else if (value instanceof Double number) {
+                    group.add(i, number.doubleValue());
+                } else if (value instanceof Boolean bool) {
+                    group.add(i, bool.booleanValue());
+                }
+            }
+            writer.write(group);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static class OrcSink implements ColumnarSink {
+
+        private final org.apache.orc.Writer writer;
+
+        private final VectorizedRowBatch batch;
+
+        OrcSink(Path file, ColumnarSchema schema, String compression, long stripeSizeBytes, boolean dictionaryEncoding) throws IOException {
+            TypeDescription typeDescription = TypeDescription.createStruct();
+            for (ColumnarSchema.Column column : schema.getColumns()) {
+                typeDescription.addField(column.getName(), switch (column.getType()) {
+                    case STRING -> TypeDescription.createString();
+                    case LONG -> TypeDescription.createLong();
+                    case DOUBLE -> TypeDescription.createDouble();
+                    case BOOLEAN -> TypeDescription.createBoolean();
+                });
+            }
+            Configuration conf = new Configuration();
+            //A threshold of 0 turns dictionary encoding of string columns off
+            OrcConf.DICTIONARY_KEY_SIZE_THRESHOLD.setDouble(conf, dictionaryEncoding ? 0.8 : 0.0);
+            this.writer = OrcFile.createWriter(new org.apache.hadoop.fs.Path(file.toUri()),
+                    OrcFile.writerOptions(conf)
+                            .setSchema(typeDescription)
+                            .compress(orcCompression(compression))
+                            .stripeSize(stripeSizeBytes)
+                            .overwrite(true));
+            this.batch = typeDescription.createRowBatch();
+        }
+
+        private static CompressionKind orcCompression(String compression) {
+            return switch (compression) {
+                case "gzip" -> CompressionKind.ZLIB;
+                case "none", "uncompressed" -> CompressionKind.NONE;
+                default -> CompressionKind.valueOf(compression.toUpperCase());
+            };
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            int position = batch.size++;
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                if (value == null) {
+                    batch.cols[i].noNulls = false;
+                    batch.cols[i].isNull[position] = true;
+                } else if (value instanceof String text) {
+                    ((BytesColumnVector) batch.cols[i]).setVal(position, text.getBytes(StandardCharsets.UTF_8));
+                } else if (value instanceof Long number) {
+                    ((LongColumnVector) batch.cols[i]).vector[position] = number;
+                } else if (value instanceof Double number) {
+                    ((DoubleColumnVector) batch.cols[i]).vector[position] = number;
+                } else if (value instanceof Boolean bool) {
+                    ((LongColumnVector) batch.cols[i]).vector[position] = bool ? 1 : 0;
+                }
+            }
+            if (batch.size == batch.getMaxSize()) {
+                writer.addRowBatch(batch);
+                batch.reset();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (batch.size > 0) {
+                writer.addRowBatch(batch);
+                batch.reset();
+            }
+            writer.close();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.target.kelsaapi.common.service.file;
 
 import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.CallNotPermittedException;
 import com.target.kelsaapi.common.exceptions.NotFoundException;
 import com.target.kelsaapi.common.exceptions.WriterException;
+import com.target.kelsaapi.common.service.resilience.EndpointGuard;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
+import com.target.kelsaapi.common.service.resilience.TransientFailures;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +18,7 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utilities for writing to HDFS
@@ -28,18 +33,25 @@ public class HDFSFileWriterServiceImpl implements HDFSFileWriterService {
 
     private final LocalFileWriterService localFileWriter;
 
+    private final EndpointGuard xenonGuard;
+
+    private final TransientFailures transientFailures = new TransientFailures();
+
     /**
      * Constructor for HDFSFileWriterService. Used by Spring Framework to instantiate and auto-wire dependent beans.
      *
      * @param config The PipelineConfig bean.
      * @param xenonService The XenonService bean.
      * @param localFileWriter The LocalFileWriterService bean.
+     * @param resilienceRegistry The ResilienceRegistry bean, guarding the transfers to Xenon.
      */
     @Autowired
-    HDFSFileWriterServiceImpl(PipelineConfig config, XenonService xenonService, LocalFileWriterService localFileWriter) {
+    HDFSFileWriterServiceImpl(PipelineConfig config, XenonService xenonService, LocalFileWriterService localFileWriter,
+                              ResilienceRegistry resilienceRegistry) {
         this.xenonService = xenonService;
         this.hdfsdetails = config.apiconfig.hdfsdetails;
         this.localFileWriter = localFileWriter;
+        this.xenonGuard = resilienceRegistry.guard("xenon");
     }
 
     /**
@@ -178,23 +190,20 @@ public class HDFSFileWriterServiceImpl implements HDFSFileWriterService {
                                Integer writeAttempts,
                                String tempFile,
                                Boolean cleanupTempFile) {
-        Boolean success = false;
-        int attempts = 1;
         log.debug("Number of attempts: " + writeAttempts);
         log.debug("Temp file name received: " + tempFile);
         log.debug("HDFS writer details: " + hdfsdetails);
         log.debug("Target file:" + filePath);
         log.info("Attempting to write to HDFS...");
-        while (Boolean.FALSE.equals(success) && attempts <= writeAttempts) {
-            log.info("File transfer attempt #{}", attempts);
-            if (Boolean.FALSE.equals(xenonService.isFileExists(filePath))){
-                log.info("File didn't previously exist, transferring a new file");
-                success = xenonService.transferFile(filePath, tempFile, false, true, false);
-            } else {
-                log.info("File already exists, overwriting prior version to land new data");
-                success = xenonService.transferFile(filePath, tempFile, true, true, false);
-            }
-            attempts+=1;
+        AtomicInteger attempts = new AtomicInteger();
+        Boolean success;
+        try {
+            //Xenon reports failures through the result, which the guard treats as a transient failure
+            success = xenonGuard.execute(writeAttempts, () -> transferFile(filePath, tempFile, attempts.incrementAndGet()),
+                    transientFailures, Boolean.FALSE::equals);
+        } catch (CallNotPermittedException e) {
+            log.error(e.getMessage());
+            success = false;
         }
 
         if (Boolean.TRUE.equals(cleanupTempFile)) {
@@ -204,15 +213,26 @@ public class HDFSFileWriterServiceImpl implements HDFSFileWriterService {
             log.warn("No clean attempted for temp file on local filesystem. Make sure to not preserve this file long-term: {}", tempFile);
         }
 
-        log.debug("Attempts tried: {}", attempts-1);
+        log.debug("Attempts tried: {}", attempts.get());
         log.debug("Max attempts to try: {}", writeAttempts);
         log.debug("Was successful: {}", success);
-        if (attempts > writeAttempts && Boolean.FALSE.equals(success)) {
+        if (Boolean.TRUE.equals(success)) {
+            log.info("Successfully transferred file to remote HDFS filesystem {}",filePath);
+            return true;
+        } else {
             log.error("Failed to transfer file successfully to remote HDFS filesystem {}",filePath);
             return false;
+        }
+    }
+
+    private Boolean transferFile(String filePath, String tempFile, int attempt) {
+        log.info("File transfer attempt #{}", attempt);
+        if (Boolean.FALSE.equals(xenonService.isFileExists(filePath))){
+            log.info("File didn't previously exist, transferring a new file");
+            return xenonService.transferFile(filePath, tempFile, false, true, false);
         } else {
-            log.info("Successfully transferred file to remote HDFS filesystem {}",filePath);
-            return true;
+            log.info("File already exists, overwriting prior version to land new data");
+            return xenonService.transferFile(filePath, tempFile, true, true, false);
         }
     }
 
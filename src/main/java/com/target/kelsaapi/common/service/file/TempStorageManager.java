@@ -0,0 +1,382 @@
+package com.target.kelsaapi.common.service.file;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.ResourceNotFoundException;
+import com.target.kelsaapi.common.service.postgres.checkpoint.PipelineCheckpointService;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.util.CommonUtils;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Accounts for the temp files every pipeline run stages under {@link CommonUtils#generateTempFileRootPath()}, which all
+ * runs of a pod share. A run reserves the disk budget configured for its source before its consumer starts, and
+ * releases it once its temp files are cleaned up. While a reservation would not fit, the run queue leaves that source's
+ * runs queued, so that concurrent runs cannot fill the volume and fail mid write. A run always gets through once no
+ * other run holds a reservation, even when its reservation is larger than the space left, so that it cannot stay queued
+ * forever; every refusal is counted in pipeline.temp.storage.refused.
+ * <p>
+ * The live bytes of every run are measured from its temp files, which all start with its pipelineRunId. A run which
+ * grows past its reservation counts with its live bytes, so the budget stays honest when a reservation was too small.
+ * On startup, temp files left behind by runs which are no longer running are swept, except for failed runs which
+ * recorded checkpoints and may still be resumed.
+ */
+@Slf4j
+@Service
+public class TempStorageManager {
+
+    private static final long DEFAULT_RESERVATION_BYTES = 2L * 1024 * 1024 * 1024;
+
+    private static final long DEFAULT_MIN_FREE_BYTES = 1024L * 1024 * 1024;
+
+    private static final int DEFAULT_RESERVATION_WAIT_SECONDS = 600;
+
+    //Without a configured budget, runs may use this share of the temp volume
+    private static final double DEFAULT_BUDGET_SHARE = 0.8;
+
+    private static final Pattern PIPELINE_RUN_ID = Pattern.compile(
+            "^([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})");
+
+    private final PipelineRunStateService runStateService;
+
+    private final PipelineCheckpointService checkpointService;
+
+    private final Long configuredBudgetBytes;
+
+    private final long defaultReservationBytes;
+
+    private final long minFreeBytes;
+
+    private final int reservationWaitSeconds;
+
+    private final boolean sweepOrphansOnStartup;
+
+    private final Map<String, Long> sourceReservations = new HashMap<>();
+
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    //Sources currently refused, so that a refusal is logged once rather than on every poll of the run queue
+    private final Set<String> refusedSources = new HashSet<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final File tempRoot;
+
+    private static class Reservation {
+        private final long reservedBytes;
+        private volatile long liveBytes;
+
+        private Reservation(long reservedBytes) {
+            this.reservedBytes = reservedBytes;
+        }
+
+        private long committedBytes() {
+            return Math.max(reservedBytes, liveBytes);
+        }
+    }
+
+    @Autowired
+    public TempStorageManager(PipelineConfig pipelineConfig,
+                              PipelineRunStateService runStateService,
+                              PipelineCheckpointService checkpointService,
+                              MeterRegistry meterRegistry) {
+        this(pipelineConfig, runStateService, checkpointService, meterRegistry, null);
+    }
+
+    /**
+     * @param tempRoot The temp folder root, or null for {@link CommonUtils#generateTempFileRootPath()}.
+     */
+    TempStorageManager(PipelineConfig pipelineConfig,
+                       PipelineRunStateService runStateService,
+                       PipelineCheckpointService checkpointService,
+                       MeterRegistry meterRegistry,
+                       File tempRoot) {
+        this.runStateService = runStateService;
+        this.meterRegistry = meterRegistry;
+        this.tempRoot = tempRoot;
+        this.checkpointService = checkpointService;
+        PipelineConfig.TempStorage tempStorage = pipelineConfig.apiconfig.tempStorage == null
+                ? new PipelineConfig.TempStorage() : pipelineConfig.apiconfig.tempStorage;
+        this.configuredBudgetBytes = tempStorage.budgetBytes == null || tempStorage.budgetBytes <= 0 ? null : tempStorage.budgetBytes;
+        this.defaultReservationBytes = valueOrDefault(tempStorage.defaultReservationBytes, DEFAULT_RESERVATION_BYTES);
+        this.minFreeBytes = valueOrDefault(tempStorage.minFreeBytes, DEFAULT_MIN_FREE_BYTES);
+        this.reservationWaitSeconds = tempStorage.reservationWaitSeconds == null || tempStorage.reservationWaitSeconds < 0
+                ? DEFAULT_RESERVATION_WAIT_SECONDS : tempStorage.reservationWaitSeconds;
+        this.sweepOrphansOnStartup = !Boolean.FALSE.equals(tempStorage.sweepOrphansOnStartup);
+        if (tempStorage.sources != null) {
+            for (PipelineConfig.TempStorageSource source : tempStorage.sources) {
+                sourceReservations.put(source.source.toLowerCase(), valueOrDefault(source.reservationBytes, defaultReservationBytes));
+            }
+        }
+
+        Gauge.builder("pipeline.temp.storage.reserved", this, TempStorageManager::committedBytes)
+                .description("Bytes of the temp volume committed to running pipelines")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("pipeline.temp.storage.live", this,
+                        manager -> manager.reservations.values().stream().mapToLong(reservation -> reservation.liveBytes).sum())
+                .description("Bytes of temp files written by running pipelines")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("pipeline.temp.storage.runs", reservations, Map::size)
+                .description("Pipeline runs holding a temp storage reservation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param source The source system of a queued run.
+     * @return True if a run of the source would currently get its reservation without waiting.
+     */
+    public synchronized boolean canReserve(String source) {
+        String name = source == null ? "unknown" : source.toLowerCase();
+        if (fits(reservationBytes(source))) {
+            if (refusedSources.remove(name)) {
+                log.info("Temp storage for a {} run is available again", name);
+            }
+            return true;
+        }
+        refused(name);
+        if (refusedSources.add(name)) {
+            log.info("Leaving {} runs queued until {} bytes of temp storage are free, {} bytes are committed to {} running pipelines",
+                    name, reservationBytes(source), committedBytes(), reservations.size());
+        }
+        return false;
+    }
+
+    /**
+     * Reserves the budget of the run's source, waiting up to reservationWaitSeconds for other runs to release theirs.
+     * Reserving again for a run which already holds a reservation does nothing.
+     *
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param source The source system of the run.
+     * @throws IOException If the reservation did not fit within the wait time.
+     */
+    public synchronized void reserve(String pipelineRunId, String source) throws IOException {
+        if (reservations.containsKey(pipelineRunId)) {
+            return;
+        }
+        long bytes = reservationBytes(source);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(reservationWaitSeconds);
+        while (!fits(bytes)) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                refused(source == null ? "unknown" : source.toLowerCase());
+                throw new IOException("Temp storage budget exhausted: unable to reserve " + bytes + " bytes for pipeline run "
+                        + pipelineRunId + " within " + reservationWaitSeconds + " seconds");
+            }
+            log.info("Waiting for {} bytes of temp storage for pipeline run {}", bytes, pipelineRunId);
+            try {
+                wait(remainingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for temp storage for pipeline run " + pipelineRunId, e);
+            }
+        }
+        if (reservations.isEmpty() && usableBytes() < bytes + minFreeBytes) {
+            log.warn("Reserving {} bytes of temp storage for pipeline run {} with only {} bytes usable, as no other run holds a reservation",
+                    bytes, pipelineRunId, usableBytes());
+        }
+        reservations.put(pipelineRunId, new Reservation(bytes));
+        log.info("Reserved {} bytes of temp storage for pipeline run {}", bytes, pipelineRunId);
+    }
+
+    /**
+     * Releases the reservation of a run once its temp files were cleaned up or kept for a resume.
+     *
+     * @param pipelineRunId The ID of the pipeline run.
+     */
+    public synchronized void release(String pipelineRunId) {
+        Reservation reservation = reservations.remove(pipelineRunId);
+        if (reservation != null) {
+            log.info("Released temp storage of pipeline run {}, which peaked at {} bytes", pipelineRunId, reservation.liveBytes);
+            notifyAll();
+        }
+    }
+
+    /**
+     * @param pipelineRunId The ID of the pipeline run.
+     * @return The bytes of every temp file and directory starting with the pipelineRunId.
+     */
+    public long liveBytes(String pipelineRunId) throws IOException {
+        File[] files = tempRoot().listFiles(file -> file.getName().startsWith(pipelineRunId));
+        long bytes = 0;
+        if (files != null) {
+            for (File file : files) {
+                bytes += sizeOf(file);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Measures the live bytes of every run holding a reservation, and warns about runs which outgrew it.
+     */
+    @Scheduled(fixedDelayString = "${apiconfig.tempStorage.refreshIntervalMillis:30000}")
+    public void refresh() {
+        reservations.forEach((pipelineRunId, reservation) -> {
+            try {
+                long live = liveBytes(pipelineRunId);
+                //Only ever grows, so that the peak is reported on release
+                if (live > reservation.liveBytes) {
+                    if (live > reservation.reservedBytes && reservation.liveBytes <= reservation.reservedBytes) {
+                        log.warn("Pipeline run {} uses {} bytes of temp storage, more than its reservation of {} bytes",
+                                pipelineRunId, live, reservation.reservedBytes);
+                    }
+                    reservation.liveBytes = live;
+                }
+            } catch (IOException e) {
+                log.debug("Unable to measure temp files of pipeline run {}: {}", pipelineRunId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Deletes temp files of runs which are no longer running on this pod, keeping those of failed runs with checkpoints.
+     * Files which do not start with a pipelineRunId are left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOrphans() {
+        if (!sweepOrphansOnStartup) {
+            return;
+        }
+        File[] files;
+        try {
+            files = tempRoot().listFiles();
+        } catch (IOException e) {
+            log.warn("Unable to sweep orphaned temp files: {}", e.getMessage());
+            return;
+        }
+        if (files == null) {
+            return;
+        }
+        Map<String, Boolean> keepByRun = new HashMap<>();
+        long freed = 0;
+        for (File file : files) {
+            Matcher matcher = PIPELINE_RUN_ID.matcher(file.getName());
+            if (!matcher.find()) {
+                continue;
+            }
+            String pipelineRunId = matcher.group(1);
+            if (keepByRun.computeIfAbsent(pipelineRunId, this::keepTempFiles)) {
+                continue;
+            }
+            long bytes = sizeOf(file);
+            if (FileUtils.deleteQuietly(file)) {
+                freed += bytes;
+            }
+        }
+        log.info("Swept {} bytes of orphaned temp files", freed);
+    }
+
+    private boolean keepTempFiles(String pipelineRunId) {
+        if (reservations.containsKey(pipelineRunId)) {
+            return true;
+        }
+        try {
+            PipelineRunState runState = runStateService.findById(pipelineRunId);
+            String status = runState.getBatchRequestStatus();
+            if (ApplicationConstants.PipelineStates.COMPLETED.toString().equalsIgnoreCase(status)) {
+                return false;
+            }
+            return checkpointService.hasCheckpoints(pipelineRunId);
+        } catch (ResourceNotFoundException e) {
+            return false;
+        } catch (Exception e) {
+            //Keep the files when their run cannot be looked up, the next startup sweeps them
+            log.warn("Unable to look up pipeline run {} while sweeping temp files: {}", pipelineRunId, e.getMessage());
+            return true;
+        }
+    }
+
+    private boolean fits(long bytes) {
+        //A run always gets through on its own, even when its reservation is larger than the budget or the free space
+        if (reservations.isEmpty()) {
+            return true;
+        }
+        if (committedBytes() + bytes > budgetBytes()) {
+            return false;
+        }
+        //Files outside any reservation, such as those kept for a resume, only show up in the usable space
+        return usableBytes() - unwrittenBytes() >= bytes + minFreeBytes;
+    }
+
+    private long usableBytes() {
+        try {
+            return tempRoot().getUsableSpace();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void refused(String source) {
+        Counter.builder("pipeline.temp.storage.refused")
+                .description("Times a run of a source was held back because its temp storage reservation did not fit")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private File tempRoot() throws IOException {
+        return tempRoot != null ? tempRoot : new File(CommonUtils.generateTempFileRootPath());
+    }
+
+    private long committedBytes() {
+        return reservations.values().stream().mapToLong(Reservation::committedBytes).sum();
+    }
+
+    /**
+     * Reserved bytes which the running pipelines have not written yet, and so are still part of the usable space.
+     */
+    private long unwrittenBytes() {
+        return reservations.values().stream().mapToLong(reservation -> Math.max(0, reservation.reservedBytes - reservation.liveBytes)).sum();
+    }
+
+    private long budgetBytes() {
+        if (configuredBudgetBytes != null) {
+            return configuredBudgetBytes;
+        }
+        try {
+            return (long) (tempRoot().getTotalSpace() * DEFAULT_BUDGET_SHARE);
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private long reservationBytes(String source) {
+        return source == null ? defaultReservationBytes : sourceReservations.getOrDefault(source.toLowerCase(), defaultReservationBytes);
+    }
+
+    /**
+     * Size of a file or directory, or 0 if it was deleted while being measured.
+     */
+    private static long sizeOf(File file) {
+        try {
+            return FileUtils.sizeOf(file);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
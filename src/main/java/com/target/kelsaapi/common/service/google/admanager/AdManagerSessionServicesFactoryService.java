@@ -6,6 +6,7 @@ import com.google.api.ads.admanager.axis.v202311.*;
 import com.google.api.ads.admanager.lib.client.AdManagerSession;
 import com.google.api.ads.common.lib.exception.ValidationException;
 import com.google.api.client.auth.oauth2.Credential;
+import com.target.kelsaapi.common.service.resilience.Resilient;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import org.apache.commons.configuration.Configuration;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +61,7 @@ public class AdManagerSessionServicesFactoryService implements AdManagerSessionS
     }
 
     @Override
+    @Resilient(value = "gam", transientFailure = GamTransientFailures.class)
     public ReportJob runReportJob(ReportServiceInterface reportService, ReportJob reportJob) throws RemoteException {
         return reportService.runReportJob(reportJob);
     }
@@ -0,0 +1,35 @@
+package com.target.kelsaapi.common.service.google.admanager;
+
+import com.google.api.ads.admanager.axis.v202311.ApiError;
+import com.google.api.ads.admanager.axis.v202311.ApiException;
+import com.google.api.ads.admanager.axis.v202311.InternalApiError;
+import com.google.api.ads.admanager.axis.v202311.QuotaError;
+import com.google.api.ads.admanager.axis.v202311.ServerError;
+import com.target.kelsaapi.common.service.resilience.TransientFailures;
+
+/**
+ * The transient failures of the Ad Manager SOAP API. Besides the network failures of {@link TransientFailures}, an
+ * {@link ApiException} is transient when one of its errors is a server, internal or quota error; any other error is
+ * about the request itself, such as a Line Item which cannot be forecasted.
+ */
+public class GamTransientFailures extends TransientFailures {
+
+    @Override
+    public boolean test(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof ApiException apiException) {
+                ApiError[] errors = apiException.getErrors();
+                if (errors == null) {
+                    return false;
+                }
+                for (ApiError error : errors) {
+                    if (error instanceof ServerError || error instanceof InternalApiError || error instanceof QuotaError) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        return super.test(failure);
+    }
+}
@@ -9,8 +9,11 @@ import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.GamException;
 import com.target.kelsaapi.common.service.google.admanager.AdManagerSessionServicesFactoryInterface;
 import com.target.kelsaapi.common.service.google.admanager.GamAuthenticationService;
+import com.target.kelsaapi.common.service.google.admanager.GamTransientFailures;
 import com.target.kelsaapi.common.service.postgres.google.admanager.forecast.GamForecastContendingLineItemsService;
 import com.target.kelsaapi.common.service.postgres.google.admanager.forecast.GamForecastStateService;
+import com.target.kelsaapi.common.service.resilience.EndpointGuard;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
 import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.util.GamUtils;
 import com.target.kelsaapi.common.vo.google.request.admanager.forecast.GamLineItemForecastRequest;
@@ -59,6 +62,10 @@ public class GamForecastAsyncThreadHandler {
 
     private final GamForecastContendingLineItemsService contendingLineItemsRepository;
 
+    private final EndpointGuard guard;
+
+    private final GamTransientFailures transientFailures = new GamTransientFailures();
+
     private final int requestTimeoutSeconds;
 
     private final int DEFAULT_INITIAL_INTERVAL;
@@ -72,11 +79,13 @@ public class GamForecastAsyncThreadHandler {
                                          AdManagerSessionServicesFactoryInterface adManagerServices,
                                          GamForecastStateService stateRepository,
                                          PipelineConfig config,
-                                         GamForecastContendingLineItemsService contendingLineItemsRepository) {
+                                         GamForecastContendingLineItemsService contendingLineItemsRepository,
+                                         ResilienceRegistry resilienceRegistry) {
         this.auth = auth;
         this.adManagerServices = adManagerServices;
         this.stateRepository = stateRepository;
         this.contendingLineItemsRepository = contendingLineItemsRepository;
+        this.guard = resilienceRegistry.guard("gam");
         PipelineConfig.Google.AdManager.Forecast forecast = config.apiconfig.source.google.adManager.forecast;
         this.requestTimeoutSeconds = forecast.asyncThreads.requestTimeoutSeconds;
         this.DEFAULT_INITIAL_INTERVAL = forecast.asyncThreads.retryBackoff.initialIntervalSeconds * 1000;
@@ -246,7 +255,8 @@ public class GamForecastAsyncThreadHandler {
 
     /**
      * A generic retryable wrapper method around the low level API calls being made. It is generic from the sense that it
-     * supports either an Availability or a Delivery Forecast request.
+     * supports either an Availability or a Delivery Forecast request. Each attempt is a single call through the `gam`
+     * {@link EndpointGuard}, so this loop stays the only retry while the breaker and bulkhead are shared with GAM Actuals.
      * <br></br>
      * <br>For Availability Forecast requests:</br>
      * <pre>{@code
@@ -420,7 +430,9 @@ public class GamForecastAsyncThreadHandler {
             try {
                 StopWatch timer = new StopWatch();
                 timer.start();
-                forecast = forecastServiceInterface.getAvailabilityForecastById(prospectiveLineItemId, availabilityForecastOptions);
+                forecast = guard.execute(1,
+                        () -> forecastServiceInterface.getAvailabilityForecastById(prospectiveLineItemId, availabilityForecastOptions),
+                        transientFailures, result -> false);
                 timer.stop();
                 log.debug("Seconds spent waiting on forecasting: {}",timer.getTotalTimeSeconds());
             } catch (ApiException ae) {
@@ -470,7 +482,10 @@ public class GamForecastAsyncThreadHandler {
                 try {
                     StopWatch timer = new StopWatch();
                     timer.start();
-                    forecast = forecastServiceInterface.getDeliveryForecastByIds(returnableLineItems, deliveryForecastOptions);
+                    long[] lineItems = returnableLineItems;
+                    forecast = guard.execute(1,
+                            () -> forecastServiceInterface.getDeliveryForecastByIds(lineItems, deliveryForecastOptions),
+                            transientFailures, result -> false);
                     timer.stop();
                     log.debug("Seconds spent waiting on forecasting: {}",timer.getTotalTimeSeconds());
                 } catch (ApiException ae) {
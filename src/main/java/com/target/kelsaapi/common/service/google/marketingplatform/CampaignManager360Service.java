@@ -1,7 +1,6 @@
 package com.target.kelsaapi.common.service.google.marketingplatform;
 
 import com.google.api.client.util.BackOff;
-import com.google.api.client.util.ExponentialBackOff;
 import com.google.api.services.dfareporting.Dfareporting;
 import com.google.api.services.dfareporting.model.File;
 import com.google.api.services.dfareporting.model.Report;
@@ -10,6 +9,10 @@ import com.google.api.services.dfareporting.model.UserProfileList;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.target.kelsaapi.common.exceptions.GoogleMarketingPlatformException;
+import com.target.kelsaapi.common.service.resilience.EndpointGuard;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
+import com.target.kelsaapi.common.service.resilience.TransientFailures;
+import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.vo.google.request.marketingplatform.CampaignManager360ReportRequest;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
@@ -30,15 +33,22 @@ public class CampaignManager360Service implements CampaignManager360Interface {
 
     private final GoogleApiServicesFactory service;
 
+    private final EndpointGuard guard;
+
+    private final TransientFailures transientFailures = new TransientFailures();
+
     /**
      * Constructor used by Spring Framework to bootstrap this service
      *
      * @param pipelineConfig The PipelineConfig configuration instance
+     * @param resilienceRegistry The registry of the {@link EndpointGuard} every Campaign Manager 360 API call goes through
      */
     @Autowired
-    CampaignManager360Service(PipelineConfig pipelineConfig, GoogleApiServicesFactory service) {
+    CampaignManager360Service(PipelineConfig pipelineConfig, GoogleApiServicesFactory service,
+                              ResilienceRegistry resilienceRegistry) {
         this.config = pipelineConfig.getApiconfig().getSource().getGoogle().getMarketingPlatform();
         this.service = service;
+        this.guard = resilienceRegistry.guard("cm360");
     }
 
     /**
@@ -61,12 +71,14 @@ public class CampaignManager360Service implements CampaignManager360Interface {
             Dfareporting reporting = service.getDfareportingService(init, applicationName);
             long profileId = getProfileId(reporting);
 
-            //Save as a new report
-            Report newReport = reporting.reports().insert(profileId, request.getReport()).execute();
+            //Save as a new report. Neither this nor running it is retried, as a retry could create a second report or run
+            Report newReport = guard.execute(1, () -> reporting.reports().insert(profileId, request.getReport()).execute(),
+                    transientFailures, result -> false);
             long reportId = newReport.getId();
 
             //Run the report
-            File file = reporting.reports().run(profileId, reportId).execute();
+            File file = guard.execute(1, () -> reporting.reports().run(profileId, reportId).execute(),
+                    transientFailures, result -> false);
 
             //Wait for the report to be finished
             wait(file, reporting);
@@ -86,7 +98,7 @@ public class CampaignManager360Service implements CampaignManager360Interface {
      */
     private long getProfileId(Dfareporting reporting) throws IOException, RuntimeException {
         // Retrieve and print all user profiles for the current authorized user.
-        UserProfileList profiles = reporting.userProfiles().list().execute();
+        UserProfileList profiles = guard.execute(() -> reporting.userProfiles().list().execute(), transientFailures);
         long profileId = 0;
         log.debug("# Profiles: " + profiles.getItems().size());
         for (int i = 0; i < profiles.getItems().size(); i++) {
@@ -111,7 +123,7 @@ public class CampaignManager360Service implements CampaignManager360Interface {
     }
 
     /**
-     * Waits for the remote file to be ready to download. Uses {@link ExponentialBackOff} to avoid repeating calls
+     * Waits for the remote file to be ready to download. Uses {@link CommonUtils#startBackOff()} to avoid repeating calls
      * to the API too frequently, which could cause a rate-limiter issue.
      *
      * @param file The {@link File} to wait for.
@@ -123,15 +135,10 @@ public class CampaignManager360Service implements CampaignManager360Interface {
     private Boolean wait(File file, Dfareporting reporting) throws IOException {
         long fileId = file.getId();
         long reportId = file.getReportId();
-        BackOff backOff =
-                new ExponentialBackOff.Builder()
-                        .setInitialIntervalMillis(10 * 1000) // 10 second initial retry
-                        .setMaxIntervalMillis(10 * 60 * 1000) // 10 minute maximum retry
-                        .setMaxElapsedTimeMillis(120 * 60 * 1000) // 2 hour total retry
-                        .build();
+        BackOff backOff = CommonUtils.startBackOff();
 
         do {
-            file = reporting.files().get(reportId, fileId).execute();
+            file = guard.execute(() -> reporting.files().get(reportId, fileId).execute(), transientFailures);
 
             // List of File Statuses: PROCESSING, REPORT_AVAILABLE, FAILED, CANCELLED, QUEUED
             if ("REPORT_AVAILABLE".equals(file.getStatus())) {
@@ -173,6 +180,6 @@ public class CampaignManager360Service implements CampaignManager360Interface {
         long reportId = file.getReportId();
 
         Dfareporting.Files.Get getRequest = reporting.files().get(reportId, fileId);
-        return getRequest.executeMediaAsInputStream();
+        return guard.execute(getRequest::executeMediaAsInputStream, transientFailures);
     }
 }
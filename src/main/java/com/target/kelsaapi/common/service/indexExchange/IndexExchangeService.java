@@ -1,21 +1,18 @@
 package com.target.kelsaapi.common.service.indexExchange;
 
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.indexexchange.ReportsList;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
 
 public interface IndexExchangeService {
 
-    Map<String, String> setHeaderMap(Oauth oauth);
+    Map<String, String> setHeaderMap(String token);
 
-    ArrayList<ReportsList> listReports(Map<String, String> headersMap, int reportId)
-            throws HttpException, HttpRetryableException;
+    ArrayList<ReportsList> listReports(Oauth oauth, int reportId) throws IOException;
 
-    String downloadReport(Map<String, String> headersMap, int reportId)
-            throws HttpException, HttpRetryableException ;
+    Long downloadReport(Oauth oauth, int reportId, String localFilePath) throws IOException;
 
 }
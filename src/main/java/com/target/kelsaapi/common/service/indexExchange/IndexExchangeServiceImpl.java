@@ -2,11 +2,8 @@ package com.target.kelsaapi.common.service.indexExchange;
 
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
-import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.indexexchange.ReportsList;
@@ -17,6 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -27,40 +25,38 @@ import java.util.Map;
 public class IndexExchangeServiceImpl implements IndexExchangeService {
 
     private final HttpService httpService;
-    private final LocalFileWriterService localFileWriterService;
-    ObjectMapper mapper = new ObjectMapper();
+    private final SerializerRegistry serializers;
 
     private final PipelineConfig.IndexExchange indexExchangeConfig;
 
-    public IndexExchangeServiceImpl(HttpService httpService, LocalFileWriterService localFileWriterService, PipelineConfig config) {
+    public IndexExchangeServiceImpl(HttpService httpService, PipelineConfig config, SerializerRegistry serializers) {
         this.httpService = httpService;
-        this.localFileWriterService = localFileWriterService;
+        this.serializers = serializers;
         this.indexExchangeConfig = config.apiconfig.source.indexExchange;
     }
 
     @Override
-    public Map<String, String> setHeaderMap(Oauth oauth) {
+    public Map<String, String> setHeaderMap(String token) {
 
         Map<String, String> headersMap = new LinkedHashMap<>();
-        headersMap.put("Authorization", oauth.getOAuthToken());
+        headersMap.put("Authorization", token);
         headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
         headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
         return headersMap;
     }
 
     @Override
-    public  ArrayList<ReportsList> listReports(Map<String, String> headersMap, int reportId)
-            throws HttpException, HttpRetryableException {
+    public  ArrayList<ReportsList> listReports(Oauth oauth, int reportId) throws IOException {
 
         String completeUrl = buildListReportsUrl(reportId);
         log.debug("Index Exchange List Reports from api URL: {}", completeUrl);
-        HttpCustomResponse response = httpService.get(completeUrl, headersMap);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.get(completeUrl, setHeaderMap(token)));
 
         ArrayList<ReportsList> reportsList = new ArrayList<>();
         if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
             log.info("Successfully requested List of available Reports with status NEW");
             try {
-                ReportsList[] jsonArrList = mapper.readValue(response.getBody(), ReportsList[].class);
+                ReportsList[] jsonArrList = serializers.reader(ReportsList[].class).readValue(response.getBody());
                 reportsList.addAll(Arrays.asList(jsonArrList));
 //                JSONArray jsonArr = mapper.createArrayNode(jsonArrStr);
 //                report_id = result.get("response").get("report_id").asText();
@@ -74,22 +70,12 @@ public class IndexExchangeServiceImpl implements IndexExchangeService {
     }
 
     @Override
-    public String downloadReport(Map<String, String> headersMap, int fileId)
-            throws HttpException, HttpRetryableException {
+    public Long downloadReport(Oauth oauth, int fileId, String localFilePath) throws IOException {
 
         String reportDownloadUrl = buildReportDownloadUrl(fileId);
-        HttpCustomResponse response = httpService.get(reportDownloadUrl, headersMap);
-
-        String data = null;
-        if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
-            log.info("Successfully requested List of available Reports with status NEW");
-            try {
-                data = response.getBody();
-            } catch (Exception e){
-                log.error("Failed in parsing response: {}", response.getBody());
-            }
-        }
-        return data;
+        Long bytes = oauth.withTokenRetry(token -> httpService.download(reportDownloadUrl, setHeaderMap(token), localFilePath, true));
+        log.info("Successfully downloaded report file {} to {}", fileId, localFilePath);
+        return bytes;
     }
 
 
@@ -0,0 +1,101 @@
+package com.target.kelsaapi.common.service.listener;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.BadResourceException;
+import com.target.kelsaapi.common.exceptions.ResourceAlreadyExistsException;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks a request which {@link com.target.kelsaapi.controllers.PipelineAbstractController#dateRangeSplitter(String, String)}
+ * split into several dates as one backfill. The backfill is a parent row in mdf_ingest_batch_request and every date
+ * window is a child run on the {@link PipelineRunQueueService}, which caps how many windows of one backfill run at once.
+ * <p>
+ * The parent is never claimed itself; its status is aggregated from its windows, and failed windows are queued again
+ * on their own until they have used up backfillMaxAttempts. A retried window keeps its batch request id and landing
+ * file, so every completed window ends up in the same date partitioned layout as a single day request would.
+ */
+@Slf4j
+@Service
+public class BackfillCoordinator {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final PipelineRunQueueRepository queueRepository;
+
+    private final PipelineRunStateService runStateService;
+
+    private final PipelineRunQueueService runQueueService;
+
+    private final int maxAttempts;
+
+    @Autowired
+    public BackfillCoordinator(PipelineConfig pipelineConfig,
+                               PipelineRunQueueRepository queueRepository,
+                               PipelineRunStateService runStateService,
+                               PipelineRunQueueService runQueueService) {
+        this.queueRepository = queueRepository;
+        this.runStateService = runStateService;
+        this.runQueueService = runQueueService;
+        Integer configured = pipelineConfig.apiconfig.runQueue == null ? null : pipelineConfig.apiconfig.runQueue.backfillMaxAttempts;
+        this.maxAttempts = configured == null || configured <= 0 ? DEFAULT_MAX_ATTEMPTS : configured;
+    }
+
+    /**
+     * Saves the parent row of a new backfill.
+     *
+     * @param source The source system from the original request.
+     * @param startDate The start date from the original request.
+     * @param endDate The end date from the original request.
+     * @param filePath The target path from the original request.
+     * @param reportType The report types from the original request.
+     * @return The parent {@link PipelineRunState}, whose id the caller can poll for the aggregated status.
+     */
+    public PipelineRunState createBackfill(String source, String startDate, String endDate, String filePath,
+                                           @Nullable String reportType) throws BadResourceException, ResourceAlreadyExistsException {
+        PipelineRunState backfill = new PipelineRunState(ApplicationConstants.PipelineStates.INITIALIZED,
+                source, startDate, endDate, filePath, reportType);
+        runStateService.save(backfill);
+        log.info("Created backfill {} for {} from {} to {}", backfill.getBatchRequestId(), source, startDate, endDate);
+        return backfill;
+    }
+
+    /**
+     * Queues one date window of a backfill.
+     *
+     * @param backfill The parent created by {@link #createBackfill(String, String, String, String, String)}.
+     * @param window The run of a single date window.
+     */
+    public void enqueueWindow(PipelineRunState backfill, PipelineRunState window) throws BadResourceException, ResourceAlreadyExistsException {
+        window.setParentBatchRequestId(backfill.getBatchRequestId());
+        window.setAttempt(1);
+        runQueueService.enqueue(window, true);
+    }
+
+    /**
+     * Queues failed windows again and brings the status of every backfill up to date with its windows.
+     */
+    @Scheduled(fixedDelayString = "${apiconfig.runQueue.pollIntervalMillis:5000}")
+    public void reconcile() {
+        try {
+            int retried = queueRepository.retryFailedWindows(maxAttempts);
+            if (retried > 0) {
+                log.info("Queued {} failed backfill windows again", retried);
+            }
+            int updated = queueRepository.aggregateBackfillStatuses(maxAttempts);
+            if (updated > 0) {
+                log.debug("Updated the status of {} backfills", updated);
+            }
+        } catch (DataAccessException e) {
+            log.error("Unable to reconcile backfills: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.target.kelsaapi.common.service.listener;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.BadResourceException;
+import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.exceptions.ResourceAlreadyExistsException;
+import com.target.kelsaapi.common.exceptions.ResourceNotFoundException;
+import com.target.kelsaapi.common.service.file.TempStorageManager;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository.SourceSummary;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Durable run queue in front of the {@link PipelineRunnerListener}. Requests are only saved as queued rows in
+ * mdf_ingest_batch_request; every replica polls the table and claims as many runs as its pipelineRunnerListenerExecutor
+ * has idle threads, so queued runs survive restarts and are picked up by whichever pod has capacity.
+ * <p>
+ * Each free slot goes to the source with the highest queued {@link ApplicationConstants.RunPriority}, and among sources
+ * of the same priority to the one with the fewest running runs relative to its configured weight. A source is never
+ * given more than its maxConcurrentRuns across all replicas, and a backfill never more than maxConcurrentWindows of them,
+ * so a large backfill of one source can neither take every thread nor flood the vendor API. Runs of a source whose temp
+ * storage reservation does not fit on this replica stay queued until the {@link TempStorageManager} has room for them.
+ * Replicas send a heartbeat for the runs they claimed, and runs of a replica which stopped sending heartbeats are put
+ * back on the queue. The heartbeat is its own scheduled task, so that a slow poll cannot make this replica's runs look
+ * orphaned.
+ */
+@Slf4j
+@Service
+public class PipelineRunQueueService {
+
+    private static final int DEFAULT_HEARTBEAT_TIMEOUT_SECONDS = 300;
+
+    private static final int DEFAULT_WEIGHT = 1;
+
+    private static final int DEFAULT_MAX_CONCURRENT_WINDOWS = 2;
+
+    private final PipelineRunQueueRepository queueRepository;
+
+    private final PipelineRunStateService runStateService;
+
+    private final PipelineRunnerListener pipelineRunnerListener;
+
+    private final ThreadPoolTaskExecutor pipelineRunnerExecutor;
+
+    private final TempStorageManager tempStorageManager;
+
+    private final String owner;
+
+    private final int heartbeatTimeoutSeconds;
+
+    private final int defaultMaxConcurrentRuns;
+
+    private final int defaultWeight;
+
+    private final int defaultMaxConcurrentWindows;
+
+    private final Map<String, PipelineConfig.RunQueueSource> sourceConfigs = new HashMap<>();
+
+    private final Map<String, ApplicationConstants.RunPriority> sourcePriorities = new HashMap<>();
+
+    @Autowired
+    public PipelineRunQueueService(PipelineConfig pipelineConfig,
+                                   PipelineRunQueueRepository queueRepository,
+                                   PipelineRunStateService runStateService,
+                                   PipelineRunnerListener pipelineRunnerListener,
+                                   @Qualifier("pipelineRunnerListenerExecutor") ThreadPoolTaskExecutor pipelineRunnerExecutor,
+                                   TempStorageManager tempStorageManager) throws ConfigurationException {
+        this.queueRepository = queueRepository;
+        this.runStateService = runStateService;
+        this.pipelineRunnerListener = pipelineRunnerListener;
+        this.pipelineRunnerExecutor = pipelineRunnerExecutor;
+        this.tempStorageManager = tempStorageManager;
+        this.owner = ownerName();
+
+        PipelineConfig.RunQueue runQueue = pipelineConfig.apiconfig.runQueue == null
+                ? new PipelineConfig.RunQueue() : pipelineConfig.apiconfig.runQueue;
+        this.heartbeatTimeoutSeconds = valueOrDefault(runQueue.heartbeatTimeoutSeconds, DEFAULT_HEARTBEAT_TIMEOUT_SECONDS);
+        this.defaultMaxConcurrentRuns = valueOrDefault(runQueue.defaultMaxConcurrentRuns, pipelineRunnerExecutor.getCorePoolSize());
+        this.defaultWeight = valueOrDefault(runQueue.defaultWeight, DEFAULT_WEIGHT);
+        this.defaultMaxConcurrentWindows = valueOrDefault(runQueue.defaultMaxConcurrentWindows, DEFAULT_MAX_CONCURRENT_WINDOWS);
+        if (runQueue.sources != null) {
+            for (PipelineConfig.RunQueueSource source : runQueue.sources) {
+                sourceConfigs.put(source.source.toLowerCase(), source);
+                if (source.priority != null) {
+                    sourcePriorities.put(source.source.toLowerCase(), runPriority(source));
+                }
+            }
+        }
+        log.info("Pipeline run queue will claim runs as {}", owner);
+    }
+
+    /**
+     * Saves a requested run as queued. Requests which were split into more than one date are queued as
+     * {@link ApplicationConstants.RunPriority#BACKFILL}, everything else at the priority configured for its source.
+     *
+     * @param runState The requested pipeline run.
+     * @param backfill True if the run is one date of a multi date request.
+     */
+    public void enqueue(PipelineRunState runState, boolean backfill) throws BadResourceException, ResourceAlreadyExistsException {
+        runState.setbatchRequestStatus(ApplicationConstants.PipelineStates.QUEUED);
+        runState.setPriority(backfill ? ApplicationConstants.RunPriority.BACKFILL : priority(runState.getSourceSystem()));
+        runStateService.save(runState);
+    }
+
+    /**
+     * Queues a failed run again under its own ID, so that its consumer can skip the units of work it already recorded
+     * as checkpoints. For a backfill, every failed window is queued again instead.
+     *
+     * @param runState The failed pipeline run or backfill.
+     * @return True if anything was queued again; false if the run is not in a resumable state.
+     */
+    public boolean resume(PipelineRunState runState) throws BadResourceException, ResourceNotFoundException {
+        int windows = queueRepository.resumeFailedWindows(runState.getBatchRequestId());
+        if (windows > 0) {
+            log.info("Resuming {} failed windows of backfill {}", windows, runState.getBatchRequestId());
+            runState.setbatchRequestStatus(ApplicationConstants.PipelineStates.INITIALIZED);
+        } else if (ApplicationConstants.PipelineStates.FAILED.toString().equalsIgnoreCase(runState.getBatchRequestStatus())) {
+            log.info("Resuming pipeline run {}", runState.getBatchRequestId());
+            runState.setbatchRequestStatus(ApplicationConstants.PipelineStates.QUEUED);
+            runState.setClaimedBy(null);
+            runState.setClaimedTimestamp(null);
+            runState.setHeartbeatTimestamp(null);
+        } else {
+            return false;
+        }
+        runStateService.update(runState);
+        return true;
+    }
+
+    /**
+     * Keeps this replica's claims alive.
+     */
+    @Scheduled(fixedDelayString = "${apiconfig.runQueue.pollIntervalMillis:5000}")
+    public void heartbeat() {
+        try {
+            queueRepository.heartbeat(owner);
+        } catch (DataAccessException e) {
+            log.error("Unable to send the pipeline run queue heartbeat: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Requeues orphaned runs and claims queued runs for every idle pipeline thread.
+     */
+    @Scheduled(fixedDelayString = "${apiconfig.runQueue.pollIntervalMillis:5000}")
+    public void poll() {
+        try {
+            int requeued = queueRepository.requeueStale(heartbeatTimeoutSeconds);
+            if (requeued > 0) {
+                log.warn("Put {} orphaned pipeline runs back on the run queue", requeued);
+            }
+
+            Set<String> exhausted = new HashSet<>();
+            while (idleSlots() > 0) {
+                SourceSummary next = nextSource(queueRepository.getSourceSummaries(), exhausted);
+                if (next == null) {
+                    break;
+                }
+                String batchRequestId = queueRepository.claimNext(next.getSource(), owner,
+                        maxConcurrentRuns(next.getSource()), maxConcurrentWindows(next.getSource()));
+                if (batchRequestId == null) {
+                    //Another replica got there first or the source reached its cap in between
+                    exhausted.add(next.getSource());
+                } else {
+                    dispatch(batchRequestId);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.error("Unable to poll the pipeline run queue: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Picks the source the next idle slot goes to.
+     *
+     * @param summaries The current queue summary per source.
+     * @param exhausted Sources which could not be claimed from during this poll.
+     * @return The source to claim from, or null if no source has a claimable run.
+     */
+    SourceSummary nextSource(List<SourceSummary> summaries, Set<String> exhausted) {
+        return summaries.stream()
+                .filter(summary -> summary.getQueued() > 0 && summary.getTopPriority() != null)
+                .filter(summary -> !exhausted.contains(summary.getSource()))
+                .filter(summary -> summary.getRunning() < maxConcurrentRuns(summary.getSource()))
+                .filter(summary -> tempStorageManager.canReserve(summary.getSource()))
+                .min(Comparator.comparing(SourceSummary::getTopPriority)
+                        .thenComparingDouble(summary -> (double) summary.getRunning() / weight(summary.getSource()))
+                        .thenComparing(SourceSummary::getQueued, Comparator.reverseOrder()))
+                .orElse(null);
+    }
+
+    private void dispatch(String batchRequestId) {
+        PipelineRunState runState;
+        try {
+            runState = runStateService.findById(batchRequestId);
+        } catch (ResourceNotFoundException e) {
+            log.error("Claimed pipeline run {} no longer exists", batchRequestId);
+            return;
+        }
+        try {
+            log.info("Claimed pipeline run {} for source {}", batchRequestId, runState.getSourceSystem());
+            pipelineRunnerListener.runPipeline(runState);
+        } catch (TaskRejectedException | ParseException | ConfigurationException e) {
+            log.error("Unable to start pipeline run {}, putting it back on the run queue: {}", batchRequestId, e.getMessage());
+            queueRepository.release(batchRequestId);
+        }
+    }
+
+    private int idleSlots() {
+        return pipelineRunnerExecutor.getCorePoolSize()
+                - pipelineRunnerExecutor.getActiveCount()
+                - pipelineRunnerExecutor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    private ApplicationConstants.RunPriority priority(String source) {
+        return sourcePriorities.getOrDefault(source.toLowerCase(), ApplicationConstants.RunPriority.NORMAL);
+    }
+
+    private static ApplicationConstants.RunPriority runPriority(PipelineConfig.RunQueueSource source) throws ConfigurationException {
+        try {
+            return ApplicationConstants.RunPriority.valueOf(source.priority.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid run queue priority " + source.priority + " for source " + source.source
+                    + ", expected one of " + Arrays.toString(ApplicationConstants.RunPriority.values()));
+        }
+    }
+
+    private int maxConcurrentRuns(String source) {
+        PipelineConfig.RunQueueSource sourceConfig = sourceConfigs.get(source.toLowerCase());
+        return sourceConfig == null ? defaultMaxConcurrentRuns : valueOrDefault(sourceConfig.maxConcurrentRuns, defaultMaxConcurrentRuns);
+    }
+
+    private int maxConcurrentWindows(String source) {
+        PipelineConfig.RunQueueSource sourceConfig = sourceConfigs.get(source.toLowerCase());
+        return sourceConfig == null ? defaultMaxConcurrentWindows : valueOrDefault(sourceConfig.maxConcurrentWindows, defaultMaxConcurrentWindows);
+    }
+
+    private int weight(String source) {
+        PipelineConfig.RunQueueSource sourceConfig = sourceConfigs.get(source.toLowerCase());
+        return sourceConfig == null ? defaultWeight : valueOrDefault(sourceConfig.weight, defaultWeight);
+    }
+
+    /**
+     * The pod name plus a random suffix, so that a restarted pod with the same name does not keep the heartbeat of the
+     * runs its previous incarnation claimed alive.
+     */
+    private static String ownerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -5,11 +5,17 @@ import com.target.kelsaapi.common.exceptions.AuthenticationException;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
 import com.target.kelsaapi.common.exceptions.NotSupportedException;
 import com.target.kelsaapi.common.service.file.LocalFileWriterService;
+import com.target.kelsaapi.common.service.file.TempStorageManager;
+import com.target.kelsaapi.common.service.metrics.PipelineMetrics;
 import com.target.kelsaapi.common.service.observability.NotificationService;
+import com.target.kelsaapi.common.service.postgres.checkpoint.PipelineCheckpointService;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository;
 import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.service.postgres.s3.S3DbParamStateService;
 import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.util.SlackNotificationUtil;
 import com.target.kelsaapi.common.validators.ControllerValidator;
+import com.target.kelsaapi.common.vo.pipeline.RunContext;
 import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
 import com.target.kelsaapi.common.vo.s3.S3DbParam;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
@@ -40,6 +46,8 @@ import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import static com.target.kelsaapi.common.constants.ApplicationConstants.Sources.S3;
@@ -69,6 +77,21 @@ public class PipelineRunnerListener {
 
     private final ControllerValidator validator;
 
+    private final PipelineMetrics pipelineMetrics;
+
+    private final PipelineCheckpointService checkpointService;
+
+    private final TempStorageManager tempStorageManager;
+
+    private final S3DbParamStateService s3DbParamStateService;
+
+    private final PipelineRunQueueRepository queueRepository;
+
+    /**
+     * Runs put back on the queue by the shutdown hook, whose worker thread must not overwrite that status on its way out.
+     */
+    private final Set<String> requeuedOnShutdown = ConcurrentHashMap.newKeySet();
+
     /**
      * Constructor for a PipelineRunnerListener used by Spring Framework to autowire dependencies
      *
@@ -77,13 +100,23 @@ public class PipelineRunnerListener {
      * @param pipelineConfig      The {@link PipelineConfig} from Spring Framework.
      * @param notificationService The {@link NotificationService} from Spring Framework
      * @param validator
+     * @param pipelineMetrics     The {@link PipelineMetrics} from Spring Framework
+     * @param checkpointService   The {@link PipelineCheckpointService} from Spring Framework
+     * @param tempStorageManager  The {@link TempStorageManager} from Spring Framework
+     * @param s3DbParamStateService The {@link S3DbParamStateService} from Spring Framework
+     * @param queueRepository     The {@link PipelineRunQueueRepository} from Spring Framework
      */
     @Autowired
     public PipelineRunnerListener(ApplicationContext context,
                                   PipelineRunStateService runState,
                                   PipelineConfig pipelineConfig,
                                   NotificationService notificationService,
-                                  LocalFileWriterService localFileWriterService, ControllerValidator validator) {
+                                  LocalFileWriterService localFileWriterService, ControllerValidator validator,
+                                  PipelineMetrics pipelineMetrics,
+                                  PipelineCheckpointService checkpointService,
+                                  TempStorageManager tempStorageManager,
+                                  S3DbParamStateService s3DbParamStateService,
+                                  PipelineRunQueueRepository queueRepository) {
         this.pipelineRunStateService = runState;
         this.context = context;
         this.notificationConfig = pipelineConfig.getApiconfig().getNotification();
@@ -91,6 +124,11 @@ public class PipelineRunnerListener {
         this.localFileWriterService = localFileWriterService;
         this.cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
         this.validator = validator;
+        this.pipelineMetrics = pipelineMetrics;
+        this.checkpointService = checkpointService;
+        this.tempStorageManager = tempStorageManager;
+        this.s3DbParamStateService = s3DbParamStateService;
+        this.queueRepository = queueRepository;
     }
 
     /**
@@ -103,12 +141,12 @@ public class PipelineRunnerListener {
 
         String pipelineRunId = runState.getBatchRequestId();
         MDC.put(ApplicationConstants.PIPELINE_LOGGER_NAME, pipelineRunId);
-        StopWatch stopWatch = initializeStopwatch(pipelineRunId);
         String startDate = runState.getStartDate();
         String endDate = runState.getEndDate();
         String targetFile = runState.getLandingFile();
         String reportType = runState.getSourceReportType();
         String source = runState.getSourceSystem();
+        StopWatch stopWatch = initializeStopwatch(pipelineRunId, source, reportType);
 
         //Adding date format validators here to prevent these from flowing downstream to the S3Consumer who may potentially use SQL to look these up in a sql injection type of attack
         if (!validator.validateDateFormats(startDate, endDate)) {
@@ -118,7 +156,7 @@ public class PipelineRunnerListener {
             Thread thisThread = Thread.currentThread();
 
             Runtime runtime = Runtime.getRuntime();
-            Thread updatePipeline = new Thread(() -> shutdownThread(runState, stopWatch, source, startDate, endDate, targetFile, reportType, pipelineRunId, thisThread));
+            Thread updatePipeline = new Thread(() -> shutdownThread(pipelineRunId, thisThread));
             runtime.addShutdownHook(updatePipeline);
 
             log.info("Will use Source and ReportType to determine the correct consumer to initialize");
@@ -169,29 +207,25 @@ public class PipelineRunnerListener {
      * Initializes a {@link StopWatch} instance for a new pipeline run
      *
      * @param pipelineRunId The ID of the Pipeline Run to associate with this StopWatch Instance
-     * @return A new {@link StopWatch} instance tied to the given pipelineRunId
+     * @param source        The source system of the Pipeline Run
+     * @param reportType    The report type of the Pipeline Run
+     * @return A new {@link StopWatch} instance tied to the given pipelineRunId, which also records each stage as a metric and span
      */
-    private StopWatch initializeStopwatch(String pipelineRunId) {
+    private StopWatch initializeStopwatch(String pipelineRunId, String source, String reportType) {
         log.info("Running background process now for Pipeline run ID: " + pipelineRunId);
         //Starts StopWatch
-        StopWatch stopWatch = new StopWatch(pipelineRunId);
+        StopWatch stopWatch = pipelineMetrics.startRun(source, reportType, pipelineRunId);
         CommonUtils.timerSplit(stopWatch, "Update Pipeline status to RUNNING in db");
         return stopWatch;
     }
 
-    private void runSwitchboardConsumer(String sourceSystem, String reportType, String startDate,
-                                        String endDate, String targetFile, StopWatch stopWatch, String pipelineRunId)
-            throws SQLException, IOException, AuthenticationException {
-        String concatSourceAndReportType = sourceSystem.toUpperCase() + reportType.toUpperCase();
-        runSwitchboardConsumer(concatSourceAndReportType,startDate,endDate, targetFile, stopWatch, pipelineRunId);
-    }
-
-    private void runSwitchboardConsumer(String concatSourceAndReportType, String startDate,
-                                        String endDate, String targetFile, StopWatch stopWatch, String pipelineRunId)
+    private void runSwitchboardConsumer(RunContext runContext)
             throws SQLException, IOException, AuthenticationException {
+        String concatSourceAndReportType = runContext.getSourceSystem().toUpperCase() + runContext.getReportType().toUpperCase();
         log.info("concatSourceAndReportType:" + concatSourceAndReportType);
-        S3SwitchBoardConsumer s3SwitchBoardConsumer = new S3SwitchBoardConsumer(context, pipelineRunId);
-        s3SwitchBoardConsumer.execute(startDate, endDate, targetFile, concatSourceAndReportType, stopWatch);
+        S3SwitchBoardConsumer s3SwitchBoardConsumer = new S3SwitchBoardConsumer(context, runContext);
+        s3SwitchBoardConsumer.execute(runContext.getStartDate(), runContext.getEndDate(), runContext.getLandingFile(),
+                concatSourceAndReportType, runContext.getStopWatch());
     }
 
     /**
@@ -203,7 +237,7 @@ public class PipelineRunnerListener {
      * @param startDate     The start date
      * @param endDate       The end date
      * @param targetFile    The targetFile
-     * @param stopWatch     The {@link StopWatch} instance as initialized first via {@link #initializeStopwatch(String)}
+     * @param stopWatch     The {@link StopWatch} instance as initialized first via {@link #initializeStopwatch(String, String, String)}
      * @param reportType    The report type as determined by the source system
      */
     private void runPipeline(PipelineRunState runState,
@@ -219,13 +253,19 @@ public class PipelineRunnerListener {
             runState.setCreatedTimestamp(runStateFromDb.getCreatedTimestamp());
             pipelineRunStateService.update(runState);
 
-            if (S3DbParam.getReportType().isEmpty()) {
+            CommonUtils.timerSplit(stopWatch, "Reserve temp storage");
+            tempStorageManager.reserve(pipelineRunId, sourceName);
+
+            //Read once per run, so that a change to mdf_s3_parameter or another run starting cannot affect this one midway
+            S3DbParam s3DbParam = s3DbParamStateService.getS3DbParam(sourceName.toUpperCase() + reportType.toUpperCase());
+            RunContext runContext = new RunContext(runState, s3DbParam, stopWatch);
+            if (!s3DbParam.isInDb()) {
                 sourceSystem = ApplicationConstants.Sources.valueOf(sourceName.toUpperCase());
             }
             else {
                 sourceSystem = S3;
             };
-            pipelineResolver(sourceSystem, reportType, startDate, endDate, targetFile, stopWatch, pipelineRunId,sourceName);
+            pipelineResolver(runContext, sourceSystem, reportType, startDate, endDate, targetFile, stopWatch, pipelineRunId,sourceName);
 
             runState.setbatchRequestStatus(ApplicationConstants.PipelineStates.COMPLETED);
         } catch (Exception e) {
@@ -237,11 +277,11 @@ public class PipelineRunnerListener {
         }
     }
 
-    private void pipelineResolver(ApplicationConstants.Sources sourceSystem, String reportType, String startDate,
+    private void pipelineResolver(RunContext runContext, ApplicationConstants.Sources sourceSystem, String reportType, String startDate,
                                   String endDate, String targetFile, StopWatch stopWatch, String pipelineRunId, String sourceName)
             throws NotSupportedException, ConfigurationException, IOException, SQLException, AuthenticationException {
 
-        if (S3DbParam.getReportType().isEmpty()) {
+        if (!runContext.getS3DbParam().isInDb()) {
             switch (sourceSystem) {
                 case FACEBOOK -> {
                     ApplicationConstants.FacebookReportTypes rt = ApplicationConstants.FacebookReportTypes.valueOf(reportType.toUpperCase());
@@ -395,8 +435,8 @@ public class PipelineRunnerListener {
         }
         else {
 
-            if ((sourceName.toUpperCase() + reportType.toUpperCase()).equals(S3DbParam.getReportType().toUpperCase()))
-                runSwitchboardConsumer(sourceName, reportType, startDate, endDate, targetFile, stopWatch, pipelineRunId);
+            if ((sourceName.toUpperCase() + reportType.toUpperCase()).equals(runContext.getS3DbParam().getReportType().toUpperCase()))
+                runSwitchboardConsumer(runContext);
             else {
 
                 throw new ConfigurationException("Requested source not currently supported:=>" + sourceSystem +
@@ -410,6 +450,14 @@ public class PipelineRunnerListener {
     }
     private void cleanup(PipelineRunState runState, StopWatch stopWatch, Boolean exceptionsThrown, String sourceName,
                          String startDate, String endDate, String targetFile, String reportType, String pipelineRunId) {
+        if (requeuedOnShutdown.remove(pipelineRunId)) {
+            //The shutdown hook already put the run back on the queue, so leave its status and temp files for the next replica
+            stopWatch.stop();
+            pipelineMetrics.finishRun(stopWatch, ApplicationConstants.PipelineStates.QUEUED.toString());
+            tempStorageManager.release(pipelineRunId);
+            log.info("Pipeline run {} was requeued on shutdown", pipelineRunId);
+            return;
+        }
         CommonUtils.timerSplit(stopWatch, "Update Pipeline status to " + runState.getBatchRequestStatus() + " in db");
         try {
             pipelineRunStateService.update(runState);
@@ -422,8 +470,12 @@ public class PipelineRunnerListener {
             sendNotification(exceptionsThrown, stopWatch, sourceName, startDate, endDate, targetFile,
                     runState.getBatchRequestStatus(), reportType);
             stopWatch.stop();
+            pipelineMetrics.finishRun(stopWatch, runState.getBatchRequestStatus());
 
-            if (cleanupTempFile) {
+            boolean resumable = isResumable(exceptionsThrown, pipelineRunId);
+            if (resumable) {
+                log.info("Keeping the temp files of checkpointed pipeline run {} so that it can be resumed", pipelineRunId);
+            } else if (cleanupTempFile) {
                 log.info("Looking for any temp files to cleanup in the local filesystem.");
                 try {
                     localFileWriterService.deleteLocalFiles(localFileWriterService.findFilesFromNamePrefix(pipelineRunId));
@@ -432,16 +484,46 @@ public class PipelineRunnerListener {
                     log.error(e.getMessage(), e.getCause());
                 }
             }
+            tempStorageManager.release(pipelineRunId);
 
             log.info("Completed pipeline run");
             log.info("Final status: {}", runState.getBatchRequestStatus());
             log.info(CommonUtils.prettyPrintStopWatchSeconds(stopWatch));
         }
     }
-    private void shutdownThread(PipelineRunState runState, StopWatch stopWatch, String sourceName, String startDate, String endDate, String targetFile, String reportType, String pipelineRunId, Thread id) {
+    /**
+     * A failed run with checkpoints keeps them for a resume; a completed run no longer needs its checkpoints.
+     */
+    private boolean isResumable(Boolean exceptionsThrown, String pipelineRunId) {
+        try {
+            if (Boolean.TRUE.equals(exceptionsThrown)) {
+                return checkpointService.hasCheckpoints(pipelineRunId);
+            }
+            checkpointService.clear(pipelineRunId);
+        } catch (Exception e) {
+            log.error("Unable to look up the checkpoints of pipeline run {}", pipelineRunId);
+            log.error(e.getMessage(), e.getCause());
+        }
+        return false;
+    }
 
-        runState.setbatchRequestStatus(ApplicationConstants.PipelineStates.FAILED);
-        cleanup(runState, stopWatch, true, sourceName, startDate, endDate, targetFile, reportType, pipelineRunId);
+    /**
+     * Puts the in-flight run back on the queue when the replica shuts down, so that another replica resumes it from its
+     * checkpoints rather than it being reported as a failure. A run that already finished is left as it is.
+     */
+    private void shutdownThread(String pipelineRunId, Thread id) {
+        requeuedOnShutdown.add(pipelineRunId);
+        try {
+            if (queueRepository.release(pipelineRunId) == 0) {
+                requeuedOnShutdown.remove(pipelineRunId);
+            } else {
+                log.warn("Requeued pipeline run {} because the application is shutting down", pipelineRunId);
+            }
+        } catch (Exception e) {
+            //Left RUNNING, the run is requeued by the stale heartbeat check instead
+            log.error("Unable to requeue pipeline run {} on shutdown", pipelineRunId);
+            log.error(e.getMessage(), e.getCause());
+        }
         if (id.isAlive()) {
             log.warn("Attempting to shut down thread {}", id.getName());
             id.interrupt();
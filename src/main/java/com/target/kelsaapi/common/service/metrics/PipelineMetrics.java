@@ -0,0 +1,54 @@
+package com.target.kelsaapi.common.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StopWatch;
+
+/**
+ * Creates the per-run {@link PipelineStopWatch} which turns the existing stage timing into metrics and spans. All meters
+ * are exposed on the actuator prometheus endpoint alongside the http client, Hikari pool and task executor meters Spring
+ * Boot binds on its own.
+ */
+@Service
+public class PipelineMetrics {
+
+    private final ObservationRegistry observationRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public PipelineMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts timing a new pipeline run.
+     *
+     * @param source The source system of the run.
+     * @param reportType The report type of the run.
+     * @param pipelineRunId The ID of the run.
+     * @return A stop watch which reports each task as a pipeline stage.
+     */
+    public PipelineStopWatch startRun(String source, String reportType, String pipelineRunId) {
+        return new PipelineStopWatch(observationRegistry, meterRegistry,
+                source == null ? "unknown" : source.toLowerCase(),
+                reportType == null ? "unknown" : reportType.toLowerCase(),
+                pipelineRunId);
+    }
+
+    /**
+     * Ends the run span of a stop watch created by {@link #startRun(String, String, String)}. Any other stop watch is
+     * ignored.
+     *
+     * @param stopWatch The stop watch of the run.
+     * @param status The final status of the run.
+     */
+    public void finishRun(StopWatch stopWatch, String status) {
+        if (stopWatch instanceof PipelineStopWatch pipelineStopWatch) {
+            pipelineStopWatch.finish(status);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.target.kelsaapi.common.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StopWatch;
+
+/**
+ * A {@link StopWatch} which also reports every task as a pipeline stage. Each task started through
+ * {@link com.target.kelsaapi.common.util.CommonUtils#timerSplit(StopWatch, String)} becomes a "pipeline.stage"
+ * observation, which is recorded as a Micrometer timer tagged by source, report type and stage, and as a tracing span
+ * under the "pipeline.run" span of the whole run. The pipelineRunId is only attached to the spans, to keep the metric
+ * series count independent of the number of runs. For the same reason task names must come from a fixed set: anything
+ * run specific, such as paths, file counts or error messages, belongs in a log line instead.
+ * <p>
+ * Use {@link PipelineMetrics#startRun(String, String, String)} to create one.
+ */
+@Slf4j
+public class PipelineStopWatch extends StopWatch {
+
+    private final ObservationRegistry observationRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String source;
+
+    private final String reportType;
+
+    private final String pipelineRunId;
+
+    private final Observation run;
+
+    private final Thread owner;
+
+    private Observation stage;
+
+    private Observation.Scope stageScope;
+
+    PipelineStopWatch(ObservationRegistry observationRegistry, MeterRegistry meterRegistry,
+                      String source, String reportType, String pipelineRunId) {
+        super(pipelineRunId);
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.source = source;
+        this.reportType = reportType;
+        this.pipelineRunId = pipelineRunId;
+        this.owner = Thread.currentThread();
+        this.run = Observation.createNotStarted("pipeline.run", observationRegistry)
+                .lowCardinalityKeyValue("source", source)
+                .lowCardinalityKeyValue("report.type", reportType)
+                .highCardinalityKeyValue("pipeline.run.id", pipelineRunId)
+                .start();
+    }
+
+    @Override
+    public void start(String taskName) throws IllegalStateException {
+        super.start(taskName);
+        stage = Observation.createNotStarted("pipeline.stage", observationRegistry)
+                .parentObservation(run)
+                .lowCardinalityKeyValue("source", source)
+                .lowCardinalityKeyValue("report.type", reportType)
+                .lowCardinalityKeyValue("stage", taskName)
+                .highCardinalityKeyValue("pipeline.run.id", pipelineRunId)
+                .start();
+        //Only the run's own thread may open a scope, so that outbound http spans nest under the current stage
+        if (Thread.currentThread() == owner) {
+            stageScope = stage.openScope();
+        }
+    }
+
+    @Override
+    public void stop() throws IllegalStateException {
+        super.stop();
+        closeStage();
+    }
+
+    /**
+     * Records bytes moved during the current stage.
+     *
+     * @param bytes The number of bytes read or written.
+     */
+    public void recordBytes(long bytes) {
+        stageSummary("pipeline.stage.bytes", "bytes").record(bytes);
+    }
+
+    /**
+     * Records rows moved during the current stage.
+     *
+     * @param rows The number of rows or records read or written.
+     */
+    public void recordRows(long rows) {
+        stageSummary("pipeline.stage.rows", "rows").record(rows);
+    }
+
+    /**
+     * Ends the run span, tagging it with the final pipeline status.
+     *
+     * @param status The final status of the pipeline run.
+     */
+    void finish(String status) {
+        if (isRunning()) {
+            stop();
+        }
+        run.lowCardinalityKeyValue("status", status).stop();
+    }
+
+    private DistributionSummary stageSummary(String name, String unit) {
+        return DistributionSummary.builder(name)
+                .baseUnit(unit)
+                .tag("source", source)
+                .tag("report.type", reportType)
+                .tag("stage", isRunning() ? currentTaskName() : "none")
+                .register(meterRegistry);
+    }
+
+    private void closeStage() {
+        if (stageScope != null) {
+            if (Thread.currentThread() == owner) {
+                stageScope.close();
+            } else {
+                log.debug("Stage of pipeline run {} stopped from another thread, leaving its scope to the owning thread", pipelineRunId);
+            }
+            stageScope = null;
+        }
+        if (stage != null) {
+            stage.stop();
+            stage = null;
+        }
+    }
+}
@@ -1,36 +1,33 @@
 package com.target.kelsaapi.common.service.observability;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.util.CommonUtils;
-import com.target.kelsaapi.common.util.SlackNotificationUtil;
-import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StopWatch;
 
-import java.util.Map;
-
 @Slf4j
 @Service("notificationService")
 public class NotificationServiceImpl implements NotificationService {
 
     private final PipelineConfig config;
 
-    private final HttpService httpService;
+    private final SlackNotificationDispatcher dispatcher;
 
     @Autowired
-    NotificationServiceImpl(PipelineConfig config, HttpService httpService) {
+    NotificationServiceImpl(PipelineConfig config, SlackNotificationDispatcher dispatcher) {
         this.config = config;
-        this.httpService = httpService;
+        this.dispatcher = dispatcher;
     }
 
+    /**
+     * Queues the notification of a finished pipeline run with the {@link SlackNotificationDispatcher} and returns right
+     * away. Notifications of runs of the same source, report type and status finishing together are posted as one
+     * digest.
+     */
     @Override
     public void sendPipelineNotification(ApplicationConstants.slackMessageType messageType, StopWatch stopWatch,
                                          String sourceSystem, String startDate, String endDate, String landingFile,
@@ -48,38 +45,17 @@ public class NotificationServiceImpl implements NotificationService {
                     "\nPipeline status: " + batchRequestStatus +
                     "\nTime taken for execution\n" +
                     CommonUtils.prettyPrintStopWatchSeconds(stopWatch);
+        String summary = sourceSystem + " " + reportType + " " + startDate + " to " + endDate + ": " + batchRequestStatus;
 
         try {
-            sendSlackMessage(slack, message, messageType);
-        } catch (JsonProcessingException | ConfigurationException e) {
+            sendSlackMessage(slack, message, summary, messageType, sourceSystem + "|" + reportType);
+        } catch (ConfigurationException e) {
             log.error("Exception thrown while trying to send Slack message", e);
         }
     }
 
-    /**
-     * Send message to slack
-     *
-     * @param webhook webhook url
-     * @param payload slack payload
-     * @return status of message push
-     */
-    private Boolean sendMessage(String webhook, String payload) {
-        try {
-            Map<String,String> headers = Map.of(ApplicationConstants.CONTENTTYPE, ApplicationConstants.JSONDATA);
-            HttpCustomResponse response = httpService.post(webhook, headers, payload);
-            if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
-                log.info("success in sending message {}", response.getBody());
-                return true;
-            } else {
-                throw new HttpException("Failure in sending message");
-            }
-        } catch (Exception e) {
-            log.error("Failure in sending message", e);
-            return false;
-        }
-    }
-
-    private void sendSlackMessage(PipelineConfig.Slack slack, String message, ApplicationConstants.slackMessageType eventType) throws JsonProcessingException, ConfigurationException {
+    private void sendSlackMessage(PipelineConfig.Slack slack, String message, String summary,
+                                  ApplicationConstants.slackMessageType eventType, String similarityKey) throws ConfigurationException {
 
         String icon;
         PipelineConfig.SlackMessage slackMessage;
@@ -95,8 +71,8 @@ public class NotificationServiceImpl implements NotificationService {
             }
             default -> throw new ConfigurationException("Wrong message type");
         }
-        String payload = SlackNotificationUtil.getMessagePayload(slackMessage.getEnvironment(), icon, message, slackMessage.getChannel(), slackMessage.getUsername());
-        Boolean success = sendMessage(slackMessage.getWebhookurl(), payload);
-        log.info("Status of slack message {} ", success);
+        dispatcher.submit(new SlackNotificationDispatcher.SlackNotification(slackMessage.getWebhookurl(), slackMessage.getChannel(),
+                slackMessage.getEnvironment(), slackMessage.getUsername(), icon, config.apiconfig.appName,
+                eventType + "|" + slackMessage.getWebhookurl() + "|" + slackMessage.getChannel() + "|" + similarityKey, summary, message));
     }
 }
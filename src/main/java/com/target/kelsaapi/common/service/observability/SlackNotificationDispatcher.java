@@ -0,0 +1,293 @@
+package com.target.kelsaapi.common.service.observability;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.util.SlackNotificationUtil;
+import com.target.kelsaapi.common.vo.HttpCustomResponse;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.target.kelsaapi.common.util.CommonUtils.nonNegativeOrDefault;
+
+/**
+ * Delivers Slack notifications off the pipeline runner threads. Notifications are put on a bounded queue and posted by
+ * a single sender thread, so a slow or failing webhook never adds to the duration of a run nor fails it.
+ * <p>
+ * The sender collects the notifications arriving within the coalesce window of the first one, and posts the similar
+ * ones among them, such as the failures of every split run of a source during an outage, as a single digest. Posts to
+ * the same channel are spaced by at least the configured interval to stay under the Slack webhook rate limit, and
+ * each post is given up on after the delivery timeout. A post given up on may still hold its delivery thread if the
+ * webhook ignores the interrupt, so posts run on a small bounded pool: once every delivery thread is stuck, further
+ * posts are dropped and counted until one frees up, rather than piling up threads. When the queue is full, new
+ * notifications are dropped and counted rather than blocking the run. On shutdown the notifications still queued are posted right away, for up to
+ * the shutdown grace period.
+ */
+@Slf4j
+@Service
+public class SlackNotificationDispatcher {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 500;
+
+    private static final int DEFAULT_COALESCE_WINDOW_SECONDS = 10;
+
+    private static final int DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+
+    private static final int DEFAULT_DELIVERY_TIMEOUT_SECONDS = 10;
+
+    private static final int DEFAULT_SHUTDOWN_GRACE_SECONDS = 15;
+
+    private static final int DEFAULT_MAX_DELIVERY_THREADS = 4;
+
+    private static final long DELIVERY_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    //How often the sender wakes up to check for shutdown while the queue is empty
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    //Keeps a digest of many runs well under the Slack message size limit
+    private static final int MAX_DIGEST_LINES = 50;
+
+    private final HttpService httpService;
+
+    private final BlockingQueue<SlackNotification> queue;
+
+    private final long coalesceWindowMillis;
+
+    private final long minIntervalMillis;
+
+    private final long deliveryTimeoutMillis;
+
+    private final long shutdownGraceMillis;
+
+    private final Map<String, Long> nextPostAllowedAt = new HashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean stopping;
+
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(namedThreadFactory("SlackSender-"));
+
+    private final ExecutorService delivery;
+
+    @Autowired
+    public SlackNotificationDispatcher(PipelineConfig config, HttpService httpService) {
+        this(config.apiconfig.notification == null ? null : config.apiconfig.notification.slack, httpService);
+    }
+
+    SlackNotificationDispatcher(PipelineConfig.Slack slack, HttpService httpService) {
+        this.httpService = httpService;
+        Integer queueCapacity = slack == null ? null : slack.queueCapacity;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity != null && queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY);
+        this.coalesceWindowMillis = TimeUnit.SECONDS.toMillis(
+                nonNegativeOrDefault(slack == null ? null : slack.coalesceWindowSeconds, DEFAULT_COALESCE_WINDOW_SECONDS));
+        this.minIntervalMillis = nonNegativeOrDefault(slack == null ? null : slack.minIntervalMillis, DEFAULT_MIN_INTERVAL_MILLIS);
+        this.deliveryTimeoutMillis = TimeUnit.SECONDS.toMillis(
+                nonNegativeOrDefault(slack == null ? null : slack.deliveryTimeoutSeconds, DEFAULT_DELIVERY_TIMEOUT_SECONDS));
+        this.shutdownGraceMillis = TimeUnit.SECONDS.toMillis(
+                nonNegativeOrDefault(slack == null ? null : slack.shutdownGraceSeconds, DEFAULT_SHUTDOWN_GRACE_SECONDS));
+        Integer maxDeliveryThreads = slack == null ? null : slack.maxDeliveryThreads;
+        //No queue in front of the threads: a post which finds them all busy is rejected right away, and dropped by post
+        this.delivery = new ThreadPoolExecutor(0,
+                maxDeliveryThreads != null && maxDeliveryThreads > 0 ? maxDeliveryThreads : DEFAULT_MAX_DELIVERY_THREADS,
+                DELIVERY_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                namedThreadFactory("SlackDelivery-"), new ThreadPoolExecutor.AbortPolicy());
+        sender.execute(this::sendLoop);
+    }
+
+    /**
+     * Queues a notification for delivery and returns right away.
+     *
+     * @param notification The notification to post.
+     * @return False if the queue is full and the notification was dropped.
+     */
+    public boolean submit(SlackNotification notification) {
+        if (queue.offer(notification)) {
+            return true;
+        }
+        log.warn("Slack notification queue is full, dropped {} notifications so far: {}", dropped.incrementAndGet(), notification.summary());
+        return false;
+    }
+
+    /**
+     * @return The number of notifications dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of notifications dropped because every delivery thread was still busy with an earlier post.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Posts the notifications still queued without waiting out the coalesce window, such as the failures of the runs
+     * the shutdown interrupted, then stops the sender. Whatever is not posted within the grace period is given up on.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(shutdownGraceMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Slack sender did not finish within {} ms of shutdown", shutdownGraceMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sender.shutdownNow();
+            delivery.shutdownNow();
+        }
+    }
+
+    private void sendLoop() {
+        List<SlackNotification> batch = new ArrayList<>();
+        try {
+            while (!stopping || !queue.isEmpty()) {
+                SlackNotification first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long windowEnd = System.currentTimeMillis() + coalesceWindowMillis;
+                long remaining;
+                while (!stopping && (remaining = windowEnd - System.currentTimeMillis()) > 0) {
+                    SlackNotification next = queue.poll(Math.min(remaining, POLL_INTERVAL_MILLIS), TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                queue.drainTo(batch);
+                try {
+                    send(batch);
+                } catch (RuntimeException e) {
+                    //A bad batch is given up on, the sender keeps serving the next ones
+                    log.error("Failure in sending {} Slack notifications", batch.size(), e);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            log.warn("Slack sender stopped with {} notifications not sent", batch.size());
+        }
+    }
+
+    private void send(List<SlackNotification> batch) throws InterruptedException {
+        Map<String, List<SlackNotification>> similar = new LinkedHashMap<>();
+        for (SlackNotification notification : batch) {
+            similar.computeIfAbsent(notification.coalesceKey(), key -> new ArrayList<>()).add(notification);
+        }
+        for (List<SlackNotification> group : similar.values()) {
+            SlackNotification first = group.get(0);
+            String text = group.size() == 1 ? first.text() : digest(group);
+            awaitRateLimit(first.webhookUrl() + first.channel());
+            post(first, text, group.size());
+        }
+    }
+
+    private String digest(List<SlackNotification> group) {
+        StringBuilder text = new StringBuilder()
+                .append(group.get(0).appName())
+                .append("\n").append(group.size()).append(" similar notifications in the last ")
+                .append(TimeUnit.MILLISECONDS.toSeconds(coalesceWindowMillis)).append(" seconds:");
+        for (int i = 0; i < Math.min(group.size(), MAX_DIGEST_LINES); i++) {
+            text.append("\n").append(group.get(i).summary());
+        }
+        if (group.size() > MAX_DIGEST_LINES) {
+            text.append("\n... and ").append(group.size() - MAX_DIGEST_LINES).append(" more");
+        }
+        return text.toString();
+    }
+
+    private void awaitRateLimit(String channelKey) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long allowedAt = nextPostAllowedAt.getOrDefault(channelKey, now);
+        if (allowedAt > now) {
+            Thread.sleep(allowedAt - now);
+        }
+        nextPostAllowedAt.put(channelKey, Math.max(now, allowedAt) + minIntervalMillis);
+    }
+
+    private void post(SlackNotification notification, String text, int notifications) throws InterruptedException {
+        Future<Boolean> posted = null;
+        try {
+            String payload = SlackNotificationUtil.getMessagePayload(notification.environment(), notification.icon(), text,
+                    notification.channel(), notification.username());
+            Map<String, String> headers = Map.of(ApplicationConstants.CONTENTTYPE, ApplicationConstants.JSONDATA);
+            posted = delivery.submit(() -> {
+                HttpCustomResponse response = httpService.post(notification.webhookUrl(), headers, payload);
+                return response.getStatusCode().equals((long) HttpStatus.OK.value());
+            });
+            if (posted.get(deliveryTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.info("Sent Slack message of {} notifications to {}", notifications, notification.channel());
+            } else {
+                log.error("Failure in sending Slack message of {} notifications to {}", notifications, notification.channel());
+            }
+        } catch (RejectedExecutionException e) {
+            log.error("Dropped Slack message of {} notifications to {} as every delivery thread is busy, dropped {} notifications so far",
+                    notifications, notification.channel(), rejected.addAndGet(notifications));
+        } catch (TimeoutException e) {
+            posted.cancel(true);
+            log.error("Gave up sending Slack message of {} notifications to {} after {} ms", notifications, notification.channel(), deliveryTimeoutMillis);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failure in sending Slack message of {} notifications to {}", notifications, notification.channel(), e);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaultFactory.newThread(runnable);
+            thread.setName(prefix + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One notification to post.
+     *
+     * @param webhookUrl The webhook to post to.
+     * @param channel The channel to post to.
+     * @param environment The environment the message is from.
+     * @param username The name to post as.
+     * @param icon The emoji to post with.
+     * @param appName The name of the application, heading digests.
+     * @param coalesceKey Notifications with the same key arriving together are posted as a single digest.
+     * @param summary A single line describing the notification in a digest.
+     * @param text The full message, posted when the notification is not part of a digest.
+     */
+    public record SlackNotification(String webhookUrl, String channel, String environment, String username, String icon,
+                                    String appName, String coalesceKey, String summary, String text) {
+    }
+}
@@ -4,8 +4,7 @@ import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.pinterest.PinterestReportRequest;
 
 import java.io.IOException;
-import java.util.List;
 
 public interface PinterestAudienceService {
-    List<String> getPinterestAudienceData(PinterestReportRequest request, Oauth oauth, String pipelineRunId, String reportType) throws IOException;
+    long writePinterestAudienceData(PinterestReportRequest request, Oauth oauth, String pipelineRunId, String reportType, String localFilePath) throws IOException;
 }
@@ -1,29 +1,29 @@
 package com.target.kelsaapi.common.service.pinterest;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.api.client.util.Lists;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.HttpException;
 import com.target.kelsaapi.common.exceptions.HttpRetryableException;
-import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.rest.HttpService;
-import com.target.kelsaapi.common.util.CommonUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.pinterest.PinterestAdAccountsResponse;
-import com.target.kelsaapi.common.vo.pinterest.PinterestAudienceResponse;
 import com.target.kelsaapi.common.vo.pinterest.PinterestReportRequest;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.core5.http.ContentType;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Stream;
+
+import static com.target.kelsaapi.common.service.pinterest.PinterestServiceImpl.setHeaderMap;
 
 @Slf4j
 @Service
@@ -33,101 +33,125 @@ public class PinterestAudienceServiceImpl implements PinterestAudienceService {
 
     private final PipelineConfig.Pinterest pinterestConfig;
 
-    private final LocalFileWriterService localFileWriterService;
+    private static final int PAGE_SIZE = 250;
+
+    private final SerializerRegistry serializers;
+
+    private final ObjectMapper mapper;
 
     @Autowired
-    public PinterestAudienceServiceImpl(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService) {
+    public PinterestAudienceServiceImpl(HttpService httpService, PipelineConfig config, SerializerRegistry serializers) {
         this.httpService = httpService;
         this.pinterestConfig = config.getApiconfig().getSource().getPinterest();
-        this.localFileWriterService = localFileWriterService;
+        this.serializers = serializers;
+        this.mapper = serializers.objectMapper();
     }
 
+    /**
+     * Pulls every audience page for every ad account and writes each page to the gzipped local file as soon as it is
+     * received, so memory use stays flat no matter how many pages are returned. If a page fails after the
+     * {@link HttpService} retries are exhausted, the pull for that account resumes from the last bookmark that was
+     * successfully written, up to {@link ApplicationConstants#DEFAULT_MAX_WRITE_ATTEMPTS} times.
+     *
+     * @param request The report request.
+     * @param oauth The authenticated {@link Oauth} object.
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param reportType The report type.
+     * @param localFilePath The gzipped local file to write one page response per line to.
+     * @return The total number of audience records written across all ad accounts.
+     * @throws IOException If the local file cannot be written to.
+     */
     @Override
-    public List<String> getPinterestAudienceData(PinterestReportRequest request, Oauth oauth, String pipelineRunId, String reportType) throws IOException {
-        String tempFileRoot = CommonUtils.generateTempFileRootPath() + pipelineRunId;
-        String adAccountFile = tempFileRoot + "-audience" + "-report-" + request.getStart_date() + ApplicationConstants.FileExtensions.JSON.getName();
-
-        //Initialize header
-        Map<String,String> headersMap = setHeaderMap(oauth);
+    public long writePinterestAudienceData(PinterestReportRequest request, Oauth oauth, String pipelineRunId, String reportType,
+                                           String localFilePath) throws IOException {
         //Get Ad Accounts
-        Map<String, String> adAccounts = getAdAccounts(headersMap);
-        List<String> printableAdAccounts = Lists.newArrayList();
-        printableAdAccounts.add("ad_account_id,ad_account_name");
-
-        List<String> finalList = new ArrayList<>();
-        for (Map.Entry<String,String> adAccount : adAccounts.entrySet()) {
-            String accountId = adAccount.getKey();
-            String accountName = adAccount.getValue();
-            printableAdAccounts.add(accountId + "," + accountName);
-
-            //Wait for report to be downloadable
-            log.info("Getting Audience data for account: {}", accountName);
-            try {
-
-                List<String> results  = getAudienceData(request, oauth, accountId, headersMap);
-
-                if (results.size() > 0) {
-                    log.info("Result added to final list");
-                    finalList = Stream.concat(finalList.stream(), results.stream()).toList();
-                }
-                else {
-                    log.info("Result is empty");
+        Map<String, String> adAccounts = getAdAccounts(oauth);
+
+        long totalPages = 0;
+        long totalRecords = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GzipCompressorOutputStream(new FileOutputStream(localFilePath)), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String,String> adAccount : adAccounts.entrySet()) {
+                String accountId = adAccount.getKey();
+                String accountName = adAccount.getValue();
+
+                log.info("Getting Audience data for account: {}", accountName);
+                AudienceCursor cursor = new AudienceCursor(accountId);
+                int attempt = 1;
+                while (!cursor.isExhausted()) {
+                    try {
+                        writeAudiencePages(cursor, oauth, writer);
+                    } catch (HttpException | JsonProcessingException | RuntimeException | HttpRetryableException e) {
+                        log.error("Attempt {} failed for account {} after {} pages, last bookmark: {}",
+                                attempt, accountName, cursor.getPagesWritten(), cursor.getBookmark());
+                        log.error(e.getMessage(), e.getCause());
+                        if (++attempt > ApplicationConstants.DEFAULT_MAX_WRITE_ATTEMPTS) {
+                            break;
+                        }
+                        log.info("Resuming account {} from last bookmark", accountName);
+                    }
                 }
-            } catch (HttpException | JsonProcessingException | RuntimeException | HttpRetryableException e) {
-                log.error(e.getMessage(), e.getCause());
-            } catch (InterruptedException ie) {
-                log.error(ie.getMessage(),ie.getCause());
-                break;
+                log.info("Wrote {} audience records in {} pages for account {}", cursor.getRecordsWritten(),
+                        cursor.getPagesWritten(), accountName);
+                totalPages += cursor.getPagesWritten();
+                totalRecords += cursor.getRecordsWritten();
             }
         }
 
-        if (!finalList.isEmpty()) {
-            log.info("Total coount of audience result set is " + finalList.size());
-            return finalList;
+        if (totalPages > 0) {
+            log.info("Total count of audience records written is {} in {} pages", totalRecords, totalPages);
+            return totalRecords;
         } else {
             throw new RuntimeException("There were no results for any Ad Accounts!");
         }
     }
 
-    private List<String> getAudienceData(PinterestReportRequest request, Oauth oauth, String accountId, Map<String, String> headersMap) throws HttpException, JsonProcessingException, HttpRetryableException, InterruptedException {
-
-        String bookmark;
-        Integer pageSize = 250;
-
-        List<String> resultList = new ArrayList<>();
-        {
-            String url = buildBaseUrl(accountId, pageSize);
-            HttpCustomResponse serviceResponse = httpService.get(url, headersMap);
-            ObjectMapper mapper = new ObjectMapper();
-            PinterestAudienceResponse pinterestData = mapper.readValue(serviceResponse.getBody(), PinterestAudienceResponse.class);
-            bookmark = pinterestData.getBookmark();
-            log.debug("Bookmark is : " + pinterestData.getBookmark());
-            resultList.add(serviceResponse.getBody());
+    /**
+     * Follows the bookmark chain from the cursor's current position, writing each page before requesting the next one.
+     * The cursor is only advanced once a page has been written, so it always points at the next page still to fetch.
+     */
+    private void writeAudiencePages(AudienceCursor cursor, Oauth oauth, Writer writer) throws IOException {
+        while (!cursor.isExhausted()) {
+            String url = cursor.getBookmark() == null
+                    ? buildBaseUrl(cursor.getAccountId(), PAGE_SIZE)
+                    : buildBaseUrlWithBookmark(cursor.getAccountId(), PAGE_SIZE, cursor.getBookmark());
+            HttpCustomResponse serviceResponse = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
+            String body = serviceResponse.getBody();
+            JsonNode page = mapper.readTree(body);
+            JsonNode bookmarkNode = page.path("bookmark");
+            String nextBookmark = bookmarkNode.isTextual() ? bookmarkNode.asText() : null;
+            log.debug("Bookmark is : {}", nextBookmark);
+            writer.write(body);
+            writer.write(System.lineSeparator());
+            cursor.advance(nextBookmark, page.path("items").size());
         }
-
-            while (bookmark != null) {
-                String urlWithBookmark = buildBaseUrlWithBookmark(accountId, pageSize, bookmark);
-                HttpCustomResponse serviceResponse = httpService.get(urlWithBookmark, headersMap);
-                ObjectMapper mapper = new ObjectMapper();
-                PinterestAudienceResponse pinterestData = mapper.readValue(serviceResponse.getBody(), PinterestAudienceResponse.class);
-                bookmark = pinterestData.getBookmark();
-                log.debug("Bookmark is : " + pinterestData.getBookmark());
-                resultList.add(serviceResponse.getBody());
-            }
-
-         return resultList;
     }
 
-    private Map<String, String> setHeaderMap(Oauth oauth) {
-        Map<String,String> headersMap = new LinkedHashMap<>();
-        headersMap.put("Authorization","Bearer " + oauth.getOAuthToken());
-        headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
-        headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
-        return headersMap;
+    /**
+     * Position within one ad account's bookmark chain.
+     */
+    @Getter
+    private static class AudienceCursor {
+        private final String accountId;
+        private String bookmark;
+        private long pagesWritten;
+        private long recordsWritten;
+        private boolean exhausted;
+
+        private AudienceCursor(String accountId) {
+            this.accountId = accountId;
+        }
+
+        private void advance(String nextBookmark, int records) {
+            this.pagesWritten++;
+            this.recordsWritten += records;
+            this.bookmark = nextBookmark;
+            this.exhausted = nextBookmark == null;
+        }
     }
 
 
-    private String buildBaseUrl(String accountId, Integer pageSize) {
+    private String buildBaseUrl(String accountId, int pageSize) {
         String urlPrefix = buildUrlPrefix();
         log.info("Account ID: {}", accountId);
 //        String startingUrl = urlPrefix + "/" + accountId + "/" + pinterestConfig.endpointSuffix;
@@ -136,7 +160,7 @@ public class PinterestAudienceServiceImpl implements PinterestAudienceService {
         return startingUrl;
     }
 
-    private String buildBaseUrlWithBookmark(String accountId, Integer pageSize, String bookmark) {
+    private String buildBaseUrlWithBookmark(String accountId, int pageSize, String bookmark) {
         String urlPrefix = buildUrlPrefix();
         log.info("Account ID: {}", accountId);
 //        String startingUrl = urlPrefix + "/" + accountId + "/" + pinterestConfig.endpointSuffix;
@@ -152,11 +176,10 @@ public class PinterestAudienceServiceImpl implements PinterestAudienceService {
     }
 
 
-    private Map<String, String> getAdAccounts(Map<String, String> headersMap) throws HttpException, HttpRetryableException, JsonProcessingException, RuntimeException {
+    private Map<String, String> getAdAccounts(Oauth oauth) throws IOException, RuntimeException {
         String url = buildUrlPrefix();
-        HttpCustomResponse response = httpService.get(url, headersMap);
-        ObjectMapper mapper = new ObjectMapper();
-        PinterestAdAccountsResponse adAccountsResponse = mapper.readValue(response.getBody(), PinterestAdAccountsResponse.class);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
+        PinterestAdAccountsResponse adAccountsResponse = serializers.reader(PinterestAdAccountsResponse.class).readValue(response.getBody());
         Map<String, String> adAccounts = new LinkedHashMap<>();
         int itemObjects = 1;
         try {
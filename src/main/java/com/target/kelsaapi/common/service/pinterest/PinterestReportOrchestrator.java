@@ -0,0 +1,216 @@
+package com.target.kelsaapi.common.service.pinterest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.util.Lists;
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.service.file.LocalFileWriterService;
+import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.vo.HttpCustomResponse;
+import com.target.kelsaapi.common.vo.Oauth;
+import com.target.kelsaapi.common.vo.pinterest.PinterestReportUrlResponseData;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Tracks a batch of already submitted Pinterest async reports until each one is downloadable.
+ * <p>
+ * All reports in the batch are polled from a single scheduler thread. Each report has its own poll interval which starts
+ * at {@link PipelineConfig.Pinterest#initialPollIntervalSeconds} and grows by {@link #POLL_BACKOFF_MULTIPLIER} on every
+ * unfinished poll, capped at {@link PipelineConfig.Pinterest#maxPollIntervalSeconds}. As soon as a report is finished it
+ * is handed to a download pool bounded by {@link PipelineConfig.Pinterest#maxConcurrentDownloads}, so the total runtime is
+ * roughly that of the slowest report rather than the sum of all of them.
+ */
+@Slf4j
+@Service
+public class PinterestReportOrchestrator {
+
+    private static final double POLL_BACKOFF_MULTIPLIER = 1.5;
+
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+
+    private static final int DEFAULT_INITIAL_POLL_INTERVAL_SECONDS = 5;
+
+    private static final int DEFAULT_MAX_POLL_INTERVAL_SECONDS = 30;
+
+    private static final int DEFAULT_REPORT_TIMEOUT_MINUTES = 30;
+
+    private final HttpService httpService;
+
+    private final LocalFileWriterService localFileWriterService;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final int maxConcurrentDownloads;
+
+    private final long initialPollIntervalMillis;
+
+    private final long maxPollIntervalMillis;
+
+    private final long reportTimeoutMillis;
+
+    @Autowired
+    public PinterestReportOrchestrator(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService) {
+        this.httpService = httpService;
+        this.localFileWriterService = localFileWriterService;
+        PipelineConfig.Pinterest pinterestConfig = config.getApiconfig().getSource().getPinterest();
+        this.maxConcurrentDownloads = valueOrDefault(pinterestConfig.maxConcurrentDownloads, DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+        this.initialPollIntervalMillis = TimeUnit.SECONDS.toMillis(valueOrDefault(pinterestConfig.initialPollIntervalSeconds, DEFAULT_INITIAL_POLL_INTERVAL_SECONDS));
+        this.maxPollIntervalMillis = TimeUnit.SECONDS.toMillis(valueOrDefault(pinterestConfig.maxPollIntervalSeconds, DEFAULT_MAX_POLL_INTERVAL_SECONDS));
+        this.reportTimeoutMillis = TimeUnit.MINUTES.toMillis(valueOrDefault(pinterestConfig.reportTimeoutMinutes, DEFAULT_REPORT_TIMEOUT_MINUTES));
+    }
+
+    /**
+     * Polls every submitted report and downloads each one to its own set of local csv files as soon as it is finished.
+     * A report which fails, is cancelled, or does not finish within the configured timeout is logged and skipped, matching
+     * the per-account error handling of {@link PinterestServiceImpl}.
+     *
+     * @param tokenizedUrlsByAccount The tokenized report status URL for each ad account ID, in the order the reports were submitted.
+     * @param oauth The credentials to poll the reports with.
+     * @param localFilePrefixByAccount The local file path (without extension) to download each ad account's report to.
+     * @return The list of local files downloaded across all ad accounts.
+     * @throws InterruptedException If the calling thread is interrupted while waiting on the reports.
+     */
+    public List<Path> downloadWhenReady(Map<String, String> tokenizedUrlsByAccount, Oauth oauth,
+                                       Map<String, String> localFilePrefixByAccount) throws InterruptedException {
+        List<Path> localFiles = Lists.newArrayList();
+        if (tokenizedUrlsByAccount.isEmpty()) {
+            return localFiles;
+        }
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("PinterestReportPoller-"));
+        ExecutorService downloadPool = Executors.newFixedThreadPool(
+                Math.min(maxConcurrentDownloads, tokenizedUrlsByAccount.size()), namedThreadFactory("PinterestReportDownloader-"));
+
+        Map<String, CompletableFuture<List<Path>>> downloads = new LinkedHashMap<>();
+        try {
+            long deadline = System.currentTimeMillis() + reportTimeoutMillis;
+            for (Map.Entry<String, String> report : tokenizedUrlsByAccount.entrySet()) {
+                String accountId = report.getKey();
+                CompletableFuture<List<Path>> download = new CompletableFuture<>();
+                downloads.put(accountId, download);
+                PollTask pollTask = new PollTask(accountId, report.getValue(), oauth,
+                        localFilePrefixByAccount.get(accountId), deadline, scheduler, downloadPool, download, mdcContext);
+                scheduler.schedule(pollTask, 0, TimeUnit.MILLISECONDS);
+            }
+
+            for (Map.Entry<String, CompletableFuture<List<Path>>> download : downloads.entrySet()) {
+                try {
+                    localFiles.addAll(download.getValue().get());
+                } catch (ExecutionException e) {
+                    log.error("Failed to retrieve report for account {}: {}", download.getKey(), e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            scheduler.shutdownNow();
+            downloadPool.shutdownNow();
+        }
+        return localFiles;
+    }
+
+    /**
+     * A single poll of one report's status. Re-schedules itself with a longer interval until the report is either
+     * finished, failed, or timed out.
+     */
+    private class PollTask implements Runnable {
+
+        private final String accountId;
+
+        private final String tokenizedUrl;
+
+        private final Oauth oauth;
+
+        private final String localFilePrefix;
+
+        private final long deadline;
+
+        private final ScheduledExecutorService scheduler;
+
+        private final ExecutorService downloadPool;
+
+        private final CompletableFuture<List<Path>> download;
+
+        private final Map<String, String> mdcContext;
+
+        private long pollIntervalMillis = initialPollIntervalMillis;
+
+        private PollTask(String accountId, String tokenizedUrl, Oauth oauth, String localFilePrefix,
+                         long deadline, ScheduledExecutorService scheduler, ExecutorService downloadPool,
+                         CompletableFuture<List<Path>> download, Map<String, String> mdcContext) {
+            this.accountId = accountId;
+            this.tokenizedUrl = tokenizedUrl;
+            this.oauth = oauth;
+            this.localFilePrefix = localFilePrefix;
+            this.deadline = deadline;
+            this.scheduler = scheduler;
+            this.downloadPool = downloadPool;
+            this.download = download;
+            this.mdcContext = mdcContext;
+        }
+
+        @Override
+        public void run() {
+            if (mdcContext != null) MDC.setContextMap(mdcContext);
+            try {
+                HttpCustomResponse serviceResponse = oauth.withTokenRetry(
+                        token -> httpService.get(tokenizedUrl, PinterestServiceImpl.setHeaderMap(token)));
+                PinterestReportUrlResponseData response = mapper.readValue(serviceResponse.getBody(), PinterestReportUrlResponseData.class);
+                String reportStatus = response.getReport_status();
+                if ("FINISHED".equals(reportStatus)) {
+                    log.info("Requested report for account {} is finished, queueing download.", accountId);
+                    log.debug("Downloadable URL: {}", response.getUrl());
+                    downloadPool.submit(() -> downloadReport(response.getUrl()));
+                } else if (!"IN_PROGRESS".equals(reportStatus)) {
+                    download.completeExceptionally(new RuntimeException(
+                            "Report for account " + accountId + " ended with status " + reportStatus));
+                } else if (System.currentTimeMillis() + pollIntervalMillis > deadline) {
+                    download.completeExceptionally(new RuntimeException(
+                            "Timed out waiting for report to finish for account " + accountId + "!"));
+                } else {
+                    log.info("Report for account {} not ready, polling again in {} ms, current status: {}",
+                            accountId, pollIntervalMillis, reportStatus);
+                    scheduler.schedule(this, pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    pollIntervalMillis = Math.min((long) (pollIntervalMillis * POLL_BACKOFF_MULTIPLIER), maxPollIntervalMillis);
+                }
+            } catch (Exception e) {
+                download.completeExceptionally(e);
+            } finally {
+                MDC.clear();
+            }
+        }
+
+        private void downloadReport(String reportUrl) {
+            if (mdcContext != null) MDC.setContextMap(mdcContext);
+            try {
+                log.info("Downloading report for account: {}", accountId);
+                download.complete(localFileWriterService.writeLocalFile(new URL(reportUrl), localFilePrefix,
+                        ApplicationConstants.FileExtensions.CSV.getName(), false, null, null, false));
+            } catch (Exception e) {
+                download.completeExceptionally(e);
+            } finally {
+                MDC.clear();
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaultFactory.newThread(runnable);
+            thread.setName(prefix + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
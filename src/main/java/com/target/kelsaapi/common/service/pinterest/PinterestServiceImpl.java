@@ -1,21 +1,16 @@
 package com.target.kelsaapi.common.service.pinterest;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
-import com.google.gson.Gson;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.util.CommonUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.pinterest.PinterestAdAccountsResponse;
 import com.target.kelsaapi.common.vo.pinterest.PinterestReportRequest;
 import com.target.kelsaapi.common.vo.pinterest.PinterestReportRequestResponseData;
-import com.target.kelsaapi.common.vo.pinterest.PinterestReportUrlResponseData;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.core5.http.ContentType;
@@ -24,7 +19,6 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -39,11 +33,18 @@ public class PinterestServiceImpl implements PinterestService {
 
     private final LocalFileWriterService localFileWriterService;
 
+    private final PinterestReportOrchestrator reportOrchestrator;
+
+    private final SerializerRegistry serializers;
+
     @Autowired
-    public PinterestServiceImpl(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService) {
+    public PinterestServiceImpl(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService,
+                                PinterestReportOrchestrator reportOrchestrator, SerializerRegistry serializers) {
         this.httpService = httpService;
         this.pinterestConfig = config.getApiconfig().getSource().getPinterest();
         this.localFileWriterService = localFileWriterService;
+        this.reportOrchestrator = reportOrchestrator;
+        this.serializers = serializers;
     }
 
     @Override
@@ -52,38 +53,37 @@ public class PinterestServiceImpl implements PinterestService {
         String adAccountFile = tempFileRoot + "-ad_accounts" + "-report-" + request.getStart_date() + ApplicationConstants.FileExtensions.CSV.getName();
 
         List<Path> localFiles = new ArrayList<>();
-        //Initialize header
-        Map<String,String> headersMap = setHeaderMap(oauth);
         //Get Ad Accounts
-        Map<String, String> adAccounts = getAdAccounts(headersMap);
+        Map<String, String> adAccounts = getAdAccounts(oauth);
         List<String> printableAdAccounts = Lists.newArrayList();
         printableAdAccounts.add("ad_account_id,ad_account_name");
 
 
+        //Submit every account's report up front, then let the orchestrator poll them all concurrently
+        Map<String, String> tokenizedUrlsByAccount = new LinkedHashMap<>();
+        Map<String, String> localFilePrefixByAccount = new LinkedHashMap<>();
         for (Map.Entry<String,String> adAccount : adAccounts.entrySet()) {
             String accountId = adAccount.getKey();
             String accountName = adAccount.getValue();
             printableAdAccounts.add(accountId + "," + accountName);
 
-            //Wait for report to be downloadable
-            log.info("Getting report download URL for account: {}", accountName);
-            URL reportDownloadLink;
+            log.info("Requesting report for account: {}", accountName);
             try {
-                reportDownloadLink = new URL(getReportDownloadUrl(request, oauth, accountId, headersMap));
-
-                log.info("Downloading report for account: {}", accountName);
-                localFiles.addAll(localFileWriterService.writeLocalFile(reportDownloadLink,
-                        tempFileRoot + "-" + accountId + "-report-" + request.getStart_date(),
-                        ApplicationConstants.FileExtensions.CSV.getName(),
-                        false, null, null, false));
-            } catch (HttpException | JsonProcessingException | RuntimeException | HttpRetryableException e) {
+                String token = requestToken(oauth, request, accountId);
+                tokenizedUrlsByAccount.put(accountId, buildTokenizedUrl(token, accountId));
+                localFilePrefixByAccount.put(accountId, tempFileRoot + "-" + accountId + "-report-" + request.getStart_date());
+            } catch (IOException | RuntimeException e) {
                 log.error(e.getMessage(), e.getCause());
-            } catch (InterruptedException ie) {
-                log.error(ie.getMessage(),ie.getCause());
-                break;
             }
         }
 
+        try {
+            localFiles.addAll(reportOrchestrator.downloadWhenReady(tokenizedUrlsByAccount, oauth, localFilePrefixByAccount));
+        } catch (InterruptedException ie) {
+            log.error(ie.getMessage(),ie.getCause());
+            Thread.currentThread().interrupt();
+        }
+
         try {
             log.info("Writing Ad Account IDs and Names to file: {} ", adAccountFile);
             localFileWriterService.writeLocalFile(printableAdAccounts, adAccountFile,false, false);
@@ -102,62 +102,23 @@ public class PinterestServiceImpl implements PinterestService {
         }
     }
 
-    private String getReportDownloadUrl(PinterestReportRequest request, Oauth oauth, String accountId, Map<String, String> headersMap) throws HttpException, JsonProcessingException, HttpRetryableException, InterruptedException {
-
-        //Fetch token
-        String token = requestToken(headersMap, request, accountId);
-        //Build tokenized URL
-        String tokenizedUrl = buildTokenizedUrl(token, accountId);
-        String returnUrl = null;
-        ObjectMapper mapper = new ObjectMapper();
-        int delay = 0;
-        while (true) {
-            HttpCustomResponse serviceResponse = httpService.get(tokenizedUrl, headersMap);
-            PinterestReportUrlResponseData response = mapper.readValue(serviceResponse.getBody(), PinterestReportUrlResponseData.class);
-            if (checkReportDownloadStatus(response)) {
-                log.info("Requested report is finished, ready to download.");
-
-                log.debug("Downloadable URL: {}", response.getUrl());
-                returnUrl = response.getUrl();
-                break;
-            }
-            log.info("Sleeping 30 seconds for report, current status: {}", response.getReport_status());
-            try {
-                Thread.sleep(1000*30);
-            } catch (InterruptedException e) {
-                throw new InterruptedException(e.getMessage());
-            }
-            delay = delay + (1000*30);
-            if (delay > (1000*60*30)) {
-                throw new RuntimeException("Timed out waiting for report to finish!");
-            }
-        }
-        return returnUrl;
-    }
-
-    private Map<String, String> setHeaderMap(Oauth oauth) {
+    static Map<String, String> setHeaderMap(String token) {
         Map<String,String> headersMap = new LinkedHashMap<>();
-        headersMap.put("Authorization","Bearer " + oauth.getOAuthToken());
+        headersMap.put("Authorization","Bearer " + token);
         headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
         headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
         return headersMap;
     }
 
-    private String requestToken(Map<String, String> headersMap, PinterestReportRequest request, String accountId) throws HttpException, JsonProcessingException {
+    private String requestToken(Oauth oauth, PinterestReportRequest request, String accountId) throws IOException {
         String url = buildBaseUrl(accountId);
-        Gson gson = new Gson();
-        HttpCustomResponse response = httpService.post(url, headersMap, gson.toJson(request));
-        ObjectMapper mapper = new ObjectMapper();
-        PinterestReportRequestResponseData pinterestData = mapper.readValue(response.getBody(), PinterestReportRequestResponseData.class);
+        String body = serializers.gson().toJson(request);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.post(url, setHeaderMap(token), body));
+        PinterestReportRequestResponseData pinterestData = serializers.reader(PinterestReportRequestResponseData.class).readValue(response.getBody());
         log.debug("Token for report request: {}", pinterestData.getToken());
         return pinterestData.getToken();
     }
 
-    private Boolean checkReportDownloadStatus(PinterestReportUrlResponseData response) {
-        String reportStatus = response.getReport_status();
-        return reportStatus.equals("FINISHED");
-    }
-
     private String buildTokenizedUrl(String token, String accountId) {
         String tokenizedUrl = buildBaseUrl(accountId) + "/?token=" + token;
         log.debug("Tokenized URL: {}", tokenizedUrl);
@@ -179,11 +140,10 @@ public class PinterestServiceImpl implements PinterestService {
     }
 
 
-    private Map<String, String> getAdAccounts(Map<String, String> headersMap) throws HttpException, HttpRetryableException, JsonProcessingException, RuntimeException {
+    private Map<String, String> getAdAccounts(Oauth oauth) throws IOException, RuntimeException {
         String url = buildUrlPrefix();
-        HttpCustomResponse response = httpService.get(url, headersMap);
-        ObjectMapper mapper = new ObjectMapper();
-        PinterestAdAccountsResponse adAccountsResponse = mapper.readValue(response.getBody(), PinterestAdAccountsResponse.class);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
+        PinterestAdAccountsResponse adAccountsResponse = serializers.reader(PinterestAdAccountsResponse.class).readValue(response.getBody());
         Map<String, String> adAccounts = new LinkedHashMap<>();
         int itemObjects = 1;
         try {
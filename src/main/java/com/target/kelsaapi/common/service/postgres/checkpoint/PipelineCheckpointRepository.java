@@ -0,0 +1,26 @@
+package com.target.kelsaapi.common.service.postgres.checkpoint;
+
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineCheckpoint;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineCheckpointId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository("pipelineCheckpointRepository")
+public interface PipelineCheckpointRepository extends JpaRepository<PipelineCheckpoint, PipelineCheckpointId> {
+
+    List<PipelineCheckpoint> findAllByPipelineRunIdAndUnitType(String pipelineRunId, String unitType);
+
+    boolean existsByPipelineRunId(String pipelineRunId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from mdf_pipeline_checkpoint where pipeline_run_id = :pipelineRunId",
+            nativeQuery = true)
+    int deleteAllByPipelineRunId(@Param("pipelineRunId") String pipelineRunId);
+}
@@ -0,0 +1,99 @@
+package com.target.kelsaapi.common.service.postgres.checkpoint;
+
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineCheckpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the completed units of work of a pipeline run in mdf_pipeline_checkpoint, so that a run resumed through the
+ * controller can skip them. Consumers record a unit once its artifact is fully written, and on start ask which units
+ * of their run are already done. Checkpoints are kept while a run is failed and removed once it completes.
+ */
+@Slf4j
+@Service
+public class PipelineCheckpointService {
+
+    private final PipelineCheckpointRepository repository;
+
+    @Autowired
+    public PipelineCheckpointService(PipelineCheckpointRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param unitType The kind of unit of work.
+     * @return The key of every completed unit of the given type, mapped to the artifact it landed.
+     */
+    public Map<String, String> getCompletedUnits(String pipelineRunId, String unitType) {
+        Map<String, String> completed = new HashMap<>();
+        for (PipelineCheckpoint checkpoint : repository.findAllByPipelineRunIdAndUnitType(pipelineRunId, unitType)) {
+            completed.put(checkpoint.getUnitKey(), checkpoint.getArtifact());
+        }
+        if (!completed.isEmpty()) {
+            log.info("Resuming pipeline run {} with {} completed units of type {}", pipelineRunId, completed.size(), unitType);
+        }
+        return completed;
+    }
+
+    /**
+     * Like {@link #getCompletedUnits(String, String)}, but only the units whose artifact is still on the local
+     * filesystem. Units landed on a pod which is gone since are fetched again.
+     *
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param unitType The kind of unit of work.
+     * @return The key of every reusable unit of the given type, mapped to its local artifact.
+     */
+    public Map<String, Path> getLocalArtifacts(String pipelineRunId, String unitType) {
+        Map<String, Path> reusable = new HashMap<>();
+        getCompletedUnits(pipelineRunId, unitType).forEach((unitKey, artifact) -> {
+            if (artifact != null && Files.exists(Path.of(artifact))) {
+                reusable.put(unitKey, Path.of(artifact));
+            }
+        });
+        return reusable;
+    }
+
+    /**
+     * Records a unit of work as completed. A failure to record it only costs redoing the unit on resume, so it is
+     * logged rather than failing the run.
+     *
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param unitType The kind of unit of work.
+     * @param unitKey The identifier of the unit within its type.
+     * @param artifact The file the unit landed, if any.
+     */
+    public void complete(String pipelineRunId, String unitType, String unitKey, @Nullable String artifact) {
+        try {
+            repository.save(new PipelineCheckpoint(pipelineRunId, unitType, unitKey, artifact));
+        } catch (DataAccessException e) {
+            log.warn("Unable to record checkpoint {} {} of pipeline run {}: {}", unitType, unitKey, pipelineRunId, e.getMessage());
+        }
+    }
+
+    /**
+     * @param pipelineRunId The ID of the pipeline run.
+     * @return True if any unit of the run was recorded as completed.
+     */
+    public boolean hasCheckpoints(String pipelineRunId) {
+        return repository.existsByPipelineRunId(pipelineRunId);
+    }
+
+    /**
+     * Removes every checkpoint of a run, once it has completed.
+     *
+     * @param pipelineRunId The ID of the pipeline run.
+     */
+    public void clear(String pipelineRunId) {
+        int deleted = repository.deleteAllByPipelineRunId(pipelineRunId);
+        log.debug("Removed {} checkpoints of pipeline run {}", deleted, pipelineRunId);
+    }
+}
@@ -0,0 +1,230 @@
+package com.target.kelsaapi.common.service.postgres.pipelinerunstate;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Queue operations on mdf_ingest_batch_request. Queued runs are rows in the queued status; a replica claims one by
+ * moving it to running under its own name with FOR UPDATE SKIP LOCKED, so any number of replicas can poll the same
+ * table without blocking each other or claiming the same run twice.
+ */
+@Repository
+public class PipelineRunQueueRepository {
+
+    private static final String QUEUED = ApplicationConstants.PipelineStates.QUEUED.toString().toLowerCase();
+
+    private static final String RUNNING = ApplicationConstants.PipelineStates.RUNNING.toString().toLowerCase();
+
+    private static final String INITIALIZED = ApplicationConstants.PipelineStates.INITIALIZED.toString().toLowerCase();
+
+    private static final String COMPLETED = ApplicationConstants.PipelineStates.COMPLETED.toString().toLowerCase();
+
+    private static final String FAILED = ApplicationConstants.PipelineStates.FAILED.toString().toLowerCase();
+
+    private static final String SELECT_SOURCE_SUMMARIES =
+            "select source_system, " +
+            "       min(priority) filter (where batch_request_status = :queued) as top_priority, " +
+            "       count(*) filter (where batch_request_status = :queued) as queued, " +
+            "       count(*) filter (where batch_request_status = :running and claimed_by is not null) as running " +
+            "from mdf_ingest_batch_request " +
+            "where batch_request_status in (:queued, :running) " +
+            "group by source_system";
+
+    //Serializes claims of one source across replicas, so the running count checked below cannot be raced past the cap
+    private static final String LOCK_SOURCE = "select pg_advisory_xact_lock(hashtext(:lockKey))";
+
+    private static final String CLAIM_NEXT =
+            "update mdf_ingest_batch_request r " +
+            "set batch_request_status = :running, claimed_by = :owner, " +
+            "    claimed_timestamp = current_timestamp, heartbeat_timestamp = current_timestamp " +
+            "where r.batch_request_id = ( " +
+            "    select q.batch_request_id from mdf_ingest_batch_request q " +
+            "    where q.batch_request_status = :queued and q.source_system = :source " +
+            "    and (q.parent_batch_request_id is null or ( " +
+            "         select count(*) from mdf_ingest_batch_request w " +
+            "         where w.parent_batch_request_id = q.parent_batch_request_id " +
+            "         and w.batch_request_status = :running) < :maxConcurrentWindows) " +
+            "    order by q.priority, q.created_timestamp " +
+            "    limit 1 " +
+            "    for update skip locked) " +
+            "and (select count(*) from mdf_ingest_batch_request a " +
+            "     where a.batch_request_status = :running and a.claimed_by is not null " +
+            "     and a.source_system = :source) < :maxConcurrentRuns " +
+            "returning r.batch_request_id";
+
+    private static final String RELEASE =
+            "update mdf_ingest_batch_request " +
+            "set batch_request_status = :queued, claimed_by = null, claimed_timestamp = null, heartbeat_timestamp = null " +
+            "where batch_request_id = :batchRequestId and batch_request_status = :running";
+
+    private static final String HEARTBEAT =
+            "update mdf_ingest_batch_request set heartbeat_timestamp = current_timestamp " +
+            "where claimed_by = :owner and batch_request_status = :running";
+
+    private static final String REQUEUE_STALE =
+            "update mdf_ingest_batch_request " +
+            "set batch_request_status = :queued, claimed_by = null, claimed_timestamp = null, heartbeat_timestamp = null " +
+            "where batch_request_status = :running " +
+            "and heartbeat_timestamp < current_timestamp - make_interval(secs => :timeoutSeconds)";
+
+    private static final String RETRY_FAILED_WINDOWS =
+            "update mdf_ingest_batch_request " +
+            "set batch_request_status = :queued, attempt = coalesce(attempt, 1) + 1, " +
+            "    claimed_by = null, claimed_timestamp = null, heartbeat_timestamp = null " +
+            "where parent_batch_request_id is not null and batch_request_status = :failed " +
+            "and coalesce(attempt, 1) < :maxAttempts";
+
+    private static final String RESUME_FAILED_WINDOWS =
+            "update mdf_ingest_batch_request " +
+            "set batch_request_status = :queued, attempt = 1, " +
+            "    claimed_by = null, claimed_timestamp = null, heartbeat_timestamp = null " +
+            "where parent_batch_request_id = :parentBatchRequestId and batch_request_status = :failed";
+
+    //A backfill stays initialized until its first window is claimed and is only final once every window is, counting
+    //a failed window which will be retried as still pending. Only backfills which are not final yet are aggregated, so
+    //the windows of finished backfills are never scanned again
+    private static final String AGGREGATE_BACKFILL_STATUSES =
+            "update mdf_ingest_batch_request p set batch_request_status = a.status " +
+            "from ( " +
+            "    select w.parent_batch_request_id, " +
+            "           case when count(*) filter (where w.batch_request_status in (:queued, :running) " +
+            "                     or (w.batch_request_status = :failed and coalesce(w.attempt, 1) < :maxAttempts)) = 0 " +
+            "                then case when count(*) filter (where w.batch_request_status = :failed) > 0 then :failed else :completed end " +
+            "                when count(*) filter (where w.batch_request_status <> :queued) > 0 then :running " +
+            "                else :initialized end as status " +
+            "    from mdf_ingest_batch_request b " +
+            "    join mdf_ingest_batch_request w on w.parent_batch_request_id = b.batch_request_id " +
+            "    where b.batch_request_status in (:initialized, :running) " +
+            "    group by w.parent_batch_request_id " +
+            ") a " +
+            "where p.batch_request_id = a.parent_batch_request_id " +
+            "and p.batch_request_status <> a.status";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PipelineRunQueueRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return For every source with queued or claimed runs, the highest queued priority and the queued and running counts.
+     */
+    public List<SourceSummary> getSourceSummaries() throws DataAccessException {
+        return jdbcTemplate.query(SELECT_SOURCE_SUMMARIES, statusParams(), (rs, rowNum) -> {
+            SourceSummary summary = new SourceSummary();
+            summary.setSource(rs.getString("source_system"));
+            int topPriority = rs.getInt("top_priority");
+            summary.setTopPriority(rs.wasNull() ? null : topPriority);
+            summary.setQueued(rs.getInt("queued"));
+            summary.setRunning(rs.getInt("running"));
+            return summary;
+        });
+    }
+
+    /**
+     * Claims the oldest queued run of the highest priority for a source, unless the source already has
+     * maxConcurrentRuns claimed runs across all replicas.
+     *
+     * @param source The source system to claim a run for.
+     * @param owner The name of the claiming replica.
+     * @param maxConcurrentRuns The cluster wide cap of running runs for the source.
+     * @param maxConcurrentWindows The cluster wide cap of running windows of any one backfill of the source.
+     * @return The batch request ID of the claimed run, or null if nothing was claimable.
+     */
+    @Transactional
+    public String claimNext(String source, String owner, int maxConcurrentRuns, int maxConcurrentWindows) throws DataAccessException {
+        jdbcTemplate.queryForList(LOCK_SOURCE, new MapSqlParameterSource("lockKey", "mdf_run_queue:" + source));
+        List<String> claimed = jdbcTemplate.queryForList(CLAIM_NEXT, statusParams()
+                .addValue("owner", owner)
+                .addValue("source", source)
+                .addValue("maxConcurrentRuns", maxConcurrentRuns)
+                .addValue("maxConcurrentWindows", maxConcurrentWindows), String.class);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    /**
+     * Puts a running run back on the queue, for when it could not be handed to the executor or the replica shuts down.
+     *
+     * @param batchRequestId The batch request ID of the claimed run.
+     * @return 1 if the run was requeued, 0 if it was no longer running.
+     */
+    public int release(String batchRequestId) throws DataAccessException {
+        return jdbcTemplate.update(RELEASE, statusParams().addValue("batchRequestId", batchRequestId));
+    }
+
+    /**
+     * Marks every run claimed by the owner as still alive.
+     *
+     * @param owner The name of the claiming replica.
+     * @return The number of runs touched.
+     */
+    public int heartbeat(String owner) throws DataAccessException {
+        return jdbcTemplate.update(HEARTBEAT, statusParams().addValue("owner", owner));
+    }
+
+    /**
+     * Puts runs whose claiming replica stopped sending heartbeats back on the queue.
+     *
+     * @param timeoutSeconds How old a heartbeat may be before its run is considered orphaned.
+     * @return The number of runs requeued.
+     */
+    public int requeueStale(int timeoutSeconds) throws DataAccessException {
+        return jdbcTemplate.update(REQUEUE_STALE, statusParams().addValue("timeoutSeconds", timeoutSeconds));
+    }
+
+    /**
+     * Queues failed backfill windows again, each on its own, until they have used up their attempts.
+     *
+     * @param maxAttempts The number of attempts a window gets in total.
+     * @return The number of windows queued again.
+     */
+    public int retryFailedWindows(int maxAttempts) throws DataAccessException {
+        return jdbcTemplate.update(RETRY_FAILED_WINDOWS, statusParams().addValue("maxAttempts", maxAttempts));
+    }
+
+    /**
+     * Queues every failed window of a backfill again with a fresh set of attempts.
+     *
+     * @param parentBatchRequestId The batch request ID of the backfill.
+     * @return The number of windows queued again; 0 if there were none or the ID is not a backfill.
+     */
+    public int resumeFailedWindows(String parentBatchRequestId) throws DataAccessException {
+        return jdbcTemplate.update(RESUME_FAILED_WINDOWS, statusParams().addValue("parentBatchRequestId", parentBatchRequestId));
+    }
+
+    /**
+     * Sets the status of every initialized or running backfill whose windows changed status: completed or failed once
+     * every window is final, running once any window was claimed.
+     *
+     * @param maxAttempts The number of attempts a window gets in total; a failed window with attempts left is not final.
+     * @return The number of backfills whose status changed.
+     */
+    public int aggregateBackfillStatuses(int maxAttempts) throws DataAccessException {
+        return jdbcTemplate.update(AGGREGATE_BACKFILL_STATUSES, statusParams().addValue("maxAttempts", maxAttempts));
+    }
+
+    private static MapSqlParameterSource statusParams() {
+        return new MapSqlParameterSource("queued", QUEUED)
+                .addValue("running", RUNNING)
+                .addValue("initialized", INITIALIZED)
+                .addValue("completed", COMPLETED)
+                .addValue("failed", FAILED);
+    }
+
+    @Data
+    public static class SourceSummary {
+        private String source;
+        private Integer topPriority;
+        private int queued;
+        private int running;
+    }
+}
@@ -1,5 +1,6 @@
 package com.target.kelsaapi.common.service.postgres.s3;
 
+import com.target.kelsaapi.common.vo.s3.S3DbParam;
 import com.target.kelsaapi.common.vo.s3.S3DbParamState;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,4 +23,27 @@ public class S3DbParamStateService {
         return repository.getS3DbParamState(sourceReportType);
     }
 
+    /**
+     * @param sourceReportType The source and report type concatenated in upper case, as stored in mdf_s3_parameter.
+     * @return The parameters of the active entry, or {@link S3DbParam#notInDb()} if there is none.
+     */
+    public S3DbParam getS3DbParam(String sourceReportType) {
+        S3DbParamState s3DbParamState = getS3DbParamState(sourceReportType);
+
+        if (s3DbParamState == null || s3DbParamState.getSourceReportType() == null || s3DbParamState.getSourceReportType().isEmpty()) {
+            return S3DbParam.notInDb();
+        }
+        return new S3DbParam(s3DbParamState.getPrefix(),
+                s3DbParamState.getDirDownload(),
+                s3DbParamState.getXferMgrSingleFileDownload(),
+                s3DbParamState.getS3PrefixSqlFunction(),
+                s3DbParamState.getCompareWithPrevLoadedFilesCheckByCurrentDate(),
+                s3DbParamState.getCompareWithPrevLoadedFilesCheck(),
+                s3DbParamState.getAbortNoFileFound(),
+                s3DbParamState.getFileAge(),
+                s3DbParamState.getSourceReportType(),
+                s3DbParamState.getSplitFile(),
+                s3DbParamState.getSplitFileCompress());
+    }
+
 }
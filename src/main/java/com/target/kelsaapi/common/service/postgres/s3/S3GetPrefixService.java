@@ -1,43 +1,36 @@
 package com.target.kelsaapi.common.service.postgres.s3;
 
-import com.target.kelsaapi.common.config.JdbcConfig;
 import com.target.kelsaapi.common.exceptions.NotSupportedException;
 import com.target.kelsaapi.common.util.textFormatterInterface;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
-import java.sql.*;
+import java.sql.SQLException;
 
 @Service
 @Slf4j
 public class S3GetPrefixService implements textFormatterInterface {
 
-    private final JdbcConfig config;
+    private final S3JdbcRepository s3JdbcRepository;
 
     @Autowired
-    S3GetPrefixService(JdbcConfig jdbcConfig) {
-        this.config = jdbcConfig;
+    S3GetPrefixService(S3JdbcRepository s3JdbcRepository) {
+        this.s3JdbcRepository = s3JdbcRepository;
     }
 
 
     public String getKeyNamePath(String prefix,String startDate ) throws SQLException, NotSupportedException {
 
-        String derivedPrefix = prefix;
-        Connection connect = DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
         String firstStringInPrefix = prefix.trim().substring(0, prefix.indexOf(' '));
         if (firstStringInPrefix.toUpperCase().contains("SELECT") &&  !firstStringInPrefix.toUpperCase().contains("WHERE")) {
             String sqlPrefix = prefix.replaceAll("\\$startDate", startDate);
-            try (Connection conn = connect;
-                 PreparedStatement p = conn.prepareStatement(sqlPrefix))
-                {
-                try (ResultSet rs = p.executeQuery()) {
-                    rs.next();
-                    derivedPrefix = rs.getString(1);
-                    return derivedPrefix;
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
+            try {
+                return s3JdbcRepository.evaluatePrefixSql(sqlPrefix);
+            } catch (DataAccessException e) {
+                log.error(e.getMessage(), e);
+                throw new SQLException("Unable to evaluate the prefix query from table mdf_s3_parameter: " + sqlPrefix, e);
             }
 
         }
@@ -46,7 +39,6 @@ public class S3GetPrefixService implements textFormatterInterface {
                     " which evaluates to a prefix path when query is executed to continue the flow" + ANSI_RESET);
 
         }
-        return derivedPrefix;
     }
 
 
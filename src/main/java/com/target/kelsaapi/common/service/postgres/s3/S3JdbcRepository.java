@@ -0,0 +1,136 @@
+package com.target.kelsaapi.common.service.postgres.s3;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.util.S3Utils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plain JDBC access for the S3 pipelines' queries which do not map onto a JPA entity. All statements run on the shared
+ * pooled DataSource, so they count against the pool limits and show up in its metrics.
+ */
+@Repository
+@Slf4j
+public class S3JdbcRepository {
+
+    private static final String SELECT_PROCESSED_FILENAMES =
+            "select filenames from mdf_s3_processed_filenames where source_report_type = :sourceReportType";
+
+    private static final String INSERT_PROCESSED_FILENAME =
+            "insert into mdf_s3_processed_filenames(source_report_type,filenames) values(:sourceReportType, :filename)";
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private static final String INSERT_OBJECT_SUMMARIES =
+            "insert into mdf_s3_objectsummary(pipeline_run_id,source_report_type,key,etag,bucketname,size,lastmodified," +
+                    "size_bytes,lastmodified_timestamp,created_timestamp,created_date) values ";
+
+    private static final String OBJECT_SUMMARY_ROW = "(?,?,?,?,?,?,?,?,?,now(),current_date)";
+
+    private static final String ON_OBJECT_SUMMARY_CONFLICT =
+            " on conflict (pipeline_run_id, source_report_type, key, etag) do nothing";
+
+    //9 bind parameters per row, well below the 32767 the Postgres protocol allows per statement
+    private static final int OBJECT_SUMMARY_ROWS_PER_STATEMENT = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public S3JdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Runs a prefix query configured in mdf_s3_parameter and returns the first column of its first row.
+     *
+     * @param prefixSql The already decorated select statement.
+     * @return The evaluated prefix.
+     * @throws EmptyResultDataAccessException If the query returned no rows.
+     * @throws DataAccessException If the query fails.
+     */
+    public String evaluatePrefixSql(String prefixSql) throws DataAccessException {
+        List<String> rows = jdbcTemplate.getJdbcTemplate().query(prefixSql, (rs, rowNum) -> rs.getString(1));
+        if (rows.isEmpty()) {
+            throw new EmptyResultDataAccessException("Prefix query returned no rows: " + prefixSql, 1);
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * @param sourceReportType The report type the files were loaded for.
+     * @return Every filename already recorded as processed for the report type.
+     */
+    public List<String> getProcessedFilenames(String sourceReportType) throws DataAccessException {
+        return jdbcTemplate.queryForList(SELECT_PROCESSED_FILENAMES,
+                new MapSqlParameterSource("sourceReportType", sourceReportType), String.class);
+    }
+
+    /**
+     * Records the given filenames as processed, in batches of {@link #INSERT_BATCH_SIZE}.
+     *
+     * @param sourceReportType The report type the files were loaded for.
+     * @param filenames The filenames to record.
+     * @return The number of rows inserted.
+     */
+    public int insertProcessedFilenames(String sourceReportType, Collection<String> filenames) throws DataAccessException {
+        SqlParameterSource[] batch = filenames.stream()
+                .map(filename -> new MapSqlParameterSource("sourceReportType", sourceReportType).addValue("filename", filename))
+                .toArray(SqlParameterSource[]::new);
+        int inserted = 0;
+        for (int from = 0; from < batch.length; from += INSERT_BATCH_SIZE) {
+            SqlParameterSource[] chunk = Arrays.copyOfRange(batch, from, Math.min(from + INSERT_BATCH_SIZE, batch.length));
+            for (int count : jdbcTemplate.batchUpdate(INSERT_PROCESSED_FILENAME, chunk)) {
+                //The driver reports SUCCESS_NO_INFO (-2) for rewritten batches
+                inserted += count < 0 ? 1 : count;
+            }
+        }
+        log.debug("Inserted {} processed filenames for {}", inserted, sourceReportType);
+        return inserted;
+    }
+
+    /**
+     * Records the given S3 objects in mdf_s3_objectsummary as loaded by the pipeline run, with one multi-row insert per
+     * {@link #OBJECT_SUMMARY_ROWS_PER_STATEMENT} objects. Objects the run already recorded are left as they are.
+     *
+     * @param objects The objects which were loaded.
+     * @param pipelineRunId The pipeline run which loaded them.
+     * @param sourceReportType The report type the objects were loaded for.
+     * @return The number of rows inserted.
+     */
+    public int insertObjectSummaries(List<S3ObjectSummary> objects, String pipelineRunId, String sourceReportType) throws DataAccessException {
+        int inserted = 0;
+        for (int from = 0; from < objects.size(); from += OBJECT_SUMMARY_ROWS_PER_STATEMENT) {
+            List<S3ObjectSummary> chunk = objects.subList(from, Math.min(from + OBJECT_SUMMARY_ROWS_PER_STATEMENT, objects.size()));
+            String sql = INSERT_OBJECT_SUMMARIES + String.join(",", Collections.nCopies(chunk.size(), OBJECT_SUMMARY_ROW))
+                    + ON_OBJECT_SUMMARY_CONFLICT;
+            inserted += jdbcTemplate.getJdbcTemplate().update(sql, ps -> {
+                int index = 1;
+                for (S3ObjectSummary object : chunk) {
+                    ps.setString(index++, pipelineRunId);
+                    ps.setString(index++, sourceReportType);
+                    ps.setString(index++, object.getKey());
+                    ps.setString(index++, object.getETag());
+                    ps.setString(index++, object.getBucketName());
+                    ps.setString(index++, Long.toString(object.getSize()));
+                    ps.setString(index++, S3Utils.dateToString(object.getLastModified()));
+                    ps.setLong(index++, object.getSize());
+                    ps.setTimestamp(index++, new Timestamp(object.getLastModified().getTime()));
+                }
+            });
+        }
+        log.debug("Inserted {} object summaries for {}", inserted, sourceReportType);
+        return inserted;
+    }
+}
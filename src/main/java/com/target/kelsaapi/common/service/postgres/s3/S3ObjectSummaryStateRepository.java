@@ -36,4 +36,24 @@ public interface S3ObjectSummaryStateRepository extends JpaRepository<S3ObjectSu
             @QueryHint(name = HINT_READ_ONLY, value = "true")
     })
     Stream<S3ObjectSummaryState> findAllS3ObjectSummaryStateByReportTypeByDate(String sourceReportType);
-}
\ No newline at end of file
+
+
+    @Query("SELECT e.key, e.etag FROM S3ObjectSummaryState e " +
+            "WHERE e.sourceReportType = ?1 ")
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> findAllKeysAndEtagsByReportType(String sourceReportType);
+
+    @Query("SELECT e.key, e.etag FROM S3ObjectSummaryState e " +
+            "WHERE e.sourceReportType = ?1 " +
+            "AND  e.createdDate = current_date")
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> findAllKeysAndEtagsByReportTypeByDate(String sourceReportType);
+}
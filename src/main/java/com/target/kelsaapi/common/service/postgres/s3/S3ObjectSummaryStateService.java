@@ -2,9 +2,9 @@ package com.target.kelsaapi.common.service.postgres.s3;
 
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.google.common.collect.Lists;
+import com.target.kelsaapi.common.util.S3EtagIndex;
 import com.target.kelsaapi.common.util.textFormatterInterface;
 import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
-import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryStateId;
 import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,12 +25,16 @@ public class S3ObjectSummaryStateService implements textFormatterInterface {
 
     private final EntityManager entityManager;
 
+    private final S3JdbcRepository s3JdbcRepository;
+
     String newLine = System.getProperty("line.separator");
 
     @Autowired
-    public S3ObjectSummaryStateService(S3ObjectSummaryStateRepository repository, EntityManager entityManager) {
+    public S3ObjectSummaryStateService(S3ObjectSummaryStateRepository repository, EntityManager entityManager,
+                                       S3JdbcRepository s3JdbcRepository) {
         this.repository = repository;
         this.entityManager = entityManager;
+        this.s3JdbcRepository = s3JdbcRepository;
     }
 
 
@@ -58,24 +62,55 @@ public class S3ObjectSummaryStateService implements textFormatterInterface {
         return s3ObjectSummaryStateList;
     }
 
-    @Transactional
-    public void insertS3ObjectSummaryState(List<S3ObjectSummary> s3ObjectSummary,String pipeLineRunId,String sourceReportType) {
+    /**
+     * Streams the keys and etags loaded for the report type into an index, without materializing an entity per row.
+     *
+     * @param sourceReportType The source report type.
+     * @return The index of every object loaded for the report type.
+     */
+    @Transactional(readOnly = true)
+    public S3EtagIndex getLoadedEtagIndex(String sourceReportType) {
+        try (Stream<Object[]> stream = repository.findAllKeysAndEtagsByReportType(sourceReportType)) {
+            return toEtagIndex(stream);
+        }
+    }
 
-        List<S3ObjectSummaryState> s3ObjectSummaryStateList = Lists.newArrayList();
+    /**
+     * @param sourceReportType The source report type.
+     * @return The index of the objects loaded for the report type today.
+     */
+    @Transactional(readOnly = true)
+    public S3EtagIndex getLoadedEtagIndexByDate(String sourceReportType) {
+        try (Stream<Object[]> stream = repository.findAllKeysAndEtagsByReportTypeByDate(sourceReportType)) {
+            return toEtagIndex(stream);
+        }
+    }
 
-        for (S3ObjectSummary s3ObjectSummaries : s3ObjectSummary) {
-            S3ObjectSummaryState objectSummaryState;
-            objectSummaryState = new S3ObjectSummaryState(new S3ObjectSummaryStateId(pipeLineRunId,s3ObjectSummaries.getBucketName(),s3ObjectSummaries.getKey(),s3ObjectSummaries.getETag(),s3ObjectSummaries.getSize(),s3ObjectSummaries.getLastModified()));
-            //objectSummaryState.setPipelineRunId(pipeLineRunId);
-            objectSummaryState.setSourceReportType(sourceReportType);
-            s3ObjectSummaryStateList.add(objectSummaryState);
+    private static S3EtagIndex toEtagIndex(Stream<Object[]> keysAndEtags) {
+        S3EtagIndex index = new S3EtagIndex();
+        keysAndEtags.forEach(row -> index.add((String) row[0], (String) row[1]));
+        return index;
+    }
 
-        }
+    /**
+     * Records the objects moved to hdfs in mdf_s3_objectsummary, in a few multi-row inserts rather than one entity save
+     * per object.
+     *
+     * @param s3ObjectSummary The objects moved to hdfs.
+     * @param pipeLineRunId The pipeline run which moved them.
+     * @param sourceReportType The report type they were moved for.
+     */
+    @Transactional
+    public void insertS3ObjectSummaryState(List<S3ObjectSummary> s3ObjectSummary,String pipeLineRunId,String sourceReportType) {
 
-        log.info(ANSI_GREEN + newLine + "Below are the list of fileobjects moved to hdfs " + newLine +
-                        s3ObjectSummaryStateList.toString() +ANSI_RESET);
+        log.info(ANSI_GREEN + "Recording {} fileobjects moved to hdfs in mdf_s3_objectsummary" + ANSI_RESET, s3ObjectSummary.size());
+        if (log.isDebugEnabled()) {
+            log.debug("Below are the list of fileobjects moved to hdfs " + newLine +
+                    s3ObjectSummary.stream().map(S3ObjectSummary::getKey).toList());
+        }
 
-        repository.saveAllAndFlush(s3ObjectSummaryStateList);
+        int inserted = s3JdbcRepository.insertObjectSummaries(s3ObjectSummary, pipeLineRunId, sourceReportType);
+        log.info("Recorded {} new fileobjects in mdf_s3_objectsummary", inserted);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.target.kelsaapi.common.service.postgres.watermark;
+
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermark;
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermarkId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository("ingestWatermarkRepository")
+public interface IngestWatermarkRepository extends JpaRepository<IngestWatermark, IngestWatermarkId> {
+
+    //A run finishing after a later one must not move the watermark back, so the greatest of both timestamps is kept
+    String ADVANCE_TIMESTAMP = "insert into mdf_ingest_watermark (source_system, report_type, entity, watermark_timestamp, pipeline_run_id, updated_timestamp) " +
+            "values (:sourceSystem, :reportType, :entity, :watermark, :pipelineRunId, now()) " +
+            "on conflict (source_system, report_type, entity) do update " +
+            "set watermark_timestamp = excluded.watermark_timestamp, pipeline_run_id = excluded.pipeline_run_id, updated_timestamp = now() " +
+            "where mdf_ingest_watermark.watermark_timestamp is null or mdf_ingest_watermark.watermark_timestamp < excluded.watermark_timestamp";
+
+    String SAVE_CURSOR = "insert into mdf_ingest_watermark (source_system, report_type, entity, watermark_cursor, pipeline_run_id, updated_timestamp) " +
+            "values (:sourceSystem, :reportType, :entity, :cursor, :pipelineRunId, now()) " +
+            "on conflict (source_system, report_type, entity) do update " +
+            "set watermark_cursor = excluded.watermark_cursor, pipeline_run_id = excluded.pipeline_run_id, updated_timestamp = now()";
+
+    @Modifying
+    @Transactional
+    @Query(value = ADVANCE_TIMESTAMP, nativeQuery = true)
+    int advanceTimestamp(@Param("sourceSystem") String sourceSystem, @Param("reportType") String reportType,
+                         @Param("entity") String entity, @Param("watermark") Instant watermark,
+                         @Param("pipelineRunId") String pipelineRunId);
+
+    @Modifying
+    @Transactional
+    @Query(value = SAVE_CURSOR, nativeQuery = true)
+    int saveCursor(@Param("sourceSystem") String sourceSystem, @Param("reportType") String reportType,
+                   @Param("entity") String entity, @Param("cursor") String cursor,
+                   @Param("pipelineRunId") String pipelineRunId);
+}
@@ -0,0 +1,116 @@
+package com.target.kelsaapi.common.service.postgres.watermark;
+
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermark;
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermarkId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Records in mdf_ingest_watermark how far each entity of a source and report type was successfully ingested, so that
+ * consumers can request only what changed since instead of the full date window. A watermark is either a timestamp,
+ * which only ever moves forward, or an opaque cursor for sources which page by position.
+ * <p>
+ * Consumers read the watermark before extracting and advance it once the extract is landed in HDFS, to the time the
+ * extract started rather than the time it ended, so that anything changed while it ran is requested again next time.
+ */
+@Slf4j
+@Service
+public class IngestWatermarkService {
+
+    private final IngestWatermarkRepository repository;
+
+    @Autowired
+    public IngestWatermarkService(IngestWatermarkRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param sourceSystem The source system.
+     * @param reportType The report type of the source system.
+     * @param entity What the watermark tracks within the report type.
+     * @return The timestamp everything before which was ingested, or empty if the entity was never ingested.
+     */
+    public Optional<Instant> getTimestamp(String sourceSystem, String reportType, String entity) {
+        return repository.findById(new IngestWatermarkId(sourceSystem, reportType, entity))
+                .map(IngestWatermark::getWatermarkTimestamp);
+    }
+
+    /**
+     * The timestamp to request changes from: the watermark moved back by the lookback, so that corrections which
+     * arrive late at the source, such as restated stats, are requested again.
+     *
+     * @param sourceSystem The source system.
+     * @param reportType The report type of the source system.
+     * @param entity What the watermark tracks within the report type.
+     * @param lookback How far back before the watermark to request again.
+     * @return The lower bound of the next extract, or empty if the entity was never ingested and needs a full extract.
+     */
+    public Optional<Instant> getLowerBound(String sourceSystem, String reportType, String entity, Duration lookback) {
+        Optional<Instant> lowerBound = getTimestamp(sourceSystem, reportType, entity).map(watermark -> watermark.minus(lookback));
+        if (lowerBound.isPresent()) {
+            log.info("Requesting {} {} {} changed since {}", sourceSystem, reportType, entity, lowerBound.get());
+        } else {
+            log.info("No watermark for {} {} {}, requesting a full extract", sourceSystem, reportType, entity);
+        }
+        return lowerBound;
+    }
+
+    /**
+     * @param sourceSystem The source system.
+     * @param reportType The report type of the source system.
+     * @param entity What the watermark tracks within the report type.
+     * @return The cursor to resume from, or empty if none was saved.
+     */
+    public Optional<String> getCursor(String sourceSystem, String reportType, String entity) {
+        return repository.findById(new IngestWatermarkId(sourceSystem, reportType, entity))
+                .map(IngestWatermark::getWatermarkCursor);
+    }
+
+    /**
+     * Moves the watermark forward, once everything changed before it is landed. An older watermark than the one
+     * recorded, from a run which finished after a later one, is ignored. A failure to record it only costs requesting
+     * more next time, so it is logged rather than failing the run.
+     *
+     * @param sourceSystem The source system.
+     * @param reportType The report type of the source system.
+     * @param entity What the watermark tracks within the report type.
+     * @param watermark The new watermark.
+     * @param pipelineRunId The ID of the pipeline run which landed the data.
+     */
+    public void advance(String sourceSystem, String reportType, String entity, Instant watermark, String pipelineRunId) {
+        try {
+            if (repository.advanceTimestamp(sourceSystem, reportType, entity, watermark, pipelineRunId) > 0) {
+                log.info("Advanced the watermark of {} {} {} to {}", sourceSystem, reportType, entity, watermark);
+            } else {
+                log.info("Kept the watermark of {} {} {}, which is already past {}", sourceSystem, reportType, entity, watermark);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to advance the watermark of {} {} {} to {}: {}", sourceSystem, reportType, entity, watermark, e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the cursor to resume from, once everything before it is landed. Failures are logged like for
+     * {@link #advance}.
+     *
+     * @param sourceSystem The source system.
+     * @param reportType The report type of the source system.
+     * @param entity What the watermark tracks within the report type.
+     * @param cursor The position to resume from.
+     * @param pipelineRunId The ID of the pipeline run which landed the data.
+     */
+    public void saveCursor(String sourceSystem, String reportType, String entity, String cursor, String pipelineRunId) {
+        try {
+            repository.saveCursor(sourceSystem, reportType, entity, cursor, pipelineRunId);
+            log.info("Saved the cursor of {} {} {}", sourceSystem, reportType, entity);
+        } catch (DataAccessException e) {
+            log.warn("Unable to save the cursor of {} {} {}: {}", sourceSystem, reportType, entity, e.getMessage());
+        }
+    }
+}
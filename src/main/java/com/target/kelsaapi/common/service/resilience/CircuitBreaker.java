@@ -0,0 +1,129 @@
+package com.target.kelsaapi.common.service.resilience;
+
+/**
+ * Stops calling an endpoint which keeps failing. The outcomes of the last calls are kept in a ring; once at least the
+ * minimum number of calls was made and the share of failures among them reaches the threshold, the breaker opens and
+ * refuses every call for the open state duration. It then lets a single trial call through: the breaker closes again
+ * if it succeeds, and opens for another period if it fails.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] failures;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long openStateMillis;
+
+    private State state = State.CLOSED;
+
+    private int calls;
+
+    private int failed;
+
+    private int next;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    /**
+     * @param slidingWindowSize The number of last calls the failure rate is computed over.
+     * @param minimumCalls The number of calls needed before the breaker may open.
+     * @param failureRateThreshold The percentage of failed calls which opens the breaker.
+     * @param openStateMillis How long the breaker stays open before trying a call again.
+     */
+    CircuitBreaker(int slidingWindowSize, int minimumCalls, int failureRateThreshold, long openStateMillis) {
+        this.failures = new boolean[Math.max(1, slidingWindowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, failures.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openStateMillis = openStateMillis;
+    }
+
+    /**
+     * @return True if a call may be made now. In the half open state only the single trial call is permitted.
+     */
+    synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openStateMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+                //Falls through to let the trial call in
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Gives back a permission for a call which was not made after all, so that a half open breaker can try again.
+     */
+    synchronized void releasePermission() {
+        trialInFlight = false;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            state = State.CLOSED;
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failed * 100 >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == failures.length) {
+            if (failures[next]) {
+                failed--;
+            }
+        } else {
+            calls++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            failed++;
+        }
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trialInFlight = false;
+        reset();
+    }
+
+    private void reset() {
+        calls = 0;
+        failed = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backs off by a random wait between the initial interval and three times the previous wait, capped at the maximum
+ * interval, until the total time waited would exceed the maximum elapsed time. Unlike a plain exponential back off,
+ * clients which failed together do not retry together, so a recovering vendor is not hit by synchronized waves.
+ */
+public class DecorrelatedJitterBackOff implements BackOff {
+
+    private final long initialIntervalMillis;
+
+    private final long maxIntervalMillis;
+
+    private final long maxElapsedTimeMillis;
+
+    /**
+     * @param initialIntervalMillis The shortest wait, and the base of the first one.
+     * @param maxIntervalMillis The longest single wait.
+     * @param maxElapsedTimeMillis The longest total wait, after which {@link BackOffExecution#STOP} is returned.
+     */
+    public DecorrelatedJitterBackOff(long initialIntervalMillis, long maxIntervalMillis, long maxElapsedTimeMillis) {
+        this.initialIntervalMillis = Math.max(1, initialIntervalMillis);
+        this.maxIntervalMillis = Math.max(this.initialIntervalMillis, maxIntervalMillis);
+        this.maxElapsedTimeMillis = maxElapsedTimeMillis;
+    }
+
+    @Override
+    public BackOffExecution start() {
+        return new BackOffExecution() {
+
+            private long previous = initialIntervalMillis;
+
+            private long elapsed;
+
+            @Override
+            public long nextBackOff() {
+                long upper = Math.min(maxIntervalMillis, previous * 3);
+                long next = upper <= initialIntervalMillis ? initialIntervalMillis
+                        : ThreadLocalRandom.current().nextLong(initialIntervalMillis, upper + 1);
+                if (elapsed + next > maxElapsedTimeMillis) {
+                    return STOP;
+                }
+                elapsed += next;
+                previous = next;
+                return next;
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.target.kelsaapi.common.exceptions.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Guards every call to one outbound endpoint, shared by all the pipeline runs of the pod. A call goes through, in order:
+ * <ul>
+ *     <li>the circuit breaker, which refuses it while the endpoint is failing,</li>
+ *     <li>the bulkhead, which caps the calls in flight to the endpoint and waits a bounded time for a free slot,</li>
+ *     <li>and on a transient failure, the retry budget, which only lets it be retried while retries stay a small share
+ *     of the calls, after a decorrelated jitter back off.</li>
+ * </ul>
+ * Refused calls throw a {@link CallNotPermittedException}. Any other failure is thrown as is once it may not be retried.
+ * Every outcome is counted in the pipeline.resilience meters, tagged with the endpoint.
+ */
+@Slf4j
+public final class EndpointGuard {
+
+    /**
+     * A call to guard, throwing the same checked exceptions as the unguarded call.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String endpoint;
+
+    private final int maxAttempts;
+
+    private final BackOff backOff;
+
+    private final RetryBudget retryBudget;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Semaphore bulkhead;
+
+    private final long maxWaitMillis;
+
+    private final Counter succeeded;
+
+    private final Counter failed;
+
+    private final Counter retried;
+
+    private final Counter budgetExhausted;
+
+    private final Counter circuitOpen;
+
+    private final Counter bulkheadFull;
+
+    EndpointGuard(String endpoint, ResiliencePolicy policy, MeterRegistry meterRegistry) {
+        this.endpoint = endpoint;
+        this.maxAttempts = Math.max(1, policy.maxAttempts());
+        //Retries happen within the call, so the back off only bounds the single waits and not their total
+        this.backOff = new DecorrelatedJitterBackOff(policy.initialBackoffMillis(), policy.maxBackoffMillis(), Long.MAX_VALUE);
+        this.retryBudget = new RetryBudget(policy.retryBudgetRatio(), policy.retryBudgetMinRetries());
+        this.circuitBreaker = new CircuitBreaker(policy.slidingWindowSize(), policy.minimumCalls(),
+                policy.failureRateThreshold(), TimeUnit.SECONDS.toMillis(policy.openStateSeconds()));
+        this.bulkhead = new Semaphore(Math.max(1, policy.maxConcurrentCalls()), true);
+        this.maxWaitMillis = policy.maxWaitMillis();
+
+        this.succeeded = callCounter(meterRegistry, "success");
+        this.failed = callCounter(meterRegistry, "failure");
+        this.circuitOpen = callCounter(meterRegistry, "circuit_open");
+        this.bulkheadFull = callCounter(meterRegistry, "bulkhead_full");
+        this.retried = retryCounter(meterRegistry, "retried");
+        this.budgetExhausted = retryCounter(meterRegistry, "budget_exhausted");
+        Gauge.builder("pipeline.resilience.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("State of the circuit breaker of the endpoint: 0 closed, 1 open, 2 half open")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        Gauge.builder("pipeline.resilience.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Calls which may still be started to the endpoint without waiting")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The name of the guarded endpoint.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return The maximum number of attempts of a call, including the first one.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Makes a call, retrying it on a transient failure.
+     *
+     * @param call The call to make.
+     * @param transientFailure True for the failures which mean the endpoint is unwell, which count against the circuit
+     *                         breaker and may be retried. Any other failure is thrown right away.
+     * @return What the call returned.
+     * @throws E What the call threw, once it may not be retried.
+     * @throws CallNotPermittedException If the circuit breaker is open or the bulkhead stayed full.
+     */
+    public <T, E extends Exception> T execute(Call<T, E> call, Predicate<Throwable> transientFailure) throws E {
+        return execute(maxAttempts, call, transientFailure, result -> false);
+    }
+
+    /**
+     * Makes a call which may report a failure through its result instead of throwing, retrying it on a transient failure.
+     *
+     * @param attempts The maximum number of attempts, overriding the one of the endpoint.
+     * @param call The call to make.
+     * @param transientFailure See {@link #execute(Call, Predicate)}.
+     * @param failedResult True for the results which are a transient failure.
+     * @return What the last attempt returned, which may be a failed result if no more attempts were permitted.
+     * @throws E What the call threw, once it may not be retried.
+     * @throws CallNotPermittedException If the circuit breaker is open or the bulkhead stayed full.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(int attempts, Call<T, E> call, Predicate<Throwable> transientFailure,
+                                              Predicate<T> failedResult) throws E {
+        BackOffExecution backOffExecution = null;
+        retryBudget.onCall();
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            T result = null;
+            Exception failure = null;
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                bulkhead.release();
+            }
+            if (failure == null && !failedResult.test(result)) {
+                circuitBreaker.onSuccess();
+                succeeded.increment();
+                return result;
+            }
+            failed.increment();
+            if (failure != null && !transientFailure.test(failure)) {
+                //The endpoint answered, the failure is the caller's
+                circuitBreaker.onSuccess();
+                throw (E) failure;
+            }
+            circuitBreaker.onFailure();
+            if (!mayRetry(attempt, attempts)) {
+                if (failure != null) {
+                    //Only E or unchecked exceptions can come out of the call
+                    throw (E) failure;
+                }
+                return result;
+            }
+            log.warn("Call {} to {} failed, retrying: {}", attempt, endpoint, failure == null ? "failed result" : failure.getMessage());
+            backOffExecution = backOff(backOffExecution);
+        }
+    }
+
+    private void acquire() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitOpen.increment();
+            throw new CallNotPermittedException("Circuit breaker of " + endpoint + " is open, not calling it");
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            circuitBreaker.releasePermission();
+            bulkheadFull.increment();
+            throw new CallNotPermittedException("Bulkhead of " + endpoint + " is full, not calling it");
+        }
+    }
+
+    private boolean mayRetry(int attempt, int attempts) {
+        if (attempt >= attempts) {
+            return false;
+        }
+        if (!retryBudget.tryRetry()) {
+            log.warn("Retry budget of {} is exhausted, not retrying", endpoint);
+            budgetExhausted.increment();
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    private BackOffExecution backOff(BackOffExecution backOffExecution) {
+        BackOffExecution execution = backOffExecution == null ? backOff.start() : backOffExecution;
+        try {
+            Thread.sleep(execution.nextBackOff());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallNotPermittedException("Interrupted while backing off from " + endpoint);
+        }
+        return execution;
+    }
+
+    private Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("pipeline.resilience.calls")
+                .description("Calls to the endpoint by outcome, each attempt counting once")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter retryCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("pipeline.resilience.retries")
+                .description("Retries of failed calls to the endpoint, made or refused by the retry budget")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
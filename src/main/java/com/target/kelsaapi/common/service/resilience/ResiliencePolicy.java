@@ -0,0 +1,54 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * The settings of one endpoint, resolved from its entry in the resilience config, then the config defaults, then the
+ * built in defaults.
+ */
+record ResiliencePolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double retryBudgetRatio,
+                        int retryBudgetMinRetries, int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                        int openStateSeconds, int maxConcurrentCalls, long maxWaitMillis) {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private static final int DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final int DEFAULT_MAX_BACKOFF_MILLIS = 30000;
+
+    private static final double DEFAULT_RETRY_BUDGET_RATIO = 0.2;
+
+    private static final int DEFAULT_RETRY_BUDGET_MIN_RETRIES = 10;
+
+    private static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+
+    private static final int DEFAULT_SLIDING_WINDOW_SIZE = 20;
+
+    private static final int DEFAULT_MINIMUM_CALLS = 10;
+
+    private static final int DEFAULT_OPEN_STATE_SECONDS = 60;
+
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+    private static final int DEFAULT_MAX_WAIT_MILLIS = 30000;
+
+    static ResiliencePolicy of(PipelineConfig.Resilience defaults, PipelineConfig.ResilienceEndpoint endpoint) {
+        PipelineConfig.Resilience config = defaults == null ? new PipelineConfig.Resilience() : defaults;
+        PipelineConfig.ResilienceEndpoint override = endpoint == null ? new PipelineConfig.ResilienceEndpoint() : endpoint;
+        return new ResiliencePolicy(
+                valueOrDefault(override.maxAttempts, valueOrDefault(config.maxAttempts, DEFAULT_MAX_ATTEMPTS)),
+                valueOrDefault(override.initialBackoffMillis, valueOrDefault(config.initialBackoffMillis, DEFAULT_INITIAL_BACKOFF_MILLIS)),
+                valueOrDefault(override.maxBackoffMillis, valueOrDefault(config.maxBackoffMillis, DEFAULT_MAX_BACKOFF_MILLIS)),
+                override.retryBudgetRatio != null ? override.retryBudgetRatio
+                        : config.retryBudgetRatio != null ? config.retryBudgetRatio : DEFAULT_RETRY_BUDGET_RATIO,
+                valueOrDefault(config.retryBudgetMinRetries, DEFAULT_RETRY_BUDGET_MIN_RETRIES),
+                valueOrDefault(override.failureRateThreshold, valueOrDefault(config.failureRateThreshold, DEFAULT_FAILURE_RATE_THRESHOLD)),
+                valueOrDefault(config.slidingWindowSize, DEFAULT_SLIDING_WINDOW_SIZE),
+                valueOrDefault(config.minimumCalls, DEFAULT_MINIMUM_CALLS),
+                valueOrDefault(override.openStateSeconds, valueOrDefault(config.openStateSeconds, DEFAULT_OPEN_STATE_SECONDS)),
+                valueOrDefault(override.maxConcurrentCalls, valueOrDefault(config.maxConcurrentCalls, DEFAULT_MAX_CONCURRENT_CALLS)),
+                valueOrDefault(override.maxWaitMillis, valueOrDefault(config.maxWaitMillis, DEFAULT_MAX_WAIT_MILLIS)));
+    }
+}
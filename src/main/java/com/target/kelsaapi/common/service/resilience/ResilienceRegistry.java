@@ -0,0 +1,64 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the single {@link EndpointGuard} of each outbound endpoint, so that every vendor, Xenon and S3 call of the
+ * pod shares one retry budget, circuit breaker and bulkhead per endpoint. Endpoints are named by their callers, eg
+ * "http.api.snapchat.com", "xenon" or "s3", and take their settings from the apiconfig.resilience entry with the same
+ * name. A per host endpoint without its own entry uses the entry of its prefix, so "http-download" covers the downloads
+ * from every host. Anything not set there falls back to the apiconfig.resilience defaults.
+ */
+@Slf4j
+@Service
+public class ResilienceRegistry {
+
+    private final MeterRegistry meterRegistry;
+
+    private final PipelineConfig.Resilience config;
+
+    private final Map<String, PipelineConfig.ResilienceEndpoint> endpointConfigs = new HashMap<>();
+
+    private final Map<String, EndpointGuard> guards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResilienceRegistry(PipelineConfig pipelineConfig, MeterRegistry meterRegistry) {
+        this(pipelineConfig.apiconfig.resilience, meterRegistry);
+    }
+
+    public ResilienceRegistry(PipelineConfig.Resilience config, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.config = config;
+        if (config != null && config.endpoints != null) {
+            for (PipelineConfig.ResilienceEndpoint endpoint : config.endpoints) {
+                endpointConfigs.put(endpoint.endpoint.toLowerCase(Locale.ROOT), endpoint);
+            }
+        }
+    }
+
+    /**
+     * @param endpoint The name of the endpoint.
+     * @return The guard of the endpoint, created on first use.
+     */
+    public EndpointGuard guard(String endpoint) {
+        return guards.computeIfAbsent(endpoint.toLowerCase(Locale.ROOT), name -> {
+            PipelineConfig.ResilienceEndpoint endpointConfig = endpointConfigs.get(name);
+            int hostSeparator = name.indexOf('.');
+            if (endpointConfig == null && hostSeparator > 0) {
+                endpointConfig = endpointConfigs.get(name.substring(0, hostSeparator));
+            }
+            ResiliencePolicy policy = ResiliencePolicy.of(config, endpointConfig);
+            log.info("Guarding calls to {} with {}", name, policy);
+            return new EndpointGuard(name, policy, meterRegistry);
+        });
+    }
+}
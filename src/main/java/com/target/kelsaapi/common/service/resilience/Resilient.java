@@ -0,0 +1,40 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.function.Predicate;
+
+/**
+ * Guards every call of a Spring bean method with the {@link EndpointGuard} of an endpoint. Only calls coming through
+ * the Spring proxy are guarded, so a guarded method calling another one of the same bean is guarded once.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Resilient {
+
+    /**
+     * @return The name of the endpoint, or the prefix of the name when {@link #perHost()} is set.
+     */
+    String value();
+
+    /**
+     * @return True to guard each host separately, taking the host from the URL passed as the first argument. Each
+     * vendor then gets its own breaker and budget, and one vendor failing does not hold back the others.
+     */
+    boolean perHost() default false;
+
+    /**
+     * @return False to make a single attempt, for clients which already retry on their own such as the AWS SDK. The
+     * call is still counted, and refused while the breaker is open or the bulkhead full.
+     */
+    boolean retry() default true;
+
+    /**
+     * @return Which failures are transient, see {@link TransientFailures}.
+     */
+    Class<? extends Predicate<Throwable>> transientFailure() default TransientFailures.class;
+}
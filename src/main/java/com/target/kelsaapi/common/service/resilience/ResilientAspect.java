@@ -0,0 +1,61 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies {@link Resilient} to the methods carrying it.
+ */
+@Aspect
+@Component
+public class ResilientAspect {
+
+    //Lenient on purpose, as some callers pass URLs with unencoded query strings
+    private static final Pattern URL_HOST = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://(?:[^@/?#]*@)?([^:/?#]+)");
+
+    private final ResilienceRegistry registry;
+
+    private final Map<Class<?>, Predicate<Throwable>> classifiers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResilientAspect(ResilienceRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("@annotation(resilient)")
+    public Object guard(ProceedingJoinPoint joinPoint, Resilient resilient) throws Throwable {
+        EndpointGuard guard = registry.guard(endpoint(resilient, joinPoint.getArgs()));
+        Predicate<Throwable> transientFailure = classifiers.computeIfAbsent(resilient.transientFailure(),
+                type -> BeanUtils.instantiateClass(resilient.transientFailure()));
+        EndpointGuard.Call<Object, Exception> call = () -> {
+            try {
+                return joinPoint.proceed();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+        return guard.execute(resilient.retry() ? guard.getMaxAttempts() : 1, call, transientFailure, result -> false);
+    }
+
+    private static String endpoint(Resilient resilient, Object[] args) {
+        if (resilient.perHost() && args.length > 0 && args[0] instanceof String url) {
+            Matcher matcher = URL_HOST.matcher(url);
+            if (matcher.find()) {
+                return resilient.value() + "." + matcher.group(1);
+            }
+        }
+        return resilient.value();
+    }
+}
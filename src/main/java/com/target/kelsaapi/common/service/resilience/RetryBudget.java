@@ -0,0 +1,37 @@
+package com.target.kelsaapi.common.service.resilience;
+
+/**
+ * Caps the retries to an endpoint at a share of the calls made to it. Every call deposits the ratio in the budget and
+ * every retry withdraws one, so with a ratio of 0.2 at most one retry is made for every five calls once the minimum
+ * reserve is spent. The reserve lets an endpoint called rarely still retry, and caps how much can be saved up while
+ * the endpoint is healthy.
+ */
+final class RetryBudget {
+
+    private final double ratio;
+
+    private final double reserve;
+
+    private double balance;
+
+    RetryBudget(double ratio, int minRetries) {
+        this.ratio = ratio;
+        this.reserve = Math.max(1, minRetries);
+        this.balance = this.reserve;
+    }
+
+    synchronized void onCall() {
+        balance = Math.min(reserve, balance + ratio);
+    }
+
+    /**
+     * @return True if a retry may be made now, in which case it is withdrawn from the budget.
+     */
+    synchronized boolean tryRetry() {
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.google.api.client.http.HttpResponseException;
+import com.target.kelsaapi.common.exceptions.HttpRetryableException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * The failures which say the endpoint is unwell rather than that the request was wrong: server errors, throttling,
+ * timeouts and connection failures, wherever they are in the cause chain. Other client errors are not retried, as the
+ * same request would fail the same way, and do not count against the circuit breaker, as the endpoint did answer.
+ */
+public class TransientFailures implements Predicate<Throwable> {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int REQUEST_TIMEOUT = 408;
+
+    @Override
+    public boolean test(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof HttpRetryableException || cause instanceof HttpServerErrorException
+                    || cause instanceof ResourceAccessException || cause instanceof SocketTimeoutException
+                    || cause instanceof ConnectException) {
+                return true;
+            }
+            if (cause instanceof HttpClientErrorException clientError) {
+                int status = clientError.getStatusCode().value();
+                return status == TOO_MANY_REQUESTS || status == REQUEST_TIMEOUT;
+            }
+            if (cause instanceof HttpResponseException responseError) {
+                int status = responseError.getStatusCode();
+                return status >= 500 || status == TOO_MANY_REQUESTS || status == REQUEST_TIMEOUT;
+            }
+            if (cause instanceof AmazonServiceException serviceError) {
+                return serviceError.getStatusCode() >= 500 || serviceError.getStatusCode() == TOO_MANY_REQUESTS
+                        || "SlowDown".equals(serviceError.getErrorCode());
+            }
+            if (cause instanceof AmazonClientException clientError) {
+                return clientError.isRetryable();
+            }
+        }
+        return false;
+    }
+}
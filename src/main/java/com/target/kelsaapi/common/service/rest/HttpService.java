@@ -4,7 +4,9 @@ import com.target.kelsaapi.common.exceptions.HttpException;
 import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.ResponseExtractor;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -18,5 +20,8 @@ public interface HttpService {
     HttpCustomResponse post(String endPointURL, Map<String, String> headersMap, String body) throws HttpException;
     HttpCustomResponse post(String endPointURL, HttpHeaders headers, Object body) throws HttpException;
     HttpCustomResponse options(String endPointURL , Map<String,String> headers )throws HttpException;
+    Long download(String endPointURL, Map<String,String> headersMap, String localFilePath, Boolean compress) throws HttpException, HttpRetryableException;
+    <T> T getStreaming(String endPointURL, Map<String,String> headersMap, ResponseExtractor<T> responseExtractor) throws IOException;
+    <T> T postStreaming(String endPointURL, Map<String,String> headersMap, String body, ResponseExtractor<T> responseExtractor) throws IOException;
 
 }
@@ -2,21 +2,26 @@ package com.target.kelsaapi.common.service.rest;
 
 import com.target.kelsaapi.common.exceptions.HttpException;
 import com.target.kelsaapi.common.exceptions.HttpRetryableException;
+import com.target.kelsaapi.common.service.resilience.Resilient;
 import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
- * Service for invoking http requests
+ * Service for invoking http requests. Every request is guarded by the {@link Resilient} endpoint of its host, which
+ * retries server errors, throttling and connection failures, and stops calling a host which keeps failing.
  */
 @Service("httpService")
 @Slf4j
@@ -38,7 +43,7 @@ public class HttpServiceImpl implements HttpService {
      * @throws HttpException
      */
     @Override
-    @Retryable(value = HttpException.class)
+    @Resilient(value = "http", perHost = true)
     public HttpCustomResponse get(String endPointURL, Map<String, String> headersMap) throws HttpException, HttpRetryableException {
         HttpCustomResponse response = null;
         log.info("Get request is getting executed");
@@ -57,7 +62,7 @@ public class HttpServiceImpl implements HttpService {
             log.info("response from api {} for the endpoint {} " , responseEntity.getStatusCode().toString() , endPointURL);
         } catch (HttpClientErrorException | UnknownHttpStatusCodeException restException) {
             log.error("Error in making http request for the url "+endPointURL, restException);
-            throw new HttpException(restException.getMessage(), restException.getCause());
+            throw new HttpException(restException.getMessage(), restException);
         } catch (HttpServerErrorException retryable) {
             throw new HttpRetryableException("Server error encountered! Will retry");
         }
@@ -65,7 +70,7 @@ public class HttpServiceImpl implements HttpService {
     }
 
     @Override
-    @Retryable(value = HttpException.class)
+    @Resilient(value = "http", perHost = true)
     public HttpCustomResponse post(String endPointURL,
                                    Map<String, String> headersMap,
                                    Map<String, String> bodyMap) throws HttpException {
@@ -81,7 +86,7 @@ public class HttpServiceImpl implements HttpService {
     }
 
     @Override
-    @Retryable(value = HttpException.class)
+    @Resilient(value = "http", perHost = true)
     public HttpCustomResponse post(String endPointURL,
                                    Map<String, String> headersMap,
                                    String body) throws HttpException {
@@ -90,7 +95,7 @@ public class HttpServiceImpl implements HttpService {
     }
 
     @Override
-    @Retryable(value = HttpException.class)
+    @Resilient(value = "http", perHost = true)
     public HttpCustomResponse post(String endPointURL,
                                    HttpHeaders headers,
                                    Object body) throws HttpException {
@@ -113,7 +118,7 @@ public class HttpServiceImpl implements HttpService {
     }
 
     @Override
-    @Retryable(value = HttpException.class)
+    @Resilient(value = "http", perHost = true)
     public HttpCustomResponse options(String endPointURL, Map<String, String> headersMap) throws HttpException {
         HttpCustomResponse response = null;
         log.info("Options request getting executed");
@@ -132,4 +137,107 @@ public class HttpServiceImpl implements HttpService {
         return response;
 
     }
+
+    /**
+     * For streaming a GET response body straight to a local file. The body is never held in memory, which keeps
+     * large report downloads from needing several times their size in heap. Since the file is truncated on every
+     * attempt, a failure part way through the body is retried like any other transient failure. Downloads are guarded
+     * apart from the other calls to the same host, so that a few long transfers do not hold every slot of its bulkhead.
+     *
+     * @param endPointURL The URL to download from.
+     * @param headersMap The request headers.
+     * @param localFilePath The local file to write the body to. Any existing file is overwritten.
+     * @param compress True to gzip the body while writing.
+     * @return The number of uncompressed bytes downloaded.
+     * @throws HttpException If the request fails with a client error.
+     * @throws HttpRetryableException If the server responds with a server error, or the body is cut off part way.
+     */
+    @Override
+    @Resilient(value = "http-download", perHost = true)
+    public Long download(String endPointURL, Map<String, String> headersMap, String localFilePath, Boolean compress)
+            throws HttpException, HttpRetryableException {
+        try {
+            Long bytes = execute(endPointURL, HttpMethod.GET, CommonUtils.createHeaders(headersMap), null,
+                    ResponseExtractors.toFile(localFilePath, compress));
+            log.info("Downloaded {} bytes from the endpoint {} to {}", bytes, endPointURL, localFilePath);
+            return bytes;
+        } catch (HttpException | HttpRetryableException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new HttpRetryableException("Failed streaming the response body to " + localFilePath, e);
+        }
+    }
+
+    /**
+     * For making a GET request and handing the un-buffered response body to the given extractor.
+     * <p>
+     * Status errors are raised before the extractor sees the body, and follow the same retry rules as
+     * {@link #get(String, Map)}. A failure while the extractor is reading the body is thrown as a plain
+     * {@link IOException} and is not retried, since the extractor may already have written part of the body.
+     *
+     * @param endPointURL The URL to call.
+     * @param headersMap The request headers.
+     * @param responseExtractor Reads the response, see {@link ResponseExtractors} for common cases.
+     * @return Whatever the extractor returns.
+     * @throws HttpException If the request fails with a client error or cannot be sent.
+     * @throws HttpRetryableException If the server responds with a server error.
+     * @throws IOException If the extractor fails while reading the body.
+     */
+    @Override
+    @Resilient(value = "http", perHost = true)
+    public <T> T getStreaming(String endPointURL, Map<String, String> headersMap, ResponseExtractor<T> responseExtractor)
+            throws IOException {
+        log.info("Streaming get request is getting executed");
+        return execute(endPointURL, HttpMethod.GET, CommonUtils.createHeaders(headersMap), null, responseExtractor);
+    }
+
+    /**
+     * For making a POST request and handing the un-buffered response body to the given extractor.
+     * Follows the same rules as {@link #getStreaming(String, Map, ResponseExtractor)}.
+     *
+     * @param endPointURL The URL to call.
+     * @param headersMap The request headers.
+     * @param body The request body.
+     * @param responseExtractor Reads the response, see {@link ResponseExtractors} for common cases.
+     * @return Whatever the extractor returns.
+     * @throws IOException See {@link #getStreaming(String, Map, ResponseExtractor)}.
+     */
+    @Override
+    @Resilient(value = "http", perHost = true)
+    public <T> T postStreaming(String endPointURL, Map<String, String> headersMap, String body, ResponseExtractor<T> responseExtractor)
+            throws IOException {
+        log.info("Streaming post request is getting executed");
+        return execute(endPointURL, HttpMethod.POST, CommonUtils.createHeaders(headersMap), body, responseExtractor);
+    }
+
+    private <T> T execute(String endPointURL, HttpMethod method, HttpHeaders headers, @Nullable String body,
+                          ResponseExtractor<T> responseExtractor) throws IOException {
+        log.debug("Headers are : " + headers);
+        RequestCallback requestCallback = request -> {
+            request.getHeaders().addAll(headers);
+            if (body != null) {
+                request.getBody().write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        //Body failures are tunnelled out unchecked so they aren't mistaken for a retryable connection failure
+        ResponseExtractor<T> tunnellingExtractor = response -> {
+            log.info("response from api {} for the endpoint {} ", response.getStatusCode(), endPointURL);
+            try {
+                return responseExtractor.extractData(response);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            return restTemplate.execute(endPointURL, method, requestCallback, tunnellingExtractor);
+        } catch (UncheckedIOException bodyException) {
+            log.error("Error while reading the response body for the url " + endPointURL, bodyException.getCause());
+            throw bodyException.getCause();
+        } catch (HttpServerErrorException retryable) {
+            throw new HttpRetryableException("Server error encountered! Will retry");
+        } catch (RestClientException restException) {
+            log.error("Error in making http request for the url "+endPointURL, restException);
+            throw new HttpException(restException.getMessage(), restException);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.target.kelsaapi.common.service.rest;
+
+import com.target.kelsaapi.common.util.FileStreamUtils;
+import org.apache.commons.io.IOUtils;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.OutputStream;
+
+/**
+ * Ready-made {@link ResponseExtractor}s for {@link HttpService#getStreaming} and {@link HttpService#postStreaming}
+ * which copy the response body without buffering it in memory.
+ *
+ * @since 1.0
+ */
+public final class ResponseExtractors {
+
+    private ResponseExtractors() {}
+
+    /**
+     * Copies the body into a local file through a file channel, truncating any existing file first so the
+     * request can be retried safely.
+     *
+     * @param localFilePath The file to write to.
+     * @param compress True to gzip the body while writing.
+     * @return An extractor returning the number of uncompressed bytes copied.
+     */
+    public static ResponseExtractor<Long> toFile(String localFilePath, Boolean compress) {
+        return response -> FileStreamUtils.copyToFile(response.getBody(), localFilePath, compress);
+    }
+
+    /**
+     * Copies the body into an already open stream, for example a {@link org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream}
+     * shared across several pages of the same report. The stream is not closed.
+     *
+     * @param outputStream The stream to write to.
+     * @return An extractor returning the number of bytes copied.
+     */
+    public static ResponseExtractor<Long> toOutputStream(OutputStream outputStream) {
+        return response -> IOUtils.copyLarge(response.getBody(), outputStream);
+    }
+}
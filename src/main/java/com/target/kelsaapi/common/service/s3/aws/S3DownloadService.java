@@ -1,5 +1,6 @@
 package com.target.kelsaapi.common.service.s3.aws;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
 import com.amazonaws.event.ProgressEvent;
@@ -10,15 +11,16 @@ import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.transfer.*;
 import com.target.kelsaapi.common.service.file.LocalHDFSFileWriterService;
+import com.target.kelsaapi.common.service.resilience.Resilient;
 import com.target.kelsaapi.common.util.textFormatterInterface;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
 
 @Slf4j
@@ -31,7 +33,12 @@ public class S3DownloadService implements textFormatterInterface {
         this.localHDFSFileWriterService = context.getBean(LocalHDFSFileWriterService.class);
     }
 
-    public void downloadFileOrDir(AmazonS3 s3Client, String bucketName, String keyName,File tempFileDirectory) {
+    /**
+     * Downloads one object into the directory with a plain get. Failures are rethrown, so that the guard counts them
+     * and the run fails rather than loading a missing or partial file.
+     */
+    @Resilient(value = "s3", retry = false)
+    public void downloadFileOrDir(AmazonS3 s3Client, String bucketName, String keyName,File tempFileDirectory) throws IOException {
 
         log.info("Downloading from S3 bucket=>" + bucketName + " the file => "  + keyName );
         File fileObject = new File(keyName);
@@ -43,49 +50,51 @@ public class S3DownloadService implements textFormatterInterface {
             tempFileDirectory.mkdirs();
         }
         File tempFilePath = new File(tempFileDirectory.toString() + File.separatorChar + fileName);
-        S3Object file = s3Client.getObject(new GetObjectRequest(bucketName, keyName));
-        try {
-            S3ObjectInputStream s3is = file.getObjectContent();
-            FileOutputStream fos = new FileOutputStream(tempFilePath);
+        try (S3Object file = s3Client.getObject(new GetObjectRequest(bucketName, keyName));
+             S3ObjectInputStream s3is = file.getObjectContent();
+             FileOutputStream fos = new FileOutputStream(tempFilePath)) {
             byte[] read_buf = new byte[1024];
             int read_len = 0;
             while ((read_len = s3is.read(read_buf)) > 0) {
                 fos.write(read_buf, 0, read_len);
             }
-            s3is.close();
-            fos.close();
         } catch (AmazonServiceException e) {
             log.error(ANSI_RED + e.getErrorMessage() + ANSI_RESET);
-            //System.exit(1);
-        } catch (FileNotFoundException e) {
-            log.error(ANSI_RED +e.getMessage() + ANSI_RESET);
-            //System.exit(1);
+            throw e;
         } catch (IOException e) {
             log.error(ANSI_RED + e.getMessage() + ANSI_RESET);
-            //System.exit(1);
+            throw e;
         }
     }
 
+    /**
+     * Downloads every object under the prefix with the transfer manager. Failures are rethrown, see
+     * {@link #downloadFileOrDir(AmazonS3, String, String, File)}.
+     */
+    @Resilient(value = "s3", retry = false)
     public void downloadDir(AmazonS3 s3Client,String bucketName, String keyName,
-                                   boolean pause,File tempFileDirectory) {
+                                   boolean pause,File tempFileDirectory) throws IOException {
 
         log.info("Downloading from S3 bucket=>" + bucketName + " the file => "  + keyName );
         TransferManager xfer_mgr = TransferManagerBuilder.standard().withS3Client(s3Client).build();
         try {
             MultipleFileDownload xfer = xfer_mgr.downloadDirectory(bucketName, keyName, tempFileDirectory);
             S3DownloadProgressService.showTransferProgress(xfer);
-            S3DownloadProgressService.waitForCompletion(xfer);
-        } catch (AmazonServiceException e) {
-            log.error(ANSI_RED + e.getErrorMessage() + ANSI_RESET);
-            //System.exit(1);
+            awaitTransfer(xfer);
+        } finally {
+            xfer_mgr.shutdownNow();
         }
-        xfer_mgr.shutdownNow();
 
 
     }
 
+    /**
+     * Downloads one object with the transfer manager. Failures are rethrown, see
+     * {@link #downloadFileOrDir(AmazonS3, String, String, File)}.
+     */
+    @Resilient(value = "s3", retry = false)
     public void downloadFile(AmazonS3 s3Client,String bucketName, String keyName,
-                                    boolean pause,File tempFileDirectory) {
+                                    boolean pause,File tempFileDirectory) throws IOException {
 
         log.info("Downloading from S3 bucket=>" + bucketName + " the file => "  + keyName );
         File fileObject = new File(keyName);
@@ -95,16 +104,29 @@ public class S3DownloadService implements textFormatterInterface {
         try {
             Download xfer = xfer_mgr.download(bucketName, keyName, tempFilePath);
             S3DownloadProgressService.showTransferProgress(xfer);
-            S3DownloadProgressService.waitForCompletion(xfer);
-
-        } catch (AmazonServiceException e) {
-            log.error(ANSI_RED +  e.getErrorMessage() + ANSI_RESET);
-            //System.exit(1);
+            awaitTransfer(xfer);
+        } finally {
+            xfer_mgr.shutdownNow();
         }
-        xfer_mgr.shutdownNow();
 
     }
 
+    /**
+     * Unlike {@link S3DownloadProgressService#waitForCompletion(Transfer)}, hands a failed transfer back to the caller
+     * instead of exiting the application.
+     */
+    private static void awaitTransfer(Transfer xfer) throws IOException {
+        try {
+            xfer.waitForCompletion();
+        } catch (AmazonClientException e) {
+            log.error(ANSI_RED + "Amazon error: " + e.getMessage() + ANSI_RESET);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + xfer.getDescription());
+        }
+    }
+
     public static void downloadFileWithListener(AmazonS3 s3Client,
                                                 String bucketName, String keyName, boolean pause,File tempFileDirectory) {
 
@@ -0,0 +1,227 @@
+package com.target.kelsaapi.common.service.s3.aws;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.service.resilience.EndpointGuard;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
+import com.target.kelsaapi.common.service.resilience.TransientFailures;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Lists the objects under an S3 prefix with several ListObjectsV2 requests in flight at once. The prefix is split into
+ * shards by listing it with the "/" delimiter: the objects directly under it are returned right away, and each common
+ * prefix found becomes a shard of its own, listed concurrently and split again until the configured depth, below which
+ * shards are listed flat with continuation tokens.
+ * <p>
+ * Objects are handed to the caller page by page as they arrive, in no particular order, so that downloads can start
+ * before the whole prefix is known. A bounded buffer of pages keeps listing from running far ahead of a slow caller.
+ */
+@Slf4j
+@Service
+public class S3ListingService {
+
+    private static final int DEFAULT_LISTING_THREADS = 8;
+
+    private static final int DEFAULT_SHARD_DEPTH = 2;
+
+    private static final int BUFFERED_PAGES = 32;
+
+    private static final String DELIMITER = "/";
+
+    private final int listingThreads;
+
+    private final int shardDepth;
+
+    private final EndpointGuard s3Guard;
+
+    private final TransientFailures transientFailures = new TransientFailures();
+
+    @Autowired
+    public S3ListingService(PipelineConfig config, ResilienceRegistry resilienceRegistry) {
+        PipelineConfig.S3SwitchBoard s3SwitchBoard = config.apiconfig.source.s3SwitchBoard;
+        this.listingThreads = valueOrDefault(s3SwitchBoard == null ? null : s3SwitchBoard.listingThreads, DEFAULT_LISTING_THREADS);
+        this.shardDepth = valueOrDefault(s3SwitchBoard == null ? null : s3SwitchBoard.listingShardDepth, DEFAULT_SHARD_DEPTH);
+        this.s3Guard = resilienceRegistry.guard("s3");
+    }
+
+    S3ListingService(int listingThreads, int shardDepth, ResilienceRegistry resilienceRegistry) {
+        this.listingThreads = listingThreads;
+        this.shardDepth = shardDepth;
+        this.s3Guard = resilienceRegistry.guard("s3");
+    }
+
+    /**
+     * Starts listing the prefix. The listing must be closed, which stops any requests still running.
+     *
+     * @param s3Client The client to list with.
+     * @param bucketName The bucket.
+     * @param prefix The prefix to list.
+     * @return The objects under the prefix, as they are found.
+     */
+    public S3Listing list(AmazonS3 s3Client, String bucketName, String prefix) {
+        return new S3Listing(s3Client, bucketName, prefix);
+    }
+
+    /**
+     * @return Every object under the prefix, for callers which need the complete listing before they can start.
+     */
+    public List<S3ObjectSummary> listAll(AmazonS3 s3Client, String bucketName, String prefix) {
+        List<S3ObjectSummary> objects = new ArrayList<>();
+        try (S3Listing listing = list(s3Client, bucketName, prefix)) {
+            listing.forEachRemaining(objects::add);
+        }
+        return objects;
+    }
+
+    /**
+     * The objects of one listing, in arrival order. Not thread safe: it is meant to be drained by the thread which
+     * downloads the objects. A failed listing request is rethrown from {@link #hasNext()}.
+     */
+    public final class S3Listing implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+        //Marks the end of the listing in the queue of pages
+        private static final List<S3ObjectSummary> END = Collections.emptyList();
+
+        private final AmazonS3 s3Client;
+
+        private final String bucketName;
+
+        private final ExecutorService executor;
+
+        private final BlockingQueue<List<S3ObjectSummary>> pages = new ArrayBlockingQueue<>(BUFFERED_PAGES);
+
+        private final AtomicInteger pendingShards = new AtomicInteger();
+
+        private volatile RuntimeException failure;
+
+        private Iterator<S3ObjectSummary> page = Collections.emptyIterator();
+
+        private boolean ended;
+
+        private final AtomicInteger shards = new AtomicInteger();
+
+        private S3Listing(AmazonS3 s3Client, String bucketName, String prefix) {
+            this.s3Client = s3Client;
+            this.bucketName = bucketName;
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(listingThreads, runnable -> {
+                Thread thread = new Thread(runnable, "s3-listing-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            submit(prefix, 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (ended) {
+                    return false;
+                }
+                List<S3ObjectSummary> next;
+                try {
+                    next = pages.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while listing s3://" + bucketName, e);
+                }
+                if (next == END) {
+                    ended = true;
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    log.info("Listed s3://{} in {} shards", bucketName, shards);
+                } else {
+                    page = next.iterator();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+
+        private void submit(String prefix, int depth) {
+            pendingShards.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    if (failure == null) {
+                        listShard(prefix, depth);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    //Requests aborted by closing the listing are not failures
+                    if (!executor.isShutdown() && failure == null) {
+                        log.error("Listing s3://{}/{} failed: {}", bucketName, prefix, e.getMessage());
+                        failure = e;
+                    }
+                } finally {
+                    if (pendingShards.decrementAndGet() == 0 || failure != null) {
+                        //The caller stops at the first END, so a failure can end the listing right away
+                        end();
+                    }
+                }
+            });
+        }
+
+        private void end() {
+            try {
+                pages.put(END);
+            } catch (InterruptedException e) {
+                //Only interrupted once the listing is closed, when nobody is waiting for the end any more
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void listShard(String prefix, int depth) throws InterruptedException {
+            shards.incrementAndGet();
+            ListObjectsV2Request request = new ListObjectsV2Request()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix);
+            if (depth < shardDepth) {
+                request.setDelimiter(DELIMITER);
+            }
+            ListObjectsV2Result result;
+            do {
+                //The client retries throttled requests itself, the guard only adds the circuit breaker and bulkhead
+                result = s3Guard.execute(1, () -> s3Client.listObjectsV2(request), transientFailures, page -> false);
+                for (String commonPrefix : result.getCommonPrefixes()) {
+                    submit(commonPrefix, depth + 1);
+                }
+                if (!result.getObjectSummaries().isEmpty()) {
+                    pages.put(result.getObjectSummaries());
+                }
+                request.setContinuationToken(result.getNextContinuationToken());
+            } while (result.isTruncated() && !Thread.currentThread().isInterrupted());
+        }
+    }
+}
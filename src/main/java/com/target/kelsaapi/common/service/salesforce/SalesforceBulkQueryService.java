@@ -0,0 +1,310 @@
+package com.target.kelsaapi.common.service.salesforce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.HttpException;
+import com.target.kelsaapi.common.exceptions.HttpRetryableException;
+import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.vo.HttpCustomResponse;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
+
+/**
+ * Extracts a Salesforce object through a Bulk API 2.0 query job.
+ * <p>
+ * The job is created once with the full SOQL query and polled until Salesforce reports it complete. Salesforce splits
+ * large objects into primary key chunks on its side, and the results are served as a chain of CSV chunks linked by the
+ * Sforce-Locator response header. As soon as a chunk's headers arrive the next chunk is requested, so up to
+ * {@link PipelineConfig.Salesforce#bulkMaxConcurrentChunks} chunks stream to disk at the same time. Each chunk lands in
+ * its own gzipped part file, and the parts are then concatenated in order into the landing file.
+ */
+@Slf4j
+@Service
+public class SalesforceBulkQueryService {
+
+    private static final String API_VERSION_PATH = "/services/data/v58.0/jobs/query";
+
+    private static final String LOCATOR_HEADER = "Sforce-Locator";
+
+    private static final String RECORD_COUNT_HEADER = "Sforce-NumberOfRecords";
+
+    private static final String NO_MORE_RESULTS = "null";
+
+    private static final int DEFAULT_POLL_INTERVAL_SECONDS = 10;
+
+    private static final int DEFAULT_TIMEOUT_MINUTES = 60;
+
+    private static final int DEFAULT_MAX_RECORDS_PER_CHUNK = 100000;
+
+    private static final int DEFAULT_MAX_CONCURRENT_CHUNKS = 4;
+
+    private final HttpService httpService;
+
+    private final PipelineConfig.Salesforce salesforceConfig;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Autowired
+    public SalesforceBulkQueryService(HttpService httpService, PipelineConfig config) {
+        this(httpService, config.getApiconfig().getSource().getSalesforce());
+    }
+
+    public SalesforceBulkQueryService(HttpService httpService, PipelineConfig.Salesforce salesforceConfig) {
+        this.httpService = httpService;
+        this.salesforceConfig = salesforceConfig;
+    }
+
+    /**
+     * Runs the SOQL query as a Bulk API 2.0 job and streams every result chunk into a single gzipped csv file.
+     * The csv header row is written once at the top of the file.
+     *
+     * @param accessToken The OAuth access token to use for all calls.
+     * @param soql The SOQL query to run.
+     * @param localFilePath The gzipped csv file to write the results to.
+     * @return The number of data rows written, excluding the header.
+     * @throws IOException If the job fails, times out, or the results cannot be written.
+     * @throws InterruptedException If interrupted while polling or waiting on chunk downloads.
+     */
+    public long writeQueryResults(String accessToken, String soql, String localFilePath) throws IOException, InterruptedException {
+        Map<String, String> headersMap = new LinkedHashMap<>();
+        headersMap.put("Authorization", "Bearer " + accessToken);
+        headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
+        headersMap.put("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+
+        String jobId = createJob(soql, headersMap);
+        waitForJobCompletion(jobId, headersMap);
+        return downloadResults(jobId, accessToken, localFilePath);
+    }
+
+    private String createJob(String soql, Map<String, String> headersMap) throws HttpException, IOException {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("operation", "query");
+        body.put("query", soql);
+        body.put("contentType", "CSV");
+        body.put("columnDelimiter", "COMMA");
+        body.put("lineEnding", "LF");
+        HttpCustomResponse response = httpService.post(buildJobsUrl(), headersMap, mapper.writeValueAsString(body));
+        String jobId = mapper.readTree(response.getBody()).path("id").asText(null);
+        if (jobId == null) {
+            throw new HttpException("Salesforce did not return a job id for the bulk query: " + response.getBody());
+        }
+        log.info("Created Salesforce bulk query job {}", jobId);
+        return jobId;
+    }
+
+    private void waitForJobCompletion(String jobId, Map<String, String> headersMap)
+            throws HttpException, HttpRetryableException, IOException, InterruptedException {
+        long pollIntervalMillis = TimeUnit.SECONDS.toMillis(valueOrDefault(salesforceConfig.bulkPollIntervalSeconds, DEFAULT_POLL_INTERVAL_SECONDS));
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(valueOrDefault(salesforceConfig.bulkTimeoutMinutes, DEFAULT_TIMEOUT_MINUTES));
+        while (true) {
+            HttpCustomResponse response = httpService.get(buildJobsUrl() + "/" + jobId, headersMap);
+            JsonNode job = mapper.readTree(response.getBody());
+            String state = job.path("state").asText();
+            switch (state) {
+                case "JobComplete":
+                    log.info("Salesforce bulk query job {} is complete with {} records processed", jobId,
+                            job.path("numberRecordsProcessed").asLong());
+                    return;
+                case "Failed":
+                case "Aborted":
+                    throw new IOException("Salesforce bulk query job " + jobId + " ended with state " + state
+                            + ": " + job.path("errorMessage").asText());
+                default:
+                    if (System.currentTimeMillis() + pollIntervalMillis > deadline) {
+                        throw new IOException("Timed out waiting for Salesforce bulk query job " + jobId + " to finish!");
+                    }
+                    log.info("Salesforce bulk query job {} is in state {}, sleeping {} ms", jobId, state, pollIntervalMillis);
+                    Thread.sleep(pollIntervalMillis);
+            }
+        }
+    }
+
+    private long downloadResults(String jobId, String accessToken, String localFilePath) throws IOException, InterruptedException {
+        int maxConcurrentChunks = valueOrDefault(salesforceConfig.bulkMaxConcurrentChunks, DEFAULT_MAX_CONCURRENT_CHUNKS);
+        ExecutorService chunkPool = Executors.newFixedThreadPool(maxConcurrentChunks);
+        ChunkChain chain = new ChunkChain(jobId, accessToken, localFilePath, chunkPool, MDC.getCopyOfContextMap());
+        try {
+            chain.submit(0, null);
+            int lastChunk;
+            try {
+                lastChunk = chain.lastChunk.get();
+                for (int i = 0; i <= lastChunk; i++) {
+                    chain.chunks.get(i).get();
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Failed downloading results for Salesforce bulk query job " + jobId, e.getCause());
+            }
+            log.info("Downloaded {} result chunks for Salesforce bulk query job {}", lastChunk + 1, jobId);
+            mergeParts(localFilePath, lastChunk);
+            return chain.rows.get();
+        } finally {
+            chunkPool.shutdownNow();
+            chain.deleteParts();
+        }
+    }
+
+    /**
+     * Concatenates the gzipped part files in chunk order. Concatenated gzip members form a valid gzip stream,
+     * so no decompression is needed here.
+     */
+    private void mergeParts(String localFilePath, int lastChunk) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(localFilePath))) {
+            for (int i = 0; i <= lastChunk; i++) {
+                Files.copy(partPath(localFilePath, i), out);
+            }
+        }
+    }
+
+    private static Path partPath(String localFilePath, int chunk) {
+        return Paths.get(localFilePath + ".part" + chunk);
+    }
+
+    /**
+     * Tracks the chain of result chunks for one job. Each chunk schedules the next one as soon as it learns the next
+     * locator, then streams its own body to its part file.
+     */
+    private class ChunkChain {
+
+        private final String jobId;
+
+        private final String accessToken;
+
+        private final String localFilePath;
+
+        private final ExecutorService chunkPool;
+
+        private final Map<String, String> mdcContext;
+
+        private final Map<Integer, CompletableFuture<Void>> chunks = new ConcurrentHashMap<>();
+
+        private final CompletableFuture<Integer> lastChunk = new CompletableFuture<>();
+
+        private final AtomicLong rows = new AtomicLong();
+
+        private ChunkChain(String jobId, String accessToken, String localFilePath, ExecutorService chunkPool,
+                           Map<String, String> mdcContext) {
+            this.jobId = jobId;
+            this.accessToken = accessToken;
+            this.localFilePath = localFilePath;
+            this.chunkPool = chunkPool;
+            this.mdcContext = mdcContext;
+        }
+
+        private void submit(int chunk, String locator) {
+            //Registered before the work is scheduled, as the chunk can finish the chain before submit returns
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            chunks.put(chunk, done);
+            try {
+                chunkPool.execute(() -> {
+                    if (mdcContext != null) MDC.setContextMap(mdcContext);
+                    try {
+                        downloadChunk(chunk, locator);
+                        done.complete(null);
+                    } catch (Exception e) {
+                        lastChunk.completeExceptionally(e);
+                        done.completeExceptionally(e);
+                    } finally {
+                        MDC.clear();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                lastChunk.completeExceptionally(e);
+                done.completeExceptionally(e);
+            }
+        }
+
+        private void downloadChunk(int chunk, String locator) throws IOException {
+            AtomicBoolean nextSubmitted = new AtomicBoolean(false);
+            String url = buildResultsUrl(locator);
+            Map<String, String> headersMap = new LinkedHashMap<>();
+            headersMap.put("Authorization", "Bearer " + accessToken);
+            headersMap.put("Accept", "text/csv");
+            int attempt = 1;
+            while (true) {
+                try {
+                    long chunkRows = httpService.getStreaming(url, headersMap, response -> {
+                        String nextLocator = response.getHeaders().getFirst(LOCATOR_HEADER);
+                        if (nextSubmitted.compareAndSet(false, true)) {
+                            if (nextLocator == null || NO_MORE_RESULTS.equals(nextLocator)) {
+                                lastChunk.complete(chunk);
+                            } else {
+                                submit(chunk + 1, nextLocator);
+                            }
+                        }
+                        writePart(response.getBody(), partPath(localFilePath, chunk), chunk == 0);
+                        String numberOfRecords = response.getHeaders().getFirst(RECORD_COUNT_HEADER);
+                        return numberOfRecords == null ? 0L : Long.parseLong(numberOfRecords);
+                    });
+                    rows.addAndGet(chunkRows);
+                    log.info("Wrote {} rows from result chunk {} of Salesforce bulk query job {}", chunkRows, chunk, jobId);
+                    return;
+                } catch (IOException e) {
+                    if (attempt >= ApplicationConstants.DEFAULT_MAX_WRITE_ATTEMPTS) {
+                        throw new IOException("Failed downloading result chunk " + chunk + " after " + attempt + " attempts", e);
+                    }
+                    log.warn("Attempt {} to download result chunk {} failed, retrying: {}", attempt, chunk, e.getMessage());
+                    attempt++;
+                }
+            }
+        }
+
+        private String buildResultsUrl(String locator) {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(buildJobsUrl() + "/" + jobId + "/results")
+                    .queryParam("maxRecords", valueOrDefault(salesforceConfig.bulkMaxRecordsPerChunk, DEFAULT_MAX_RECORDS_PER_CHUNK));
+            if (locator != null) {
+                builder.queryParam("locator", locator);
+            }
+            return builder.build().toUriString();
+        }
+
+        private void deleteParts() {
+            for (Integer chunk : chunks.keySet()) {
+                try {
+                    Files.deleteIfExists(partPath(localFilePath, chunk));
+                } catch (IOException e) {
+                    log.warn("Unable to delete part file for chunk {}: {}", chunk, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams one csv chunk into a gzipped part file. Every chunk starts with the csv header row, which is only kept
+     * for the first chunk. The rest of the body is copied byte for byte so quoted values containing line breaks are
+     * preserved exactly.
+     */
+    private static void writePart(InputStream body, Path partFile, boolean keepHeader) throws IOException {
+        try (InputStream in = new BufferedInputStream(body);
+             OutputStream out = new GzipCompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile)))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (keepHeader) out.write(b);
+                if (b == '\n') break;
+            }
+            in.transferTo(out);
+        }
+    }
+
+    private String buildJobsUrl() {
+        return salesforceConfig.baseUrl + API_VERSION_PATH;
+    }
+}
@@ -1,10 +1,21 @@
 package com.target.kelsaapi.common.service.salesforce;
 
 import com.target.kelsaapi.common.vo.Oauth;
+import org.springframework.lang.Nullable;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface SalesforceService {
-    List<String> getSalesforceObjectData(Oauth oauth, String pipelineRunId, String reportType) throws IOException;
+    List<String> getSalesforceObjectData(Oauth oauth, String pipelineRunId, String reportType, @Nullable Instant modifiedSince) throws IOException;
+
+    long writeSalesforceObjectDataBulk(Oauth oauth, String pipelineRunId, String reportType, @Nullable Instant modifiedSince, String localFilePath) throws IOException;
+
+    boolean isBulkExtraction();
+
+    Optional<Instant> getModifiedSince(String reportType);
+
+    void advanceWatermark(String reportType, Instant extractStarted, String pipelineRunId);
 }
@@ -1,12 +1,10 @@
 package com.target.kelsaapi.common.service.salesforce;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.postgres.salesforce.SalesforceStateRepository;
+import com.target.kelsaapi.common.service.postgres.watermark.IngestWatermarkService;
 import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
@@ -17,14 +15,18 @@ import org.apache.hc.core5.http.ContentType;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -38,107 +40,210 @@ public class SalesforceServiceImpl implements SalesforceService {
 
     private final SalesforceStateRepository salesforceStateRepository;
 
+    private final SalesforceBulkQueryService bulkQueryService;
+
+    private final IngestWatermarkService watermarkService;
+
+    private static final String BULK_EXTRACTION_MODE = "bulk";
+
+    private static final String SOURCE_SYSTEM = ApplicationConstants.Sources.SALESFORCE.name();
+
+    private static final int DEFAULT_INCREMENTAL_LOOKBACK_MINUTES = 60;
+
     @Autowired
-    public SalesforceServiceImpl(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService, SalesforceStateRepository salesforceStateRepository) {
+    public SalesforceServiceImpl(HttpService httpService, PipelineConfig config, LocalFileWriterService localFileWriterService,
+                                 SalesforceStateRepository salesforceStateRepository, SalesforceBulkQueryService bulkQueryService,
+                                 IngestWatermarkService watermarkService) {
         this.httpService = httpService;
         this.salesforceConfig = config.getApiconfig().getSource().getSalesforce();
         this.localFileWriterService = localFileWriterService;
         this.salesforceStateRepository = salesforceStateRepository;
+        this.bulkQueryService = bulkQueryService;
+        this.watermarkService = watermarkService;
     }
 
+    /**
+     * True when the salesforce extractionMode config is set to bulk, in which case the object is pulled through
+     * {@link #writeSalesforceObjectDataBulk} instead of paging through the REST query endpoint.
+     */
     @Override
-    public List<String> getSalesforceObjectData(Oauth oauth, String pipelineRunId, String reportType) throws IOException {
+    public boolean isBulkExtraction() {
+        return BULK_EXTRACTION_MODE.equalsIgnoreCase(salesforceConfig.extractionMode);
+    }
 
-        MDC.put(ApplicationConstants.PIPELINE_LOGGER_NAME,pipelineRunId);
+    /**
+     * True when the salesforce incrementalField config names a field, such as SystemModstamp, in which case objects
+     * already extracted are only queried for the records changed since their watermark.
+     */
+    private boolean isIncrementalExtraction() {
+        return salesforceConfig.incrementalField != null && !salesforceConfig.incrementalField.isBlank();
+    }
 
-        //Initialize header
-        Map<String,String> headersMap = setHeaderMap(oauth);
+    /**
+     * @param reportType The Salesforce object to extract.
+     * @return The timestamp to query the records changed since, which is the object's watermark moved back by the
+     * incrementalLookbackMinutes config, or empty for a full extract.
+     */
+    @Override
+    public Optional<Instant> getModifiedSince(String reportType) {
+        if (!isIncrementalExtraction()) {
+            return Optional.empty();
+        }
+        Integer lookbackMinutes = salesforceConfig.incrementalLookbackMinutes;
+        Duration lookback = Duration.ofMinutes(lookbackMinutes == null || lookbackMinutes < 0 ? DEFAULT_INCREMENTAL_LOOKBACK_MINUTES : lookbackMinutes);
+        return watermarkService.getLowerBound(SOURCE_SYSTEM, reportType, salesforceConfig.incrementalField, lookback);
+    }
 
-        List<String> finalList = new ArrayList<>();
+    /**
+     * Records that every change to the object before the extract started is landed. Does nothing for full extracts.
+     *
+     * @param reportType The Salesforce object extracted.
+     * @param extractStarted When the extract started.
+     * @param pipelineRunId The ID of the pipeline run.
+     */
+    @Override
+    public void advanceWatermark(String reportType, Instant extractStarted, String pipelineRunId) {
+        if (isIncrementalExtraction()) {
+            watermarkService.advance(SOURCE_SYSTEM, reportType, salesforceConfig.incrementalField, extractStarted, pipelineRunId);
+        }
+    }
 
+    /**
+     * Pulls the whole object through a Bulk API 2.0 query job and writes the results as a single gzipped csv file.
+     *
+     * @param oauth The authenticated {@link Oauth} object.
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param reportType The Salesforce object to extract.
+     * @param modifiedSince Only extract the records changed since, or null for all of them.
+     * @param localFilePath The gzipped csv file to write to.
+     * @return The number of records written.
+     * @throws IOException If the job fails or the results cannot be written.
+     */
+    @Override
+    public long writeSalesforceObjectDataBulk(Oauth oauth, String pipelineRunId, String reportType, @Nullable Instant modifiedSince,
+                                              String localFilePath) throws IOException {
+        MDC.put(ApplicationConstants.PIPELINE_LOGGER_NAME,pipelineRunId);
+        String soql = buildSoql(reportType, modifiedSince);
+        //A rejected token starts the job over, as the job results are written to the local file from scratch anyway
+        long records = oauth.withTokenRetry(token -> {
             try {
-
-                List<String> results  = getSalesforceObjectData(reportType, headersMap);
-
-                if (results.size() > 0) {
-                    log.info("Result added to final list");
-                    finalList = Stream.concat(finalList.stream(), results.stream()).toList();
-                }
-                else {
-                    log.info("Result is empty");
-                }
-            } catch (HttpException | JsonProcessingException | RuntimeException | HttpRetryableException e) {
-                log.error(e.getMessage(), e.getCause());
+                return bulkQueryService.writeQueryResults(token, soql, localFilePath);
             } catch (InterruptedException ie) {
-                log.error(ie.getMessage(),ie.getCause());
+                Thread.currentThread().interrupt();
+                throw new IOException(ie.getMessage(), ie);
             }
+        });
+        log.info("Total count of salesforce bulk result set is {}", records);
+        return records;
+    }
+
+    /**
+     * Pages through the REST query endpoint for the object.
+     *
+     * @param oauth The authenticated {@link Oauth} object.
+     * @param pipelineRunId The ID of the pipeline run.
+     * @param reportType The Salesforce object to extract.
+     * @param modifiedSince Only extract the records changed since, or null for all of them.
+     * @return The json pages which hold records. Empty when nothing changed since modifiedSince.
+     * @throws IOException If a page cannot be fetched or read.
+     * @throws RuntimeException If a full extract finds no records at all.
+     */
+    @Override
+    public List<String> getSalesforceObjectData(Oauth oauth, String pipelineRunId, String reportType, @Nullable Instant modifiedSince) throws IOException {
+
+        MDC.put(ApplicationConstants.PIPELINE_LOGGER_NAME,pipelineRunId);
+
+        List<String> finalList;
+        try {
+            finalList = getSalesforceObjectData(reportType, modifiedSince, oauth);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ie.getMessage(), ie);
+        }
         if (!finalList.isEmpty()) {
             log.info("Total count of salesforce result set is " + finalList.size());
-            return finalList;
+        } else if (modifiedSince != null) {
+            //An incremental run between two changes to the object is expected to find nothing
+            log.info("No records of {} changed since {}", reportType, modifiedSince);
         } else {
             throw new RuntimeException("There were no results for salesforce object!");
         }
+        return finalList;
     }
 
-    private List<String> getSalesforceObjectData(String reportType, Map<String, String> headersMap) throws HttpException, JsonProcessingException, HttpRetryableException, InterruptedException {
+    private List<String> getSalesforceObjectData(String reportType, @Nullable Instant modifiedSince, Oauth oauth) throws IOException, InterruptedException {
 
         String nextRecordsUrl;
+        String query = buildQuery(reportType, modifiedSince);
 
         List<String> resultList = new ArrayList<>();
         {
-            String url = buildBaseUrl(reportType);
-            HttpCustomResponse serviceResponse = httpService.get(url, headersMap);
+            String url = buildBaseUrl(query);
+            HttpCustomResponse serviceResponse = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
             ObjectMapper mapper = new ObjectMapper();
             SalesforceResponse salesforceData = mapper.readValue(serviceResponse.getBody(), SalesforceResponse.class);
             nextRecordsUrl = salesforceData.getNextRecordsUrl();
             log.debug("nextRecordsUrl is : " + salesforceData.getNextRecordsUrl());
-            resultList.add(serviceResponse.getBody());
+            addPage(resultList, salesforceData, serviceResponse.getBody());
         }
 
             while (nextRecordsUrl != null) {
-                String url = buildBaseUrlWithNextRecordsUrl(nextRecordsUrl, reportType);
-                HttpCustomResponse serviceResponse = httpService.get(url, headersMap);
+                String url = buildBaseUrlWithNextRecordsUrl(nextRecordsUrl, query);
+                HttpCustomResponse serviceResponse = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
                 ObjectMapper mapper = new ObjectMapper();
                 SalesforceResponse salesforceData = mapper.readValue(serviceResponse.getBody(), SalesforceResponse.class);
                 nextRecordsUrl = salesforceData.getNextRecordsUrl();
                 log.debug("nextRecordsUrl is : " + salesforceData.getNextRecordsUrl());
-                resultList.add(serviceResponse.getBody());
+                addPage(resultList, salesforceData, serviceResponse.getBody());
             }
 
          return resultList;
     }
 
-    private Map<String, String> setHeaderMap(Oauth oauth) {
+    private static void addPage(List<String> resultList, SalesforceResponse salesforceData, String body) {
+        //A query matching nothing still answers with a page, which holds no records
+        if (salesforceData.getRecords() != null && !salesforceData.getRecords().isEmpty()) {
+            resultList.add(body);
+        }
+    }
+
+    private Map<String, String> setHeaderMap(String token) {
         Map<String,String> headersMap = new LinkedHashMap<>();
-        headersMap.put("Authorization","Bearer " + oauth.getOAuthToken());
+        headersMap.put("Authorization","Bearer " + token);
         headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
         headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
         return headersMap;
     }
 
 
-    private String buildBaseUrl(String reportType) {
+    private String buildBaseUrl(String query) {
         String urlPrefix = buildUrlPrefix() + "/services/data/v58.0/query/";
-        String query = buildQuery(reportType);
         String startingUrl = urlPrefix + query;
         log.info("Final URL to decorate: {}",startingUrl);
         return startingUrl;
     }
 
-    private String buildQuery(String reportType) {
+    private String buildQuery(String reportType, @Nullable Instant modifiedSince) {
+        String query = "?" + "q=" + buildSoql(reportType, modifiedSince);
+        log.info("Final query: {}",query);
+        return query;
+    }
 
+    private String buildSoql(String reportType, @Nullable Instant modifiedSince) {
         List<String> attributes = salesforceStateRepository.getSalesforceAttributesByReportType(reportType);
-        System.out.println("attributes: " + attributes);
+        log.debug("attributes: {}", attributes);
         //String attributes = "Name,NumberOfEmployees";
-        String query = "?" + "q=" + "SELECT " + attributes.get(0) + " from "+ reportType;
-        log.info("Final query: {}",query);
-        return query;
+        String soql = "SELECT " + attributes.get(0) + " from "+ reportType;
+        if (modifiedSince != null) {
+            //SOQL datetime literals are unquoted and take no fraction of a second
+            soql = soql + " WHERE " + salesforceConfig.incrementalField + " >= " + modifiedSince.truncatedTo(ChronoUnit.SECONDS);
+        }
+        return soql;
     }
 
 
-    private String buildBaseUrlWithNextRecordsUrl(String nextRecordsUrl, String reportType) {
+    private String buildBaseUrlWithNextRecordsUrl(String nextRecordsUrl, String query) {
         String urlPrefix = buildUrlPrefix() + nextRecordsUrl;
-        String query = buildQuery(reportType);
         String startingUrl = urlPrefix + query;
         log.info("Final URL to decorate: {}",startingUrl);
         return startingUrl;
@@ -1,15 +1,12 @@
 package com.target.kelsaapi.common.service.snapchat;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.exceptions.PaginationException;
 import com.target.kelsaapi.common.exceptions.SnapChatException;
 import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.snapchat.SnapChatAdAccounts;
@@ -20,8 +17,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Map;
 
 import static com.target.kelsaapi.common.util.SnapChatUtils.*;
 
@@ -35,9 +32,12 @@ public class SnapChatServiceImpl implements SnapChatService {
 
     final private String AD_ACCOUNTS = "adaccounts";
 
+    final private SerializerRegistry serializers;
+
     @Autowired
-    public SnapChatServiceImpl(HttpService httpService, PipelineConfig config) {
+    public SnapChatServiceImpl(HttpService httpService, PipelineConfig config, SerializerRegistry serializers) {
         this.httpService = httpService;
+        this.serializers = serializers;
         this.snapChatConfig = config.apiconfig.source.snapchat;
     }
 
@@ -112,8 +112,7 @@ public class SnapChatServiceImpl implements SnapChatService {
         ArrayList<SnapChatAdAccounts.AdAccount> returnable = new ArrayList<>();
         ArrayList<String> response = getResponse(oauth, url,"paging/next_link");
         response.forEach(json -> {
-            Gson gson = new GsonBuilder().create();
-            SnapChatAdAccounts adAccounts = gson.fromJson(json, SnapChatAdAccounts.class);
+            SnapChatAdAccounts adAccounts = serializers.gson().fromJson(json, SnapChatAdAccounts.class);
             SnapChatAdAccounts.SnapChatAdAccount[] accountArray = adAccounts.getAdaccounts();
             for (SnapChatAdAccounts.SnapChatAdAccount account : accountArray) {
                 returnable.add(account.getAdaccount());
@@ -130,8 +129,7 @@ public class SnapChatServiceImpl implements SnapChatService {
             log.warn("Last request made resulted in no data from API. Skipping and will not retry");
         } else {
             result.add(deserializeResponse);
-            ObjectMapper mapper = new ObjectMapper();
-            String nextLink = getNextLink(deserializeResponse, mapper, attributePathInMessage);
+            String nextLink = getNextLink(deserializeResponse, serializers.objectMapper(), attributePathInMessage);
             int nextLinkCounter = 0;
             while (true) {
                 if (nextLink != null && !nextLink.trim().isEmpty() && !nextLink.trim().equals("[]")) {
@@ -139,7 +137,7 @@ public class SnapChatServiceImpl implements SnapChatService {
                     log.info("Next link counter: {}", nextLinkCounter);
                     deserializeResponse = callApi(oauth, nextLink);
                     result.add(deserializeResponse);
-                    nextLink = getNextLink(deserializeResponse, mapper, attributePathInMessage);
+                    nextLink = getNextLink(deserializeResponse, serializers.objectMapper(), attributePathInMessage);
                 } else {
                     log.info("Total number of pages processed : {}", nextLinkCounter + 1);
                     break;
@@ -156,11 +154,10 @@ public class SnapChatServiceImpl implements SnapChatService {
     private String callApi(Oauth oauth, String url) {
 
         log.debug("url Details: {}", url);
-        Map<String, String> headers = setHttpHeaders(oauth);
         HttpCustomResponse response = null;
         try {
-            response = httpService.get(url, headers);
-        } catch (HttpException | HttpRetryableException e) {
+            response = oauth.withTokenRetry(token -> httpService.get(url, setHttpHeaders(token)));
+        } catch (IOException e) {
             log.error(e.getMessage());
         }
 
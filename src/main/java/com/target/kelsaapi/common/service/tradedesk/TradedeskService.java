@@ -1,23 +1,21 @@
 package com.target.kelsaapi.common.service.tradedesk;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.vo.Oauth;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 public interface TradedeskService {
-    Map<String, String> setHeaderMap(Oauth oauth);
+    Map<String, String> setHeaderMap(String token);
 
-    String getReportDownloadLink(Map<String, String> headersMap, String startDate, String partnerId, int reportId, String baseUrl, String endpoint) throws HttpException, JsonProcessingException;
+    String getReportDownloadLink(Oauth oauth, String startDate, String partnerId, int reportId, String baseUrl, String endpoint) throws IOException;
 
-    String getReportDownload(Map<String, String> headersMap, String downloadLinkUrl) throws HttpException, HttpRetryableException;
+    Long downloadReport(Oauth oauth, String downloadLinkUrl, String localFilePath) throws IOException;
 
-    String getEndPointData(Map<String, String> headersMap, String partnerId, String baseUrl, String endpoint, int startIndex, int pageSize) throws HttpException, JsonProcessingException;
+    String getEndPointData(Oauth oauth, String partnerId, String baseUrl, String endpoint, int startIndex, int pageSize) throws IOException;
 
-    List<String> getApiDataWithPagination(Map<String, String> headersMap, String partnerId, String baseUrl, String endpoint) throws HttpException, HttpRetryableException, JsonProcessingException;
+    List<String> getApiDataWithPagination(Oauth oauth, String partnerId, String baseUrl, String endpoint) throws IOException;
 
-    List<String> getAllAdvertiserIds(Map<String, String> headersMap, String partnerId, String baseUrl, String endpoint) throws HttpException, HttpRetryableException, JsonProcessingException;
+    List<String> getAllAdvertiserIds(Oauth oauth, String partnerId, String baseUrl, String endpoint) throws IOException;
 }
@@ -5,8 +5,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.exceptions.NotFoundException;
 import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
@@ -21,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -40,17 +39,17 @@ public class TradedeskServiceImpl implements TradedeskService {
     }
 
     @Override
-    public Map<String, String> setHeaderMap(Oauth oauth) {
+    public Map<String, String> setHeaderMap(String token) {
 
         Map<String, String> headersMap = new LinkedHashMap<>();
-        headersMap.put("TTD-Auth", oauth.getOAuthToken());
+        headersMap.put("TTD-Auth", token);
         headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
         headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
         return headersMap;
     }
 
     @Override
-    public String getReportDownloadLink(Map<String, String> headersMap, String startDate, String partnerId, int reportId, String baseUrl, String endpoint) throws HttpException, JsonProcessingException {
+    public String getReportDownloadLink(Oauth oauth, String startDate, String partnerId, int reportId, String baseUrl, String endpoint) throws IOException {
         log.debug("Tradedesk baseUrl: " + baseUrl);
         log.debug("Tradedesk endpoint: " + endpoint);
 
@@ -63,7 +62,8 @@ public class TradedeskServiceImpl implements TradedeskService {
         bodyMap.put("PageStartIndex", "0");
         bodyMap.put("PageSize", "100");
 
-        HttpCustomResponse response = httpService.post(baseUrl+endpoint, headersMap, mapper.writeValueAsString(bodyMap));
+        String body = mapper.writeValueAsString(bodyMap);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.post(baseUrl+endpoint, setHeaderMap(token), body));
         String downloadUrl = null;
         if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
             log.info("Successfully retrieved recent report runs to download.");
@@ -109,18 +109,18 @@ public class TradedeskServiceImpl implements TradedeskService {
     }
 
     @Override
-    public String getReportDownload(Map<String, String> headersMap, String downloadLinkUrl) throws HttpException, HttpRetryableException {
-        String reportContents = null;
-        HttpCustomResponse response = httpService.get(downloadLinkUrl, headersMap);
-        if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
-            log.info("Success response while getting the downloadable report contents");
-            reportContents = response.getBody();
-        }
-        return reportContents;
+    public Long downloadReport(Oauth oauth, String downloadLinkUrl, String localFilePath) throws IOException {
+        Long bytes = oauth.withTokenRetry(token -> {
+            Map<String, String> headersMap = setHeaderMap(token);
+            headersMap.remove("Content-Type");
+            return httpService.download(downloadLinkUrl, headersMap, localFilePath, true);
+        });
+        log.info("Success response while streaming the downloadable report contents to {}", localFilePath);
+        return bytes;
     }
 
     @Override
-    public List<String> getApiDataWithPagination(Map<String, String> headersMap, String partnerId, String baseUrl, String endpoint) throws HttpException, JsonProcessingException {
+    public List<String> getApiDataWithPagination(Oauth oauth, String partnerId, String baseUrl, String endpoint) throws IOException {
 
         int startIndex = 0;
         int pageSize = 1000;
@@ -131,7 +131,7 @@ public class TradedeskServiceImpl implements TradedeskService {
         ObjectMapper objectMapper = new ObjectMapper();
 
         do {
-            apiData = getEndPointData(headersMap, partnerId, baseUrl, endpoint, startIndex, pageSize);
+            apiData = getEndPointData(oauth, partnerId, baseUrl, endpoint, startIndex, pageSize);
 
 
             JsonNode jsonNode = objectMapper.readTree(apiData);
@@ -153,9 +153,9 @@ public class TradedeskServiceImpl implements TradedeskService {
     }
 
     @Override
-    public List<String> getAllAdvertiserIds(Map<String, String> headersMap, String advertiserId, String baseUrl, String endpoint ) throws HttpException, JsonProcessingException {
+    public List<String> getAllAdvertiserIds(Oauth oauth, String advertiserId, String baseUrl, String endpoint ) throws IOException {
 
-        List<String> data = getApiDataWithPagination(headersMap, advertiserId, baseUrl, endpoint);
+        List<String> data = getApiDataWithPagination(oauth, advertiserId, baseUrl, endpoint);
         List<String> advertiserIds = new ArrayList<>();
         for (String advertiserData : data) {
             advertiserIds.addAll(parseAdvertiserData(advertiserData));
@@ -175,7 +175,7 @@ public class TradedeskServiceImpl implements TradedeskService {
 
 
     @Override
-    public String getEndPointData(Map<String, String> headersMap, String partnerId, String baseUrl, String endpoint, int startIndex, int pageSize) throws HttpException, JsonProcessingException {
+    public String getEndPointData(Oauth oauth, String partnerId, String baseUrl, String endpoint, int startIndex, int pageSize) throws IOException {
         log.debug("Tradedesk api baseURL: {} ", baseUrl);
         log.debug("Tradedesk api endpoint: {}", endpoint);
 
@@ -189,7 +189,8 @@ public class TradedeskServiceImpl implements TradedeskService {
         bodyMap.put("PageStartIndex", startIndex);
         bodyMap.put("PageSize", pageSize);
 
-        HttpCustomResponse response = httpService.post(baseUrl+endpoint, headersMap, mapper.writeValueAsString(bodyMap));
+        String body = mapper.writeValueAsString(bodyMap);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.post(baseUrl+endpoint, setHeaderMap(token), body));
 
         if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
             log.info("Successfully retrieved data from api");
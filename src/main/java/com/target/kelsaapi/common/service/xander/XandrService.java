@@ -2,22 +2,24 @@ package com.target.kelsaapi.common.service.xander;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.xandr.Report;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 public interface XandrService {
 
-    Map<String, String> setHeaderMap(Oauth oauth);
+    Map<String, String> setHeaderMap(String token);
 
-    String requestReport(Map<String, String> headersMap, JsonNode bodyMap, String baseUrl, String endpoint) throws HttpException, JsonProcessingException;
+    String requestReport(Oauth oauth, JsonNode bodyMap, String baseUrl, String endpoint) throws IOException;
 
-    String getReportStatus(Map<String, String> headersMap, String baseUrl, String endpoint, String reportId) throws HttpException, HttpRetryableException;
+    String getReportStatus(Oauth oauth, String baseUrl, String endpoint, String reportId) throws IOException;
 
-    String downloadReport(Map<String, String> headersMap, String baseUrl, String endpoint, String reportId) throws HttpException, HttpRetryableException ;
+    Long downloadReport(Oauth oauth, String baseUrl, String endpoint, String reportId, String localFilePath) throws IOException;
+
+    void waitForReport(Oauth oauth, String baseUrl, String endpoint, String reportId) throws IOException, TimeoutException, InterruptedException;
 
     JsonNode setBodyMap(Report report, String reportType) throws JsonProcessingException;
 
@@ -5,13 +5,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.target.kelsaapi.common.exceptions.HttpException;
-import com.target.kelsaapi.common.exceptions.HttpRetryableException;
-import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.xandr.Report;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.core5.http.ContentType;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,26 +17,41 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.target.kelsaapi.common.util.CommonUtils.valueOrDefault;
 
 @Slf4j
 @Service("xandrService")
 public class XandrServiceImpl implements XandrService{
+    private static final int DEFAULT_POLL_INTERVAL_SECONDS = 5;
+
+    private static final int DEFAULT_MAX_POLL_INTERVAL_SECONDS = 30;
+
+    private static final int DEFAULT_REPORT_TIMEOUT_MINUTES = 15;
+
     private final HttpService httpService;
 
+    private final PipelineConfig.Xandr xandrConfig;
+
     ObjectMapper mapper = new ObjectMapper();
 
     @Autowired
-    public XandrServiceImpl(HttpService httpService, LocalFileWriterService localFileWriterService) {
+    public XandrServiceImpl(HttpService httpService, PipelineConfig config) {
         this.httpService = httpService;
+        this.xandrConfig = config.getApiconfig().getSource().getXandr();
     }
 
     @Override
-    public Map<String, String> setHeaderMap(Oauth oauth) {
+    public Map<String, String> setHeaderMap(String token) {
 
         Map<String, String> headersMap = new LinkedHashMap<>();
-        headersMap.put("Authorization", oauth.getOAuthToken());
+        headersMap.put("Authorization", token);
         headersMap.put("Accept", MediaType.APPLICATION_JSON_VALUE);
         headersMap.put("Content-Type", ContentType.APPLICATION_JSON.toString());
         return headersMap;
@@ -59,10 +72,10 @@ public class XandrServiceImpl implements XandrService{
     }
 
     @Override
-    public String getReportStatus(Map<String, String> headersMap, String baseUrl, String endpoint, String reportId) throws HttpException, HttpRetryableException {
+    public String getReportStatus(Oauth oauth, String baseUrl, String endpoint, String reportId) throws IOException {
         String url = baseUrl+endpoint+"?id="+reportId;
         log.info("Xandr - report status url: "+url);
-        HttpCustomResponse response = httpService.get(url, headersMap);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.get(url, setHeaderMap(token)));
         String report_status = null;
 
         if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
@@ -82,11 +95,12 @@ public class XandrServiceImpl implements XandrService{
     }
 
     @Override
-    public String requestReport(Map<String, String> headersMap, JsonNode bodyMap, String baseUrl, String endpoint) throws HttpException, JsonProcessingException {
+    public String requestReport(Oauth oauth, JsonNode bodyMap, String baseUrl, String endpoint) throws IOException {
         log.debug("Xandr baseUrl: " + baseUrl);
         log.debug("Xandr endpoint: " + endpoint);
 
-        HttpCustomResponse response = httpService.post(baseUrl+endpoint, headersMap, mapper.writeValueAsString(bodyMap));
+        String body = mapper.writeValueAsString(bodyMap);
+        HttpCustomResponse response = oauth.withTokenRetry(token -> httpService.post(baseUrl+endpoint, setHeaderMap(token), body));
         String report_id = null;
         if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
             log.info("Successfully requested report to download");
@@ -100,23 +114,50 @@ public class XandrServiceImpl implements XandrService{
         return report_id;
     }
 
+    /**
+     * Polls the report status until it is ready. The first poll happens after {@link PipelineConfig.Xandr#pollIntervalSeconds}
+     * and each following wait grows by half, up to {@link PipelineConfig.Xandr#maxPollIntervalSeconds}. Every wait is
+     * jittered by up to a quarter either way so concurrent runs don't poll in lockstep.
+     *
+     * @throws TimeoutException If the report is not ready within {@link PipelineConfig.Xandr#reportTimeoutMinutes}.
+     */
     @Override
-    public String downloadReport(Map<String, String> headersMap, String baseUrl, String endpoint, String reportId) throws HttpException, HttpRetryableException {
+    public void waitForReport(Oauth oauth, String baseUrl, String endpoint, String reportId)
+            throws IOException, TimeoutException, InterruptedException {
+        long pollIntervalMillis = TimeUnit.SECONDS.toMillis(valueOrDefault(xandrConfig.pollIntervalSeconds, DEFAULT_POLL_INTERVAL_SECONDS));
+        long maxPollIntervalMillis = TimeUnit.SECONDS.toMillis(valueOrDefault(xandrConfig.maxPollIntervalSeconds, DEFAULT_MAX_POLL_INTERVAL_SECONDS));
+        int timeoutMinutes = valueOrDefault(xandrConfig.reportTimeoutMinutes, DEFAULT_REPORT_TIMEOUT_MINUTES);
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        while (true) {
+            long sleepMillis = (long) (pollIntervalMillis * ThreadLocalRandom.current().nextDouble(0.75, 1.25));
+            if (System.currentTimeMillis() + sleepMillis > deadline) {
+                log.error("Xandr - TimeOut error.. waited for {} minutes still the report is not ready. Report id: {}",
+                        timeoutMinutes, reportId);
+                throw new TimeoutException("Xandr - api Time out exception while waiting for the report: "+reportId);
+            }
+            Thread.sleep(sleepMillis);
+            String reportStatus = getReportStatus(oauth, baseUrl, endpoint, reportId);
+            if ("ready".equalsIgnoreCase(reportStatus)) {
+                log.info("Xandr - report {} is ready", reportId);
+                return;
+            }
+            log.info("Xandr - report {} status is {}, polling again", reportId, reportStatus);
+            pollIntervalMillis = Math.min((long) (pollIntervalMillis * 1.5), maxPollIntervalMillis);
+        }
+    }
+
+    @Override
+    public Long downloadReport(Oauth oauth, String baseUrl, String endpoint, String reportId, String localFilePath)
+            throws IOException {
 
         String url = baseUrl+endpoint+"?id="+reportId;
         log.info("Xandr - report download url: "+url);
-        HttpCustomResponse response = httpService.get(url, headersMap);
-        String data = null;
-        if (response.getStatusCode().equals((long) HttpStatus.OK.value())) {
-
-            log.info("Xandr - Successfully retrieved recent report runs to download.");
-            data = response.getBody();
-        }else {
-
-            log.error("Xandr - http response status code: {}", response.getStatusCode().toString());
-            log.error(response.getBody());
-        }
-        return data;
+        Long bytes = oauth.withTokenRetry(token -> {
+            Map<String, String> headersMap = setHeaderMap(token);
+            headersMap.remove("Content-Type");
+            return httpService.download(url, headersMap, localFilePath, true);
+        });
+        log.info("Xandr - Successfully downloaded report {} to {}", reportId, localFilePath);
+        return bytes;
     }
-
-}
\ No newline at end of file
+}
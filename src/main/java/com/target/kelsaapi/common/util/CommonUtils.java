@@ -1,13 +1,15 @@
 package com.target.kelsaapi.common.util;
 
 import com.google.api.client.util.BackOff;
-import com.google.api.client.util.ExponentialBackOff;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.service.metrics.PipelineStopWatch;
+import com.target.kelsaapi.common.service.resilience.DecorrelatedJitterBackOff;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StopWatch;
+import org.springframework.util.backoff.BackOffExecution;
 
 import java.io.File;
 import java.io.IOException;
@@ -51,6 +53,30 @@ public class CommonUtils {
         stopWatch.start(message);
     }
 
+    /**
+     * Records the bytes moved by the current stage, when the stop watch reports stages as metrics.
+     *
+     * @param stopWatch The stop watch of the pipeline run.
+     * @param bytes The number of bytes read or written.
+     */
+    public static void recordStageBytes(StopWatch stopWatch, Long bytes) {
+        if (bytes != null && stopWatch instanceof PipelineStopWatch pipelineStopWatch) {
+            pipelineStopWatch.recordBytes(bytes);
+        }
+    }
+
+    /**
+     * Records the rows moved by the current stage, when the stop watch reports stages as metrics.
+     *
+     * @param stopWatch The stop watch of the pipeline run.
+     * @param rows The number of rows or records read or written.
+     */
+    public static void recordStageRows(StopWatch stopWatch, Long rows) {
+        if (rows != null && stopWatch instanceof PipelineStopWatch pipelineStopWatch) {
+            pipelineStopWatch.recordRows(rows);
+        }
+    }
+
 
     public static String prettyPrintStopWatchSeconds(StopWatch stopWatch) {
         NumberFormat nf = NumberFormat.getNumberInstance();
@@ -220,13 +246,33 @@ public class CommonUtils {
         return startBackOff(DEFAULT_INITIAL_INTERVAL, DEFAULT_MAX_RETRY_INTERVAL, DEFAULT_TOTAL_TIME_TO_WAIT);
     }
 
+    /**
+     * Starts a decorrelated jitter back off, so that the polling loops of concurrent runs which failed together do
+     * not retry together.
+     *
+     * @param initialWaitTimeBetweenRetries The shortest wait in milliseconds.
+     * @param maxWaitTimeBetweenRetries The longest single wait in milliseconds.
+     * @param totalTimeToWait The longest total wait in milliseconds, after which {@link BackOff#STOP} is returned.
+     * @return The back off.
+     */
     public static BackOff startBackOff(int initialWaitTimeBetweenRetries, int maxWaitTimeBetweenRetries, int totalTimeToWait) {
-        return new ExponentialBackOff.Builder()
-            .setInitialIntervalMillis(initialWaitTimeBetweenRetries)
-            .setMaxIntervalMillis(maxWaitTimeBetweenRetries)
-            .setMaxElapsedTimeMillis(totalTimeToWait)
-            .build();
+        DecorrelatedJitterBackOff jitter = new DecorrelatedJitterBackOff(initialWaitTimeBetweenRetries,
+                maxWaitTimeBetweenRetries, totalTimeToWait);
+        return new BackOff() {
+
+            private BackOffExecution execution = jitter.start();
 
+            @Override
+            public void reset() {
+                execution = jitter.start();
+            }
+
+            @Override
+            public long nextBackOffMillis() {
+                long next = execution.nextBackOff();
+                return next == BackOffExecution.STOP ? BackOff.STOP : next;
+            }
+        };
     }
 
     public static String generateTempFilePathAndName(String pipelineRunId, ApplicationConstants.Sources source, @Nullable String reportType) throws ConfigurationException, IOException {
@@ -267,4 +313,37 @@ public class CommonUtils {
         sdf.setLenient(false);
         sdf.parse(date);
     }
+
+    /**
+     * Reads an optional positive setting from {@link com.target.kelsaapi.pipelines.config.PipelineConfig}.
+     *
+     * @param configured The configured value, which may be missing.
+     * @param defaultValue The value to use when the setting is missing, zero or negative.
+     * @return The configured value if it is positive, otherwise the default.
+     */
+    public static int valueOrDefault(@Nullable Integer configured, int defaultValue) {
+        return configured != null && configured > 0 ? configured : defaultValue;
+    }
+
+    /**
+     * Reads an optional positive setting from {@link com.target.kelsaapi.pipelines.config.PipelineConfig}.
+     *
+     * @param configured The configured value, which may be missing.
+     * @param defaultValue The value to use when the setting is missing, zero or negative.
+     * @return The configured value if it is positive, otherwise the default.
+     */
+    public static long valueOrDefault(@Nullable Long configured, long defaultValue) {
+        return configured != null && configured > 0 ? configured : defaultValue;
+    }
+
+    /**
+     * Reads an optional setting for which zero is meaningful, such as a delay which can be switched off.
+     *
+     * @param configured The configured value, which may be missing.
+     * @param defaultValue The value to use when the setting is missing or negative.
+     * @return The configured value if it is zero or more, otherwise the default.
+     */
+    public static int nonNegativeOrDefault(@Nullable Integer configured, int defaultValue) {
+        return configured != null && configured >= 0 ? configured : defaultValue;
+    }
 }
@@ -0,0 +1,52 @@
+package com.target.kelsaapi.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utility methods for copying streams straight to local files without holding the contents in memory.
+ *
+ * @since 1.0
+ */
+@Slf4j
+public class FileStreamUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileStreamUtils() {}
+
+    /**
+     * Copies an input stream into a local file through a {@link FileChannel}, optionally gzipping on the way.
+     * Any existing file at the path is truncated first, so the copy can be safely retried.
+     *
+     * @param inputStream The stream to copy. It is not closed by this method.
+     * @param localFilePath The file to write to.
+     * @param compress True to gzip the contents while writing.
+     * @return The number of uncompressed bytes read from the input stream.
+     * @throws IOException If reading the stream or writing the file fails.
+     */
+    public static long copyToFile(InputStream inputStream, String localFilePath, Boolean compress) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(localFilePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream outputStream = wrap(Channels.newOutputStream(channel), compress)) {
+            long bytes = IOUtils.copyLarge(inputStream, outputStream, new byte[BUFFER_SIZE]);
+            log.info("Streamed {} bytes to {}", bytes, localFilePath);
+            return bytes;
+        }
+    }
+
+    private static OutputStream wrap(OutputStream channelStream, Boolean compress) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(channelStream, BUFFER_SIZE);
+        return Boolean.TRUE.equals(compress) ? new GzipCompressorOutputStream(buffered) : buffered;
+    }
+}
@@ -0,0 +1,167 @@
+package com.target.kelsaapi.common.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Reads the values at a few JSON pointers, such as pagination cursors, out of an API response in a single streaming
+ * pass. Only the subtrees on the way to a configured path are walked; everything else is skipped by the parser without
+ * building a tree, and the pass ends as soon as every path was found.
+ * <p>
+ * Optionally, the elements of one records array are copied to a writer in the same pass, one JSON document per line.
+ */
+public class JsonCursorExtractor {
+
+    private final JsonFactory factory;
+
+    private final Set<String> paths;
+
+    @Nullable
+    private final String recordsPath;
+
+    /**
+     * @param factory The factory to create parsers with, usually the one of the caller's ObjectMapper.
+     * @param paths JSON pointers of the scalar values to extract. A missing leading slash is added.
+     */
+    public JsonCursorExtractor(JsonFactory factory, Collection<String> paths) {
+        this(factory, paths, null);
+    }
+
+    /**
+     * @param factory The factory to create parsers and generators with.
+     * @param paths JSON pointers of the scalar values to extract. A missing leading slash is added.
+     * @param recordsPath JSON pointer of the array whose elements {@link #extract(String, Writer)} copies to its writer.
+     */
+    public JsonCursorExtractor(JsonFactory factory, Collection<String> paths, @Nullable String recordsPath) {
+        this.factory = factory;
+        this.paths = new HashSet<>();
+        for (String path : paths) {
+            this.paths.add(normalize(path));
+        }
+        this.recordsPath = recordsPath == null ? null : normalize(recordsPath);
+    }
+
+    /**
+     * @param path A JSON pointer, with or without its leading slash.
+     * @return The pointer with a leading slash.
+     * @throws IllegalArgumentException If the path is not a valid JSON pointer.
+     */
+    public static String normalize(String path) {
+        String pointer = path.isEmpty() || path.startsWith("/") ? path : "/" + path;
+        return JsonPointer.compile(pointer).toString();
+    }
+
+    /**
+     * @param json The JSON document.
+     * @return The text of each configured path found, keyed by its normalized pointer. Paths which are missing, or which
+     * point to an object or array, are left out.
+     * @throws JsonProcessingException If the document is not valid JSON.
+     */
+    public Map<String, String> extract(String json) throws JsonProcessingException {
+        try {
+            return extract(json, null);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            //Without a writer the only source read from is the String itself
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param json The JSON document.
+     * @param recordsWriter The writer to copy the records array to, or null to only extract the paths.
+     * @return The text of each configured path found, keyed by its normalized pointer.
+     */
+    public Map<String, String> extract(String json, @Nullable Writer recordsWriter) throws IOException {
+        Map<String, String> found = new HashMap<>();
+        try (JsonParser parser = factory.createParser(json);
+             JsonGenerator generator = recordsWriter == null || recordsPath == null ? null : factory.createGenerator(recordsWriter)) {
+            if (generator != null) {
+                //Records are separated by the newlines written below, not by the default space
+                generator.setRootValueSeparator(null);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            }
+            if (parser.nextToken() != null) {
+                readValue(parser, "", found, generator);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads the value the parser is positioned on, which lives at the given pointer.
+     *
+     * @return False once there is nothing left to look for, so that the caller can stop reading.
+     */
+    private boolean readValue(JsonParser parser, String pointer, Map<String, String> found,
+                              @Nullable JsonGenerator generator) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (generator != null && pointer.equals(recordsPath) && token == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                generator.copyCurrentStructure(parser);
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            return true;
+        }
+        if (!onTheWay(pointer, generator != null)) {
+            parser.skipChildren();
+            return true;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String child = pointer + "/" + escape(parser.currentName());
+                parser.nextToken();
+                if (!readValue(parser, child, found, generator)) {
+                    return false;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (!readValue(parser, pointer + "/" + index++, found, generator)) {
+                    return false;
+                }
+            }
+        } else if (paths.contains(pointer) && token != JsonToken.VALUE_NULL) {
+            found.put(pointer, parser.getText());
+        }
+        return generator != null || found.size() < paths.size();
+    }
+
+    /**
+     * @return True if the pointer is a configured path or an ancestor of one.
+     */
+    private boolean onTheWay(String pointer, boolean streamingRecords) {
+        if (streamingRecords && isAncestorOrSelf(pointer, recordsPath)) {
+            return true;
+        }
+        for (String path : paths) {
+            if (isAncestorOrSelf(pointer, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestorOrSelf(String pointer, String path) {
+        return path.startsWith(pointer) && (path.length() == pointer.length() || path.charAt(pointer.length()) == '/');
+    }
+
+    private static String escape(String name) {
+        if (name.indexOf('~') < 0 && name.indexOf('/') < 0) {
+            return name;
+        }
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,111 @@
+package com.target.kelsaapi.common.util;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The (key, etag) pairs of the S3 objects already loaded for a report type, as recorded in mdf_s3_objectsummary,
+ * indexed by key so that diffing the objects currently under a prefix against them takes one lookup per object.
+ * <p>
+ * Almost every key was only ever loaded with a single etag, so the etag is stored as is and only keys loaded in more
+ * than one version get a set. Keys and etags are trimmed, as the table may hold padded values.
+ */
+public final class S3EtagIndex {
+
+    //Either the single etag of a key, or the Set of its etags
+    private final Map<String, Object> etagsByKey;
+
+    private int size;
+
+    public S3EtagIndex() {
+        this(16);
+    }
+
+    /**
+     * @param expectedKeys The number of keys expected, to size the index up front.
+     */
+    public S3EtagIndex(int expectedKeys) {
+        this.etagsByKey = new HashMap<>(Math.max(16, (int) (expectedKeys / 0.75f) + 1));
+    }
+
+    /**
+     * @param loaded The previously loaded objects.
+     * @return An index of their keys and etags.
+     */
+    public static S3EtagIndex of(List<S3ObjectSummaryState> loaded) {
+        S3EtagIndex index = new S3EtagIndex(loaded.size());
+        for (S3ObjectSummaryState state : loaded) {
+            index.add(state.getKey(), state.getEtag());
+        }
+        return index;
+    }
+
+    /**
+     * Records a loaded object. Null keys or etags are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void add(String key, String etag) {
+        if (key == null || etag == null) {
+            return;
+        }
+        String trimmedKey = key.trim();
+        String trimmedEtag = etag.trim();
+        Object existing = etagsByKey.putIfAbsent(trimmedKey, trimmedEtag);
+        if (existing == null) {
+            size++;
+        } else if (existing instanceof String existingEtag) {
+            if (!existingEtag.equals(trimmedEtag)) {
+                Set<String> etags = new HashSet<>(4);
+                etags.add(existingEtag);
+                etags.add(trimmedEtag);
+                etagsByKey.put(trimmedKey, etags);
+                size++;
+            }
+        } else if (((Set<String>) existing).add(trimmedEtag)) {
+            size++;
+        }
+    }
+
+    /**
+     * @return True if the object with this key was loaded with this etag.
+     */
+    public boolean contains(String key, String etag) {
+        if (key == null || etag == null) {
+            return false;
+        }
+        Object existing = etagsByKey.get(key.trim());
+        if (existing == null) {
+            return false;
+        }
+        String trimmedEtag = etag.trim();
+        return existing instanceof String existingEtag ? existingEtag.equals(trimmedEtag) : ((Set<?>) existing).contains(trimmedEtag);
+    }
+
+    /**
+     * @param current The objects currently under the prefix.
+     * @return The objects which are new, or whose content changed since they were loaded, in their original order.
+     */
+    public List<S3ObjectSummary> newOrChanged(List<S3ObjectSummary> current) {
+        List<S3ObjectSummary> newOrChanged = new ArrayList<>();
+        for (S3ObjectSummary objectSummary : current) {
+            if (!contains(objectSummary.getKey(), objectSummary.getETag())) {
+                newOrChanged.add(objectSummary);
+            }
+        }
+        return newOrChanged;
+    }
+
+    /**
+     * @return The number of distinct (key, etag) pairs.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -5,13 +5,15 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
 import com.target.kelsaapi.common.exceptions.AuthenticationException;
+import com.target.kelsaapi.common.service.postgres.s3.S3JdbcRepository;
 import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.*;
+import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -20,8 +22,11 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.TimeZone;
 
 @Slf4j
@@ -60,108 +65,6 @@ public class S3Utils implements textFormatterInterface {
 
     }
 
-    public static List<S3ObjectSummary> getListOfFilesObjectsFromFolder( AmazonS3 s3Client,String bucket_name, String folderKey) throws AuthenticationException {
-
-        ListObjectsRequest listObjectsRequest =
-                new ListObjectsRequest()
-                        .withBucketName(bucket_name)
-                        .withPrefix(folderKey);
-        List<S3ObjectSummary> objSummaries = new ArrayList<>();
-        try {
-            ObjectListing objects = s3Client.listObjects(listObjectsRequest);
-            objSummaries = objects.getObjectSummaries();
-        }
-        catch (AmazonServiceException ase) {
-            log.error("AmazonServiceException");
-            log.error("Error Message:    " + ase.getMessage());
-            log.error("HTTP Status Code: " + ase.getStatusCode());
-            log.error("AWS Error Code:   " + ase.getErrorCode());
-            log.error("Error Type:       " + ase.getErrorType());
-            log.error("Request ID:       " + ase.getRequestId());
-        } catch (AmazonClientException ace) {
-            log.error("AmazonClientException,an internal error while trying to communicate with S3");
-            throw new AuthenticationException(ace.getMessage(), ace.getCause());
-        }
-
-        log.info("list of object summary found:" + objSummaries.toString());
-
-        return objSummaries;
-
-    }
-
-    public static List<String> getBulkListOfFilesObjectsFromFolder(AmazonS3 s3Client,String bucketName, String folderKey) {
-
-        ListObjectsRequest listObjectsRequest = new ListObjectsRequest()
-                .withBucketName(bucketName)
-                .withPrefix(folderKey );
-        List<String> keys = new ArrayList<>();
-        try {
-            ObjectListing objects = s3Client.listObjects(listObjectsRequest);
-            for (; ; ) {
-                List<S3ObjectSummary> summaries = objects.getObjectSummaries();
-                if (summaries.size() < 1) {
-                    break;
-                }
-                //summaries.forEach(s -> keys.add(s.getKey()));
-                for (S3ObjectSummary objectSummary :
-                        summaries) {
-                    keys.add(objectSummary.getKey());
-                    log.info(" - " + objectSummary.getKey() + "  " +
-                            "(size = " + objectSummary.getSize() +
-                            ")");
-                }
-                objects = s3Client.listNextBatchOfObjects(objects);
-            }
-        }
-        catch (AmazonServiceException ase) {
-            log.error("AmazonServiceException");
-            log.error("Error Message:    " + ase.getMessage());
-            log.error("HTTP Status Code: " + ase.getStatusCode());
-            log.error("AWS Error Code:   " + ase.getErrorCode());
-            log.error("Error Type:       " + ase.getErrorType());
-            log.error("Request ID:       " + ase.getRequestId());
-        } catch (AmazonClientException ace) {
-            log.error("AmazonClientException,an internal error while trying to communicate with S3");
-            log.error("Error Message: " + ace.getMessage());
-        }
-        return keys;
-    }
-
-    public static List<String> getBulkListOfFilesObjectsFromFolderUsingNextMarker(AmazonS3 s3Client,String bucketName, String folderKey) {
-
-        ListObjectsRequest listObjectsRequest = new ListObjectsRequest()
-                .withBucketName(bucketName)
-                .withPrefix(folderKey);
-        ObjectListing objectListing;
-        List<String> keys = new ArrayList<>();
-        try {
-            do {
-                objectListing = s3Client.listObjects(listObjectsRequest);
-                for (S3ObjectSummary objectSummary :
-                        objectListing.getObjectSummaries()) {
-                    keys.add(objectSummary.getKey());
-                    log.info(" - " + objectSummary.getKey() + "  " +
-                            "(size = " + objectSummary.getSize() +
-                            ")");
-                }
-                listObjectsRequest.setMarker(objectListing.getNextMarker());
-            } while (objectListing.isTruncated());
-        }
-        catch (AmazonServiceException ase) {
-            log.error("AmazonServiceException");
-            log.error("Error Message:    " + ase.getMessage());
-            log.error("HTTP Status Code: " + ase.getStatusCode());
-            log.error("AWS Error Code:   " + ase.getErrorCode());
-            log.error("Error Type:       " + ase.getErrorType());
-            log.error("Request ID:       " + ase.getRequestId());
-        } catch (AmazonClientException ace) {
-            log.error("AmazonClientException,an internal error while trying to communicate with S3");
-            log.error("Error Message: " + ace.getMessage());
-        }
-        return keys;
-
-    }
-
     public static List<File> listFileNames( String path,List<File> listOfFiles ) {
 
         File root = new File( path );
@@ -217,7 +120,7 @@ public class S3Utils implements textFormatterInterface {
 
         if (compareWithPrevLoadedFilesCheck) {
             differences = new ArrayList<>(curFilenames);
-            differences.removeAll(prevFilenames);
+            differences.removeAll(new HashSet<>(prevFilenames));
         }
         return differences;
 
@@ -227,13 +130,14 @@ public class S3Utils implements textFormatterInterface {
     public static List<S3ObjectSummary> diffCurPrevLoadedFiles(List<S3ObjectSummary> currFileObject,List prevFilenames,String reportType) {
 
         List<S3ObjectSummary> newObjectSummary = new ArrayList<>();
+        Set<?> prevFilenameSet = new HashSet<>(prevFilenames);
 
             for (S3ObjectSummary objectSummary : currFileObject) {
 
                 Path path = Paths.get(objectSummary.getKey());
                 String filename = path.getFileName().toString();
 
-                if (prevFilenames.contains(filename)) {
+                if (prevFilenameSet.contains(filename)) {
                     log.info(String.format(ANSI_YELLOW + "File %s has an entry in the PGDB(mdf_s3_processed_filenames) for the reporttype %s,indicating its already been processed," +
                             "so this file will not be downloaded.Delete the file from PGDB to reprocess",filename,reportType) + ANSI_RESET);
                 } else {
@@ -248,40 +152,34 @@ public class S3Utils implements textFormatterInterface {
     }
 
     public static List<S3ObjectSummary> curPrevLoadedFileObjectsEtagCheck(List<S3ObjectSummaryState> prevFileObject, List<S3ObjectSummary> currFileObject, String reportType) {
+        return curPrevLoadedFileObjectsEtagCheck(S3EtagIndex.of(prevFileObject), currFileObject, reportType);
+    }
 
-        S3ObjectSummaryState prevFileObjectSingle = null;
-        List<S3ObjectSummary> newObjectSummary = new ArrayList<>();
-        Boolean fileFound= false;
-
-        for (S3ObjectSummary objectSummary : currFileObject) {
-            log.info("Table mdf_s3_objectsummary row count size " + prevFileObject.size());
-            if (prevFileObject.size() > 0) {
-                for (int i = 0; i < prevFileObject.size(); i++) {
-                    prevFileObjectSingle = prevFileObject.get(i);
-//                    log.info("prev object etag and file " + prevFileObjectSingle.getEtag() + " " + prevFileObjectSingle.getKey() );
-//                    log.info("Curr etag and key" + " " + objectSummary.getETag() + " " +objectSummary.getKey());
-                    if (prevFileObjectSingle.getEtag().trim().equals(objectSummary.getETag().trim()) && prevFileObjectSingle.getKey().trim().equals(objectSummary.getKey().trim())) {
-                        log.info(String.format(ANSI_YELLOW + "File %s with etag %s has an entry in the PGDB(mdf_s3_objectsummary) for the reporttype %s,indicating the same file is already been processed" +
-                                " ,so this file will not be downloaded.Delete the file from PGDB to reprocess", prevFileObjectSingle.getKey(), prevFileObjectSingle.getEtag(), reportType) + ANSI_RESET);
-                        fileFound=true;
-                        break;
-                    }
-                }
-                if (!fileFound) {
-                    log.info(String.format(ANSI_GREEN +"File %s with etag %s does not have an entry the the PGDB(mdf_s3_objectsummary) for the reporttype %s," +
-                            "indicating its not already been processed,so this file will be downloaded", prevFileObjectSingle.getKey(), prevFileObjectSingle.getEtag(), reportType) + ANSI_RESET);
-                    newObjectSummary.add(objectSummary);
-                }
+    /**
+     * @param prevLoaded The index of the objects already loaded for the report type.
+     * @param currFileObject The objects currently under the prefix.
+     * @param reportType The report type, for logging.
+     * @return The objects whose key and etag were not loaded before, in their original order.
+     */
+    public static List<S3ObjectSummary> curPrevLoadedFileObjectsEtagCheck(S3EtagIndex prevLoaded, List<S3ObjectSummary> currFileObject, String reportType) {
 
-            } else {
-                log.info(String.format(ANSI_GREEN +"File %s with etag %s does not have an entry the the PGDB(mdf_s3_objectsummary) for the reporttype %s," +
-                        "indicating its not already been processed,so this file will be downloaded", objectSummary.getKey(), objectSummary.getETag(), reportType) + ANSI_RESET);
-                //newObjectSummary = currFileObject;
-                newObjectSummary.add(objectSummary);
-            }
+        log.info("Table mdf_s3_objectsummary row count size " + prevLoaded.size());
+        List<S3ObjectSummary> newObjectSummary = prevLoaded.newOrChanged(currFileObject);
 
+        if (log.isDebugEnabled()) {
+            for (S3ObjectSummary objectSummary : currFileObject) {
+                if (prevLoaded.contains(objectSummary.getKey(), objectSummary.getETag())) {
+                    log.debug("File {} with etag {} has an entry in the PGDB(mdf_s3_objectsummary) for the reporttype {}, so it will not be downloaded",
+                            objectSummary.getKey(), objectSummary.getETag(), reportType);
+                } else {
+                    log.debug("File {} with etag {} does not have an entry in the PGDB(mdf_s3_objectsummary) for the reporttype {}, so it will be downloaded",
+                            objectSummary.getKey(), objectSummary.getETag(), reportType);
+                }
             }
-
+        }
+        log.info(String.format(ANSI_GREEN + "%s of %s files under the prefix have no entry with the same etag in the PGDB(mdf_s3_objectsummary) for the reporttype %s," +
+                "indicating they have not been processed yet, so they will be downloaded. Delete a file's entry from PGDB to reprocess it",
+                newObjectSummary.size(), currFileObject.size(), reportType) + ANSI_RESET);
 
         return newObjectSummary;
     }
@@ -349,35 +247,29 @@ public class S3Utils implements textFormatterInterface {
         return ts;
     }
 
-    public static List<String> getListOfFilenames(Connection connect, String sourceReportType) throws SQLException {
+    public static List<String> getListOfFilenames(S3JdbcRepository s3JdbcRepository, String sourceReportType) {
 
         List<String> listOfFilenames = new ArrayList<String>();
-        String sql = String.format("select * from mdf_s3_processed_filenames where source_report_type = '%s'",sourceReportType);
-        System.out.println(sql);
-        try (Connection conn = connect;
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while(rs.next())
-            {
-                listOfFilenames.add(rs.getString("filenames"));
-            }
-
-        } catch (SQLException ex) {
+        try {
+            listOfFilenames = s3JdbcRepository.getProcessedFilenames(sourceReportType);
+        } catch (DataAccessException ex) {
             log.info(ex.getMessage());
         }
 
         return listOfFilenames;
     }
 
-    public static void insertFilenamesToDb(Connection connect, String sourceReportType,String filename) {
+    public static void insertFilenamesToDb(S3JdbcRepository s3JdbcRepository, String sourceReportType, String filename) {
 
-        //String sql = String.format("delete from mdf_s3_processed_filenames where source_report_type = '%s' and filenames='%s';insert into mdf_s3_processed_filenames(source_report_type,filenames) values('%s','%s')",sourceReportType,filename,sourceReportType,filename);
-        String sql = String.format("insert into mdf_s3_processed_filenames(source_report_type,filenames) values('%s','%s')",sourceReportType,filename);
-        log.info((sql));
-        try (Connection conn = connect;
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-        } catch (SQLException ex) {
+        insertFilenamesToDb(s3JdbcRepository, sourceReportType, List.of(filename));
+    }
+
+    public static void insertFilenamesToDb(S3JdbcRepository s3JdbcRepository, String sourceReportType, Collection<String> filenames) {
+
+        log.info("Recording {} processed filenames for {}", filenames.size(), sourceReportType);
+        try {
+            s3JdbcRepository.insertProcessedFilenames(sourceReportType, filenames);
+        } catch (DataAccessException ex) {
             log.info(ex.getMessage());
         }
 
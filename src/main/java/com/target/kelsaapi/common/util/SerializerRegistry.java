@@ -0,0 +1,101 @@
+package com.target.kelsaapi.common.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.target.kelsaapi.common.vo.google.response.admanager.delivery.GamJsonSerializationExclusionStrategy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Gson and Jackson serializers shared by every pipeline. Gson instances and a configured ObjectMapper are thread
+ * safe, and building them is the expensive part: reflection over every serialized class happens once per instance, so
+ * creating one per record made the GAM delivery report pay for it hundreds of thousands of times per run.
+ * <p>
+ * Spring beans get the registry injected from {@link com.target.kelsaapi.common.config.SerializerConfig}; value
+ * objects, which are not beans, use {@link #shared()}. Both are the same instance. The ObjectMapper must not be
+ * reconfigured by callers; it keeps Jackson's defaults plus the Blackbird module, which replaces reflective property
+ * access with generated lambdas.
+ */
+public final class SerializerRegistry {
+
+    private static final SerializerRegistry SHARED = new SerializerRegistry();
+
+    private final Gson gson = new GsonBuilder().create();
+
+    private final Map<Class<?>, Gson> gamGsons = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new BlackbirdModule());
+
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private SerializerRegistry() {
+    }
+
+    /**
+     * @return The registry shared by the whole application.
+     */
+    public static SerializerRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return A Gson with default settings, the same as {@code new Gson()}.
+     */
+    public Gson gson() {
+        return gson;
+    }
+
+    /**
+     * @param excludedSuperClass The Ad Manager API class whose own fields are left out of the json.
+     * @return A Gson using the {@link GamJsonSerializationExclusionStrategy} for the given class.
+     */
+    public Gson gamGson(Class<?> excludedSuperClass) {
+        return gamGsons.computeIfAbsent(excludedSuperClass, excluded -> new GsonBuilder()
+                .setExclusionStrategies(new GamJsonSerializationExclusionStrategy(excluded))
+                .create());
+    }
+
+    /**
+     * @return The shared ObjectMapper.
+     */
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @param type The type to read.
+     * @return A cached reader for the type.
+     */
+    public ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    /**
+     * @param type The type to write.
+     * @return A cached writer for the type.
+     */
+    public ObjectWriter writer(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerFor);
+    }
+
+    /**
+     * Resolves the Gson adapters and the cached Jackson readers and writers of the given types ahead of the first
+     * record. Readers and writers fetch their root (de)serializer when they are created.
+     *
+     * @param types The types to prepare.
+     */
+    public void warm(Class<?>... types) {
+        for (Class<?> type : types) {
+            gson.getAdapter(type);
+            reader(type);
+            writer(type);
+        }
+    }
+}
@@ -28,7 +28,7 @@ public class SlackNotificationUtil {
      * @throws JsonProcessingException
      */
     public static String getMessagePayload(String environment, String icon, String message, String channel, String userName) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = SerializerRegistry.shared().objectMapper();
         Map<String, String> slackMessage = new HashMap<>();
 
         StringBuffer buffer = new StringBuffer();
@@ -1,12 +1,10 @@
 package com.target.kelsaapi.common.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.HttpException;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
-import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.common.vo.snapchat.SnapChatCampaignResponse;
 import com.target.kelsaapi.common.vo.snapchat.SnapChatStatsResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +18,7 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -67,9 +66,9 @@ public class SnapChatUtils {
         );
     }
 
-    public static Map<String,String> setHttpHeaders(Oauth oauth) {
+    public static Map<String,String> setHttpHeaders(String token) {
         Map<String, String> header =  new LinkedHashMap<>();
-        header.put("Authorization",oauth.getOAuthToken());
+        header.put("Authorization",token);
         header.put("Content-Type", MediaType.APPLICATION_FORM_URLENCODED.toString());
         return header;
     }
@@ -112,12 +111,12 @@ public class SnapChatUtils {
 
     public static String getNextLink(String deserializeResponse, ObjectMapper mapper,String attributePathInMessage) throws JsonProcessingException {
 
-        JsonNode deserializeResponseMapper = mapper.readTree(deserializeResponse);
-        Map<String, JsonNode> map = new JsonFlattener(deserializeResponseMapper).flatten();
+        //Streams the page once for the cursor only, instead of building its tree and flattening every leaf
+        String pointer = JsonCursorExtractor.normalize(attributePathInMessage);
+        Map<String, String> cursors = new JsonCursorExtractor(mapper.getFactory(), List.of(pointer)).extract(deserializeResponse);
         String nextLink="";
-        if (  map.get(attributePathInMessage) != null ) {
-            JsonNode attributeValue = map.get(attributePathInMessage);
-            nextLink = attributeValue.asText();
+        if (  cursors.get(pointer) != null ) {
+            nextLink = cursors.get(pointer);
             if (nextLink != null && !nextLink.trim().isEmpty() && !nextLink.trim().equals("[]")) {
                 log.info("nextLink: {}", nextLink);
             }
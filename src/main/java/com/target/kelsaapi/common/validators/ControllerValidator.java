@@ -44,9 +44,9 @@ public class ControllerValidator {
         );
     }
 
-    public Boolean identifyS3DbReportTypes(String source, String reportTypeName) {
+    public Boolean identifyS3DbReportTypes(String source, String reportTypeName, S3DbParam s3DbParam) {
 
-        if ((source.toUpperCase() + reportTypeName.toUpperCase()).equals(S3DbParam.getReportType().toUpperCase())) {
+        if ((source.toUpperCase() + reportTypeName.toUpperCase()).equals(s3DbParam.getReportType().toUpperCase())) {
             return true;
         }
         else
@@ -1,49 +1,78 @@
 package com.target.kelsaapi.common.vo;
 
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
-import com.target.kelsaapi.common.service.authentication.AuthenticationService;
+import com.target.kelsaapi.common.service.authentication.TokenCache;
 import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
-import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
 
+import java.io.IOException;
+
+/**
+ * The Oauth2 credentials of a single source. Tokens come from the shared {@link TokenCache}, so every call to
+ * {@link #getOAuthToken()} returns a token which is valid for at least a few more minutes, even on long-running pipelines.
+ */
 @Slf4j
 public class Oauth {
-    @Getter
-    private String oAuthToken;
 
-    private final AuthenticationService auth;
+    private final TokenCache tokenCache;
 
     private final Oauth2 config;
 
     public Oauth(ApplicationContext context, Oauth2 config) throws ConfigurationException {
         this.config = config;
-        this.auth = context.getBean(AuthenticationService.class);
-        setOAuthToken();
+        this.tokenCache = context.getBean(TokenCache.class);
+        //Fail fast on bad configuration, and warm the cache for the rest of the run
+        tokenCache.getToken(config);
     }
 
-    private void setOAuthToken() throws ConfigurationException {
-        String accessToken;
-        if (config.getAccessToken() != null) {
-            log.info("Using static access token for auth");
-            log.debug("Static access token: " + config.getAccessToken());
-            accessToken = config.getAccessToken();
-        } else {
-            log.debug("Fetching short term token from Oauth URL: " + config.getOauthUrl());
-            if (config.getHeadersMap() != null) {
-                log.debug("Oauth request headers: " + config.getHeadersMap().toString());
+    public String getOAuthToken() {
+        try {
+            return tokenCache.getToken(config);
+        } catch (ConfigurationException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a call with the current token, and if the source API rejects it with a 401 runs it once more with a freshly
+     * exchanged token.
+     *
+     * @param call The request(s) to make with the given token.
+     * @return Whatever the call returns.
+     * @throws IOException If the call fails for any other reason, or fails again after the token refresh.
+     */
+    public <T> T withTokenRetry(TokenCall<T> call) throws IOException {
+        String token = getOAuthToken();
+        try {
+            return call.call(token);
+        } catch (IOException e) {
+            if (!isUnauthorized(e)) {
+                throw e;
             }
-            if (config.getBodyMap() != null) {
-                log.debug("Oauth request body: " + config.getBodyMap().toString());
+            log.warn("Token rejected with a 401 from the source API, retrying once with a refreshed token");
+            try {
+                return call.call(tokenCache.refreshToken(config, token));
+            } catch (ConfigurationException ce) {
+                throw new IllegalStateException(ce.getMessage(), ce);
             }
-            HttpEntity<?> requestAuth = auth.getOauth2RequestObject(config);
-            if (config.responseTokenKeyName == null) {
-                accessToken = auth.getOauth2Token(config.getOauthUrl(), requestAuth);
-            } else {
-                accessToken = auth.getOauth2Token(config.getOauthUrl(), requestAuth, config.getResponseTokenKeyName(), false);
+        }
+    }
+
+    private static boolean isUnauthorized(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException statusCodeException
+                    && statusCodeException.getStatusCode().value() == HttpStatus.UNAUTHORIZED.value()) {
+                return true;
             }
         }
-        this.oAuthToken = accessToken;
+        return false;
+    }
+
+    @FunctionalInterface
+    public interface TokenCall<T> {
+        T call(String token) throws IOException;
     }
 }
@@ -0,0 +1,14 @@
+package com.target.kelsaapi.common.vo;
+
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+/**
+ * An access token returned from an Oauth2 token exchange, along with the lifetime the identity provider reported for it.
+ */
+@Data
+public class OauthToken {
+    final String accessToken;
+    @Nullable
+    final Long expiresInSeconds;
+}
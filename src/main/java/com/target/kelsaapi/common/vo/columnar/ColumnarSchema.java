@@ -0,0 +1,120 @@
+package com.target.kelsaapi.common.vo.columnar;
+
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import lombok.Data;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The flat list of typed columns a Parquet or ORC file is written with. Either declared per report type in
+ * apiconfig.source.columnar.schemas, or inferred from the staged file by widening each column over every value seen.
+ */
+@Getter
+public class ColumnarSchema {
+
+    public enum ColumnType {
+        BOOLEAN,
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    @Data
+    public static class Column {
+        private final String name;
+        private final ColumnType type;
+    }
+
+    //Numbers with a leading zero, such as zip codes or ids, stay strings so that the zeros are kept
+    private static final Pattern LONG_PATTERN = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+
+    private static final Pattern DOUBLE_PATTERN = Pattern.compile("-?(0|[1-9]\\d*)\\.\\d+([eE][-+]?\\d+)?");
+
+    private final List<Column> columns;
+
+    public ColumnarSchema(List<Column> columns) {
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * @param reportSchema A schema declared in the pipeline config.
+     * @return The declared schema.
+     */
+    public static ColumnarSchema fromConfig(PipelineConfig.ColumnarReportSchema reportSchema) {
+        List<Column> columns = new ArrayList<>();
+        for (PipelineConfig.ColumnarColumn column : reportSchema.columns) {
+            columns.add(new Column(column.name, ColumnType.valueOf(column.type.toUpperCase())));
+        }
+        return new ColumnarSchema(columns);
+    }
+
+    /**
+     * Narrowest type that holds both the type seen so far and the given value. Text is only read as a number or
+     * boolean when parseText is set, so that quoted JSON strings stay strings.
+     *
+     * @param current The type inferred so far, or null if the column only had nulls.
+     * @param value A non null value of the column.
+     * @param parseText True for delimited text input, where every value arrives as a String.
+     * @return The widened type.
+     */
+    public static ColumnType widen(ColumnType current, Object value, boolean parseText) {
+        ColumnType seen = typeOf(value, parseText);
+        if (current == null || current == seen) {
+            return seen;
+        }
+        if ((current == ColumnType.LONG && seen == ColumnType.DOUBLE) || (current == ColumnType.DOUBLE && seen == ColumnType.LONG)) {
+            return ColumnType.DOUBLE;
+        }
+        return ColumnType.STRING;
+    }
+
+    /**
+     * Converts a raw value to the java type written for the column.
+     *
+     * @param index The column index.
+     * @param value The raw value, null for a missing value.
+     * @return A Boolean, Long, Double or String, or null.
+     * @throws IOException If the value does not fit a declared column type.
+     */
+    public Object convert(int index, Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        Column column = columns.get(index);
+        try {
+            return switch (column.getType()) {
+                case STRING -> value.toString();
+                case LONG -> value instanceof Number number ? number.longValue() : Long.parseLong(value.toString().trim());
+                case DOUBLE -> value instanceof Number number ? number.doubleValue() : Double.parseDouble(value.toString().trim());
+                case BOOLEAN -> value instanceof Boolean bool ? bool : Boolean.parseBoolean(value.toString().trim());
+            };
+        } catch (NumberFormatException e) {
+            throw new IOException("Value '" + value + "' of column " + column.getName() + " is not a " + column.getType(), e);
+        }
+    }
+
+    private static ColumnType typeOf(Object value, boolean parseText) {
+        if (value instanceof Boolean) {
+            return ColumnType.BOOLEAN;
+        } else if (value instanceof Long || value instanceof Integer) {
+            return ColumnType.LONG;
+        } else if (value instanceof Number) {
+            return ColumnType.DOUBLE;
+        } else if (parseText) {
+            String text = value.toString().trim();
+            if (LONG_PATTERN.matcher(text).matches()) {
+                return ColumnType.LONG;
+            } else if (DOUBLE_PATTERN.matcher(text).matches()) {
+                return ColumnType.DOUBLE;
+            } else if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                return ColumnType.BOOLEAN;
+            }
+        }
+        return ColumnType.STRING;
+    }
+}
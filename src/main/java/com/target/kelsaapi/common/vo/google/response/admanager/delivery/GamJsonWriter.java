@@ -0,0 +1,238 @@
+package com.target.kelsaapi.common.vo.google.response.admanager.delivery;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.Excluder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams a GAM delivery record such as {@link GamLineItem} or {@link GamOrder} as json, producing exactly what
+ * {@code gson.toJson(record)} produces for the Gson it is built with.
+ * <p>
+ * The fields are bound once, in the order and under the names Gson's reflective adapter uses: the record's own fields
+ * first, then those of each superclass, with the Gson's exclusion strategies applied. Primitive and String fields are
+ * written straight to the {@link JsonWriter}; every other field is handed to the Gson's adapter for the field's runtime
+ * class, which is the adapter Gson picks itself as long as no custom type adapters are registered. Compared to the
+ * reflective adapter this saves boxing every primitive, allocating a runtime type wrapper per field and copying the
+ * result out of a synchronized StringBuffer, which adds up over the hundred or so fields of a line item.
+ * <p>
+ * Instances are thread safe. {@link #toJson(Object)} reuses one buffer per thread.
+ *
+ * @param <T> The record type.
+ */
+public final class GamJsonWriter<T> {
+
+    //Buffers grown past this by an unusually large record are not kept for the next one
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private final Gson gson;
+
+    private final BoundField[] fields;
+
+    private final ThreadLocal<BufferWriter> buffers = ThreadLocal.withInitial(BufferWriter::new);
+
+    /**
+     * @param type The record type.
+     * @param gson The Gson whose output to reproduce, usually {@code SerializerRegistry.shared().gamGson(...)}.
+     * @throws IllegalArgumentException If two serialized fields share a json name, which Gson rejects as well.
+     */
+    public GamJsonWriter(Class<T> type, Gson gson) {
+        this.gson = gson;
+        this.fields = bindFields(type, gson);
+    }
+
+    /**
+     * @param record The record to serialize.
+     * @return The record as a json string.
+     */
+    public String toJson(T record) {
+        BufferWriter buffer = buffers.get();
+        try {
+            write(record, buffer);
+            return buffer.builder.toString();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        } finally {
+            if (buffer.builder.capacity() > MAX_RETAINED_BUFFER) {
+                buffers.remove();
+            } else {
+                buffer.builder.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Writes the record to the given writer, for instance the buffered writer of a landing file. The writer is neither
+     * flushed nor closed.
+     *
+     * @param record The record to serialize.
+     * @param out The writer to append the json to.
+     * @throws IOException If the writer fails.
+     */
+    public void write(T record, Writer out) throws IOException {
+        if (record == null) {
+            out.write("null");
+            return;
+        }
+        JsonWriter writer = new JsonWriter(out);
+        //The same settings Gson.toJson applies to its writers
+        writer.setLenient(true);
+        writer.setHtmlSafe(gson.htmlSafe());
+        writer.setSerializeNulls(gson.serializeNulls());
+        writer.beginObject();
+        for (BoundField field : fields) {
+            field.write(writer, record);
+        }
+        writer.endObject();
+    }
+
+    private static BoundField[] bindFields(Class<?> type, Gson gson) {
+        Excluder excluder = gson.excluder();
+        FieldNamingStrategy naming = gson.fieldNamingStrategy();
+        List<BoundField> bound = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Class<?> raw = type; raw != Object.class; raw = raw.getSuperclass()) {
+            for (Field field : raw.getDeclaredFields()) {
+                if (excluder.excludeClass(field.getType(), true) || excluder.excludeField(field, true)) {
+                    continue;
+                }
+                SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                String name = serializedName == null ? naming.translateName(field) : serializedName.value();
+                if (!names.add(name)) {
+                    throw new IllegalArgumentException(type + " declares multiple JSON fields named " + name);
+                }
+                field.setAccessible(true);
+                bound.add(new BoundField(name, field, gson));
+            }
+        }
+        return bound.toArray(new BoundField[0]);
+    }
+
+    private static final class BoundField {
+
+        private final String name;
+
+        private final Field field;
+
+        private final Class<?> fieldType;
+
+        private final Gson gson;
+
+        //Only looked up for the fields which are not written directly
+        private final TypeAdapter<Object> declaredAdapter;
+
+        private final boolean runtimeTyped;
+
+        @SuppressWarnings("unchecked")
+        BoundField(String name, Field field, Gson gson) {
+            this.name = name;
+            this.field = field;
+            this.fieldType = field.getType();
+            this.gson = gson;
+            Type genericType = field.getGenericType();
+            boolean direct = fieldType.isPrimitive() || fieldType == String.class;
+            this.declaredAdapter = direct ? null : (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(genericType));
+            //Gson only looks at the runtime class of values declared with a plain class, not a parameterized type
+            this.runtimeTyped = genericType instanceof Class;
+        }
+
+        @SuppressWarnings("unchecked")
+        void write(JsonWriter writer, Object record) throws IOException {
+            try {
+                if (fieldType == long.class) {
+                    writer.name(name).value(field.getLong(record));
+                } else if (fieldType == int.class || fieldType == short.class || fieldType == byte.class) {
+                    writer.name(name).value(field.getInt(record));
+                } else if (fieldType == boolean.class) {
+                    writer.name(name).value(field.getBoolean(record));
+                } else if (fieldType == double.class) {
+                    writer.name(name).value(checkFinite(field.getDouble(record)));
+                } else if (fieldType == float.class) {
+                    //Gson writes floats as a Number, so that they keep their float representation
+                    writer.name(name).value((Number) checkFinite(field.getFloat(record)));
+                } else if (fieldType == char.class) {
+                    writer.name(name).value(String.valueOf(field.getChar(record)));
+                } else if (fieldType == String.class) {
+                    writer.name(name).value((String) field.get(record));
+                } else {
+                    Object value = field.get(record);
+                    if (value == record) {
+                        return;
+                    }
+                    TypeAdapter<Object> adapter = declaredAdapter;
+                    if (runtimeTyped && value != null && value.getClass() != fieldType) {
+                        adapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
+                    }
+                    writer.name(name);
+                    adapter.write(writer, value);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to read field " + field, e);
+            }
+        }
+
+        private static double checkFinite(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+            }
+            return value;
+        }
+
+        private static Float checkFinite(float value) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * An unsynchronized writer over a StringBuilder, which is all the reused per-thread buffer needs.
+     */
+    private static final class BufferWriter extends Writer {
+
+        private final StringBuilder builder = new StringBuilder(8192);
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -2,11 +2,9 @@ package com.target.kelsaapi.common.vo.google.response.admanager.delivery;
 
 import com.google.api.ads.admanager.axis.v202311.*;
 import com.google.api.client.util.Lists;
-import com.google.gson.ExclusionStrategy;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.SerializedName;
 import com.target.kelsaapi.common.util.GamUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -20,6 +18,9 @@ import java.util.List;
 @Slf4j
 public class GamLineItem extends LineItem {
 
+    private static final GamJsonWriter<GamLineItem> JSON_WRITER =
+            new GamJsonWriter<>(GamLineItem.class, SerializerRegistry.shared().gamGson(LineItem.class));
+
     @Setter
     @Getter
     private double actualDeliveryPercentage;
@@ -734,11 +735,7 @@ public class GamLineItem extends LineItem {
     }
 
     public String toJson() {
-        ExclusionStrategy excludeSuperClass = new GamJsonSerializationExclusionStrategy(LineItem.class);
-        Gson gson = new GsonBuilder()
-                .setExclusionStrategies(excludeSuperClass)
-                .create();
-        return gson.toJson(this);
+        return JSON_WRITER.toJson(this);
     }
 
 }
@@ -1,11 +1,9 @@
 package com.target.kelsaapi.common.vo.google.response.admanager.delivery;
 
 import com.google.api.ads.admanager.axis.v202311.Order;
-import com.google.gson.ExclusionStrategy;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.SerializedName;
 import com.target.kelsaapi.common.util.GamUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,6 +11,9 @@ import java.time.Instant;
 
 public class GamOrder extends Order {
 
+    private static final GamJsonWriter<GamOrder> JSON_WRITER =
+            new GamJsonWriter<>(GamOrder.class, SerializerRegistry.shared().gamGson(Order.class));
+
     @Getter
     @Setter
     private String reportDate;
@@ -137,11 +138,7 @@ public class GamOrder extends Order {
     public String getStatusAsString() { return this.status; }
 
     public String toJson() {
-        ExclusionStrategy excludeSuperClass = new GamJsonSerializationExclusionStrategy(Order.class);
-        Gson gson = new GsonBuilder()
-                .setExclusionStrategies(excludeSuperClass)
-                .create();
-        return gson.toJson(this);
+        return JSON_WRITER.toJson(this);
     }
 
 }
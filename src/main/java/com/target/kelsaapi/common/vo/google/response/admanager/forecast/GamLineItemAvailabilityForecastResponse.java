@@ -2,10 +2,9 @@ package com.target.kelsaapi.common.vo.google.response.admanager.forecast;
 
 import com.google.api.ads.admanager.axis.v202311.*;
 import com.google.api.client.util.Lists;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.target.kelsaapi.common.exceptions.GamException;
 import com.target.kelsaapi.common.util.GamUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -55,8 +54,7 @@ public class GamLineItemAvailabilityForecastResponse extends GamForecastResponse
      * @return The json string from serializing the GamAvailabilityForecast.
      */
     private String availabilityForecastToJson() {
-        Gson gson = new GsonBuilder().create();
-        return gson.toJson(new GamAvailabilityForecast(this.getAvailabilityForecast(), this.getReportDate(), this.getForecastCreateTimestamp()));
+        return SerializerRegistry.shared().gson().toJson(new GamAvailabilityForecast(this.getAvailabilityForecast(), this.getReportDate(), this.getForecastCreateTimestamp()));
     }
 
     /**
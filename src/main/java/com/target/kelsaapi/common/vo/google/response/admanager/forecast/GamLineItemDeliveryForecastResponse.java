@@ -4,8 +4,8 @@ import com.google.api.ads.admanager.axis.v202311.DeliveryForecast;
 import com.google.api.ads.admanager.axis.v202311.LineItemDeliveryForecast;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.target.kelsaapi.common.exceptions.GamException;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
@@ -79,7 +79,7 @@ public class GamLineItemDeliveryForecastResponse extends GamForecastResponse {
     }
 
     private void toJson() {
-        Gson gson = new GsonBuilder().create();
+        Gson gson = SerializerRegistry.shared().gson();
         ArrayList<String> responses = Lists.newArrayList();
         this.savableGamForecasts = Lists.newArrayList();
         ArrayList<Long> requests = lineItemArrayToList();
@@ -0,0 +1,71 @@
+package com.target.kelsaapi.common.vo.pipeline;
+
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.common.vo.s3.S3DbParam;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.util.StopWatch;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Everything one pipeline run needs to know about itself, resolved once when the run starts and handed down to the
+ * consumer and the services it calls. Anything a run learns along the way goes into its own context rather than into
+ * the shared {@link com.target.kelsaapi.pipelines.config.PipelineConfig}, so runs sharing a pod cannot overwrite each
+ * other's state.
+ * <p>
+ * All fields are fixed at creation except for the status, a free text summary of the latest stage that services
+ * report back to the consumer, such as the number of files downloaded.
+ */
+@Getter
+public final class RunContext {
+
+    private final String pipelineRunId;
+
+    private final String sourceSystem;
+
+    private final String reportType;
+
+    private final String startDate;
+
+    private final String endDate;
+
+    private final String landingFile;
+
+    private final S3DbParam s3DbParam;
+
+    private final StopWatch stopWatch;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<String> status = new AtomicReference<>("");
+
+    /**
+     * @param runState The state of the run as dequeued.
+     * @param s3DbParam The mdf_s3_parameter entry of the run's source and report type, read when the run starts.
+     * @param stopWatch The StopWatch recording the stages of the run as metrics.
+     */
+    public RunContext(PipelineRunState runState, S3DbParam s3DbParam, StopWatch stopWatch) {
+        this.pipelineRunId = runState.getBatchRequestId();
+        this.sourceSystem = runState.getSourceSystem();
+        this.reportType = runState.getSourceReportType();
+        this.startDate = runState.getStartDate();
+        this.endDate = runState.getEndDate();
+        this.landingFile = runState.getLandingFile();
+        this.s3DbParam = s3DbParam;
+        this.stopWatch = stopWatch;
+    }
+
+    /**
+     * @return The status last reported by a service of this run, or an empty String.
+     */
+    public String getStatus() {
+        return status.get();
+    }
+
+    /**
+     * @param status A summary of the stage which just finished, or the reason it failed.
+     */
+    public void setStatus(String status) {
+        this.status.set(status);
+    }
+}
@@ -0,0 +1,46 @@
+package com.target.kelsaapi.common.vo.pipeline.state;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+
+/**
+ * How far one entity of a source and report type was successfully ingested, as a timestamp, a cursor, or both.
+ */
+@Entity
+@Table(name="mdf_ingest_watermark")
+@Data
+@IdClass(IngestWatermarkId.class)
+public class IngestWatermark {
+    @Id
+    @Column(name = "source_system")
+    protected String sourceSystem;
+
+    @Id
+    @Column(name = "report_type")
+    protected String reportType;
+
+    @Id
+    @Column(name = "entity")
+    protected String entity;
+
+    @Column(name = "watermark_timestamp", columnDefinition= "TIMESTAMP WITH TIME ZONE")
+    @Nullable
+    protected Instant watermarkTimestamp;
+
+    @Column(name = "watermark_cursor")
+    @Nullable
+    protected String watermarkCursor;
+
+    @Column(name = "pipeline_run_id")
+    protected String pipelineRunId;
+
+    @Column(name = "updated_timestamp", columnDefinition= "TIMESTAMP WITH TIME ZONE")
+    protected Instant updatedTimestamp;
+
+    public IngestWatermark() {
+
+    }
+}
@@ -0,0 +1,30 @@
+package com.target.kelsaapi.common.vo.pipeline.state;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class IngestWatermarkId implements Serializable {
+
+    @Id
+    private String sourceSystem;
+
+    @Id
+    private String reportType;
+
+    @Id
+    private String entity;
+
+    public IngestWatermarkId(String sourceSystem, String reportType, String entity) {
+        this.sourceSystem = sourceSystem;
+        this.reportType = reportType;
+        this.entity = entity;
+    }
+
+    public IngestWatermarkId() {
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.target.kelsaapi.common.vo.pipeline.state;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+
+/**
+ * One completed unit of work of a pipeline run, such as a report partition, an account, a page cursor or an S3 key,
+ * together with the artifact it landed.
+ */
+@Entity
+@Table(name="mdf_pipeline_checkpoint")
+@Data
+@IdClass(PipelineCheckpointId.class)
+public class PipelineCheckpoint {
+    @Id
+    @Column(name = "pipeline_run_id")
+    protected String pipelineRunId;
+
+    @Id
+    @Column(name = "unit_type")
+    protected String unitType;
+
+    @Id
+    @Column(name = "unit_key")
+    protected String unitKey;
+
+    @Column(name = "artifact")
+    @Nullable
+    protected String artifact;
+
+    @Column(name = "completed_timestamp", columnDefinition= "TIMESTAMP WITH TIME ZONE")
+    @CreationTimestamp
+    protected Instant completedTimestamp;
+
+    public PipelineCheckpoint(String pipelineRunId, String unitType, String unitKey, @Nullable String artifact) {
+        this.pipelineRunId = pipelineRunId;
+        this.unitType = unitType;
+        this.unitKey = unitKey;
+        this.artifact = artifact;
+    }
+
+    public PipelineCheckpoint() {
+
+    }
+}
@@ -0,0 +1,30 @@
+package com.target.kelsaapi.common.vo.pipeline.state;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class PipelineCheckpointId implements Serializable {
+
+    @Id
+    private String pipelineRunId;
+
+    @Id
+    private String unitType;
+
+    @Id
+    private String unitKey;
+
+    public PipelineCheckpointId(String pipelineRunId, String unitType, String unitKey) {
+        this.pipelineRunId = pipelineRunId;
+        this.unitType = unitType;
+        this.unitKey = unitKey;
+    }
+
+    public PipelineCheckpointId() {
+
+    }
+
+}
@@ -46,6 +46,30 @@ public class PipelineRunState implements Serializable {
     @Nullable
     private String sourceReportType;
 
+    @Column(name = "priority")
+    @Nullable
+    protected Integer priority;
+
+    @Column(name = "claimed_by")
+    @Nullable
+    protected String claimedBy;
+
+    @Column(name = "claimed_timestamp")
+    @Nullable
+    protected Instant claimedTimestamp;
+
+    @Column(name = "heartbeat_timestamp")
+    @Nullable
+    protected Instant heartbeatTimestamp;
+
+    @Column(name = "parent_batch_request_id")
+    @Nullable
+    protected String parentBatchRequestId;
+
+    @Column(name = "attempt")
+    @Nullable
+    protected Integer attempt;
+
     /**
      * Constructor for v2 requests.
      *
@@ -79,6 +103,10 @@ public class PipelineRunState implements Serializable {
         this.batchRequestStatus = pipelineState.toString().toLowerCase();
     }
 
+    public void setPriority(ApplicationConstants.RunPriority runPriority) {
+        this.priority = runPriority.ordinal();
+    }
+
     protected String generateUUID() {
         return UUID.randomUUID().toString();
     }
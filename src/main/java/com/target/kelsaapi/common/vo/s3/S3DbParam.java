@@ -1,36 +1,38 @@
 package com.target.kelsaapi.common.vo.s3;
 
-import lombok.Data;
-import lombok.Getter;
+import lombok.Value;
 
-@Data
+/**
+ * The S3 ingestion parameters of one source report type, as read from the mdf_s3_parameter table. An empty report
+ * type means there is no active entry and the parameters come from {@link com.target.kelsaapi.common.constants.ApplicationConstants.S3ReportTypes}.
+ * <p>
+ * Each request and pipeline run resolves its own instance, so that concurrent runs of different report types never
+ * see each other's parameters.
+ */
+@Value
 public class S3DbParam {
 
-    //static Boolean s3DbParamFlag;
-    @Getter
-    static String s3PrefixPath;
-    @Getter
-    static Boolean dirDownload;
-    @Getter
-    static Boolean xferMgrSingleFileDownload;
-    @Getter
-    static Boolean s3PrefixSqlFunction;
-    @Getter
-    static Boolean compareWithPrevLoadedFilesCheckByCurrentDate;
-    @Getter
-    static Boolean compareWithPrevLoadedFilesCheck;
-    @Getter
-    static Boolean abortNoFileFound;
-    @Getter
-    static Integer fileAge;
-    @Getter
-    static String reportType;
-    @Getter
-    static Boolean splitFile;
-    @Getter
-    static Boolean splitFileCompress;
+    String s3PrefixPath;
 
+    Boolean dirDownload;
 
+    Boolean xferMgrSingleFileDownload;
+
+    Boolean s3PrefixSqlFunction;
+
+    Boolean compareWithPrevLoadedFilesCheckByCurrentDate;
+
+    Boolean compareWithPrevLoadedFilesCheck;
+
+    Boolean abortNoFileFound;
+
+    Integer fileAge;
+
+    String reportType;
+
+    Boolean splitFile;
+
+    Boolean splitFileCompress;
 
     public S3DbParam(String s3KeyNamePath, Boolean dirDownload, Boolean xferMgrSingleFileDownload,Boolean s3PrefixSqlFunction,
                      Boolean compareWithPrevLoadedFilesCheckByCurrentDate,Boolean compareWithPrevLoadedFilesCheck,Boolean abortNoFileFound,
@@ -50,4 +52,18 @@ public class S3DbParam {
 
     }
 
+    /**
+     * @return The parameters of a report type without an active mdf_s3_parameter entry.
+     */
+    public static S3DbParam notInDb() {
+        return new S3DbParam("", false, false,false,false,false,false,0,"",false,false);
+    }
+
+    /**
+     * @return True if these parameters were read from the mdf_s3_parameter table.
+     */
+    public boolean isInDb() {
+        return !reportType.isEmpty();
+    }
+
 }
@@ -1,7 +1,7 @@
 package com.target.kelsaapi.common.vo.snapchat;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,7 +21,7 @@ public class SnapChatCampaignResponse {
     }
 
     private ArrayList<Campaign> responseToSnapChatCampaignList(String response) {
-        Gson gson = new GsonBuilder().create();
+        Gson gson = SerializerRegistry.shared().gson();
         CampaignRequest request = gson.fromJson(response, CampaignRequest.class);
         ArrayList<Campaign> returnList = new ArrayList<>();
         for (CampaignParent campaign : request.getCampaigns()) {
@@ -34,8 +34,7 @@ public class SnapChatCampaignResponse {
         ArrayList<String> returnableCampaignList = new ArrayList<>();
         campaigns.forEach(campaign -> {
             DecoratedCampaign decoratedCampaign = new DecoratedCampaign(campaign, adAccountId, adAccountName);
-            Gson gson = new Gson();
-            returnableCampaignList.add(gson.toJson(decoratedCampaign));
+            returnableCampaignList.add(SerializerRegistry.shared().gson().toJson(decoratedCampaign));
         });
         return returnableCampaignList;
     }
@@ -1,7 +1,7 @@
 package com.target.kelsaapi.common.vo.snapchat;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,7 +22,7 @@ public class SnapChatStatsResponse {
     }
 
     private ArrayList<TimeseriesParentStat> responseToSnapChatStatsList(String response) {
-        Gson gson = new GsonBuilder().create();
+        Gson gson = SerializerRegistry.shared().gson();
         StatsRequest request = gson.fromJson(response, StatsRequest.class);
         return new ArrayList<>(Arrays.asList(request.getTimeseries_stats()));
     }
@@ -38,8 +38,7 @@ public class SnapChatStatsResponse {
                     ArrayList<DimensionStats> dimensionStats = new ArrayList<>(Arrays.asList(time.getDimension_stats()));
                     dimensionStats.forEach(dimension -> {
                         DecoratedStats decoratedStats = new DecoratedStats(dimension, campaign, timeseriesStat, adAccountId, adAccountName);
-                        Gson gson = new Gson();
-                        returnableStatsList.add(gson.toJson(decoratedStats));
+                        returnableStatsList.add(SerializerRegistry.shared().gson().toJson(decoratedStats));
                     });
                 });
             });
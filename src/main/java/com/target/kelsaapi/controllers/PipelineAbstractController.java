@@ -3,7 +3,8 @@ package com.target.kelsaapi.controllers;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
 import com.target.kelsaapi.common.exceptions.ResourceNotFoundException;
-import com.target.kelsaapi.common.service.listener.PipelineRunnerListener;
+import com.target.kelsaapi.common.service.listener.BackfillCoordinator;
+import com.target.kelsaapi.common.service.listener.PipelineRunQueueService;
 import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
 import com.target.kelsaapi.common.service.postgres.s3.S3DbParamStateService;
 import com.target.kelsaapi.common.util.CommonUtils;
@@ -11,10 +12,10 @@ import com.target.kelsaapi.common.validators.ControllerValidator;
 import com.target.kelsaapi.common.vo.pipeline.response.PipelineRunStatusResponse;
 import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
 import com.target.kelsaapi.common.vo.s3.S3DbParam;
-import com.target.kelsaapi.common.vo.s3.S3DbParamState;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.text.ParseException;
@@ -30,16 +31,20 @@ public abstract class PipelineAbstractController {
 
     protected final S3DbParamStateService s3DbParamStateService;
 
-    protected final PipelineRunnerListener pipelineRunnerListenerService;
+    protected final PipelineRunQueueService runQueueService;
+
+    protected final BackfillCoordinator backfillCoordinator;
 
     public PipelineAbstractController(ControllerValidator validator,
                                       PipelineRunStateService runStateService,
                                       S3DbParamStateService s3DbParamStateService,
-                                      PipelineRunnerListener pipelineRunnerListener) {
+                                      PipelineRunQueueService runQueueService,
+                                      BackfillCoordinator backfillCoordinator) {
         this.validator = validator;
         this.runStateService = runStateService;
         this.s3DbParamStateService = s3DbParamStateService;
-        this.pipelineRunnerListenerService = pipelineRunnerListener;
+        this.runQueueService = runQueueService;
+        this.backfillCoordinator = backfillCoordinator;
     }
 
     protected ApplicationConstants.Sources validateSources(String source) throws ResponseStatusException {
@@ -132,13 +137,51 @@ public abstract class PipelineAbstractController {
         return new PipelineRunStatusResponse(runState);
     }
 
+    protected PipelineRunStatusResponse resumePipeline(String memberships, String pipelineId) {
+        //Validate Memberships
+        validateMembers(memberships);
+
+        log.info("Resuming pipeline run :" + pipelineId);
+        PipelineRunState runState;
+        boolean resumed;
+        try {
+            runState = runStateService.findById(pipelineId);
+            resumed = runQueueService.resume(runState);
+        } catch (ResourceNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        if (!resumed) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Only failed pipeline runs can be resumed. Pipeline " + pipelineId + " is " + runState.getBatchRequestStatus());
+        }
+        return new PipelineRunStatusResponse(runState);
+    }
+
+    protected PipelineRunState startBackfill(String source, String startDate, String endDate, String filePath,
+                                             @Nullable String reportType,
+                                             List<PipelineRunStatusResponse> pipelineIds) throws ResponseStatusException {
+        PipelineRunState backfill;
+        try {
+            backfill = backfillCoordinator.createBackfill(source, startDate, endDate, filePath, reportType);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        pipelineIds.add(new PipelineRunStatusResponse(backfill));
+        return backfill;
+    }
+
     protected void asyncRequest(PipelineRunState runState,
-                                List<PipelineRunStatusResponse> pipelineIds) throws ResponseStatusException {
+                                List<PipelineRunStatusResponse> pipelineIds,
+                                @Nullable PipelineRunState backfill) throws ResponseStatusException {
         try {
-            //Saves the requested pipeline run state to Postgres
-            runStateService.save(runState);
-            //Publishes the requested pipeline run state to async queue
-            pipelineRunnerListenerService.runPipeline(runState);
+            //Saves the requested pipeline run state to the run queue in Postgres, from where any replica may claim it
+            if (backfill == null) {
+                runQueueService.enqueue(runState, false);
+            } else {
+                backfillCoordinator.enqueueWindow(backfill, runState);
+            }
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
         }
@@ -151,43 +194,7 @@ public abstract class PipelineAbstractController {
 
 
     protected S3DbParam getS3DbParam(String reportType) {
-
-        String level;
-        Boolean dirDownload;
-        Boolean xferMgrSingleFileDownload;
-        Boolean s3PrefixSqlFunction;
-        Boolean compareWithPrevLoadedFilesCheckByCurrentDate;
-        Boolean compareWithPrevLoadedFilesCheck;
-        Boolean abortNoFileFound;
-        Integer fileAge;
-        String s3PrefixPath;
-        Boolean splitFile;
-        Boolean splitFileCompress;
-
-        S3DbParamState s3DbParamState = s3DbParamStateService.getS3DbParamState(reportType);
-
-        try {
-            level = s3DbParamState.getSourceReportType();
-        } catch (NullPointerException e) {
-            level = "";
-        }
-        if (level.isEmpty()) {
-            return new S3DbParam("", false, false,false,false,false,false,0,"",false,false);
-        } else {
-            s3PrefixPath = s3DbParamState.getPrefix();
-            dirDownload = s3DbParamState.getDirDownload();
-            xferMgrSingleFileDownload = s3DbParamState.getXferMgrSingleFileDownload();
-            s3PrefixSqlFunction = s3DbParamState.getS3PrefixSqlFunction();
-            compareWithPrevLoadedFilesCheckByCurrentDate = s3DbParamState.getCompareWithPrevLoadedFilesCheckByCurrentDate();
-            compareWithPrevLoadedFilesCheck = s3DbParamState.getCompareWithPrevLoadedFilesCheck();
-            abortNoFileFound = s3DbParamState.getAbortNoFileFound();
-            fileAge = s3DbParamState.getFileAge();
-            splitFile =  s3DbParamState.getSplitFile();
-            splitFileCompress = s3DbParamState.getSplitFileCompress();
-
-            return new S3DbParam(s3PrefixPath, dirDownload, xferMgrSingleFileDownload,s3PrefixSqlFunction,compareWithPrevLoadedFilesCheckByCurrentDate,compareWithPrevLoadedFilesCheck,abortNoFileFound,fileAge,level,splitFile,splitFileCompress);
-        }
-
+        return s3DbParamStateService.getS3DbParam(reportType);
     }
 
 }
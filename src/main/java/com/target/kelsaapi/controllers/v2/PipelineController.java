@@ -3,7 +3,8 @@ package com.target.kelsaapi.controllers.v2;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.constants.ApplicationConstants.PipelineStates;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
-import com.target.kelsaapi.common.service.listener.PipelineRunnerListener;
+import com.target.kelsaapi.common.service.listener.BackfillCoordinator;
+import com.target.kelsaapi.common.service.listener.PipelineRunQueueService;
 import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
 import com.target.kelsaapi.common.service.postgres.s3.S3DbParamStateService;
 import com.target.kelsaapi.common.util.CommonUtils;
@@ -35,8 +36,9 @@ public class PipelineController extends PipelineAbstractController {
     public PipelineController(PipelineRunStateService runStateService,
                               ControllerValidator validator,
                               S3DbParamStateService s3DbParamStateService,
-                              PipelineRunnerListener pipelineRunnerListener) {
-        super(validator, runStateService, s3DbParamStateService, pipelineRunnerListener);
+                              PipelineRunQueueService runQueueService,
+                              BackfillCoordinator backfillCoordinator) {
+        super(validator, runStateService, s3DbParamStateService, runQueueService, backfillCoordinator);
     }
 
     @PostMapping("/")
@@ -86,13 +88,19 @@ public class PipelineController extends PipelineAbstractController {
         //For running in parallel
         List<PipelineRunStatusResponse> pipelineIDs = new ArrayList<>();
 
+        //Multi date requests are tracked as one backfill, listed first so callers can poll its aggregated status
+        PipelineRunState backfill = null;
+        if (datesList.size() > 1) {
+            backfill = startBackfill(src.toLowerCase(), startDate, endDate, filePath, pipelineRunRequest.getReportType(), pipelineIDs);
+        }
+
         for (String s : datesList) {
 
             for (String reportType : reportTypes) {
                 if (s3DbParam.getReportType().isEmpty()){
                     reportCheck = validator.identifyS3ReportTypes(source, reportType);
                 } else {
-                    reportCheck =  validator.identifyS3DbReportTypes(src,reportType);
+                    reportCheck =  validator.identifyS3DbReportTypes(src,reportType,s3DbParam);
 
                 }
 
@@ -107,14 +115,14 @@ public class PipelineController extends PipelineAbstractController {
                             s, s, reportType);}
                 //Initialize the Pipeline run state object
                 PipelineRunState runState = new PipelineRunState(
-                        PipelineStates.INITIALIZED,
+                        PipelineStates.QUEUED,
                         src.toLowerCase(),
                         s,
                         s,
                         targetFilepath,
                         reportType
                 );
-                asyncRequest(runState, pipelineIDs);
+                asyncRequest(runState, pipelineIDs, backfill);
             }
 
         }
@@ -133,4 +141,14 @@ public class PipelineController extends PipelineAbstractController {
         return getPipelineState(memberships, pipelineId);
     }
 
+    @PostMapping("/{pipeline_run_id}/resume")
+    @ResponseBody
+    public PipelineRunStatusResponse resumePipelineRun(@RequestHeader("x-api-key") String key,
+                                                       @RequestHeader("Authorization") String auth,
+                                                       @RequestHeader("x-tgt-memberof") String memberships,
+                                                       @PathVariable("pipeline_run_id") String pipelineId) {
+
+        return resumePipeline(memberships, pipelineId);
+    }
+
 }
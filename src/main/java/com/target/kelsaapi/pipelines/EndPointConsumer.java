@@ -4,6 +4,7 @@ import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.service.file.HDFSFileWriterService;
 import com.target.kelsaapi.common.service.file.LocalFileWriterService;
 import com.target.kelsaapi.common.service.file.XenonService;
+import com.target.kelsaapi.common.vo.pipeline.RunContext;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
@@ -22,6 +23,16 @@ public abstract class EndPointConsumer implements EndPointConsumerInterface {
 
     protected String pipelineRunId;
 
+    /**
+     * The context of this run, for consumers created through {@link #EndPointConsumer(ApplicationContext, RunContext)}.
+     */
+    protected RunContext runContext;
+
+    public EndPointConsumer(ApplicationContext context, RunContext runContext) {
+        this(context, runContext.getPipelineRunId());
+        this.runContext = runContext;
+    }
+
     public EndPointConsumer(ApplicationContext context, String pipelineRunId) {
         this.pipelineConfig = context.getBean(PipelineConfig.class);
         this.writerService = context.getBean(HDFSFileWriterService.class);
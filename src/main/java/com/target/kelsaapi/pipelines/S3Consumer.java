@@ -2,25 +2,27 @@ package com.target.kelsaapi.pipelines;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
-import com.target.kelsaapi.common.config.JdbcConfig;
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.NotSupportedException;
+import com.target.kelsaapi.common.service.postgres.s3.S3JdbcRepository;
 import com.target.kelsaapi.common.service.postgres.s3.S3ObjectSummaryStateService;
 import com.target.kelsaapi.common.service.s3.S3Service;
 import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.util.textFormatterInterface;
+import com.target.kelsaapi.common.vo.pipeline.RunContext;
 import com.target.kelsaapi.common.vo.s3.S3BucketParam;
 import com.target.kelsaapi.common.vo.s3.S3DbParam;
 import com.target.kelsaapi.common.vo.s3.S3Param;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.context.ApplicationContext;
+import org.springframework.dao.DataAccessException;
 import org.springframework.util.StopWatch;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.sql.*;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,13 +35,13 @@ public abstract class S3Consumer extends EndPointConsumer implements textFormatt
 
     final private S3ObjectSummaryStateService s3ObjectSummaryStateService;
 
-    private final JdbcConfig config;
+    private final S3JdbcRepository s3JdbcRepository;
 
-    public S3Consumer(ApplicationContext context, String pipelineRunId) {
-        super(context, pipelineRunId);
+    public S3Consumer(ApplicationContext context, RunContext runContext) {
+        super(context, runContext);
         this.s3Service = context.getBean(S3Service.class);
         this.s3ObjectSummaryStateService = context.getBean(S3ObjectSummaryStateService.class);
-        this.config = context.getBean(JdbcConfig.class);
+        this.s3JdbcRepository = context.getBean(S3JdbcRepository.class);
     }
 
     public void runPipeline(String startDate, String endDate, String targetFile, String reportType, StopWatch stopWatch, S3BucketParam s3BucketParam, AmazonS3 s3Client)
@@ -91,16 +93,17 @@ public abstract class S3Consumer extends EndPointConsumer implements textFormatt
             log.info("Call s3 api to download contents of the file from => " + s3KeyNamePath);
             listFileObjects = s3Service.downloadObjects(s3KeyNamePath, dirDownload, xferMgrSingleFileDownload,
                     compareWithPrevLoadedFilesCheckByCurrentDate, compareWithPrevLoadedFilesCheck, abortNoFileFound, fileAge, reportType, tempFileDirectory, s3BucketParam, s3Client,
-                    targetFile, splitFile, splitFileCompress, maxLinesBeforeFlush, maxSizeBeforeNewFile);
+                    targetFile, splitFile, splitFileCompress, maxLinesBeforeFlush, maxSizeBeforeNewFile, runContext);
 
-            String fileDownloadStatus = pipelineConfig.apiconfig.getSource().getS3SwitchBoard().getFileDownloadStatus();
+            log.info("File download status: {}", runContext.getStatus());
 
             if (!splitFile) {
-                msg = "Write to HDFS(" + fileDownloadStatus + ")";
+                msg = "Write to HDFS";
             } else {
-                msg = "HDFS move status(" + fileDownloadStatus + ")";
+                msg = "Move to HDFS";
             }
 
+            //Stage names are metric tags, so they stay fixed and the download status only goes to the log
             CommonUtils.timerSplit(stopWatch, msg);
             Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
 
@@ -132,7 +135,8 @@ public abstract class S3Consumer extends EndPointConsumer implements textFormatt
             s3ObjectSummaryStateService.insertS3ObjectSummaryState(listFilteredFileObjects, pipelineRunId, reportType);
 
         } catch(FileNotFoundException fna) {
-            CommonUtils.timerSplit(stopWatch, pipelineConfig.apiconfig.getSource().getS3SwitchBoard().getFileDownloadStatus());
+            log.error("File download status: {}", runContext.getStatus());
+            CommonUtils.timerSplit(stopWatch, "No file found");
             throw new FileNotFoundException(fna.getMessage());
         } catch(Exception e) {
             log.error(e.getMessage(),e.getCause());
@@ -200,10 +204,10 @@ public abstract class S3Consumer extends EndPointConsumer implements textFormatt
         Boolean splitFile;
         Boolean splitFileCompress;
         String newLine = System.getProperty("line.separator");
+        S3DbParam s3DbParam = runContext.getS3DbParam();
 
-        if (S3DbParam.getReportType().isEmpty()){
+        if (!s3DbParam.isInDb()){
             log.info(ANSI_GREEN + "Parameters(prefix and others) will be read from the application constants" + ANSI_RESET);
-            log.debug(ANSI_GREEN + "Had you chosen to get from PG, the URL would have been {}, the Username would have been {}, and the Password would have been {}", config.getUrl(), config.getUsername(), config.getPassword());
             level = toReportType(reportType).toString();
             String name = level.toUpperCase();
             s3PrefixPath = ApplicationConstants.S3ReportTypes.valueOf(name).getS3Prefix();
@@ -218,39 +222,31 @@ public abstract class S3Consumer extends EndPointConsumer implements textFormatt
             splitFileCompress = ApplicationConstants.S3ReportTypes.valueOf(level).getSplitfilecompress();
         }
         else {
-            level = S3DbParam.getReportType();
+            level = s3DbParam.getReportType();
             log.info(ANSI_GREEN + "Parameters(prefix and others) will be read from the PGDB not from the application constants." + ANSI_RESET);
             log.info(String.format(ANSI_GREEN + "If parameters are to be read from the application constants,then make the actv_f=N in database for the reporttype parameterentry %s " + newLine +
                     "and have reporttype parameterentry %s in the application constants" ,level,level) + ANSI_RESET);
 
-            s3PrefixPath = S3DbParam.getS3PrefixPath();
-            dirDownload = S3DbParam.getDirDownload();
-            xferMgrSingleFileDownload = S3DbParam.getXferMgrSingleFileDownload();
-            s3PrefixSqlFunction = S3DbParam.getS3PrefixSqlFunction();
-            compareWithPrevLoadedFilesCheckByCurrentDate = S3DbParam.getCompareWithPrevLoadedFilesCheckByCurrentDate();
-            compareWithPrevLoadedFilesCheck = S3DbParam.getCompareWithPrevLoadedFilesCheck();
-            abortNoFileFound = S3DbParam.getAbortNoFileFound();
-            fileAge = S3DbParam.getFileAge();
-            splitFile =  S3DbParam.getSplitFile();
-            splitFileCompress = S3DbParam.getSplitFileCompress();
+            s3PrefixPath = s3DbParam.getS3PrefixPath();
+            dirDownload = s3DbParam.getDirDownload();
+            xferMgrSingleFileDownload = s3DbParam.getXferMgrSingleFileDownload();
+            s3PrefixSqlFunction = s3DbParam.getS3PrefixSqlFunction();
+            compareWithPrevLoadedFilesCheckByCurrentDate = s3DbParam.getCompareWithPrevLoadedFilesCheckByCurrentDate();
+            compareWithPrevLoadedFilesCheck = s3DbParam.getCompareWithPrevLoadedFilesCheck();
+            abortNoFileFound = s3DbParam.getAbortNoFileFound();
+            fileAge = s3DbParam.getFileAge();
+            splitFile =  s3DbParam.getSplitFile();
+            splitFileCompress = s3DbParam.getSplitFileCompress();
         }
 
         if (s3PrefixSqlFunction) {
-            Connection connect = DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
             String firstStringInPrefix = s3PrefixPath.trim().substring(0, s3PrefixPath.indexOf(' '));
             if (firstStringInPrefix.toUpperCase().contains("SELECT") &&  !firstStringInPrefix.toUpperCase().contains("WHERE")) {
                 String sqlPrefix = s3PrefixPath.replaceAll("\\$startDate", startDate);
                 log.info(ANSI_GREEN + "Executing the sql to evaluate the prefix from table mdf_s3_parameter=>" + sqlPrefix + ANSI_RESET);
-                try (Connection conn = connect;
-                     PreparedStatement p = conn.prepareStatement(sqlPrefix))
-                {
-                    try (ResultSet rs = p.executeQuery()) {
-                        rs.next();
-                        s3PrefixPath = rs.getString(1);
-
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
+                try {
+                    s3PrefixPath = s3JdbcRepository.evaluatePrefixSql(sqlPrefix);
+                } catch (DataAccessException e) {
                     log.error(ANSI_RED + "SQL Error Message while evaluating the prefix from table mdf_s3_parameter: " + e.getMessage() + newLine +
                             "Correct the sql and rerun the process=>" + sqlPrefix + ANSI_RESET );
                     throw new SQLException("SQL Error Message to get prefix path from db");
@@ -85,9 +85,78 @@ public class PipelineConfig implements InitializingBean {
         public Hdfsdetails hdfsdetails;
         public Notification notification;
         public PipelineRunnerListenerThreadPool pipelineRunnerListener;
+        public RunQueue runQueue;
+        public TempStorage tempStorage;
+        public Resilience resilience;
         public List<Secrets> secrets;
     }
 
+    @Data
+    public static class RunQueue {
+        public Integer pollIntervalMillis;
+        public Integer heartbeatTimeoutSeconds;
+        public Integer defaultMaxConcurrentRuns;
+        public Integer defaultWeight;
+        public Integer defaultMaxConcurrentWindows;
+        public Integer backfillMaxAttempts;
+        public List<RunQueueSource> sources;
+    }
+
+    @Data
+    public static class RunQueueSource {
+        public String source;
+        public String priority;
+        public Integer weight;
+        public Integer maxConcurrentRuns;
+        public Integer maxConcurrentWindows;
+    }
+
+    @Data
+    public static class TempStorage {
+        public Integer refreshIntervalMillis;
+        public Long budgetBytes;
+        public Long defaultReservationBytes;
+        public Long minFreeBytes;
+        public Integer reservationWaitSeconds;
+        public Boolean sweepOrphansOnStartup;
+        public List<TempStorageSource> sources;
+    }
+
+    @Data
+    public static class TempStorageSource {
+        public String source;
+        public Long reservationBytes;
+    }
+
+    @Data
+    public static class Resilience {
+        public Integer maxAttempts;
+        public Integer initialBackoffMillis;
+        public Integer maxBackoffMillis;
+        public Double retryBudgetRatio;
+        public Integer retryBudgetMinRetries;
+        public Integer failureRateThreshold;
+        public Integer slidingWindowSize;
+        public Integer minimumCalls;
+        public Integer openStateSeconds;
+        public Integer maxConcurrentCalls;
+        public Integer maxWaitMillis;
+        public List<ResilienceEndpoint> endpoints;
+    }
+
+    @Data
+    public static class ResilienceEndpoint {
+        public String endpoint;
+        public Integer maxAttempts;
+        public Integer initialBackoffMillis;
+        public Integer maxBackoffMillis;
+        public Double retryBudgetRatio;
+        public Integer failureRateThreshold;
+        public Integer openStateSeconds;
+        public Integer maxConcurrentCalls;
+        public Integer maxWaitMillis;
+    }
+
     @Data
     public static class PipelineRunnerListenerThreadPool {
         public ThreadPool threadPool;
@@ -103,6 +172,12 @@ public class PipelineConfig implements InitializingBean {
     public static class Slack {
         public SlackMessage success;
         public SlackMessage failure;
+        public Integer queueCapacity;
+        public Integer coalesceWindowSeconds;
+        public Integer minIntervalMillis;
+        public Integer deliveryTimeoutSeconds;
+        public Integer shutdownGraceSeconds;
+        public Integer maxDeliveryThreads;
 
     }
 
@@ -127,8 +202,31 @@ public class PipelineConfig implements InitializingBean {
         public Xandr xandr;
         public IndexExchange indexExchange;
         public S3SwitchBoard s3SwitchBoard;
+        public Columnar columnar;
+
+
+    }
 
+    @Data
+    public static class Columnar {
+        public String format;
+        public String compression;
+        public Long rowGroupSizeBytes;
+        public Boolean dictionaryEncoding;
+        public Long maxRowsPerFile;
+        public List<ColumnarReportSchema> schemas;
+    }
 
+    @Data
+    public static class ColumnarReportSchema {
+        public String reportType;
+        public List<ColumnarColumn> columns;
+    }
+
+    @Data
+    public static class ColumnarColumn {
+        public String name;
+        public String type;
     }
 
     @Data
@@ -209,6 +307,10 @@ public class PipelineConfig implements InitializingBean {
         public String baseEndpoint;
         public String endpointSuffix;
         public com.target.kelsaapi.pipelines.config.authentication.Oauth2 authentication;
+        public Integer maxConcurrentDownloads;
+        public Integer initialPollIntervalSeconds;
+        public Integer maxPollIntervalSeconds;
+        public Integer reportTimeoutMinutes;
     }
 
     @Data
@@ -254,7 +356,8 @@ public class PipelineConfig implements InitializingBean {
         public String credentialsFileLocation;
         public Integer maxLinesBeforeFlush;
         public Long maxSizeBeforeNewFile;
-        public String fileDownloadStatus;
+        public Integer listingThreads;
+        public Integer listingShardDepth;
     }
 
     @Data
@@ -265,6 +368,13 @@ public class PipelineConfig implements InitializingBean {
         public String userName;
         public String password;
         public com.target.kelsaapi.pipelines.config.authentication.Oauth2 authentication;
+        public String extractionMode;
+        public Integer bulkPollIntervalSeconds;
+        public Integer bulkTimeoutMinutes;
+        public Integer bulkMaxRecordsPerChunk;
+        public Integer bulkMaxConcurrentChunks;
+        public String incrementalField;
+        public Integer incrementalLookbackMinutes;
     }
 
     @Data
@@ -273,6 +383,9 @@ public class PipelineConfig implements InitializingBean {
         public String userName;
         public String password;
         public String privateKeyFile;
+        public Integer port;
+        public Integer maxConnections;
+        public Integer connectTimeoutSeconds;
     }
 
 
@@ -307,6 +420,9 @@ public class PipelineConfig implements InitializingBean {
         public String reportDownloadEndPoint;
         public Report report;
         public com.target.kelsaapi.pipelines.config.authentication.Oauth2 authentication;
+        public Integer pollIntervalSeconds;
+        public Integer maxPollIntervalSeconds;
+        public Integer reportTimeoutMinutes;
     }
     @Data
     public static class IndexExchange {
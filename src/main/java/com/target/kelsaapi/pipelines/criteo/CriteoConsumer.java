@@ -7,25 +7,23 @@ import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.vo.criteo.CriteoRequest;
 import com.target.kelsaapi.pipelines.EndPointConsumer;
 import com.target.kelsaapi.pipelines.EndPointConsumerInterface;
-import com.target.kelsaapi.pipelines.config.PipelineConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StopWatch;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 @Slf4j
 public class CriteoConsumer extends EndPointConsumer implements EndPointConsumerInterface {
     private final CriteoServiceImpl SftpService;
 
-//    private final Oauth oauth;
-
     public CriteoConsumer(ApplicationContext context, String pipelineRunId) throws ConfigurationException {
         super(context, pipelineRunId);
         this.SftpService = context.getBean(CriteoServiceImpl.class);
-        PipelineConfig.Criteo SftpConfig = pipelineConfig.getApiconfig().getSource().getCriteo();
-  //      this.oauth = new Oauth(context, SftpConfig.getAuthentication());
     }
 
     @Override
@@ -42,21 +40,34 @@ public class CriteoConsumer extends EndPointConsumer implements EndPointConsumer
 
         try {
 
-            PipelineConfig.Criteo sftpConfig = pipelineConfig.getApiconfig().getSource().getCriteo();
             CriteoRequest request = new CriteoRequest(startDate, endDate, reportType);
             CommonUtils.timerSplit(stopWatch, "Ingest from SFTP");
-            String tempFile  = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.CRITEO, reportType);
+            //Each run lands its files in a folder of its own, so concurrent runs for the same date never share a .part
+            //file. Retries within the run resume from the bytes already on disk
+            String localDirectory = CommonUtils.generateTempFileRootPath() + pipelineRunId + "_"
+                    + ApplicationConstants.Sources.CRITEO.name().toLowerCase();
 
             log.info("remote directory name is : " + request.getDirectory());
             log.info("remote file name is : " + request.getFileName());
-            String fileName =  SftpService.getCriteoData(request, sftpConfig.hostName, sftpConfig.userName,sftpConfig.password,sftpConfig.privateKeyFile,pipelineRunId, reportType,request.getDirectory(),request.getFileName());
+            Path localFile = SftpService.getCriteoData(request, localDirectory);
 
-            //Now write to HDFS
-            CommonUtils.timerSplit(stopWatch, "Write to HDFS");
             Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
-            Boolean finalWriteSuccessful = writerService.writeToHDFS(targetFile,3,fileName, cleanupTempFile);
-            if (Boolean.FALSE.equals(finalWriteSuccessful)) {
-                throw new IOException("All write attempts to HDFS failed for " + targetFile);
+            if (localFile == null) {
+                log.info("{} was already ingested with the same size and modification time, nothing to write", request.getFileName());
+            } else {
+                //Taken before the write, which may clean up the landed file
+                String fingerprint = SftpService.fingerprint(localFile);
+
+                //Now write to HDFS
+                CommonUtils.timerSplit(stopWatch, "Write to HDFS");
+                Boolean finalWriteSuccessful = writerService.writeToHDFS(targetFile,3,localFile.toString(), cleanupTempFile);
+                if (Boolean.FALSE.equals(finalWriteSuccessful)) {
+                    throw new IOException("All write attempts to HDFS failed for " + targetFile);
+                }
+                SftpService.recordIngested(request, fingerprint, pipelineRunId);
+            }
+            if (Boolean.TRUE.equals(cleanupTempFile)) {
+                Files.deleteIfExists(Paths.get(localDirectory));
             }
 
         } catch (Exception e) {
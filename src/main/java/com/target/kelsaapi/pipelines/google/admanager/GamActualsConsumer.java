@@ -7,6 +7,7 @@ import com.target.kelsaapi.common.exceptions.GamException;
 import com.target.kelsaapi.common.service.google.admanager.GamAuthenticationService;
 import com.target.kelsaapi.common.service.google.admanager.actuals.GamActualsService;
 import com.target.kelsaapi.common.service.google.admanager.actuals.GamGeoService;
+import com.target.kelsaapi.common.service.postgres.checkpoint.PipelineCheckpointService;
 import com.target.kelsaapi.common.util.CommonUtils;
 import com.target.kelsaapi.common.vo.google.request.admanager.actuals.GamActualsRequest;
 import com.target.kelsaapi.common.vo.google.response.admanager.actuals.GamActualsResponse;
@@ -24,6 +25,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 public class GamActualsConsumer extends EndPointConsumer implements EndPointConsumerInterface {
@@ -34,11 +36,16 @@ public class GamActualsConsumer extends EndPointConsumer implements EndPointCons
 
     private final GamAuthenticationService auth;
 
+    private final PipelineCheckpointService checkpointService;
+
+    private static final String PARTITION_UNIT = "partition";
+
     public GamActualsConsumer(ApplicationContext context, String pipelineRunId) {
         super(context, pipelineRunId);
         this.gamActuals = context.getBean(GamActualsService.class);
         this.gamGeo = context.getBean(GamGeoService.class);
         this.auth = context.getBean(GamAuthenticationService.class);
+        this.checkpointService = context.getBean(PipelineCheckpointService.class);
     }
 
     @Override
@@ -65,16 +72,25 @@ public class GamActualsConsumer extends EndPointConsumer implements EndPointCons
 
             String tempFileRoot = CommonUtils.generateTempFileRootPath() + pipelineRunId + "_report-" + startDate;
             GamGeoResponse gamGeoData = (GamGeoResponse) gamGeo.get(oAuth2Credential);
+            //Partitions landed by a previous attempt of this run are reused when it is resumed
+            Map<String, Path> completedPartitions = checkpointService.getLocalArtifacts(pipelineRunId, PARTITION_UNIT);
             for (List<String> zipCodeList : Lists.partition(gamGeoData.getResponseList(), GEO_PARTITION_LIST_SIZE))
             {
                 String zipCode = StringUtils.join(zipCodeList, ',');
                 String tempFile = tempFileRoot + "_" + fileInc + ".csv";
+                String partitionKey = fileInc + ":" + zipCodeList.get(0);
                 tempFilesPath.add(Paths.get(tempFile));
                 fileInc++;
+                if (completedPartitions.containsKey(partitionKey)) {
+                    log.info("Skipping partition {}, already landed at {}", partitionKey, tempFile);
+                    continue;
+                }
                 log.info("Gam data successfully downloaded from API!");
                 GamActualsRequest request = new GamActualsRequest(startDate, endDate, zipCode);
                 GamActualsResponse actuals = (GamActualsResponse) gamActuals.get(request, oAuth2Credential);
-                localFileWriterService.writeLocalFile(actuals.getResponseList(),tempFile, false);
+                if (Boolean.TRUE.equals(localFileWriterService.writeLocalFile(actuals.getResponseList(),tempFile, false))) {
+                    checkpointService.complete(pipelineRunId, PARTITION_UNIT, partitionKey, tempFile);
+                }
             }
 
             if (tempFilesPath.isEmpty()) throw new GamException("No files downloaded!");
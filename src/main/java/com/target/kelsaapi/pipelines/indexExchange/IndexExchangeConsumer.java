@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Map;
 
 @Slf4j
 public class IndexExchangeConsumer extends EndPointConsumer implements EndPointConsumerInterface {
@@ -60,13 +59,10 @@ public class IndexExchangeConsumer extends EndPointConsumer implements EndPointC
         //Begin the timer
         CommonUtils.timerSplit(stopWatch, "Initialization");
         try {
-            //Initialize header
-            Map<String, String> headersMap = indexExchangeService.setHeaderMap(oauth);
             CommonUtils.timerSplit(stopWatch, "Ingest from API");
             log.info("Index Exchange: working on report {}",  reportType.name());
-            log.debug(oauth.getOAuthToken());
 
-            ArrayList<ReportsList> reportsList = indexExchangeService.listReports(headersMap, reportType.getReportId());
+            ArrayList<ReportsList> reportsList = indexExchangeService.listReports(oauth, reportType.getReportId());
 
             sortReportsList(reportsList);
             for (ReportsList list : reportsList) {
@@ -76,16 +72,12 @@ public class IndexExchangeConsumer extends EndPointConsumer implements EndPointC
             // only latest day report is enough, as everyday report will have data for the past 14 days
             int latestReportFileId = reportsList.get(0).getFileID(); //12605179
             log.info("Index exchange: {} report fileID: {} to download", reportType.name(), latestReportFileId);
-            //Fetch downloadable file contents
-            String reportContents = indexExchangeService.downloadReport(headersMap, latestReportFileId);
-
             String tempFile = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.INDEXEXCHANGE, reportType.name());
             log.debug("local temp file name: "+tempFile);
 
-            Boolean localWriteSuccessful = localFileWriterService.writeLocalFile(reportContents, tempFile, true, true);
-            if (Boolean.FALSE.equals(localWriteSuccessful)) {
-                throw new IOException("write attempt to local filesystem failed for " + tempFile);
-            }
+            //Stream downloadable file contents straight to a gzipped temp file
+            Long bytes = indexExchangeService.downloadReport(oauth, latestReportFileId, tempFile);
+            CommonUtils.recordStageBytes(stopWatch, bytes);
 
             CommonUtils.timerSplit(stopWatch, "Write to HDFS");
             log.info("Attempting to write downloaded Index exchange: {} data to HDFS", reportType.name());
@@ -15,7 +15,6 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.StopWatch;
 
 import java.io.IOException;
-import java.util.List;
 
 @Slf4j
 public class PinterestAudienceConsumer extends EndPointConsumer implements EndPointConsumerInterface {
@@ -49,12 +48,13 @@ public class PinterestAudienceConsumer extends EndPointConsumer implements EndPo
 
             String tempFile  = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.PINTEREST, reportType);
 
-            List<String> finalList =  pinterestAudienceService.getPinterestAudienceData(request, oauth, pipelineRunId, reportType);
+            long rows = pinterestAudienceService.writePinterestAudienceData(request, oauth, pipelineRunId, reportType, tempFile);
+            CommonUtils.recordStageRows(stopWatch, rows);
 
             //Now write to HDFS
             CommonUtils.timerSplit(stopWatch, "Write to HDFS");
             Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
-            Boolean finalWriteSuccessful = writerService.writeToHDFS(finalList, targetFile,3,tempFile, cleanupTempFile);
+            Boolean finalWriteSuccessful = writerService.writeToHDFS(targetFile,3,tempFile, cleanupTempFile);
             if (Boolean.FALSE.equals(finalWriteSuccessful)) {
                 throw new IOException("All write attempts to HDFS failed for " + targetFile);
             }
@@ -14,6 +14,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.StopWatch;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 
 @Slf4j
@@ -46,16 +47,43 @@ public class SalesforceConsumer extends EndPointConsumer implements EndPointCons
             CommonUtils.timerSplit(stopWatch, "Ingest from API");
 
             String tempFile  = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.SALESFORCE, reportType);
+            Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
+            Boolean finalWriteSuccessful;
+            //Changes made while the extract runs may be missed by it, so the watermark is the time it started
+            Instant extractStarted = Instant.now();
+            Instant modifiedSince = salesforceService.getModifiedSince(reportType).orElse(null);
 
-            List<String> finalList =  salesforceService.getSalesforceObjectData(oauth, pipelineRunId, reportType);
+            if (salesforceService.isBulkExtraction()) {
+                //Bulk query jobs return csv rather than json pages
+                String jsonExtension = ApplicationConstants.FileExtensions.JSON_GZ.getName();
+                String csvExtension = ApplicationConstants.FileExtensions.CSV_GZ.getName();
+                tempFile = tempFile.replace(jsonExtension, csvExtension);
+                targetFile = targetFile.replace(jsonExtension, csvExtension);
 
-            //Now write to HDFS
-            CommonUtils.timerSplit(stopWatch, "Write to HDFS");
-            Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
-            Boolean finalWriteSuccessful = writerService.writeToHDFS(finalList, targetFile,3,tempFile, cleanupTempFile);
+                long records = salesforceService.writeSalesforceObjectDataBulk(oauth, pipelineRunId, reportType, modifiedSince, tempFile);
+                CommonUtils.recordStageRows(stopWatch, records);
+
+                //Now write to HDFS
+                CommonUtils.timerSplit(stopWatch, "Write to HDFS");
+                finalWriteSuccessful = writerService.writeToHDFS(targetFile, 3, tempFile, cleanupTempFile);
+            } else {
+                List<String> finalList =  salesforceService.getSalesforceObjectData(oauth, pipelineRunId, reportType, modifiedSince);
+                CommonUtils.recordStageRows(stopWatch, (long) finalList.size());
+
+                if (finalList.isEmpty()) {
+                    //Nothing changed since the watermark, so there is nothing to land but the watermark still moves on
+                    log.info("No changed records of {} to write to HDFS", reportType);
+                    finalWriteSuccessful = true;
+                } else {
+                    //Now write to HDFS
+                    CommonUtils.timerSplit(stopWatch, "Write to HDFS");
+                    finalWriteSuccessful = writerService.writeToHDFS(finalList, targetFile,3,tempFile, cleanupTempFile);
+                }
+            }
             if (Boolean.FALSE.equals(finalWriteSuccessful)) {
                 throw new IOException("All write attempts to HDFS failed for " + targetFile);
             }
+            salesforceService.advanceWatermark(reportType, extractStarted, pipelineRunId);
 
         } catch (Exception e) {
             log.error("Exception thrown while retrieving results", e);
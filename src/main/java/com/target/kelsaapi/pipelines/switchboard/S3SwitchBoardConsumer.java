@@ -3,6 +3,7 @@ package com.target.kelsaapi.pipelines.switchboard;
 import com.amazonaws.services.s3.AmazonS3;
 import com.target.kelsaapi.common.exceptions.AuthenticationException;
 import com.target.kelsaapi.common.service.s3.auth.S3AuthenticationService;
+import com.target.kelsaapi.common.vo.pipeline.RunContext;
 import com.target.kelsaapi.common.vo.s3.S3BucketParam;
 import com.target.kelsaapi.pipelines.S3Consumer;
 import lombok.SneakyThrows;
@@ -25,8 +26,8 @@ public class S3SwitchBoardConsumer extends S3Consumer  {
 
     S3BucketParam s3BucketParam  = new S3BucketParam(profileName,bucketName,regionName);
 
-    public S3SwitchBoardConsumer(ApplicationContext context, String pipelineRunId) throws AuthenticationException {
-        super(context, pipelineRunId);
+    public S3SwitchBoardConsumer(ApplicationContext context, RunContext runContext) throws AuthenticationException {
+        super(context, runContext);
         this.s3AuthenticationService = context.getBean(S3AuthenticationService.class);
     }
 
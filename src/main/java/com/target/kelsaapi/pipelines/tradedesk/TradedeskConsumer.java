@@ -5,8 +5,10 @@ import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.constants.ApplicationConstants.TradedeskApiReportTypes;
 import com.target.kelsaapi.common.constants.ApplicationConstants.TradedeskReportTypes;
 import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.service.postgres.checkpoint.PipelineCheckpointService;
 import com.target.kelsaapi.common.service.tradedesk.TradedeskService;
 import com.target.kelsaapi.common.util.CommonUtils;
+import com.target.kelsaapi.common.util.SerializerRegistry;
 import com.target.kelsaapi.common.vo.Oauth;
 import com.target.kelsaapi.pipelines.EndPointConsumer;
 import com.target.kelsaapi.pipelines.EndPointConsumerInterface;
@@ -16,6 +18,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.util.StopWatch;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +34,19 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
 
     final private Oauth oauth;
 
+    private final PipelineCheckpointService checkpointService;
+
+    private final SerializerRegistry serializers;
+
+    private static final String ADVERTISER_UNIT = "advertiser";
+
     public TradedeskConsumer(ApplicationContext context, String pipelineRunId) throws ConfigurationException {
         super(context, pipelineRunId);
         this.tradedeskService = context.getBean(TradedeskService.class);
         this.tradeDeskConfig = pipelineConfig.getApiconfig().getSource().getTradedesk();
         this.oauth = new Oauth(context, tradeDeskConfig.getAuthentication());
+        this.checkpointService = context.getBean(PipelineCheckpointService.class);
+        this.serializers = context.getBean(SerializerRegistry.class);
     }
 
     /**
@@ -63,9 +76,6 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
         CommonUtils.timerSplit(stopWatch, "Initialization");
 
         try {
-            //Initialize header
-            Map<String, String> headersMap = tradedeskService.setHeaderMap(oauth);
-
             CommonUtils.timerSplit(stopWatch, "Ingest from API");
             log.info("working on report {}", reportType.name());
             log.debug("partnerId: {}, baseUrl: {}, contractorEndPoint: {}", tradeDeskConfig.partnerId,
@@ -73,7 +83,7 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
                     tradeDeskConfig.contractorEndPoint);
 
             //Fetch most recent downloadable file URL
-            String reportDownloadLink = tradedeskService.getReportDownloadLink(headersMap,
+            String reportDownloadLink = tradedeskService.getReportDownloadLink(oauth,
                     startDate,
                     tradeDeskConfig.partnerId,
                     reportType.getReportId(),
@@ -81,10 +91,17 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
                     tradeDeskConfig.reportsEndPoint);
 
             //Fetch downloadable file contents
-            headersMap.remove("Content-Type");
-            String reportContents = tradedeskService.getReportDownload(headersMap, reportDownloadLink);
             String tempFile = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.TRADEDESK, reportType.name());
-            writeToHDFS(targetFile, tempFile, stopWatch, reportContents);
+            Long bytes = tradedeskService.downloadReport(oauth, reportDownloadLink, tempFile);
+            CommonUtils.recordStageBytes(stopWatch, bytes);
+
+            //Now write to HDFS
+            CommonUtils.timerSplit(stopWatch, "Write to HDFS");
+            Boolean cleanupTempFile = pipelineConfig.apiconfig.source.cleanupTempFile;
+            Boolean finalWriteSuccessful = writerService.writeToHDFS(targetFile, 3, tempFile, cleanupTempFile);
+            if (Boolean.FALSE.equals(finalWriteSuccessful)) {
+                throw new IOException("All write attempts to HDFS failed for " + targetFile);
+            }
 
         } catch (Exception e) {
             log.error("Exception thrown while retrieving results", e);
@@ -99,19 +116,16 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
         CommonUtils.timerSplit(stopWatch, "Initialization");
 
         try {
-            //Initialize header
-            Map<String, String> headersMap = tradedeskService.setHeaderMap(oauth);
-
             CommonUtils.timerSplit(stopWatch, "Ingest from API");
             log.info("working on report {}", reportType.name());
             log.debug("partnerId: {}, baseUrl: {}, contractorEndPoint: {}", tradeDeskConfig.partnerId,
                     tradeDeskConfig.baseUrl,
                     tradeDeskConfig.contractorEndPoint);
-            ObjectMapper mapper = new ObjectMapper();
+            ObjectMapper mapper = serializers.objectMapper();
             if (reportType.name().equals("OPTIMUS_CONTRACT_FLOOR_PRICE_API")) {
 
                 List<String> reportContents = tradedeskService.getApiDataWithPagination(
-                        headersMap,
+                        oauth,
                         tradeDeskConfig.partnerId,
                         tradeDeskConfig.baseUrl,
                         tradeDeskConfig.contractorEndPoint);
@@ -123,31 +137,43 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
             } //else if (reportType.name().equals("OPTIMUS_ADGROUP_BID_API")) {
             else {
                 List<String> advertiserIds = tradedeskService.getAllAdvertiserIds(
-                        headersMap,
+                        oauth,
                         tradeDeskConfig.partnerId,
                         tradeDeskConfig.baseUrl,
                         tradeDeskConfig.advertiserEndPoint);
                 log.info("count of Extracted advertisers: {}", advertiserIds.size());
                 String tempFile = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.TRADEDESKAPI, reportType.name());
+                //Each advertiser lands in its own gzip member file, so a resumed run only fetches the missing ones
+                Map<String, Path> completedAdvertisers = checkpointService.getLocalArtifacts(pipelineRunId, ADVERTISER_UNIT);
+                List<Path> advertiserFiles = new ArrayList<>();
                 int startIdx = 1;
 //                List<String> adGroupData = new ArrayList<>();
                 for (String advertiserId : advertiserIds) {
+                    Path advertiserFile = Path.of(tempFile + "_advertiser-" + advertiserId);
+                    advertiserFiles.add(advertiserFile);
+                    if (completedAdvertisers.containsKey(advertiserId)) {
+                        log.info("Skipping Advertiser {}, already landed at {}", advertiserId, advertiserFile);
+                        startIdx++;
+                        continue;
+                    }
                     List<String> adGroupDetails = tradedeskService.getApiDataWithPagination(
-                            headersMap,
+                            oauth,
                             advertiserId,
                             tradeDeskConfig.baseUrl,
                             tradeDeskConfig.adgroupAdvertiserEndPoint);
 //                    adGroupData.addAll(adGroupDetails);
                     String data = mapper.writeValueAsString(adGroupDetails);
-                    Boolean localWriteSuccessful = localFileWriterService.writeLocalFile(data, tempFile, true, true);
+                    Boolean localWriteSuccessful = localFileWriterService.writeLocalFile(data, advertiserFile.toString(), true, false);
                     if (Boolean.FALSE.equals(localWriteSuccessful)) {
-                        throw new IOException("write attempt to local filesystem failed for " + tempFile);
+                        throw new IOException("write attempt to local filesystem failed for " + advertiserFile);
                     }
+                    checkpointService.complete(pipelineRunId, ADVERTISER_UNIT, advertiserId, advertiserFile.toString());
                     log.info("Extracted adgroup details data for Advertiser: {}", advertiserId );
                     log.info("completed for AdvertiserID number(index): {}", startIdx );
 
                     startIdx++;
                 }
+                concatenate(advertiserFiles, Path.of(tempFile));
                 log.info("tradedesk api: extracted all {} Advertisers data", advertiserIds.size());
 //                String data = mapper.writeValueAsString(adGroupData);
 //                writeToHDFS(targetFile, tempFile, stopWatch, data);
@@ -158,6 +184,7 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
                 if (Boolean.FALSE.equals(finalWriteSuccessful)) {
                     throw new IOException("All write attempts to HDFS failed for " + targetFile);
                 }
+                localFileWriterService.deleteLocalFiles(advertiserFiles);
             }
         } catch (Exception e) {
             log.error("Exception thrown while retrieving results", e);
@@ -175,6 +202,18 @@ public class TradedeskConsumer extends EndPointConsumer implements EndPointConsu
         }
     }
 
+    /**
+     * Joins the per advertiser gzip files in advertiser order. Concatenated gzip members read back as one stream, so
+     * the result is the same file the advertisers used to be appended to one by one.
+     */
+    private void concatenate(List<Path> inputFiles, Path outputFile) throws IOException {
+        try (OutputStream out = Files.newOutputStream(outputFile)) {
+            for (Path inputFile : inputFiles) {
+                Files.copy(inputFile, out);
+            }
+        }
+    }
+
     private TradedeskReportTypes getReportType(String reportType) {
         return TradedeskReportTypes.valueOf(reportType.toUpperCase());
     }
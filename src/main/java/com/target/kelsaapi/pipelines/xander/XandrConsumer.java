@@ -14,8 +14,6 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.util.StopWatch;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.TimeoutException;
 
 
 @Slf4j
@@ -58,44 +56,21 @@ public class XandrConsumer extends EndPointConsumer implements EndPointConsumerI
         CommonUtils.timerSplit(stopWatch, "Initialization");
 
         try {
-            //Initialize header
-            Map<String, String> headersMap = xandrService.setHeaderMap(oauth);
             CommonUtils.timerSplit(stopWatch, "Ingest from API");
             log.info("Xandr - working on report {}", xandrConfig.report);
 
             JsonNode bodyMap = xandrService.setBodyMap(xandrConfig.report, reportType.name());
             log.info("bodyMap Value: {}", bodyMap.toPrettyString());
-            String report_id = xandrService.requestReport(headersMap, bodyMap, xandrConfig.baseUrl, xandrConfig.reportEndPoint);
-//            String report_status = xandrService.getReportStatus(headersMap, xandrConfig.baseUrl, xandrConfig.reportStatusEndPoint, report_id);
-
-            String report_status = null;
-            int minutes = 0;
-            do {
-                report_status = xandrService.getReportStatus(headersMap, xandrConfig.baseUrl, xandrConfig.reportEndPoint, report_id);
-                try {
-                    Thread.sleep(60 * 1000); //sleep for 60 seconds
-                    minutes = minutes + 1;
-                } catch (InterruptedException ie) {
-                    log.error("Xandr - Exception thrown while tried to Sleep", ie);
-                    Thread.currentThread().interrupt();
-                }
-            } while (!report_status.equalsIgnoreCase("ready") & minutes < 15);
-
-
-            if (!report_status.equalsIgnoreCase("ready")) {
-                log.error("Xandr - TimeOut error.. waited for 15 minutes still the report is not ready. Report id: "+report_id);
-                throw new TimeoutException("Xandr - api Time out exception while waiting for the report: "+report_id);
-            }
+            String report_id = xandrService.requestReport(oauth, bodyMap, xandrConfig.baseUrl, xandrConfig.reportEndPoint);
+//            String report_status = xandrService.getReportStatus(oauth, xandrConfig.baseUrl, xandrConfig.reportStatusEndPoint, report_id);
+
+            xandrService.waitForReport(oauth, xandrConfig.baseUrl, xandrConfig.reportEndPoint, report_id);
 
-            //Fetch downloadable file contents
-            headersMap.remove("Content-Type");
-            String reportContents = xandrService.downloadReport(headersMap, xandrConfig.baseUrl, xandrConfig.reportDownloadEndPoint, report_id);
+            //Stream downloadable file contents straight to a gzipped temp file
             String tempFile = CommonUtils.generateTempFilePathAndName(pipelineRunId, ApplicationConstants.Sources.XANDR, reportType.name());
             log.debug("Local tempfile name: "+tempFile);
-            Boolean localWriteSuccessful = localFileWriterService.writeLocalFile(reportContents, tempFile, true, true);
-            if (Boolean.FALSE.equals(localWriteSuccessful)) {
-                throw new IOException("write attempt to local filesystem failed for " + tempFile);
-            }
+            Long bytes = xandrService.downloadReport(oauth, xandrConfig.baseUrl, xandrConfig.reportDownloadEndPoint, report_id, tempFile);
+            CommonUtils.recordStageBytes(stopWatch, bytes);
 
             CommonUtils.timerSplit(stopWatch, "Write to HDFS");
             log.info("Attempting to write downloaded Xandr: {} data to HDFS", reportType.name());
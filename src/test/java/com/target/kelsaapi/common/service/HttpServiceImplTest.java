@@ -2,25 +2,47 @@ package com.target.kelsaapi.common.service;
 
 import com.target.kelsaapi.common.exceptions.HttpException;
 import com.target.kelsaapi.common.exceptions.HttpRetryableException;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
+import com.target.kelsaapi.common.service.resilience.ResilientAspect;
+import com.target.kelsaapi.common.service.resilience.TransientFailures;
+import com.target.kelsaapi.common.service.rest.HttpService;
 import com.target.kelsaapi.common.service.rest.HttpServiceImpl;
 import com.target.kelsaapi.common.vo.HttpCustomResponse;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 
@@ -81,4 +103,64 @@ public class HttpServiceImplTest {
 
         assertEquals(actualResponse.getStatusCode().intValue(), HttpStatus.OK.value());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDownloadBodyCutOffPartWayIsRetryable() throws Exception {
+        Path file = Files.createTempFile("download", ".csv");
+        AtomicInteger attempts = stubDownload("a,b\n1,2\n".getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE);
+
+        HttpRetryableException e = assertThrows(HttpRetryableException.class,
+                () -> httpService.download("http://vendor/report", map, file.toString(), false));
+        assertTrue(new TransientFailures().test(e));
+        assertEquals(1, attempts.get());
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testGuardedDownloadRetriesABodyCutOffPartWay() throws Exception {
+        Path file = Files.createTempFile("download", ".csv");
+        byte[] body = "a,b\n1,2\n3,4\n".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger attempts = stubDownload(body, 1);
+
+        PipelineConfig.Resilience resilience = new PipelineConfig.Resilience();
+        resilience.setInitialBackoffMillis(1);
+        resilience.setMaxBackoffMillis(5);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(httpService);
+        proxyFactory.addAspect(new ResilientAspect(new ResilienceRegistry(resilience, new SimpleMeterRegistry())));
+        HttpService guarded = proxyFactory.getProxy();
+
+        assertEquals((long) body.length, guarded.download("http://vendor/report", map, file.toString(), false));
+        assertEquals(2, attempts.get());
+        //The retry overwrites the partial body of the first attempt
+        assertArrayEquals(body, Files.readAllBytes(file));
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Answers downloads with the given body, cut off after its first 4 bytes for the given number of attempts.
+     */
+    @SuppressWarnings("unchecked")
+    private AtomicInteger stubDownload(byte[] body, int failedAttempts) {
+        AtomicInteger attempts = new AtomicInteger();
+        when(restTemplate.execute(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.eq(HttpMethod.GET),
+                ArgumentMatchers.any(RequestCallback.class),
+                ArgumentMatchers.any(ResponseExtractor.class)
+        )).thenAnswer(invocation -> {
+            InputStream in = attempts.incrementAndGet() <= failedAttempts
+                    ? new SequenceInputStream(new ByteArrayInputStream(body, 0, 4), new InputStream() {
+                        @Override
+                        public int read() throws IOException {
+                            throw new IOException("Connection reset");
+                        }
+                    })
+                    : new ByteArrayInputStream(body);
+            ClientHttpResponse response = mock(ClientHttpResponse.class);
+            when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+            when(response.getBody()).thenReturn(in);
+            return invocation.<ResponseExtractor<?>>getArgument(3).extractData(response);
+        });
+        return attempts;
+    }
+}
@@ -0,0 +1,168 @@
+package com.target.kelsaapi.common.service.authentication;
+
+import com.target.kelsaapi.common.vo.OauthToken;
+import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenCacheTest {
+
+    private final AuthenticationService auth = mock(AuthenticationService.class);
+
+    private final AtomicInteger exchanges = new AtomicInteger();
+
+    private TokenCache tokenCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doReturn(HttpEntity.EMPTY).when(auth).getOauth2RequestObject(any());
+        tokenCache = new TokenCache(auth);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenCache.shutdown();
+    }
+
+    @Test
+    void aTokenIsReusedUntilItIsDueForRefresh() throws Exception {
+        issueTokensValidFor(3600L);
+        Oauth2 config = config("client-a");
+
+        assertEquals("token-1", tokenCache.getToken(config));
+        assertEquals("token-1", tokenCache.getToken(config));
+        assertEquals(1, exchanges.get());
+    }
+
+    @Test
+    void anExpiredTokenIsFetchedAgain() throws Exception {
+        issueTokensValidFor(0L);
+        Oauth2 config = config("client-a");
+
+        assertEquals("token-1", tokenCache.getToken(config));
+        assertEquals("token-2", tokenCache.getToken(config));
+        assertEquals(2, exchanges.get());
+    }
+
+    @Test
+    void aTokenDueForRefreshIsStillHandedOutWhileItIsRefreshedInTheBackground() throws Exception {
+        //Halfway through a 2 second lifetime the token is due for refresh but still valid
+        issueTokensValidFor(2L);
+        Oauth2 config = config("client-a");
+        assertEquals("token-1", tokenCache.getToken(config));
+
+        Thread.sleep(1100);
+        assertEquals("token-1", tokenCache.getToken(config));
+        verify(auth, timeout(1000).times(2)).getOauth2AccessToken(anyString(), any(), anyString(), anyBoolean());
+        Thread.sleep(100);
+        assertEquals("token-2", tokenCache.getToken(config));
+    }
+
+    @Test
+    void aRejectedTokenIsReplaced() throws Exception {
+        issueTokensValidFor(3600L);
+        Oauth2 config = config("client-a");
+        assertEquals("token-1", tokenCache.getToken(config));
+
+        assertEquals("token-2", tokenCache.refreshToken(config, "token-1"));
+        assertEquals("token-2", tokenCache.getToken(config));
+        assertEquals(2, exchanges.get());
+    }
+
+    @Test
+    void aTokenAlreadyReplacedByAnotherCallerIsNotFetchedAgain() throws Exception {
+        issueTokensValidFor(3600L);
+        Oauth2 config = config("client-a");
+        tokenCache.getToken(config);
+        tokenCache.refreshToken(config, "token-1");
+
+        //A second caller which was also rejected with token-1 gets the token the first one fetched
+        assertEquals("token-2", tokenCache.refreshToken(config, "token-1"));
+        assertEquals(2, exchanges.get());
+    }
+
+    @Test
+    void concurrentCallersShareOneExchange() throws Exception {
+        CountDownLatch exchangeStarted = new CountDownLatch(1);
+        CountDownLatch finishExchange = new CountDownLatch(1);
+        when(auth.getOauth2AccessToken(anyString(), any(), anyString(), anyBoolean())).thenAnswer(invocation -> {
+            exchangeStarted.countDown();
+            assertTrue(finishExchange.await(5, TimeUnit.SECONDS));
+            return new OauthToken("token-" + exchanges.incrementAndGet(), 3600L);
+        });
+        Oauth2 config = config("client-a");
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tokens.add(callers.submit(() -> tokenCache.getToken(config)));
+            }
+            assertTrue(exchangeStarted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            finishExchange.countDown();
+
+            for (Future<String> token : tokens) {
+                assertEquals("token-1", token.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, exchanges.get());
+    }
+
+    @Test
+    void differentClientsGetTheirOwnTokens() throws Exception {
+        issueTokensValidFor(3600L);
+
+        assertEquals("token-1", tokenCache.getToken(config("client-a")));
+        assertEquals("token-2", tokenCache.getToken(config("client-b")));
+        assertEquals("token-1", tokenCache.getToken(config("client-a")));
+    }
+
+    @Test
+    void aStaticAccessTokenIsNeverExchanged() throws Exception {
+        Oauth2 config = config("client-a");
+        config.setAccessToken("static");
+
+        assertEquals("static", tokenCache.getToken(config));
+        assertEquals("static", tokenCache.refreshToken(config, "static"));
+        verify(auth, never()).getOauth2AccessToken(anyString(), any(), anyString(), anyBoolean());
+    }
+
+    private void issueTokensValidFor(Long expiresInSeconds) {
+        when(auth.getOauth2AccessToken(anyString(), any(), anyString(), anyBoolean()))
+                .thenAnswer(invocation -> new OauthToken("token-" + exchanges.incrementAndGet(), expiresInSeconds));
+    }
+
+    private static Oauth2 config(String clientId) {
+        Oauth2 config = new Oauth2();
+        config.setOauthUrl("https://auth.example.com/token");
+        config.setBodyMap(Map.of("client_id", clientId, "grant_type", "client_credentials"));
+        return config;
+    }
+}
@@ -0,0 +1,148 @@
+package com.target.kelsaapi.common.service.criteo;
+
+import com.target.kelsaapi.common.service.postgres.watermark.IngestWatermarkService;
+import com.target.kelsaapi.common.vo.criteo.CriteoRequest;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.apache.commons.io.FileUtils;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs {@link CriteoServiceImpl} against an in-process Apache MINA SSHD server.
+ */
+public class CriteoServiceImplTest {
+
+    private static final String REPORT_TYPE = "criteo_campaign_dly_snapshot";
+
+    private SshServer sshServer;
+
+    private Path remoteRoot;
+
+    private Path localRoot;
+
+    private CriteoServiceImpl criteoService;
+
+    //The cursors of mdf_ingest_watermark, keyed by source system, report type and entity
+    private final Map<List<String>, String> watermarks = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        remoteRoot = Files.createTempDirectory("criteo-remote");
+        localRoot = Files.createTempDirectory("criteo-local");
+
+        sshServer = SshServer.setUpDefaultServer();
+        sshServer.setHost("localhost");
+        sshServer.setPort(0);
+        sshServer.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        sshServer.setPasswordAuthenticator((user, password, session) -> "criteo".equals(user) && "secret".equals(password));
+        sshServer.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        sshServer.setFileSystemFactory(new VirtualFileSystemFactory(remoteRoot));
+        sshServer.start();
+
+        PipelineConfig.Criteo criteoConfig = new PipelineConfig.Criteo();
+        criteoConfig.setHostName("localhost");
+        criteoConfig.setPort(sshServer.getPort());
+        criteoConfig.setUserName("criteo");
+        criteoConfig.setPassword("secret");
+        criteoConfig.setPrivateKeyFile("");
+        criteoConfig.setMaxConnections(2);
+        IngestWatermarkService watermarkService = mock(IngestWatermarkService.class);
+        when(watermarkService.getCursor(anyString(), anyString(), anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(watermarks.get(List.of(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)))));
+        doAnswer(invocation -> watermarks.put(List.of(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)),
+                invocation.getArgument(3))).when(watermarkService).saveCursor(anyString(), anyString(), anyString(), anyString(), anyString());
+        criteoService = new CriteoServiceImpl(criteoConfig, watermarkService);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        criteoService.closeConnections();
+        sshServer.stop(true);
+        FileUtils.deleteDirectory(remoteRoot.toFile());
+        FileUtils.deleteDirectory(localRoot.toFile());
+    }
+
+    @Test
+    public void testParallelDownloadOfSeveralDays() throws IOException {
+        List<CriteoRequest> requests = List.of(
+                new CriteoRequest("2024-01-01", "2024-01-01", REPORT_TYPE),
+                new CriteoRequest("2024-01-02", "2024-01-02", REPORT_TYPE),
+                new CriteoRequest("2024-01-03", "2024-01-03", REPORT_TYPE));
+        for (CriteoRequest request : requests) {
+            Files.writeString(remoteRoot.resolve(request.getFileName()), "id\tclicks\n1\t" + request.getStart_date() + "\n");
+        }
+
+        List<Path> localFiles = criteoService.getCriteoData(requests, localRoot.toString());
+
+        assertEquals(3, localFiles.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(Files.readString(remoteRoot.resolve(requests.get(i).getFileName())), Files.readString(localFiles.get(i)));
+        }
+    }
+
+    @Test
+    public void testResumesFromPartialDownload() throws IOException {
+        CriteoRequest request = new CriteoRequest("2024-01-04", "2024-01-04", REPORT_TYPE);
+        String contents = "id\tclicks\n" + "1\t100\n".repeat(10000);
+        Files.writeString(remoteRoot.resolve(request.getFileName()), contents);
+        //Simulate an interrupted earlier attempt which got the first half of the file
+        byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        Files.write(localRoot.resolve(request.getFileName() + ".part"), java.util.Arrays.copyOf(bytes, bytes.length / 2));
+
+        Path localFile = criteoService.getCriteoData(request, localRoot.toString());
+
+        assertEquals(contents, Files.readString(localFile));
+        assertFalse(Files.exists(localRoot.resolve(request.getFileName() + ".part")));
+    }
+
+    @Test
+    public void testSkipsOnlyWhenSizeAndModifiedTimeMatch() throws IOException {
+        CriteoRequest request = new CriteoRequest("2024-01-05", "2024-01-05", REPORT_TYPE);
+        Path remoteFile = remoteRoot.resolve(request.getFileName());
+        Files.writeString(remoteFile, "id\tclicks\n1\t100\n");
+        Path localFile = criteoService.getCriteoData(request, localRoot.toString());
+        assertEquals(Files.getLastModifiedTime(remoteFile).to(TimeUnit.SECONDS),
+                Files.getLastModifiedTime(localFile).to(TimeUnit.SECONDS));
+        criteoService.recordIngested(request, criteoService.fingerprint(localFile), "run1");
+
+        //Same size and mtime as the ingested file, so a marker written locally must survive
+        Files.writeString(localFile, "id\tclicks\n1\t999\n");
+        Files.setLastModifiedTime(localFile, FileTime.from(Files.getLastModifiedTime(remoteFile).to(TimeUnit.SECONDS), TimeUnit.SECONDS));
+        assertNull(criteoService.getCriteoData(request, localRoot.toString()));
+        assertEquals("id\tclicks\n1\t999\n", Files.readString(localFile));
+
+        //Remote file changed, so it must be pulled again
+        Files.writeString(remoteFile, "id\tclicks\n1\t100\n2\t200\n");
+        criteoService.getCriteoData(request, localRoot.toString());
+        assertEquals("id\tclicks\n1\t100\n2\t200\n", Files.readString(localFile));
+    }
+
+    @Test
+    public void testMissingRemoteFileFails() {
+        CriteoRequest request = new CriteoRequest("2024-01-06", "2024-01-06", REPORT_TYPE);
+        assertThrows(IOException.class, () -> criteoService.getCriteoData(request, localRoot.toString()));
+    }
+}
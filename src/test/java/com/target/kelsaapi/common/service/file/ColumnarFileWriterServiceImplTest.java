@@ -0,0 +1,191 @@
+package com.target.kelsaapi.common.service.file;
+
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarFileWriterServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGzippedCsvRoundTripsThroughParquetWithInferredSchema() throws IOException {
+        Path staged = tempDir.resolve("run_campaign.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(staged))) {
+            out.write(("id,zip,amount,active,name\n" +
+                    "1,01234,1.5,true,first\n" +
+                    "2,55401,2,false,\n" +
+                    "3,,2.25,true,\"third, quoted\"\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<Path> files = writer(columnar("parquet", null, null)).writeColumnarFiles(staged,
+                tempDir.resolve("run_campaign").toString(), "campaign");
+
+        assertEquals(List.of(tempDir.resolve("run_campaign_1.parquet")), files);
+        List<List<Object>> rows = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(),
+                new org.apache.hadoop.fs.Path(files.get(0).toUri())).withConf(new Configuration()).build()) {
+            Group group;
+            while ((group = reader.read()) != null) {
+                if (types.isEmpty()) {
+                    for (Type field : group.getType().getFields()) {
+                        types.add(field.getName() + ":" + field.asPrimitiveType().getPrimitiveTypeName());
+                    }
+                }
+                rows.add(parquetRow(group));
+            }
+        }
+        assertEquals(List.of("id:INT64", "zip:BINARY", "amount:DOUBLE", "active:BOOLEAN", "name:BINARY"), types);
+        assertEquals(List.of(
+                Arrays.asList(1L, "01234", 1.5, true, "first"),
+                Arrays.asList(2L, "55401", 2.0, false, null),
+                Arrays.asList(3L, null, 2.25, true, "third, quoted")), rows);
+    }
+
+    @Test
+    public void testJsonLinesRoundTripThroughOrcWithDeclaredSchemaAndRollover() throws IOException {
+        Path staged = tempDir.resolve("run_audience.json");
+        Files.writeString(staged,
+                "{\"id\":\"10\",\"name\":\"a\",\"size\":100}\n" +
+                "[{\"id\":\"11\",\"name\":\"b\",\"size\":null},{\"id\":\"12\",\"name\":\"c\",\"size\":300,\"extra\":1}]\n" +
+                "\n" +
+                "{\"name\":\"d\",\"size\":400}\n");
+
+        PipelineConfig.ColumnarReportSchema schema = new PipelineConfig.ColumnarReportSchema();
+        schema.setReportType("AUDIENCE");
+        schema.setColumns(List.of(column("id", "long"), column("name", "string"), column("size", "double")));
+        List<Path> files = writer(columnar("orc", 2L, schema)).writeColumnarFiles(staged,
+                tempDir.resolve("run_audience").toString(), "audience");
+
+        assertEquals(List.of(tempDir.resolve("run_audience_1.orc"), tempDir.resolve("run_audience_2.orc")), files);
+        List<List<Object>> rows = new ArrayList<>();
+        for (Path file : files) {
+            Reader reader = OrcFile.createReader(new org.apache.hadoop.fs.Path(file.toUri()), OrcFile.readerOptions(new Configuration()));
+            assertEquals("struct<id:bigint,name:string,size:double>", reader.getSchema().toString());
+            assertEquals(2, reader.getNumberOfRows());
+            rows.addAll(orcRows(reader));
+        }
+        assertEquals(List.of(
+                Arrays.asList(10L, "a", 100.0),
+                Arrays.asList(11L, "b", null),
+                Arrays.asList(12L, "c", 300.0),
+                Arrays.asList(null, "d", 400.0)), rows);
+    }
+
+    @Test
+    public void testValueWhichDoesNotFitDeclaredTypeFails() throws IOException {
+        Path staged = tempDir.resolve("run_bad.csv");
+        Files.writeString(staged, "id\n1\nnot-a-number\n");
+
+        PipelineConfig.ColumnarReportSchema schema = new PipelineConfig.ColumnarReportSchema();
+        schema.setReportType("bad");
+        schema.setColumns(List.of(column("id", "long")));
+        ColumnarFileWriterService writer = writer(columnar("parquet", null, schema));
+
+        IOException e = assertThrows(IOException.class,
+                () -> writer.writeColumnarFiles(staged, tempDir.resolve("run_bad").toString(), "bad"));
+        assertTrue(e.getMessage().contains("not-a-number"));
+    }
+
+    private static List<Object> parquetRow(Group group) {
+        List<Object> row = new ArrayList<>();
+        List<Type> fields = group.getType().getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (group.getFieldRepetitionCount(i) == 0) {
+                row.add(null);
+                continue;
+            }
+            PrimitiveType.PrimitiveTypeName type = fields.get(i).asPrimitiveType().getPrimitiveTypeName();
+            row.add(switch (type) {
+                case INT64 -> group.getLong(i, 0);
+                case DOUBLE -> group.getDouble(i, 0);
+                case BOOLEAN -> group.getBoolean(i, 0);
+                default -> group.getString(i, 0);
+            });
+        }
+        return row;
+    }
+
+    private static List<List<Object>> orcRows(Reader reader) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        TypeDescription schema = reader.getSchema();
+        VectorizedRowBatch batch = schema.createRowBatch();
+        try (RecordReader records = reader.rows()) {
+            while (records.nextBatch(batch)) {
+                for (int r = 0; r < batch.size; r++) {
+                    List<Object> row = new ArrayList<>();
+                    for (ColumnVector vector : batch.cols) {
+                        if (!vector.noNulls && vector.isNull[r]) {
+                            row.add(null);
+                        } else if (vector instanceof LongColumnVector longs) {
+                            row.add(longs.vector[r]);
+                        } else if (vector instanceof DoubleColumnVector doubles) {
+                            row.add(doubles.vector[r]);
+                        } else {
+                            row.add(((BytesColumnVector) vector).toString(r));
+                        }
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static PipelineConfig.ColumnarColumn column(String name, String type) {
+        PipelineConfig.ColumnarColumn column = new PipelineConfig.ColumnarColumn();
+        column.setName(name);
+        column.setType(type);
+        return column;
+    }
+
+    private static PipelineConfig.Columnar columnar(String format, Long maxRowsPerFile, PipelineConfig.ColumnarReportSchema schema) {
+        PipelineConfig.Columnar columnar = new PipelineConfig.Columnar();
+        columnar.setFormat(format);
+        columnar.setCompression(format.equals("orc") ? "snappy" : null);
+        columnar.setMaxRowsPerFile(maxRowsPerFile);
+        columnar.setSchemas(schema == null ? null : List.of(schema));
+        return columnar;
+    }
+
+    private static ColumnarFileWriterService writer(PipelineConfig.Columnar columnar) {
+        PipelineConfig pipelineConfig = new PipelineConfig();
+        PipelineConfig.Apiconfig apiConfig = new PipelineConfig.Apiconfig();
+        PipelineConfig.Source source = new PipelineConfig.Source();
+        source.setColumnar(columnar);
+        apiConfig.setSource(source);
+        pipelineConfig.setApiconfig(apiConfig);
+        return new ColumnarFileWriterServiceImpl(pipelineConfig, null);
+    }
+}
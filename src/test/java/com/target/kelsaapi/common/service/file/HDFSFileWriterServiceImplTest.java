@@ -2,7 +2,9 @@ package com.target.kelsaapi.common.service.file;
 
 import com.target.kelsaapi.common.constants.ApplicationConstants;
 import com.target.kelsaapi.common.exceptions.UnImplementedException;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
 import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -54,7 +56,8 @@ public class HDFSFileWriterServiceImplTest {
         apiConfig.setHdfsdetails(hdfsdetails);
         pipelineConfig.setApiconfig(apiConfig);
 
-        this.hdfsFileWriterService = new HDFSFileWriterServiceImpl(this.pipelineConfig, this.xenonService, this.localFileWriter);
+        this.hdfsFileWriterService = new HDFSFileWriterServiceImpl(this.pipelineConfig, this.xenonService, this.localFileWriter,
+                new ResilienceRegistry((PipelineConfig.Resilience) null, new SimpleMeterRegistry()));
     }
 
     @Test
@@ -0,0 +1,145 @@
+package com.target.kelsaapi.common.service.file;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.ResourceNotFoundException;
+import com.target.kelsaapi.common.service.postgres.checkpoint.PipelineCheckpointService;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TempStorageManagerTest {
+
+    private static final String RUN_1 = "11111111-1111-1111-1111-111111111111";
+
+    private static final String RUN_2 = "22222222-2222-2222-2222-222222222222";
+
+    private static final String RUN_3 = "33333333-3333-3333-3333-333333333333";
+
+    private static final String RUN_4 = "44444444-4444-4444-4444-444444444444";
+
+    @TempDir
+    File tempRoot;
+
+    private final PipelineRunStateService runStateService = mock(PipelineRunStateService.class);
+
+    private final PipelineCheckpointService checkpointService = mock(PipelineCheckpointService.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void aLoneReservationGetsThroughEvenWhenLargerThanTheBudget() throws IOException {
+        TempStorageManager manager = manager(100L, Long.MAX_VALUE / 2, 0);
+
+        assertTrue(manager.canReserve("criteo"));
+        manager.reserve(RUN_1, "criteo");
+
+        assertEquals(Long.MAX_VALUE / 2, meterRegistry.get("pipeline.temp.storage.reserved").gauge().value(), 1e6);
+    }
+
+    @Test
+    void aSecondReservationWaitsForTheBudget() throws IOException {
+        TempStorageManager manager = manager(10L, 6L, 0);
+        manager.reserve(RUN_1, "criteo");
+
+        assertFalse(manager.canReserve("criteo"));
+        assertFalse(manager.canReserve("CRITEO"));
+        assertThrows(IOException.class, () -> manager.reserve(RUN_2, "criteo"));
+        assertEquals(3, meterRegistry.get("pipeline.temp.storage.refused").tag("source", "criteo").counter().count());
+
+        manager.release(RUN_1);
+        assertTrue(manager.canReserve("criteo"));
+        manager.reserve(RUN_2, "criteo");
+    }
+
+    @Test
+    void releaseWakesAWaitingReservation() throws Exception {
+        TempStorageManager manager = manager(10L, 6L, 30);
+        manager.reserve(RUN_1, "criteo");
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                manager.reserve(RUN_2, "criteo");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+
+        manager.release(RUN_1);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("pipeline.temp.storage.runs").gauge().value());
+    }
+
+    @Test
+    void reservingTwiceForARunDoesNothing() throws IOException {
+        TempStorageManager manager = manager(10L, 6L, 0);
+        manager.reserve(RUN_1, "criteo");
+        manager.reserve(RUN_1, "criteo");
+
+        assertEquals(6, meterRegistry.get("pipeline.temp.storage.reserved").gauge().value());
+    }
+
+    @Test
+    void sweepKeepsOnlyTheFilesOfRunsWhichMayStillNeedThem() throws Exception {
+        TempStorageManager manager = manager(null, 6L, 0);
+        manager.reserve(RUN_1, "criteo");
+        when(runStateService.findById(RUN_2)).thenReturn(runState(ApplicationConstants.PipelineStates.COMPLETED));
+        when(runStateService.findById(RUN_3)).thenReturn(runState(ApplicationConstants.PipelineStates.FAILED));
+        when(checkpointService.hasCheckpoints(RUN_3)).thenReturn(true);
+        when(runStateService.findById(RUN_4)).thenThrow(new ResourceNotFoundException("not found"));
+
+        Path running = write(RUN_1 + "_criteo.csv");
+        Path completed = write(RUN_2 + "_criteo.csv");
+        Path resumable = write(RUN_3 + "_criteo.csv");
+        Path unknown = write(RUN_4 + "_criteo.csv");
+        Path other = write("criteo.csv");
+
+        manager.sweepOrphans();
+
+        assertEquals(List.of(true, false, true, false, true),
+                List.of(Files.exists(running), Files.exists(completed), Files.exists(resumable), Files.exists(unknown),
+                        Files.exists(other)));
+    }
+
+    private TempStorageManager manager(Long budgetBytes, Long reservationBytes, int reservationWaitSeconds) {
+        PipelineConfig.TempStorage tempStorage = new PipelineConfig.TempStorage();
+        tempStorage.setBudgetBytes(budgetBytes);
+        tempStorage.setDefaultReservationBytes(reservationBytes);
+        tempStorage.setMinFreeBytes(1L);
+        tempStorage.setReservationWaitSeconds(reservationWaitSeconds);
+        PipelineConfig.Apiconfig apiconfig = new PipelineConfig.Apiconfig();
+        apiconfig.setTempStorage(tempStorage);
+        PipelineConfig pipelineConfig = new PipelineConfig();
+        pipelineConfig.setApiconfig(apiconfig);
+        return new TempStorageManager(pipelineConfig, runStateService, checkpointService, meterRegistry, tempRoot);
+    }
+
+    private Path write(String name) throws IOException {
+        return Files.writeString(tempRoot.toPath().resolve(name), "id,clicks\n1,2\n");
+    }
+
+    private static PipelineRunState runState(ApplicationConstants.PipelineStates status) {
+        PipelineRunState runState = new PipelineRunState();
+        runState.setbatchRequestStatus(status);
+        return runState;
+    }
+}
@@ -0,0 +1,44 @@
+package com.target.kelsaapi.common.service.google.admanager;
+
+import com.google.api.ads.admanager.axis.v202311.ApiError;
+import com.google.api.ads.admanager.axis.v202311.ApiException;
+import com.google.api.ads.admanager.axis.v202311.ForecastError;
+import com.google.api.ads.admanager.axis.v202311.QuotaError;
+import com.google.api.ads.admanager.axis.v202311.ServerError;
+import com.target.kelsaapi.common.exceptions.GamException;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.rmi.RemoteException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GamTransientFailuresTest {
+
+    private final GamTransientFailures transientFailures = new GamTransientFailures();
+
+    @Test
+    void serverAndQuotaErrorsAreTransient() {
+        assertTrue(transientFailures.test(apiException(new ForecastError(), new ServerError())));
+        assertTrue(transientFailures.test(new GamException("forecast failed", apiException(new QuotaError()))));
+    }
+
+    @Test
+    void requestErrorsAreNotTransient() {
+        assertFalse(transientFailures.test(apiException(new ForecastError())));
+        assertFalse(transientFailures.test(new ApiException()));
+    }
+
+    @Test
+    void networkFailuresAreTransient() {
+        assertTrue(transientFailures.test(new RemoteException("read timed out", new SocketTimeoutException())));
+        assertFalse(transientFailures.test(new RemoteException("bad response")));
+    }
+
+    private static ApiException apiException(ApiError... errors) {
+        ApiException apiException = new ApiException();
+        apiException.setErrors(errors);
+        return apiException;
+    }
+}
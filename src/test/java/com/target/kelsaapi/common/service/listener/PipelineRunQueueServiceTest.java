@@ -0,0 +1,90 @@
+package com.target.kelsaapi.common.service.listener;
+
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import com.target.kelsaapi.common.exceptions.ConfigurationException;
+import com.target.kelsaapi.common.service.file.TempStorageManager;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunQueueRepository.SourceSummary;
+import com.target.kelsaapi.common.service.postgres.pipelinerunstate.PipelineRunStateService;
+import com.target.kelsaapi.common.vo.pipeline.state.PipelineRunState;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PipelineRunQueueServiceTest {
+
+    private final PipelineRunStateService runStateService = mock(PipelineRunStateService.class);
+
+    private final TempStorageManager tempStorageManager = mock(TempStorageManager.class);
+
+    @Test
+    void anInvalidPriorityFailsOnStartup() {
+        assertThrows(ConfigurationException.class, () -> service(source("criteo", "urgent")));
+    }
+
+    @Test
+    void runsAreQueuedAtTheConfiguredPriority() throws Exception {
+        PipelineRunQueueService service = service(source("criteo", "high"));
+
+        assertEquals(ApplicationConstants.RunPriority.HIGH.ordinal(), enqueue(service, "CRITEO", false).getPriority());
+        assertEquals(ApplicationConstants.RunPriority.NORMAL.ordinal(), enqueue(service, "pinterest", false).getPriority());
+        assertEquals(ApplicationConstants.RunPriority.BACKFILL.ordinal(), enqueue(service, "criteo", true).getPriority());
+    }
+
+    @Test
+    void sourcesWithoutTempStorageStayQueued() throws Exception {
+        PipelineRunQueueService service = service(source("criteo", "high"));
+        when(tempStorageManager.canReserve("criteo")).thenReturn(false);
+        when(tempStorageManager.canReserve("pinterest")).thenReturn(true);
+
+        SourceSummary next = service.nextSource(List.of(summary("criteo", 0), summary("pinterest", 1)), new HashSet<>());
+        assertEquals("pinterest", next.getSource());
+
+        when(tempStorageManager.canReserve("pinterest")).thenReturn(false);
+        assertNull(service.nextSource(List.of(summary("criteo", 0), summary("pinterest", 1)), new HashSet<>()));
+    }
+
+    private PipelineRunQueueService service(PipelineConfig.RunQueueSource... sources) throws ConfigurationException {
+        PipelineConfig.RunQueue runQueue = new PipelineConfig.RunQueue();
+        runQueue.setSources(List.of(sources));
+        PipelineConfig.Apiconfig apiconfig = new PipelineConfig.Apiconfig();
+        apiconfig.setRunQueue(runQueue);
+        PipelineConfig pipelineConfig = new PipelineConfig();
+        pipelineConfig.setApiconfig(apiconfig);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        return new PipelineRunQueueService(pipelineConfig, mock(PipelineRunQueueRepository.class), runStateService,
+                mock(PipelineRunnerListener.class), executor, tempStorageManager);
+    }
+
+    private static PipelineRunState enqueue(PipelineRunQueueService service, String source, boolean backfill) throws Exception {
+        PipelineRunState runState = new PipelineRunState(ApplicationConstants.PipelineStates.INITIALIZED,
+                source, "2024-01-01", "2024-01-01", "/landing/file", null);
+        service.enqueue(runState, backfill);
+        return runState;
+    }
+
+    private static PipelineConfig.RunQueueSource source(String name, String priority) {
+        PipelineConfig.RunQueueSource source = new PipelineConfig.RunQueueSource();
+        source.setSource(name);
+        source.setPriority(priority);
+        return source;
+    }
+
+    private static SourceSummary summary(String source, int topPriority) {
+        SourceSummary summary = new SourceSummary();
+        summary.setSource(source);
+        summary.setTopPriority(topPriority);
+        summary.setQueued(1);
+        return summary;
+    }
+}
@@ -0,0 +1,132 @@
+package com.target.kelsaapi.common.service.observability;
+
+import com.target.kelsaapi.common.service.rest.HttpService;
+import com.target.kelsaapi.common.vo.HttpCustomResponse;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SlackNotificationDispatcherTest {
+
+    private final HttpService httpService = mock(HttpService.class);
+
+    private SlackNotificationDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testSimilarNotificationsArePostedAsOneDigest() throws Exception {
+        when(httpService.post(anyString(), anyMap(), anyString())).thenReturn(new HttpCustomResponse(null, "ok", 200L));
+        dispatcher = new SlackNotificationDispatcher(slack(1, 1), httpService);
+
+        for (int day = 1; day <= 5; day++) {
+            dispatcher.submit(notification("gam", "GAM actuals 2024-01-0" + day + ": FAILED"));
+        }
+        dispatcher.submit(notification("facebook", "FACEBOOK ads 2024-01-01: FAILED"));
+
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(httpService, timeout(5000).times(2)).post(eq("http://hooks/failure"), anyMap(), payloads.capture());
+        List<String> posted = payloads.getAllValues();
+        assertTrue(posted.get(0).contains("5 similar notifications"));
+        assertTrue(posted.get(0).contains("GAM actuals 2024-01-05: FAILED"));
+        assertTrue(posted.get(1).contains("full message of FACEBOOK ads 2024-01-01: FAILED"));
+    }
+
+    @Test
+    public void testSlowWebhookDoesNotHoldBackSubmitOrLaterNotifications() throws Exception {
+        when(httpService.post(anyString(), anyMap(), anyString()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(60000);
+                    return new HttpCustomResponse(null, "ok", 200L);
+                })
+                .thenReturn(new HttpCustomResponse(null, "ok", 200L));
+        dispatcher = new SlackNotificationDispatcher(slack(0, 1), httpService);
+
+        long start = System.currentTimeMillis();
+        assertTrue(dispatcher.submit(notification("gam", "GAM actuals 2024-01-01: FAILED")));
+        assertTrue(dispatcher.submit(notification("facebook", "FACEBOOK ads 2024-01-01: FAILED")));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        verify(httpService, timeout(5000).times(2)).post(anyString(), anyMap(), anyString());
+        assertEquals(0, dispatcher.getDropped());
+    }
+
+    @Test
+    public void testPostsAreDroppedWhileEveryDeliveryThreadIsStuck() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(httpService.post(anyString(), anyMap(), anyString()))
+                .thenAnswer(invocation -> {
+                    //A webhook call which ignores the interrupt of the delivery timeout
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                    return new HttpCustomResponse(null, "ok", 200L);
+                });
+        PipelineConfig.Slack slack = slack(0, 1);
+        slack.setMaxDeliveryThreads(1);
+        dispatcher = new SlackNotificationDispatcher(slack, httpService);
+
+        try {
+            dispatcher.submit(notification("gam", "GAM actuals 2024-01-01: FAILED"));
+            verify(httpService, timeout(5000)).post(anyString(), anyMap(), anyString());
+            dispatcher.submit(notification("facebook", "FACEBOOK ads 2024-01-01: FAILED"));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (dispatcher.getRejected() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, dispatcher.getRejected());
+            verify(httpService, times(1)).post(anyString(), anyMap(), anyString());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testShutdownPostsQueuedNotificationsWithoutWaitingForTheCoalesceWindow() throws Exception {
+        when(httpService.post(anyString(), anyMap(), anyString())).thenReturn(new HttpCustomResponse(null, "ok", 200L));
+        dispatcher = new SlackNotificationDispatcher(slack(60, 1), httpService);
+
+        dispatcher.submit(notification("gam", "GAM actuals 2024-01-01: FAILED"));
+        dispatcher.submit(notification("facebook", "FACEBOOK ads 2024-01-01: FAILED"));
+        long start = System.currentTimeMillis();
+        dispatcher.shutdown();
+
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        verify(httpService, times(2)).post(eq("http://hooks/failure"), anyMap(), anyString());
+    }
+
+    private static PipelineConfig.Slack slack(int coalesceWindowSeconds, int deliveryTimeoutSeconds) {
+        PipelineConfig.Slack slack = new PipelineConfig.Slack();
+        slack.setCoalesceWindowSeconds(coalesceWindowSeconds);
+        slack.setMinIntervalMillis(0);
+        slack.setDeliveryTimeoutSeconds(deliveryTimeoutSeconds);
+        return slack;
+    }
+
+    private static SlackNotificationDispatcher.SlackNotification notification(String similarityKey, String summary) {
+        return new SlackNotificationDispatcher.SlackNotification("http://hooks/failure", "#alerts", "test", "MarketingDataFoundation",
+                ":x:", "mdf", "FAILURE|" + similarityKey, summary, "full message of " + summary);
+    }
+}
@@ -0,0 +1,81 @@
+package com.target.kelsaapi.common.service.postgres;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * An in-process Postgres for the tests of native queries which rely on Postgres only syntax, such as on conflict
+ * upserts and skip locked claims. One server is started for the whole test run, and each call gets a database of its
+ * own with the tables created from the DDL under ddl/postgres, in the public schema.
+ */
+public final class EmbeddedPostgresDatabase {
+
+    private static final Path DDL_DIRECTORY = Path.of("ddl", "postgres");
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static EmbeddedPostgres postgres;
+
+    private EmbeddedPostgresDatabase() {
+    }
+
+    /**
+     * @param ddlFiles The DDL files to run in order, without their .ddl extension, eg "mdf_ingest_batch_request" and
+     *                 then its "mdf_ingest_batch_request.run_queue" migration.
+     * @return A template on a new database holding the tables.
+     */
+    public static NamedParameterJdbcTemplate create(String... ddlFiles) {
+        EmbeddedPostgres server = server();
+        String database = "test_" + DATABASES.incrementAndGet();
+        new JdbcTemplate(server.getPostgresDatabase()).execute("create database " + database);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(server.getDatabase("postgres", database));
+        for (String ddlFile : ddlFiles) {
+            for (String statement : read(ddlFile).split(";\\s*(\\r?\\n|$)")) {
+                if (!statement.isBlank()) {
+                    //Run one at a time, as create index concurrently may not share a transaction with anything
+                    jdbcTemplate.execute(statement);
+                }
+            }
+        }
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    private static synchronized EmbeddedPostgres server() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to start the embedded Postgres", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    //The process is exiting anyway
+                }
+            }));
+        }
+        return postgres;
+    }
+
+    private static String read(String ddlFile) {
+        try {
+            //Comment lines are dropped, as some hold a commented out statement ending in a semicolon
+            return Files.readString(DDL_DIRECTORY.resolve(ddlFile + ".ddl")).lines()
+                    .filter(line -> !line.trim().startsWith("--"))
+                    .collect(Collectors.joining("\n"))
+                    .replace("${schema}", "public")
+                    .replace("${userid}", "postgres");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + ddlFile, e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.target.kelsaapi.common.service.postgres.pipelinerunstate;
+
+import com.target.kelsaapi.common.service.postgres.EmbeddedPostgresDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the native claim, heartbeat and backfill queries of {@link PipelineRunQueueRepository} against an embedded Postgres.
+ */
+public class PipelineRunQueueRepositoryTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private PipelineRunQueueRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = EmbeddedPostgresDatabase.create("mdf_ingest_batch_request",
+                "mdf_ingest_batch_request.run_queue",
+                "mdf_ingest_batch_request.backfill",
+                "mdf_ingest_batch_request.source_report_type");
+        repository = new PipelineRunQueueRepository(jdbcTemplate);
+    }
+
+    @Test
+    void aBackfillOfQueuedWindowsStaysInitialized() {
+        insert("backfill", "initialized", null, null);
+        insert("window1", "queued", "backfill", 1);
+        insert("window2", "queued", "backfill", 1);
+
+        assertEquals(0, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("initialized", status("backfill"));
+    }
+
+    @Test
+    void aBackfillIsRunningOnceAnyWindowWasClaimed() {
+        insert("backfill", "initialized", null, null);
+        insert("window1", "completed", "backfill", 1);
+        insert("window2", "queued", "backfill", 1);
+
+        assertEquals(1, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("running", status("backfill"));
+    }
+
+    @Test
+    void aBackfillFailsOnceAnyWindowUsedUpItsAttempts() {
+        insert("backfill", "running", null, null);
+        insert("window1", "completed", "backfill", 1);
+        insert("window2", "failed", "backfill", MAX_ATTEMPTS);
+
+        assertEquals(1, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("failed", status("backfill"));
+    }
+
+    @Test
+    void aFailedWindowWithAttemptsLeftKeepsTheBackfillRunning() {
+        insert("backfill", "running", null, null);
+        insert("window1", "completed", "backfill", 1);
+        insert("window2", "failed", "backfill", 1);
+
+        assertEquals(0, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("running", status("backfill"));
+    }
+
+    @Test
+    void aBackfillCompletesOnceEveryWindowDid() {
+        insert("backfill", "running", null, null);
+        insert("window1", "completed", "backfill", 1);
+        insert("window2", "completed", "backfill", 2);
+
+        assertEquals(1, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("completed", status("backfill"));
+    }
+
+    @Test
+    void finishedBackfillsAreNotAggregatedAgain() {
+        insert("backfill", "failed", null, null);
+        insert("window1", "completed", "backfill", 1);
+
+        assertEquals(0, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("failed", status("backfill"));
+    }
+
+    @Test
+    void resumedWindowsBringTheBackfillBack() {
+        insert("backfill", "failed", null, null);
+        insert("window1", "completed", "backfill", 1);
+        insert("window2", "failed", "backfill", MAX_ATTEMPTS);
+
+        assertEquals(1, repository.resumeFailedWindows("backfill"));
+        jdbcTemplate.update("update mdf_ingest_batch_request set batch_request_status = 'initialized' " +
+                "where batch_request_id = 'backfill'", Map.of());
+
+        assertEquals(1, repository.aggregateBackfillStatuses(MAX_ATTEMPTS));
+        assertEquals("running", status("backfill"));
+    }
+
+    @Test
+    void claimNextTakesTheOldestRunOfTheHighestPriority() {
+        queue("normal", 1, 30, null);
+        queue("highNewer", 0, 10, null);
+        queue("highOlder", 0, 20, null);
+
+        assertEquals("highOlder", repository.claimNext("criteo", "pod-a", 10, 2));
+        assertEquals(Map.of("batch_request_status", "running", "claimed_by", "pod-a"), claim("highOlder"));
+        assertEquals("highNewer", repository.claimNext("criteo", "pod-a", 10, 2));
+        assertEquals("normal", repository.claimNext("criteo", "pod-a", 10, 2));
+        assertNull(repository.claimNext("criteo", "pod-a", 10, 2));
+    }
+
+    @Test
+    void claimNextStopsAtMaxConcurrentRunsAcrossReplicas() {
+        running("claimedByA", "pod-a", null, 0);
+        running("claimedByB", "pod-b", null, 0);
+        queue("queued", 1, 10, null);
+
+        assertNull(repository.claimNext("criteo", "pod-c", 2, 2));
+        assertEquals("queued", status("queued"));
+        assertEquals("queued", repository.claimNext("criteo", "pod-c", 3, 2));
+    }
+
+    @Test
+    void claimNextOnlyCountsRunsOfTheSameSource() {
+        running("otherSource", "pod-a", null, 0);
+        jdbcTemplate.update("update mdf_ingest_batch_request set source_system = 'pinterest' " +
+                "where batch_request_id = 'otherSource'", Map.of());
+        queue("queued", 1, 10, null);
+
+        assertEquals("queued", repository.claimNext("criteo", "pod-a", 1, 2));
+    }
+
+    @Test
+    void claimNextSkipsWindowsOfABackfillAtMaxConcurrentWindows() {
+        insert("backfill", "running", null, null);
+        running("window1", "pod-a", "backfill", 0);
+        queue("window2", 2, 30, "backfill");
+        queue("single", 2, 10, null);
+
+        //The older window is passed over for the newer run, as its backfill already has a window running
+        assertEquals("single", repository.claimNext("criteo", "pod-a", 10, 1));
+        assertNull(repository.claimNext("criteo", "pod-a", 10, 1));
+        assertEquals("window2", repository.claimNext("criteo", "pod-a", 10, 2));
+    }
+
+    @Test
+    void requeueStaleOnlyRequeuesRunsWithAnOldHeartbeat() {
+        running("stale", "pod-a", null, 600);
+        running("alive", "pod-b", null, 10);
+
+        assertEquals(1, repository.requeueStale(300));
+        assertEquals(Map.of("batch_request_status", "queued"), claim("stale"));
+        assertEquals(Map.of("batch_request_status", "running", "claimed_by", "pod-b"), claim("alive"));
+    }
+
+    @Test
+    void heartbeatKeepsOnlyTheOwnersRunsAlive() {
+        running("mine", "pod-a", null, 600);
+        running("theirs", "pod-b", null, 600);
+
+        assertEquals(1, repository.heartbeat("pod-a"));
+        assertEquals(1, repository.requeueStale(300));
+        assertEquals("running", status("mine"));
+        assertEquals("queued", status("theirs"));
+    }
+
+    private void queue(String batchRequestId, int priority, int createdSecondsAgo, String parentBatchRequestId) {
+        insert(batchRequestId, "queued", parentBatchRequestId, parentBatchRequestId == null ? null : 1);
+        jdbcTemplate.update("update mdf_ingest_batch_request set priority = :priority, " +
+                        "created_timestamp = current_timestamp - make_interval(secs => :age) " +
+                        "where batch_request_id = :batchRequestId",
+                new MapSqlParameterSource("batchRequestId", batchRequestId)
+                        .addValue("priority", priority)
+                        .addValue("age", createdSecondsAgo));
+    }
+
+    private void running(String batchRequestId, String owner, String parentBatchRequestId, int heartbeatSecondsAgo) {
+        insert(batchRequestId, "running", parentBatchRequestId, parentBatchRequestId == null ? null : 1);
+        jdbcTemplate.update("update mdf_ingest_batch_request set claimed_by = :owner, claimed_timestamp = current_timestamp, " +
+                        "heartbeat_timestamp = current_timestamp - make_interval(secs => :age) " +
+                        "where batch_request_id = :batchRequestId",
+                new MapSqlParameterSource("batchRequestId", batchRequestId)
+                        .addValue("owner", owner)
+                        .addValue("age", heartbeatSecondsAgo));
+    }
+
+    private Map<String, Object> claim(String batchRequestId) {
+        Map<String, Object> claim = new HashMap<>(jdbcTemplate.queryForMap("select batch_request_status, claimed_by " +
+                "from mdf_ingest_batch_request where batch_request_id = :batchRequestId", Map.of("batchRequestId", batchRequestId)));
+        claim.values().removeIf(Objects::isNull);
+        return claim;
+    }
+
+    private void insert(String batchRequestId, String status, String parentBatchRequestId, Integer attempt) {
+        jdbcTemplate.update("insert into mdf_ingest_batch_request " +
+                        "(batch_request_id, batch_request_status, created_timestamp, source_system, priority, " +
+                        " parent_batch_request_id, attempt) " +
+                        "values (:batchRequestId, :status, current_timestamp, 'criteo', 2, :parentBatchRequestId, :attempt)",
+                new MapSqlParameterSource("batchRequestId", batchRequestId)
+                        .addValue("status", status)
+                        .addValue("parentBatchRequestId", parentBatchRequestId, Types.VARCHAR)
+                        .addValue("attempt", attempt, Types.SMALLINT));
+    }
+
+    private String status(String batchRequestId) {
+        return jdbcTemplate.queryForObject("select batch_request_status from mdf_ingest_batch_request " +
+                "where batch_request_id = :batchRequestId", Map.of("batchRequestId", batchRequestId), String.class);
+    }
+}
@@ -0,0 +1,128 @@
+package com.target.kelsaapi.common.service.postgres.s3;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class S3JdbcRepositoryTest {
+
+    private static final String CONFLICT_CLAUSE = " on conflict (pipeline_run_id, source_report_type, key, etag) do nothing";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final S3JdbcRepository repository = new S3JdbcRepository(new NamedParameterJdbcTemplate(jdbcTemplate));
+
+    //Primary key of the rows the fake table holds: pipeline_run_id, source_report_type, key, etag
+    private final Set<List<Object>> table = new HashSet<>();
+
+    private final List<String> statements = new ArrayList<>();
+
+    private final List<Map<Integer, Object>> statementParameters = new ArrayList<>();
+
+    @Test
+    public void testInsertObjectSummariesSplitsIntoStatementsOfAThousandRows() throws Exception {
+        fakeTable();
+        List<S3ObjectSummary> objects = objects(0, 2500);
+
+        assertEquals(2500, repository.insertObjectSummaries(objects, "run1", "SWITCHBOARDSALES"));
+
+        assertEquals(3, statements.size());
+        int[] expectedRows = {1000, 1000, 500};
+        for (int i = 0; i < statements.size(); i++) {
+            String sql = statements.get(i);
+            assertTrue(sql.endsWith(CONFLICT_CLAUSE), sql);
+            assertEquals(expectedRows[i], sql.split("\\(\\?,\\?,\\?,\\?,\\?,\\?,\\?,\\?,\\?,now\\(\\),current_date\\)", -1).length - 1);
+            assertEquals(expectedRows[i] * 9, statementParameters.get(i).size());
+        }
+
+        //The first row of the last statement is object 2000, bound in column order
+        Map<Integer, Object> last = statementParameters.get(2);
+        S3ObjectSummary first = objects.get(2000);
+        assertEquals("run1", last.get(1));
+        assertEquals("SWITCHBOARDSALES", last.get(2));
+        assertEquals(first.getKey(), last.get(3));
+        assertEquals(first.getETag(), last.get(4));
+        assertEquals("bucket", last.get(5));
+        assertEquals(Long.toString(first.getSize()), last.get(6));
+        assertEquals(first.getSize(), last.get(8));
+        assertEquals(new Timestamp(first.getLastModified().getTime()), last.get(9));
+    }
+
+    @Test
+    public void testInsertObjectSummariesCountsOnlyRowsNotAlreadyRecorded() throws Exception {
+        fakeTable();
+        assertEquals(1200, repository.insertObjectSummaries(objects(0, 1200), "run1", "SWITCHBOARDSALES"));
+
+        //A retried load of the same run sends 800 rows the conflict clause skips and 400 new ones
+        assertEquals(400, repository.insertObjectSummaries(objects(400, 1200), "run1", "SWITCHBOARDSALES"));
+        assertEquals(1600, table.size());
+
+        //The same objects loaded by another run are new rows
+        assertEquals(10, repository.insertObjectSummaries(objects(0, 10), "run2", "SWITCHBOARDSALES"));
+    }
+
+    @Test
+    public void testInsertObjectSummariesOfNoObjectsRunsNoStatement() throws Exception {
+        fakeTable();
+        assertEquals(0, repository.insertObjectSummaries(List.of(), "run1", "SWITCHBOARDSALES"));
+        assertTrue(statements.isEmpty());
+    }
+
+    /**
+     * Answers every insert like Postgres would with the conflict clause on the primary key: only the rows whose key is
+     * not in the table yet are inserted and counted.
+     */
+    private void fakeTable() {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            assertTrue(sql.endsWith(CONFLICT_CLAUSE), sql);
+            Map<Integer, Object> parameters = new TreeMap<>();
+            PreparedStatement ps = mock(PreparedStatement.class, call -> {
+                if (call.getMethod().getName().startsWith("set")) {
+                    parameters.put(call.getArgument(0), call.getArgument(1));
+                }
+                return null;
+            });
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(ps);
+            statements.add(sql);
+            statementParameters.add(parameters);
+
+            int inserted = 0;
+            for (int row = 0; row < parameters.size() / 9; row++) {
+                int offset = row * 9;
+                if (table.add(List.of(parameters.get(offset + 1), parameters.get(offset + 2),
+                        parameters.get(offset + 3), parameters.get(offset + 4)))) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private static List<S3ObjectSummary> objects(int from, int to) {
+        List<S3ObjectSummary> objects = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            S3ObjectSummary object = new S3ObjectSummary();
+            object.setBucketName("bucket");
+            object.setKey("sales/2024-01-01/part-" + i + ".csv");
+            object.setETag("etag" + i);
+            object.setSize(1000L + i);
+            object.setLastModified(new Date(1704067200000L + i));
+            objects.add(object);
+        }
+        return objects;
+    }
+}
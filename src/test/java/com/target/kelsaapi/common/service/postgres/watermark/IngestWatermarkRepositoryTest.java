@@ -0,0 +1,78 @@
+package com.target.kelsaapi.common.service.postgres.watermark;
+
+import com.target.kelsaapi.common.service.postgres.EmbeddedPostgresDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the native upserts of {@link IngestWatermarkRepository} against an embedded Postgres.
+ */
+public class IngestWatermarkRepositoryTest {
+
+    private static final Instant EARLIER = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static final Instant LATER = Instant.parse("2024-01-02T00:00:00Z");
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = EmbeddedPostgresDatabase.create("mdf_ingest_watermark");
+    }
+
+    @Test
+    void advanceTimestampKeepsTheGreaterTimestamp() {
+        assertEquals(1, advance(EARLIER, "run1"));
+        assertEquals(1, advance(LATER, "run2"));
+
+        //A run which started earlier but finished later must not move the watermark back
+        assertEquals(0, advance(EARLIER, "run3"));
+        assertEquals(Map.of("watermark_timestamp", Timestamp.from(LATER), "pipeline_run_id", "run2"), row());
+
+        //Nor does the same watermark count as an advance
+        assertEquals(0, advance(LATER, "run4"));
+        assertEquals("run2", row().get("pipeline_run_id"));
+    }
+
+    @Test
+    void advanceTimestampFillsInTheTimestampOfACursorRow() {
+        jdbcTemplate.update(IngestWatermarkRepository.SAVE_CURSOR, parameters("run1").addValue("cursor", "page-3"));
+
+        assertEquals(1, advance(EARLIER, "run2"));
+        assertEquals(Timestamp.from(EARLIER), row().get("watermark_timestamp"));
+        assertEquals("page-3", jdbcTemplate.queryForObject("select watermark_cursor from mdf_ingest_watermark", Map.of(), String.class));
+    }
+
+    @Test
+    void saveCursorReplacesTheCursor() {
+        jdbcTemplate.update(IngestWatermarkRepository.SAVE_CURSOR, parameters("run1").addValue("cursor", "page-3"));
+        jdbcTemplate.update(IngestWatermarkRepository.SAVE_CURSOR, parameters("run2").addValue("cursor", "page-1"));
+
+        assertEquals("page-1", jdbcTemplate.queryForObject("select watermark_cursor from mdf_ingest_watermark", Map.of(), String.class));
+    }
+
+    private int advance(Instant watermark, String pipelineRunId) {
+        return jdbcTemplate.update(IngestWatermarkRepository.ADVANCE_TIMESTAMP,
+                parameters(pipelineRunId).addValue("watermark", Timestamp.from(watermark)));
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("select watermark_timestamp, pipeline_run_id from mdf_ingest_watermark", Map.of());
+    }
+
+    private static MapSqlParameterSource parameters(String pipelineRunId) {
+        return new MapSqlParameterSource()
+                .addValue("sourceSystem", "SALESFORCE")
+                .addValue("reportType", "Account")
+                .addValue("entity", "SystemModstamp")
+                .addValue("pipelineRunId", pipelineRunId);
+    }
+}
@@ -0,0 +1,63 @@
+package com.target.kelsaapi.common.service.postgres.watermark;
+
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermark;
+import com.target.kelsaapi.common.vo.pipeline.state.IngestWatermarkId;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IngestWatermarkServiceTest {
+
+    private static final IngestWatermarkId ID = new IngestWatermarkId("SALESFORCE", "Account", "SystemModstamp");
+
+    private final IngestWatermarkRepository repository = mock(IngestWatermarkRepository.class);
+
+    private final IngestWatermarkService service = new IngestWatermarkService(repository);
+
+    @Test
+    void lowerBoundIsTheWatermarkMovedBackByTheLookback() {
+        IngestWatermark watermark = new IngestWatermark();
+        watermark.setWatermarkTimestamp(Instant.parse("2024-01-02T00:00:00Z"));
+        when(repository.findById(ID)).thenReturn(Optional.of(watermark));
+
+        assertEquals(Optional.of(Instant.parse("2024-01-01T23:00:00Z")),
+                service.getLowerBound("SALESFORCE", "Account", "SystemModstamp", Duration.ofHours(1)));
+    }
+
+    @Test
+    void noWatermarkMeansAFullExtract() {
+        when(repository.findById(ID)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), service.getLowerBound("SALESFORCE", "Account", "SystemModstamp", Duration.ofHours(1)));
+        assertEquals(Optional.empty(), service.getCursor("SALESFORCE", "Account", "SystemModstamp"));
+    }
+
+    @Test
+    void advanceIsPassedToTheUpsert() {
+        Instant extractStarted = Instant.parse("2024-01-02T00:00:00Z");
+        when(repository.advanceTimestamp("SALESFORCE", "Account", "SystemModstamp", extractStarted, "run1")).thenReturn(0);
+
+        service.advance("SALESFORCE", "Account", "SystemModstamp", extractStarted, "run1");
+
+        verify(repository).advanceTimestamp("SALESFORCE", "Account", "SystemModstamp", extractStarted, "run1");
+    }
+
+    @Test
+    void failuresToRecordDoNotFailTheRun() {
+        when(repository.advanceTimestamp(any(), any(), any(), any(), any())).thenThrow(new DataAccessResourceFailureException("down"));
+        when(repository.saveCursor(any(), any(), any(), any(), any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertDoesNotThrow(() -> service.advance("SALESFORCE", "Account", "SystemModstamp", Instant.now(), "run1"));
+        assertDoesNotThrow(() -> service.saveCursor("SALESFORCE", "Account", "SystemModstamp", "page-3", "run1"));
+    }
+}
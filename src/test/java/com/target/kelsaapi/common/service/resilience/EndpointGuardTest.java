@@ -0,0 +1,77 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.target.kelsaapi.common.exceptions.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EndpointGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void retriesTransientFailuresOnly() throws IOException {
+        EndpointGuard guard = guard("retries", 3, 10, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = guard.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IOException("connection reset");
+            }
+            return "ok";
+        }, IOException.class::isInstance);
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(IllegalArgumentException.class, () -> guard.execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("bad request");
+        }, IOException.class::isInstance));
+        assertEquals(1, calls.get());
+        assertEquals(2, meterRegistry.get("pipeline.resilience.retries").tag("endpoint", "retries")
+                .tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void opensBreakerAfterFailuresAndClosesAfterTrialCall() throws Exception {
+        EndpointGuard guard = guard("breaker", 1, 10, 4);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IOException.class, () -> guard.execute(() -> {
+                throw new IOException("service unavailable");
+            }, IOException.class::isInstance));
+        }
+
+        assertThrows(CallNotPermittedException.class, () -> guard.execute(() -> "refused", failure -> true));
+
+        Thread.sleep(1100);
+        assertEquals("trial", guard.execute(() -> "trial", failure -> true));
+        assertEquals("closed", guard.execute(() -> "closed", failure -> true));
+    }
+
+    @Test
+    void retryBudgetCapsRetriesDuringAnOutage() {
+        EndpointGuard guard = guard("budget", 2, 3, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IOException.class, () -> guard.execute(() -> {
+                calls.incrementAndGet();
+                throw new IOException("timeout");
+            }, IOException.class::isInstance));
+        }
+
+        //10 first attempts, plus the 3 reserved retries and the 20% earned by the calls
+        assertTrue(calls.get() < 20, "Made " + calls.get() + " calls");
+        assertTrue(meterRegistry.get("pipeline.resilience.retries").tag("endpoint", "budget")
+                .tag("outcome", "budget_exhausted").counter().count() > 0);
+    }
+
+    private EndpointGuard guard(String endpoint, int maxAttempts, int minRetries, int minimumCalls) {
+        return new EndpointGuard(endpoint, new ResiliencePolicy(maxAttempts, 1, 5, 0.2, minRetries, 50,
+                Math.max(10, minimumCalls), minimumCalls, 1, 4, 50), meterRegistry);
+    }
+}
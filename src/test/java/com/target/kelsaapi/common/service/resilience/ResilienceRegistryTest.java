@@ -0,0 +1,32 @@
+package com.target.kelsaapi.common.service.resilience;
+
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ResilienceRegistryTest {
+
+    @Test
+    void perHostEndpointsFallBackToTheEntryOfTheirPrefix() {
+        PipelineConfig.Resilience resilience = new PipelineConfig.Resilience();
+        resilience.setMaxAttempts(2);
+        PipelineConfig.ResilienceEndpoint downloads = new PipelineConfig.ResilienceEndpoint();
+        downloads.setEndpoint("http-download");
+        downloads.setMaxAttempts(5);
+        PipelineConfig.ResilienceEndpoint pinterest = new PipelineConfig.ResilienceEndpoint();
+        pinterest.setEndpoint("http-download.api.pinterest.com");
+        pinterest.setMaxAttempts(7);
+        resilience.setEndpoints(List.of(downloads, pinterest));
+        ResilienceRegistry registry = new ResilienceRegistry(resilience, new SimpleMeterRegistry());
+
+        assertEquals(5, registry.guard("http-download.adsapi.snapchat.com").getMaxAttempts());
+        assertEquals(7, registry.guard("http-download.api.pinterest.com").getMaxAttempts());
+        assertEquals(2, registry.guard("http.adsapi.snapchat.com").getMaxAttempts());
+        assertSame(registry.guard("S3"), registry.guard("s3"));
+    }
+}
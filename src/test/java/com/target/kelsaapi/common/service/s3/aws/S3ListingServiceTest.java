@@ -0,0 +1,161 @@
+package com.target.kelsaapi.common.service.s3.aws;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.service.resilience.ResilienceRegistry;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Runs {@link S3ListingService} against a local stub of the ListObjectsV2 API, serving the keys below with small pages
+ * so that both the delimiter shards and the continuation tokens are exercised.
+ */
+public class S3ListingServiceTest {
+
+    private static final String BUCKET = "switchboard";
+
+    private static final int PAGE_SIZE = 2;
+
+    private static final List<String> KEYS = List.of(
+            "data/top.csv",
+            "data/2024-01-01/part-0.csv",
+            "data/2024-01-01/part-1.csv",
+            "data/2024-01-01/part-2.csv",
+            "data/2024-01-02/a/part-0.csv",
+            "data/2024-01-02/a/part-1.csv",
+            "data/2024-01-02/b/deep/part-0.csv",
+            "data/2024-01-02/b/deep/part-1.csv",
+            "data/2024-01-02/b/deep/part-2.csv",
+            "data/2024-01-03/part-0.csv",
+            "other/part-0.csv");
+
+    private ClientAndServer stubServer;
+
+    private AmazonS3 s3Client;
+
+    private final List<HttpRequest> listRequests = new ArrayList<>();
+
+    private final ResilienceRegistry resilienceRegistry = new ResilienceRegistry((PipelineConfig.Resilience) null, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        stubServer = ClientAndServer.startClientAndServer(0);
+        stubServer.when(request().withMethod("GET").withPath("/" + BUCKET))
+                .respond(this::listObjectsV2);
+        s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:" + stubServer.getPort(), "us-east-1"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Client.shutdown();
+        stubServer.stop();
+    }
+
+    @Test
+    public void testListsEveryObjectUnderThePrefixOnce() {
+        List<S3ObjectSummary> objects = new S3ListingService(4, 2, resilienceRegistry).listAll(s3Client, BUCKET, "data/");
+
+        List<String> keys = objects.stream().map(S3ObjectSummary::getKey).sorted().toList();
+        assertEquals(KEYS.stream().filter(key -> key.startsWith("data/")).sorted().toList(), keys);
+        assertTrue(requestsWithParameter("delimiter") > 0);
+        assertTrue(requestsWithParameter("continuation-token") > 0);
+    }
+
+    @Test
+    public void testListsFlatBelowTheShardDepth() {
+        List<S3ObjectSummary> objects = new S3ListingService(2, 0, resilienceRegistry).listAll(s3Client, BUCKET, "data/");
+
+        assertEquals(10, objects.size());
+        assertEquals(0, requestsWithParameter("delimiter"));
+    }
+
+    @Test
+    public void testRethrowsAFailedListing() {
+        try (S3ListingService.S3Listing listing = new S3ListingService(4, 2, resilienceRegistry).list(s3Client, BUCKET, "denied/")) {
+            assertThrows(AmazonS3Exception.class, () -> listing.forEachRemaining(object -> { }));
+        }
+    }
+
+    private synchronized long requestsWithParameter(String name) {
+        return listRequests.stream().filter(listRequest -> listRequest.getFirstQueryStringParameter(name) != null
+                && !listRequest.getFirstQueryStringParameter(name).isEmpty()).count();
+    }
+
+    private HttpResponse listObjectsV2(HttpRequest listRequest) {
+        synchronized (this) {
+            listRequests.add(listRequest);
+        }
+        String prefix = listRequest.getFirstQueryStringParameter("prefix");
+        String delimiter = listRequest.getFirstQueryStringParameter("delimiter");
+        String token = listRequest.getFirstQueryStringParameter("continuation-token");
+        if (prefix.startsWith("denied/")) {
+            return response().withStatusCode(403)
+                    .withBody("<Error><Code>AccessDenied</Code><Message>Access Denied</Message><RequestId>1</RequestId></Error>");
+        }
+
+        //Objects and common prefixes share the page, in key order, as S3 returns them
+        Set<String> entries = new TreeSet<>();
+        for (String key : KEYS) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            int end = delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            entries.add(end < 0 ? key : key.substring(0, end + delimiter.length()));
+        }
+        List<String> sorted = new ArrayList<>(entries);
+        int from = token.isEmpty() ? 0 : Integer.parseInt(token);
+        int to = Math.min(sorted.size(), from + PAGE_SIZE);
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(BUCKET).append("</Name>")
+                .append("<Prefix>").append(prefix).append("</Prefix>")
+                .append("<KeyCount>").append(to - from).append("</KeyCount>")
+                .append("<MaxKeys>").append(PAGE_SIZE).append("</MaxKeys>")
+                .append("<IsTruncated>").append(to < sorted.size()).append("</IsTruncated>");
+        if (!delimiter.isEmpty()) {
+            xml.append("<Delimiter>").append(delimiter).append("</Delimiter>");
+        }
+        if (to < sorted.size()) {
+            xml.append("<NextContinuationToken>").append(to).append("</NextContinuationToken>");
+        }
+        for (String entry : sorted.subList(from, to)) {
+            if (entry.endsWith("/")) {
+                xml.append("<CommonPrefixes><Prefix>").append(entry).append("</Prefix></CommonPrefixes>");
+            } else {
+                xml.append("<Contents><Key>").append(entry).append("</Key>")
+                        .append("<LastModified>2024-01-03T00:00:00.000Z</LastModified>")
+                        .append("<ETag>\"").append(Integer.toHexString(entry.hashCode())).append("\"</ETag>")
+                        .append("<Size>1</Size><StorageClass>STANDARD</StorageClass></Contents>");
+            }
+        }
+        return response().withStatusCode(200)
+                .withHeader("Content-Type", "application/xml")
+                .withBody(xml.append("</ListBucketResult>").toString());
+    }
+}
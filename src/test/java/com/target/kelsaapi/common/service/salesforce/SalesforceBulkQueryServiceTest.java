@@ -0,0 +1,142 @@
+package com.target.kelsaapi.common.service.salesforce;
+
+import com.target.kelsaapi.common.service.rest.HttpServiceImpl;
+import com.target.kelsaapi.pipelines.config.PipelineConfig;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Runs {@link SalesforceBulkQueryService} against a local stub of the Bulk API 2.0 query job lifecycle:
+ * create job, poll until complete, then follow the result locators.
+ */
+public class SalesforceBulkQueryServiceTest {
+
+    private static final String JOBS_PATH = "/services/data/v58.0/jobs/query";
+
+    private static final String JOB_ID = "750R0000000zlh9IAA";
+
+    private ClientAndServer stubServer;
+
+    private SalesforceBulkQueryService bulkQueryService;
+
+    private final String localFile = "salesforceBulkTest.csv.gz";
+
+    @BeforeEach
+    void setUp() {
+        stubServer = ClientAndServer.startClientAndServer(0);
+
+        PipelineConfig.Salesforce salesforceConfig = new PipelineConfig.Salesforce();
+        salesforceConfig.setBaseUrl("http://localhost:" + stubServer.getPort());
+        salesforceConfig.setBulkPollIntervalSeconds(1);
+        salesforceConfig.setBulkTimeoutMinutes(1);
+        salesforceConfig.setBulkMaxRecordsPerChunk(2);
+        salesforceConfig.setBulkMaxConcurrentChunks(2);
+
+        bulkQueryService = new SalesforceBulkQueryService(new HttpServiceImpl(new RestTemplate()), salesforceConfig);
+
+        stubServer.when(request().withMethod("POST").withPath(JOBS_PATH))
+                .respond(response().withStatusCode(200)
+                        .withBody("{\"id\":\"" + JOB_ID + "\",\"operation\":\"query\",\"state\":\"UploadComplete\"}"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stubServer.stop();
+        File file = new File(localFile);
+        if (file.exists()) FileUtils.delete(file);
+    }
+
+    @Test
+    public void testWriteQueryResultsFollowsLocators() throws Exception {
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID), Times.once())
+                .respond(response().withStatusCode(200).withBody("{\"id\":\"" + JOB_ID + "\",\"state\":\"InProgress\"}"));
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID))
+                .respond(response().withStatusCode(200)
+                        .withBody("{\"id\":\"" + JOB_ID + "\",\"state\":\"JobComplete\",\"numberRecordsProcessed\":3}"));
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID + "/results")
+                        .withQueryStringParameter("locator", "MjAwMDAw"))
+                .respond(response().withStatusCode(200)
+                        .withHeader("Sforce-Locator", "null")
+                        .withHeader("Sforce-NumberOfRecords", "1")
+                        .withBody("\"Id\",\"Name\"\n\"003\",\"Gamma\"\n"));
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID + "/results"))
+                .respond(response().withStatusCode(200)
+                        .withHeader("Sforce-Locator", "MjAwMDAw")
+                        .withHeader("Sforce-NumberOfRecords", "2")
+                        .withBody("\"Id\",\"Name\"\n\"001\",\"Alpha\"\n\"002\",\"Beta\nSecond line\"\n"));
+
+        long records = bulkQueryService.writeQueryResults("token", "SELECT Id, Name from Account", localFile);
+
+        assertEquals(3, records);
+        try (InputStream in = new GzipCompressorInputStream(new FileInputStream(localFile), true)) {
+            assertEquals("\"Id\",\"Name\"\n\"001\",\"Alpha\"\n\"002\",\"Beta\nSecond line\"\n\"003\",\"Gamma\"\n",
+                    IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        assertFalse(new File(localFile + ".part0").exists());
+        assertFalse(new File(localFile + ".part1").exists());
+    }
+
+    @Test
+    public void testWriteQueryResultsMergesEveryChunkOfALongChain() throws Exception {
+        int chunkCount = 8;
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID))
+                .respond(response().withStatusCode(200)
+                        .withBody("{\"id\":\"" + JOB_ID + "\",\"state\":\"JobComplete\",\"numberRecordsProcessed\":" + chunkCount + "}"));
+        StringBuilder expected = new StringBuilder("\"Id\"\n");
+        for (int i = chunkCount - 1; i >= 0; i--) {
+            String nextLocator = i == chunkCount - 1 ? "null" : "chunk" + (i + 1);
+            HttpRequest chunkRequest = request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID + "/results");
+            if (i > 0) {
+                chunkRequest.withQueryStringParameter("locator", "chunk" + i);
+            }
+            stubServer.when(chunkRequest)
+                    .respond(response().withStatusCode(200)
+                            .withHeader("Sforce-Locator", nextLocator)
+                            .withHeader("Sforce-NumberOfRecords", "1")
+                            .withBody("\"Id\"\n\"00" + i + "\"\n"));
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            expected.append("\"00").append(i).append("\"\n");
+        }
+
+        long records = bulkQueryService.writeQueryResults("token", "SELECT Id from Account", localFile);
+
+        assertEquals(chunkCount, records);
+        try (InputStream in = new GzipCompressorInputStream(new FileInputStream(localFile), true)) {
+            assertEquals(expected.toString(), IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            assertFalse(new File(localFile + ".part" + i).exists(), "Part file of chunk " + i + " was left behind");
+        }
+    }
+
+    @Test
+    public void testWriteQueryResultsFailsOnFailedJob() {
+        stubServer.when(request().withMethod("GET").withPath(JOBS_PATH + "/" + JOB_ID))
+                .respond(response().withStatusCode(200)
+                        .withBody("{\"id\":\"" + JOB_ID + "\",\"state\":\"Failed\",\"errorMessage\":\"INVALID_FIELD\"}"));
+
+        assertThrows(IOException.class,
+                () -> bulkQueryService.writeQueryResults("token", "SELECT Bogus from Account", localFile));
+    }
+}
@@ -0,0 +1,63 @@
+package com.target.kelsaapi.common.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.target.kelsaapi.common.constants.ApplicationConstants;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonCursorExtractorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String STATS_PAGE = "{\"request_status\":\"SUCCESS\","
+            + "\"timeseries_stats\":[{\"timeseries_stat\":{\"id\":\"a\",\"timeseries\":[{\"stats\":{\"impressions\":10}}],"
+            + "\"paging\":{\"next_link\":\"https://adsapi.example.com/stats?cursor=2\"}}},"
+            + "{\"timeseries_stat\":{\"id\":\"b\",\"timeseries\":[]}}],"
+            + "\"paging\":{\"next_link\":\"https://adsapi.example.com/adaccounts?cursor=3\"}}";
+
+    @Test
+    void extractsNestedCursor() throws JsonProcessingException {
+        String pointer = "/timeseries_stats/0/timeseries_stat/paging/next_link";
+        Map<String, String> found = new JsonCursorExtractor(MAPPER.getFactory(), List.of(pointer)).extract(STATS_PAGE);
+        assertEquals("https://adsapi.example.com/stats?cursor=2", found.get(pointer));
+    }
+
+    @Test
+    void addsMissingLeadingSlash() throws JsonProcessingException {
+        Map<String, String> found = new JsonCursorExtractor(MAPPER.getFactory(), List.of("paging/next_link")).extract(STATS_PAGE);
+        assertEquals("https://adsapi.example.com/adaccounts?cursor=3", found.get("/paging/next_link"));
+    }
+
+    @Test
+    void leavesOutMissingAndNonScalarPaths() throws JsonProcessingException {
+        Map<String, String> found = new JsonCursorExtractor(MAPPER.getFactory(), List.of("/paging/cursor", "/paging")).extract(STATS_PAGE);
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    void streamsRecordsInTheSamePass() throws IOException {
+        StringWriter records = new StringWriter();
+        Map<String, String> found = new JsonCursorExtractor(MAPPER.getFactory(), List.of("/paging/next_link"), "/timeseries_stats")
+                .extract(STATS_PAGE, records);
+
+        assertEquals("https://adsapi.example.com/adaccounts?cursor=3", found.get("/paging/next_link"));
+        String[] lines = records.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("a", MAPPER.readTree(lines[0]).at("/timeseries_stat/id").asText());
+        assertEquals("b", MAPPER.readTree(lines[1]).at("/timeseries_stat/id").asText());
+    }
+
+    @Test
+    void matchesNextLinkOfParsedTree() throws JsonProcessingException {
+        String pointer = SnapChatUtils.getAttributePathInMessage(ApplicationConstants.SnapChatReportTypes.STATS);
+        String parsed = MAPPER.readTree(STATS_PAGE).at(pointer).asText();
+        assertEquals(parsed, SnapChatUtils.getNextLink(STATS_PAGE, MAPPER, pointer));
+    }
+}
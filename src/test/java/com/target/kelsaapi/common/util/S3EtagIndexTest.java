@@ -0,0 +1,61 @@
+package com.target.kelsaapi.common.util;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.target.kelsaapi.common.vo.s3.S3ObjectSummaryState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class S3EtagIndexTest {
+
+    @Test
+    void keepsNewAndChangedObjectsInOrder() {
+        List<S3ObjectSummaryState> loaded = List.of(loaded("a.csv", "etag-a"), loaded("c.csv", "etag-c"));
+        List<S3ObjectSummary> current = List.of(current("a.csv", "etag-a"), current("b.csv", "etag-b"),
+                current("c.csv", "etag-c2"), current("d.csv", "etag-d"));
+
+        List<S3ObjectSummary> diff = S3Utils.curPrevLoadedFileObjectsEtagCheck(loaded, current, "test");
+
+        assertEquals(List.of("b.csv", "c.csv", "d.csv"), diff.stream().map(S3ObjectSummary::getKey).toList());
+    }
+
+    @Test
+    void skipsEveryLoadedObjectNotOnlyTheFirst() {
+        List<S3ObjectSummaryState> loaded = List.of(loaded("a.csv", "etag-a"));
+        List<S3ObjectSummary> current = List.of(current("a.csv", "etag-a"), current("b.csv", "etag-b"));
+
+        List<S3ObjectSummary> diff = S3Utils.curPrevLoadedFileObjectsEtagCheck(loaded, current, "test");
+
+        assertEquals(List.of("b.csv"), diff.stream().map(S3ObjectSummary::getKey).toList());
+    }
+
+    @Test
+    void matchesTrimmedValuesAndEveryLoadedVersion() {
+        S3EtagIndex index = new S3EtagIndex();
+        index.add(" a.csv ", "\"etag-1\" ");
+        index.add("a.csv", "\"etag-2\"");
+        index.add("a.csv", "\"etag-2\"");
+
+        assertEquals(2, index.size());
+        assertTrue(index.contains("a.csv", "\"etag-1\""));
+        assertTrue(index.contains("a.csv ", "\"etag-2\""));
+        assertFalse(index.contains("a.csv", "\"etag-3\""));
+        assertFalse(index.contains("b.csv", "\"etag-1\""));
+    }
+
+    private static S3ObjectSummaryState loaded(String key, String etag) {
+        S3ObjectSummaryState state = new S3ObjectSummaryState();
+        state.setKey(key);
+        state.setEtag(etag);
+        return state;
+    }
+
+    private static S3ObjectSummary current(String key, String etag) {
+        S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setKey(key);
+        summary.setETag(etag);
+        return summary;
+    }
+}
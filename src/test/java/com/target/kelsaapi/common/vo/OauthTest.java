@@ -0,0 +1,74 @@
+package com.target.kelsaapi.common.vo;
+
+import com.target.kelsaapi.common.exceptions.HttpException;
+import com.target.kelsaapi.common.service.authentication.TokenCache;
+import com.target.kelsaapi.pipelines.config.authentication.Oauth2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OauthTest {
+
+    private final TokenCache tokenCache = mock(TokenCache.class);
+
+    private final Oauth2 config = new Oauth2();
+
+    private Oauth oauth;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean(TokenCache.class)).thenReturn(tokenCache);
+        when(tokenCache.getToken(config)).thenReturn("token-1");
+        when(tokenCache.refreshToken(config, "token-1")).thenReturn("token-2");
+        oauth = new Oauth(context, config);
+    }
+
+    @Test
+    void aCallRejectedWithA401IsRetriedWithARefreshedToken() throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        String result = oauth.withTokenRetry(token -> {
+            tokens.add(token);
+            if (token.equals("token-1")) {
+                throw new HttpException("401 Unauthorized", new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(List.of("token-1", "token-2"), tokens);
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() throws Exception {
+        HttpException forbidden = new HttpException("403 Forbidden", new HttpClientErrorException(HttpStatus.FORBIDDEN));
+
+        assertSame(forbidden, assertThrows(HttpException.class, () -> oauth.withTokenRetry(token -> {
+            throw forbidden;
+        })));
+        verify(tokenCache, never()).refreshToken(config, "token-1");
+    }
+
+    @Test
+    void aSecond401IsThrown() throws Exception {
+        assertThrows(HttpException.class, () -> oauth.withTokenRetry(token -> {
+            throw new HttpException("401 Unauthorized", new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        }));
+        verify(tokenCache, never()).refreshToken(config, "token-2");
+        verify(tokenCache).refreshToken(config, "token-1");
+    }
+}
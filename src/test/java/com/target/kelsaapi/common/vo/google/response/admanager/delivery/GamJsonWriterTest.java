@@ -0,0 +1,107 @@
+package com.target.kelsaapi.common.vo.google.response.admanager.delivery;
+
+import com.google.api.ads.admanager.axis.v202311.*;
+import com.target.kelsaapi.common.util.SerializerRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The golden output is what the reflective Gson of the {@link SerializerRegistry} writes for the same record, so the
+ * comparison keeps holding when the Ad Manager API version, and with it the superclass fields, changes.
+ */
+public class GamJsonWriterTest {
+
+    private static final Instant REPORT_TIMESTAMP = Instant.parse("2024-01-02T06:00:00Z");
+
+    @Test
+    void lineItemMatchesGson() {
+        GamLineItem lineItem = new GamLineItem(lineItem(6_000_000_001L), "2024-01-01", REPORT_TIMESTAMP);
+        assertEquals(SerializerRegistry.shared().gamGson(LineItem.class).toJson(lineItem), lineItem.toJson());
+    }
+
+    @Test
+    void sparseLineItemMatchesGson() {
+        LineItem sparse = new LineItem();
+        sparse.setId(6_000_000_002L);
+        sparse.setBudget(new Money("USD", 0L));
+        GamLineItem lineItem = new GamLineItem(sparse, "2024-01-01", REPORT_TIMESTAMP);
+        assertEquals(SerializerRegistry.shared().gamGson(LineItem.class).toJson(lineItem), lineItem.toJson());
+    }
+
+    @Test
+    void orderMatchesGson() {
+        GamOrder order = new GamOrder(order(3_000_000_001L), "2024-01-01", REPORT_TIMESTAMP);
+        assertEquals(SerializerRegistry.shared().gamGson(Order.class).toJson(order), order.toJson());
+    }
+
+    @Test
+    void writesToAnExistingWriter() throws IOException {
+        GamJsonWriter<GamOrder> writer = new GamJsonWriter<>(GamOrder.class, SerializerRegistry.shared().gamGson(Order.class));
+        GamOrder first = new GamOrder(order(3_000_000_001L), "2024-01-01", REPORT_TIMESTAMP);
+        GamOrder second = new GamOrder(order(3_000_000_002L), "2024-01-01", REPORT_TIMESTAMP);
+        StringWriter out = new StringWriter();
+        writer.write(first, out);
+        out.write('\n');
+        writer.write(second, out);
+
+        assertEquals(first.toJson() + "\n" + second.toJson(), out.toString());
+    }
+
+    private static LineItem lineItem(long id) {
+        LineItem lineItem = new LineItem();
+        lineItem.setId(id);
+        lineItem.setOrderId(3_000_000_001L);
+        //Characters Gson escapes in html safe mode
+        lineItem.setName("Line item <" + id + "> & 'friends' \u2028");
+        lineItem.setOrderName("Order \"quoted\"");
+        lineItem.setExternalId("EXT-" + id);
+        lineItem.setPriority(8);
+        lineItem.setLineItemType(LineItemType.STANDARD);
+        lineItem.setCostType(CostType.CPM);
+        lineItem.setStatus(ComputedStatus.DELIVERING);
+        lineItem.setDeliveryRateType(DeliveryRateType.EVENLY);
+        lineItem.setCreativeRotationType(CreativeRotationType.OPTIMIZED);
+        lineItem.setBudget(new Money("USD", 125_000_000_000L));
+        lineItem.setCostPerUnit(new Money("USD", 2_500_000L));
+        Stats stats = new Stats();
+        stats.setImpressionsDelivered(1_234_567L);
+        stats.setClicksDelivered(890L);
+        lineItem.setStats(stats);
+        lineItem.setAppliedLabels(new AppliedLabel[]{new AppliedLabel(42L, false)});
+        lineItem.setFrequencyCaps(new FrequencyCap[]{new FrequencyCap(3, 1, TimeUnit.DAY)});
+        CreativePlaceholder placeholder = new CreativePlaceholder();
+        placeholder.setSize(new Size(300, 250, false));
+        placeholder.setExpectedCreativeCount(1);
+        lineItem.setCreativePlaceholders(new CreativePlaceholder[]{placeholder});
+        lineItem.setAllowedFormats(new AllowedFormats[]{AllowedFormats.AUDIO});
+        Goal goal = new Goal();
+        goal.setGoalType(GoalType.LIFETIME);
+        goal.setUnitType(UnitType.IMPRESSIONS);
+        goal.setUnits(1_000_000L);
+        lineItem.setPrimaryGoal(goal);
+        Targeting targeting = new Targeting();
+        InventoryTargeting inventoryTargeting = new InventoryTargeting();
+        inventoryTargeting.setTargetedAdUnits(new AdUnitTargeting[]{new AdUnitTargeting("21700000", true)});
+        targeting.setInventoryTargeting(inventoryTargeting);
+        lineItem.setTargeting(targeting);
+        return lineItem;
+    }
+
+    private static Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setName("Order <" + id + ">");
+        order.setAdvertiserId(4_000_000_001L);
+        order.setStatus(OrderStatus.APPROVED);
+        order.setTotalBudget(new Money("USD", 500_000_000L));
+        order.setTotalImpressionsDelivered(1_234_567L);
+        order.setIsArchived(false);
+        order.setSecondaryTraffickerIds(new long[]{1L, 2L});
+        return order;
+    }
+}